@@ -31,6 +31,14 @@ public final class FileProperties {
   private static String pdbOption = "_option";
   /** The reference collection file name. */
   private static String referenceCollection = "reference";
+  /** The partial filename of reference collection delta log. */
+  private static String referenceDelta = "_delta";
+  /** The partial filename of shared reference collection. */
+  private static String referenceShared = "_shared";
+  /** The partial filename of reference collection usage counters. */
+  private static String referenceUsage = "_usage";
+  /** The solution cache file name. */
+  private static String solutionCache = "solution_cache";
   /** The file extension. */
   private static String extension = "db";
 
@@ -63,6 +71,22 @@ public final class FileProperties {
       referenceCollection = PropertiesCache.getInstance().getProperty("fileRefCollection");
     }
 
+    if (PropertiesCache.getInstance().containsKey("fileRefDelta")) {
+      referenceDelta = PropertiesCache.getInstance().getProperty("fileRefDelta");
+    }
+
+    if (PropertiesCache.getInstance().containsKey("fileRefShared")) {
+      referenceShared = PropertiesCache.getInstance().getProperty("fileRefShared");
+    }
+
+    if (PropertiesCache.getInstance().containsKey("fileRefUsage")) {
+      referenceUsage = PropertiesCache.getInstance().getProperty("fileRefUsage");
+    }
+
+    if (PropertiesCache.getInstance().containsKey("fileSolutionCache")) {
+      solutionCache = PropertiesCache.getInstance().getProperty("fileSolutionCache");
+    }
+
     if (PropertiesCache.getInstance().containsKey("fileExtension")) {
       extension = PropertiesCache.getInstance().getProperty("fileExtension");
     }
@@ -137,6 +161,58 @@ public final class FileProperties {
     return directory + SEPARATOR + referenceCollection + "." + extension;
   }
 
+  /**
+   * Returns the file path for reference data delta log, the changes after last snapshot.
+   *
+   * @return String of file path for reference data delta log
+   */
+  public static String getFilepathReferenceDelta() {
+    return directory + SEPARATOR + referenceCollection + referenceDelta + "." + extension;
+  }
+
+  /**
+   * Returns the file path for the delta log of the given reference data file.
+   *
+   * @param filepath the file path of reference data storage
+   * @return String of file path for delta log of the given reference data file
+   */
+  public static String getFilepathReferenceDelta(final String filepath) {
+    String suffix = "." + extension;
+    if (filepath.endsWith(suffix)) {
+      return filepath.substring(0, filepath.length() - suffix.length()) + referenceDelta
+          + suffix;
+    }
+    return filepath + referenceDelta;
+  }
+
+  /**
+   * Returns the file path for shared reference collection, memory mapped by standalone
+   * applications.
+   *
+   * @return String of file path for shared reference collection
+   */
+  public static String getFilepathReferenceShared() {
+    return directory + SEPARATOR + referenceCollection + referenceShared + "." + extension;
+  }
+
+  /**
+   * Returns the file path for usage counters of reference collection.
+   *
+   * @return String of file path for usage counters of reference collection
+   */
+  public static String getFilepathReferenceUsage() {
+    return directory + SEPARATOR + referenceCollection + referenceUsage + "." + extension;
+  }
+
+  /**
+   * Returns the file path for solution cache, the cached solutions of last run.
+   *
+   * @return String of file path for solution cache
+   */
+  public static String getFilepathSolutionCache() {
+    return directory + SEPARATOR + solutionCache + "." + extension;
+  }
+
   /**
    * Returns the directory path of all files.
    *
@@ -0,0 +1,73 @@
+package mwong.myprojects.fifteenpuzzle.execution;
+
+import mwong.myprojects.fifteenpuzzle.puzzle.Board;
+import mwong.myprojects.fifteenpuzzle.puzzle.Board.DifficultyLevel;
+import mwong.myprojects.fifteenpuzzle.puzzle.BoardGenerator;
+
+/**
+ * BenchmarkBoardGenerator is the utility class.  It measures the number of boards
+ * generated per second of Board constructor, BoardGenerator sequential and parallel
+ * streams for each difficulty level.
+ *
+ * <p>Dependencies : Board.java, BoardGenerator.java
+ *
+ * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
+ *            target="_blank">Meisze Wong (linkedin)</a>
+ * @see <a href="http://www.github.com/mwong510ca/15PuzzleOptimalSolver/"
+ *         target="_blank">GitHub (full project)</a>
+ */
+public final class BenchmarkBoardGenerator {
+  /** Default number of boards of each test. */
+  private static final int DEFAULT_COUNT = 200000;
+  /** Default seed of the generator. */
+  private static final long DEFAULT_SEED = 15L;
+  /** Nano seconds in one second. */
+  private static final double NANO_SEC = 1e9;
+
+  /** private constructor, no instance. */
+  private BenchmarkBoardGenerator() {
+    // Not called
+  }
+
+  /**
+   * Generate the given number of boards of each difficulty level and display the number
+   * of boards per second.
+   *
+   * @param args optional number of boards and seed
+   */
+  public static void main(final String[] args) {
+    int count = DEFAULT_COUNT;
+    long seed = DEFAULT_SEED;
+    if (args.length > 0) {
+      count = Integer.parseInt(args[0]);
+    }
+    if (args.length > 1) {
+      seed = Long.parseLong(args[1]);
+    }
+
+    System.out.printf("%-10s %15s %15s %15s %12s%n", "Level", "Board()",
+        "sequential", "parallel", "checksum");
+    for (DifficultyLevel level : DifficultyLevel.values()) {
+      long start = System.nanoTime();
+      long checksum = 0;
+      for (int i = 0; i < count; i++) {
+        checksum += new Board(level).hashCode();
+      }
+      double boardRate = count * NANO_SEC / (System.nanoTime() - start);
+
+      BoardGenerator generator = new BoardGenerator(seed);
+      start = System.nanoTime();
+      for (int i = 0; i < count; i++) {
+        checksum += generator.nextPacked(level);
+      }
+      double seqRate = count * NANO_SEC / (System.nanoTime() - start);
+
+      start = System.nanoTime();
+      checksum += new BoardGenerator(seed).parallelPackedBoards(count, level).sum();
+      double parRate = count * NANO_SEC / (System.nanoTime() - start);
+
+      System.out.printf("%-10s %13.0f/s %13.0f/s %13.0f/s %12x%n", level.toString().trim(),
+          boardRate, seqRate, parRate, checksum & 0xFFFFFFFFL);
+    }
+  }
+}
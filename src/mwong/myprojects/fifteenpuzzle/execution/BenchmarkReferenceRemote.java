@@ -0,0 +1,216 @@
+package mwong.myprojects.fifteenpuzzle.execution;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.net.Socket;
+import java.rmi.NoSuchObjectException;
+import java.rmi.server.RMIClientSocketFactory;
+import java.rmi.server.RemoteObject;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.concurrent.atomic.AtomicLong;
+
+import mwong.myprojects.fifteenpuzzle.puzzle.Board.DifficultyLevel;
+import mwong.myprojects.fifteenpuzzle.puzzle.BoardGenerator;
+import mwong.myprojects.fifteenpuzzle.puzzle.PuzzleConstants;
+import mwong.myprojects.fifteenpuzzle.server.ReferenceRemoteImpl;
+import mwong.myprojects.fifteenpuzzle.solution.ai.ReferenceProperties;
+import mwong.myprojects.fifteenpuzzle.solution.ai.ReferenceRemote;
+
+/**
+ * BenchmarkReferenceRemote is the utility class.  It exports a ReferenceRemoteImpl on the
+ * loopback interface and measures the latency and bytes on the wire per call of a remote
+ * heuristic evaluation, transfer the full collection by getActiveMap compare with the
+ * server side lookup and bestInverseEstimate.
+ *
+ * <p>Dependencies : BoardGenerator.java, PuzzleConstants.java, ReferenceProperties.java,
+ *                   ReferenceRemote.java, ReferenceRemoteImpl.java
+ *
+ * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
+ *            target="_blank">Meisze Wong (linkedin)</a>
+ * @see <a href="http://www.github.com/mwong510ca/15PuzzleOptimalSolver/"
+ *         target="_blank">GitHub (full project)</a>
+ */
+public final class BenchmarkReferenceRemote {
+  /** Default number of calls of each test. */
+  private static final int DEFAULT_COUNT = 1000;
+  /** Number of calls to warm up the connection of each test. */
+  private static final int WARM_UP = 50;
+  /** Default seed of the generator. */
+  private static final long DEFAULT_SEED = 15L;
+  /** Nano seconds in one micro second. */
+  private static final double NANO_MICRO = 1e3;
+  /** The number of bytes sent by the client. */
+  private static final AtomicLong BYTES_SENT = new AtomicLong();
+  /** The number of bytes received by the client. */
+  private static final AtomicLong BYTES_RECEIVED = new AtomicLong();
+
+  /** private constructor, no instance. */
+  private BenchmarkReferenceRemote() {
+    // Not called
+  }
+
+  /**
+   * CountingSocketFactory is the client socket factory counts the bytes sent and
+   * received by the client, the client runs in the same application.
+   */
+  private static final class CountingSocketFactory implements RMIClientSocketFactory,
+      Serializable {
+    private static final long serialVersionUID = 17195273124L;
+
+    @Override
+    public Socket createSocket(final String host, final int port) throws IOException {
+      return new Socket(host, port) {
+        @Override
+        public OutputStream getOutputStream() throws IOException {
+          return new FilterOutputStream(super.getOutputStream()) {
+            @Override
+            public void write(final int value) throws IOException {
+              out.write(value);
+              BYTES_SENT.incrementAndGet();
+            }
+
+            @Override
+            public void write(final byte[] buffer, final int off, final int len)
+                throws IOException {
+              out.write(buffer, off, len);
+              BYTES_SENT.addAndGet(len);
+            }
+          };
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+          return new FilterInputStream(super.getInputStream()) {
+            @Override
+            public int read() throws IOException {
+              int value = in.read();
+              if (value != -1) {
+                BYTES_RECEIVED.incrementAndGet();
+              }
+              return value;
+            }
+
+            @Override
+            public int read(final byte[] buffer, final int off, final int len)
+                throws IOException {
+              int count = in.read(buffer, off, len);
+              if (count > 0) {
+                BYTES_RECEIVED.addAndGet(count);
+              }
+              return count;
+            }
+          };
+        }
+      };
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      return obj instanceof CountingSocketFactory;
+    }
+
+    @Override
+    public int hashCode() {
+      return CountingSocketFactory.class.hashCode();
+    }
+  }
+
+  /**
+   * RemoteCall is the remote call of the given board to measure.
+   */
+  private interface RemoteCall {
+    /**
+     * Call the remote object with the given packed board.
+     *
+     * @param packedTiles the long value of 16 tiles packed in 4 bits per tile
+     * @return long value of the result as checksum
+     * @throws IOException any IOException
+     */
+    long call(long packedTiles) throws IOException;
+  }
+
+  /**
+   * Measure the given remote call with the given boards, display the average latency and
+   * the bytes sent and received per call.
+   *
+   * @param name the name of the test
+   * @param boards the long array of packed boards
+   * @param remoteCall the remote call to measure
+   * @throws IOException any IOException
+   */
+  private static void measure(final String name, final long[] boards,
+      final RemoteCall remoteCall) throws IOException {
+    long checksum = 0;
+    for (int i = 0; i < WARM_UP; i++) {
+      checksum += remoteCall.call(boards[i % boards.length]);
+    }
+    BYTES_SENT.set(0);
+    BYTES_RECEIVED.set(0);
+    long start = System.nanoTime();
+    for (long packedTiles : boards) {
+      checksum += remoteCall.call(packedTiles);
+    }
+    long elapsed = System.nanoTime() - start;
+    System.out.printf("%-22s %12.1f us %12d %12d %12x%n", name,
+        elapsed / NANO_MICRO / boards.length, BYTES_SENT.get() / boards.length,
+        BYTES_RECEIVED.get() / boards.length, checksum & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Export the reference server on the loopback interface, display the average latency
+   * and bytes per call of each remote call.
+   *
+   * @param args optional number of calls and seed
+   * @throws IOException any IOException
+   */
+  public static void main(final String[] args) throws IOException {
+    int count = DEFAULT_COUNT;
+    long seed = DEFAULT_SEED;
+    if (args.length > 0) {
+      count = Integer.parseInt(args[0]);
+    }
+    if (args.length > 1) {
+      seed = Long.parseLong(args[1]);
+    }
+
+    // half of the boards are reference boards
+    BoardGenerator generator = new BoardGenerator(seed);
+    byte[][][] presets = ReferenceProperties.getDefaultBoards();
+    long[] boards = new long[count];
+    for (int i = 0; i < count; i++) {
+      if (i % 2 == 0) {
+        boards[i] = PuzzleConstants.packTiles(presets[i / 2 % presets.length][0]);
+      } else {
+        boards[i] = generator.nextPacked(DifficultyLevel.HARD);
+      }
+    }
+    final byte basis = 50;
+    final int inverseCount = Math.max(1, count / 10);
+    long[] inverseBoards = generator.nextPackedBoards(inverseCount, basis, basis + 1);
+
+    ReferenceRemoteImpl server = new ReferenceRemoteImpl(0, new CountingSocketFactory(),
+        null);
+    final ReferenceRemote client = (ReferenceRemote) RemoteObject.toStub(server);
+    try {
+      System.out.printf("%-22s %15s %12s %12s %12s%n", "Remote call", "latency",
+          "bytes sent", "bytes recv", "checksum");
+      measure("getActiveMap", boards, packedTiles -> client.getActiveMap().size());
+      measure("lookup", boards, packedTiles -> client.lookup(packedTiles));
+      measure("getActiveMap (inverse)", inverseBoards,
+          packedTiles -> client.getActiveMap().size());
+      measure("bestInverseEstimate", inverseBoards,
+          packedTiles -> client.bestInverseEstimate(packedTiles, basis));
+    } finally {
+      try {
+        UnicastRemoteObject.unexportObject(server, true);
+      } catch (NoSuchObjectException ex) {
+        System.err.println(ex.getMessage());
+      }
+    }
+    System.exit(0);
+  }
+}
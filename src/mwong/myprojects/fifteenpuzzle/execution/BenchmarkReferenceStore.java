@@ -0,0 +1,343 @@
+package mwong.myprojects.fifteenpuzzle.execution;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import mwong.myprojects.fifteenpuzzle.puzzle.Board;
+import mwong.myprojects.fifteenpuzzle.puzzle.BoardGenerator;
+import mwong.myprojects.fifteenpuzzle.solution.ai.ConcurrentReferenceTable;
+import mwong.myprojects.fifteenpuzzle.solution.ai.ReferenceBoard;
+import mwong.myprojects.fifteenpuzzle.solution.ai.ReferenceMoves;
+import mwong.myprojects.fifteenpuzzle.solution.ai.ReferenceTable;
+
+/**
+ * BenchmarkReferenceStore is the utility class.  It stress tests the reference collection
+ * of the reference server, reader threads look up the reference boards while writer
+ * threads update and add reference boards.  Every write has the same value in all 4
+ * lookups, a reader verifies it never sees a partial write.  It displays the read
+ * throughput of ConcurrentReferenceTable compare with a ReferenceTable with one lock,
+ * and verifies the final collection has all the writes.
+ *
+ * <p>Dependencies : Board.java, BoardGenerator.java, ConcurrentReferenceTable.java,
+ *                   ReferenceBoard.java, ReferenceMoves.java, ReferenceTable.java
+ *
+ * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
+ *            target="_blank">Meisze Wong (linkedin)</a>
+ * @see <a href="http://www.github.com/mwong510ca/15PuzzleOptimalSolver/"
+ *         target="_blank">GitHub (full project)</a>
+ */
+public final class BenchmarkReferenceStore {
+  /** Default number of reference boards. */
+  private static final int DEFAULT_BOARDS = 2000;
+  /** Default duration of each test in milliseconds. */
+  private static final int DEFAULT_DURATION = 1000;
+  /** Default seed of the generator. */
+  private static final long DEFAULT_SEED = 15L;
+  /** The number of writer threads. */
+  private static final int WRITERS = 2;
+  /** The number of new reference boards of each writer. */
+  private static final int NEW_BOARDS = 500;
+  /** The pause of writer between writes in milliseconds. */
+  private static final int WRITE_PAUSE = 1;
+  /** The number of reader threads of each test. */
+  private static final int[] READERS = {1, 2, 4, 8};
+  /** The number of lookups, 4 lookup per reference board. */
+  private static final int NUM_LOOKUPS = 4;
+  /** The maximum value of a write. */
+  private static final int MAX_VALUE = 80;
+
+  /** private constructor, no instance. */
+  private BenchmarkReferenceStore() {
+    // Not called
+  }
+
+  /**
+   * Store is the reference collection under test.
+   */
+  private interface Store {
+    /**
+     * Returns the value of the reference board of the given key, 0 if not exists, or -1
+     * if the 4 lookups are not the same value.
+     *
+     * @param key the canonical key
+     * @return integer of value of the reference board
+     */
+    int read(long key);
+
+    /**
+     * Insert or replace the given reference board with the given value.
+     *
+     * @param advBoard the given ReferenceBoard object
+     * @param value the given value
+     */
+    void write(ReferenceBoard advBoard, int value);
+
+    /**
+     * Returns the ReferenceTable to verify after the test.
+     *
+     * @return ReferenceTable of the store
+     */
+    ReferenceTable table();
+  }
+
+  /**
+   * Returns the value of the reference board of the given key of the given table, 0 if
+   * not exists, or -1 if the 4 lookups are not the same value.
+   *
+   * @param table the given ReferenceTable
+   * @param key the canonical key
+   * @return integer of value of the reference board
+   */
+  private static int readTable(final ReferenceTable table, final long key) {
+    int slot = table.slotOf(key);
+    if (slot < 0) {
+      return 0;
+    }
+    int value = table.getEstimate(slot);
+    for (int lookup = 1; lookup < NUM_LOOKUPS; lookup++) {
+      if (table.getEstimate(slot, lookup) != value) {
+        return -1;
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Returns the ReferenceMoves of the given value in all 4 lookups.
+   *
+   * @param value the given value
+   * @return ReferenceMoves of the given value
+   */
+  private static ReferenceMoves movesOf(final int value) {
+    byte[] moves = new byte[NUM_LOOKUPS];
+    short[] initMoves = new short[NUM_LOOKUPS];
+    for (int lookup = 0; lookup < NUM_LOOKUPS; lookup++) {
+      moves[lookup] = (byte) value;
+      initMoves[lookup] = (short) value;
+    }
+    return new ReferenceMoves(moves, initMoves, (byte) 0);
+  }
+
+  /**
+   * Returns the Store of ConcurrentReferenceTable of the given table.
+   *
+   * @param source the given ReferenceTable
+   * @return Store of ConcurrentReferenceTable
+   */
+  private static Store concurrentStore(final ReferenceTable source) {
+    final ConcurrentReferenceTable table = new ConcurrentReferenceTable(source);
+    return new Store() {
+      @Override
+      public int read(final long key) {
+        return readTable(table.snapshot(), key);
+      }
+
+      @Override
+      public void write(final ReferenceBoard advBoard, final int value) {
+        table.put(advBoard, movesOf(value));
+      }
+
+      @Override
+      public ReferenceTable table() {
+        return table;
+      }
+    };
+  }
+
+  /**
+   * Returns the Store of a copy of the given table with one lock.
+   *
+   * @param source the given ReferenceTable
+   * @return Store of ReferenceTable with one lock
+   */
+  private static Store lockedStore(final ReferenceTable source) {
+    final ReferenceTable table = new ReferenceTable(source.size());
+    for (int slot = 0; slot < source.capacity(); slot++) {
+      if (source.isOccupied(slot)) {
+        table.put(source.getBoard(slot), source.getMoves(slot));
+      }
+    }
+    return new Store() {
+      @Override
+      public synchronized int read(final long key) {
+        return readTable(table, key);
+      }
+
+      @Override
+      public synchronized void write(final ReferenceBoard advBoard, final int value) {
+        table.put(advBoard, movesOf(value));
+      }
+
+      @Override
+      public synchronized ReferenceTable table() {
+        return table;
+      }
+    };
+  }
+
+  /**
+   * Run the readers and writers on the given store for the given duration, display the
+   * number of reads per millisecond and verify the final collection.
+   *
+   * @param name the name of the store
+   * @param store the given store
+   * @param readers the number of reader threads
+   * @param boards the reference boards in store
+   * @param newBoards the new reference boards of each writer
+   * @param duration the duration in milliseconds
+   * @return long value of number of reads per millisecond
+   * @throws InterruptedException InterruptedException
+   */
+  private static long run(final String name, final Store store, final int readers,
+      final ReferenceBoard[] boards, final ReferenceBoard[][] newBoards, final int duration)
+      throws InterruptedException {
+    final long[] keys = new long[boards.length];
+    for (int i = 0; i < boards.length; i++) {
+      keys[i] = ReferenceTable.keyOf(boards[i]);
+    }
+    final AtomicBoolean running = new AtomicBoolean(true);
+    final AtomicLong reads = new AtomicLong();
+    final AtomicLong errors = new AtomicLong();
+    final CountDownLatch ready = new CountDownLatch(readers + WRITERS);
+    final int[][] lastValues = new int[WRITERS][boards.length];
+    List<Thread> threads = new ArrayList<Thread>();
+
+    for (int r = 0; r < readers; r++) {
+      threads.add(new Thread(() -> {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long count = 0;
+        ready.countDown();
+        while (running.get()) {
+          if (store.read(keys[random.nextInt(keys.length)]) < 1) {
+            errors.incrementAndGet();
+          }
+          count++;
+        }
+        reads.addAndGet(count);
+      }));
+    }
+    for (int w = 0; w < WRITERS; w++) {
+      final int writer = w;
+      threads.add(new Thread(() -> {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int added = 0;
+        ready.countDown();
+        // each writer updates its own share of boards, and adds its own new boards
+        while (running.get() || added < newBoards[writer].length) {
+          int index = random.nextInt(boards.length / WRITERS) * WRITERS + writer;
+          int value = 1 + random.nextInt(MAX_VALUE);
+          store.write(boards[index], value);
+          lastValues[writer][index] = value;
+          if (added < newBoards[writer].length) {
+            store.write(newBoards[writer][added++], value);
+          }
+          try {
+            Thread.sleep(WRITE_PAUSE);
+          } catch (InterruptedException ex) {
+            return;
+          }
+        }
+      }));
+    }
+
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    ready.await();
+    Thread.sleep(duration);
+    running.set(false);
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    ReferenceTable table = store.table();
+    int lost = 0;
+    for (int w = 0; w < WRITERS; w++) {
+      for (int i = w; i < boards.length; i += WRITERS) {
+        int expected = lastValues[w][i] == 0 ? 1 : lastValues[w][i];
+        if (readTable(table, keys[i]) != expected) {
+          lost++;
+        }
+      }
+      for (ReferenceBoard advBoard : newBoards[w]) {
+        if (!table.containsKey(advBoard)) {
+          lost++;
+        }
+      }
+    }
+    int expectedSize = boards.length + WRITERS * newBoards[0].length;
+    if (table.size() != expectedSize) {
+      lost += Math.abs(table.size() - expectedSize);
+    }
+    long throughput = reads.get() / duration;
+    System.out.printf("%-14s %8d %14d %10d %10d%n", name, readers, throughput, errors.get(),
+        lost);
+    return throughput;
+  }
+
+  /**
+   * Stress test and display the read throughput of ConcurrentReferenceTable and
+   * ReferenceTable with one lock.
+   *
+   * @param args optional number of reference boards, duration in milliseconds and seed
+   * @throws InterruptedException InterruptedException
+   */
+  public static void main(final String[] args) throws InterruptedException {
+    int count = DEFAULT_BOARDS;
+    int duration = DEFAULT_DURATION;
+    long seed = DEFAULT_SEED;
+    if (args.length > 0) {
+      count = Integer.parseInt(args[0]);
+    }
+    if (args.length > 1) {
+      duration = Integer.parseInt(args[1]);
+    }
+    if (args.length > 2) {
+      seed = Long.parseLong(args[2]);
+    }
+
+    BoardGenerator generator = new BoardGenerator(seed);
+    ReferenceTable source = new ReferenceTable(count + WRITERS * NEW_BOARDS);
+    ReferenceBoard[] boards = new ReferenceBoard[count];
+    int size = 0;
+    while (size < count) {
+      ReferenceBoard advBoard = new ReferenceBoard(new Board(generator.nextPacked()));
+      if (!source.containsKey(advBoard)) {
+        source.put(advBoard, movesOf(1));
+        boards[size++] = advBoard;
+      }
+    }
+
+    System.out.printf("%-14s %8s %14s %10s %10s%n", "Store", "readers", "reads per ms",
+        "torn", "lost");
+    for (int readers : READERS) {
+      long[] throughput = new long[2];
+      for (int test = 0; test < 2; test++) {
+        ReferenceBoard[][] newBoards = new ReferenceBoard[WRITERS][NEW_BOARDS];
+        for (int w = 0; w < WRITERS; w++) {
+          int added = 0;
+          while (added < NEW_BOARDS) {
+            ReferenceBoard advBoard = new ReferenceBoard(new Board(generator.nextPacked()));
+            if (!source.containsKey(advBoard)) {
+              newBoards[w][added++] = advBoard;
+            }
+          }
+        }
+        if (test == 0) {
+          throughput[test] = run("concurrent", concurrentStore(source), readers, boards,
+              newBoards, duration);
+        } else {
+          throughput[test] = run("single lock", lockedStore(source), readers, boards,
+              newBoards, duration);
+        }
+      }
+      System.out.printf("%-14s %8d %13.1fx%n", "speedup", readers,
+          (double) throughput[0] / Math.max(1, throughput[1]));
+    }
+    System.out.println(Runtime.getRuntime().availableProcessors() + " processors available.");
+  }
+}
@@ -0,0 +1,210 @@
+package mwong.myprojects.fifteenpuzzle.execution;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import mwong.myprojects.fifteenpuzzle.puzzle.Board;
+import mwong.myprojects.fifteenpuzzle.puzzle.BoardGenerator;
+import mwong.myprojects.fifteenpuzzle.puzzle.MoveSequence;
+import mwong.myprojects.fifteenpuzzle.solution.ai.ReferenceBoard;
+import mwong.myprojects.fifteenpuzzle.solution.ai.ReferenceMoves;
+import mwong.myprojects.fifteenpuzzle.solution.ai.ReferenceTable;
+
+/**
+ * BenchmarkWireFormat is the utility class.  It verifies the round trip of the compact
+ * serialized forms of Board, MoveSequence, ReferenceBoard, ReferenceMoves and
+ * ReferenceTable, and displays the bytes per object compare with the array of tiles
+ * and the array of Board.Move.
+ *
+ * <p>Dependencies : Board.java, BoardGenerator.java, MoveSequence.java,
+ *                   ReferenceBoard.java, ReferenceMoves.java, ReferenceTable.java
+ *
+ * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
+ *            target="_blank">Meisze Wong (linkedin)</a>
+ * @see <a href="http://www.github.com/mwong510ca/15PuzzleOptimalSolver/"
+ *         target="_blank">GitHub (full project)</a>
+ */
+public final class BenchmarkWireFormat {
+  /** Default number of objects of each test. */
+  private static final int DEFAULT_COUNT = 2000;
+  /** Default seed of the generator. */
+  private static final long DEFAULT_SEED = 15L;
+  /** Minimum number of moves of a solution include index 0, for the partial solution. */
+  private static final int MIN_MOVES = 9;
+  /** Maximum number of moves of a solution. */
+  private static final int MAX_MOVES = 80;
+  /** Nano seconds in one micro second. */
+  private static final double NANO_MICRO = 1e3;
+
+  /** private constructor, no instance. */
+  private BenchmarkWireFormat() {
+    // Not called
+  }
+
+  /**
+   * Returns the serialized bytes of the given object in a new stream.
+   *
+   * @param obj the given object
+   * @return byte array of serialized object
+   * @throws IOException any IOException
+   */
+  private static byte[] serialize(final Object obj) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(obj);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Returns the object read from the given serialized bytes.
+   *
+   * @param bytes the byte array of serialized object
+   * @return object read from the given bytes
+   * @throws IOException any IOException
+   * @throws ClassNotFoundException ClassNotFoundException
+   */
+  private static Object deserialize(final byte[] bytes) throws IOException,
+      ClassNotFoundException {
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      return in.readObject();
+    }
+  }
+
+  /**
+   * Returns the object after serialize and deserialize the given object, add the number
+   * of bytes to the given counter.
+   *
+   * @param obj the given object
+   * @param counter the long array of 1 element, number of bytes
+   * @return object after the round trip
+   * @throws IOException any IOException
+   * @throws ClassNotFoundException ClassNotFoundException
+   */
+  private static Object roundTrip(final Object obj, final long[] counter) throws IOException,
+      ClassNotFoundException {
+    byte[] bytes = serialize(obj);
+    counter[0] += bytes.length;
+    return deserialize(bytes);
+  }
+
+  /**
+   * Throws IllegalStateException if the given condition is false.
+   *
+   * @param condition the given condition
+   * @param message the error message
+   */
+  private static void verify(final boolean condition, final String message) {
+    if (!condition) {
+      throw new IllegalStateException("Round trip error - " + message);
+    }
+  }
+
+  /**
+   * Returns a random solution of the given length, Move.NONE at index 0.
+   *
+   * @param random the Random object
+   * @param length the number of moves include index 0
+   * @return Board.Move array of a random solution
+   */
+  private static Board.Move[] randomSolution(final Random random, final int length) {
+    Board.Move[] solution = new Board.Move[length];
+    solution[0] = Board.Move.NONE;
+    for (int i = 1; i < length; i++) {
+      solution[i] = Board.Move.values()[random.nextInt(Board.Move.values().length - 1)];
+    }
+    return solution;
+  }
+
+  /**
+   * Verify the round trip and display the average bytes per object of each wire format.
+   *
+   * @param args optional number of objects and seed
+   * @throws IOException any IOException
+   * @throws ClassNotFoundException ClassNotFoundException
+   */
+  public static void main(final String[] args) throws IOException, ClassNotFoundException {
+    int count = DEFAULT_COUNT;
+    long seed = DEFAULT_SEED;
+    if (args.length > 0) {
+      count = Integer.parseInt(args[0]);
+    }
+    if (args.length > 1) {
+      seed = Long.parseLong(args[1]);
+    }
+
+    BoardGenerator generator = new BoardGenerator(seed);
+    Random random = new Random(seed);
+    long[] tilesBytes = new long[1];
+    long[] boardBytes = new long[1];
+    long[] arrayBytes = new long[1];
+    long[] sequenceBytes = new long[1];
+    long[] refBoardBytes = new long[1];
+    long[] refMovesBytes = new long[1];
+    ReferenceTable table = new ReferenceTable();
+    long start = System.nanoTime();
+
+    for (int i = 0; i < count; i++) {
+      Board board = new Board(generator.nextPacked());
+      byte[] tiles = (byte[]) roundTrip(board.getTiles(), tilesBytes);
+      Board copy = (Board) roundTrip(board, boardBytes);
+      verify(copy.equals(board) && Arrays.equals(copy.getTiles(), tiles)
+          && copy.getZero1d() == board.getZero1d(), "Board");
+
+      Board.Move[] solution = randomSolution(random,
+          MIN_MOVES + random.nextInt(MAX_MOVES - MIN_MOVES + 1));
+      Board.Move[] moves = (Board.Move[]) roundTrip(solution, arrayBytes);
+      MoveSequence sequence = (MoveSequence) roundTrip(new MoveSequence(solution),
+          sequenceBytes);
+      verify(Arrays.equals(sequence.getMoves(), moves), "MoveSequence");
+
+      ReferenceBoard advBoard = new ReferenceBoard(board);
+      ReferenceBoard advCopy = (ReferenceBoard) roundTrip(advBoard, refBoardBytes);
+      verify(advCopy.equals(advBoard) && advCopy.getGroup() == advBoard.getGroup()
+          && Arrays.equals(advCopy.getTilesTransform(), advBoard.getTilesTransform()),
+          "ReferenceBoard");
+
+      ReferenceMoves advMoves = new ReferenceMoves(board.getZero1d(),
+          (byte) random.nextInt(MAX_MOVES + 1));
+      advMoves.updateSolution((byte) random.nextInt(advMoves.getMoves().length),
+          (byte) (solution.length - 1), solution, random.nextBoolean());
+      ReferenceMoves movesCopy = (ReferenceMoves) roundTrip(advMoves, refMovesBytes);
+      verify(Arrays.equals(movesCopy.getMoves(), advMoves.getMoves())
+          && Arrays.equals(movesCopy.getInitMoves(), advMoves.getInitMoves())
+          && movesCopy.getStatus() == advMoves.getStatus(), "ReferenceMoves");
+      table.put(advBoard, advMoves);
+    }
+
+    long[] tableBytes = new long[1];
+    ReferenceTable tableCopy = (ReferenceTable) roundTrip(table, tableBytes);
+    verify(tableCopy.size() == table.size() && tableCopy.getTableId() == table.getTableId()
+        && tableCopy.getVersion() == table.getVersion(), "ReferenceTable");
+    for (int slot = 0; slot < table.capacity(); slot++) {
+      if (table.isOccupied(slot)) {
+        ReferenceMoves copyMoves = tableCopy.get(table.getBoard(slot));
+        verify(copyMoves != null
+            && Arrays.equals(copyMoves.getMoves(), table.getMoves(slot).getMoves())
+            && Arrays.equals(copyMoves.getInitMoves(), table.getMoves(slot).getInitMoves()),
+            "ReferenceTable entry");
+      }
+    }
+    double elapsed = (System.nanoTime() - start) / NANO_MICRO / count;
+
+    System.out.println("Round trip verified, " + count + " objects of each type, "
+        + String.format("%.1f", elapsed) + " us per set.");
+    System.out.printf("%-28s %10s%n", "Object (new stream each)", "bytes");
+    System.out.printf("%-28s %10d%n", "byte[] tiles", tilesBytes[0] / count);
+    System.out.printf("%-28s %10d%n", "Board", boardBytes[0] / count);
+    System.out.printf("%-28s %10d%n", "Board.Move[] solution", arrayBytes[0] / count);
+    System.out.printf("%-28s %10d%n", "MoveSequence", sequenceBytes[0] / count);
+    System.out.printf("%-28s %10d%n", "ReferenceBoard", refBoardBytes[0] / count);
+    System.out.printf("%-28s %10d%n", "ReferenceMoves", refMovesBytes[0] / count);
+    System.out.printf("%-28s %10d (%d boards, %d slots)%n", "ReferenceTable", tableBytes[0],
+        table.size(), table.capacity());
+  }
+}
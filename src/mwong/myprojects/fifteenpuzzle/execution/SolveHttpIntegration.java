@@ -0,0 +1,141 @@
+package mwong.myprojects.fifteenpuzzle.execution;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import mwong.myprojects.fifteenpuzzle.server.SolveHttpServer;
+import mwong.myprojects.fifteenpuzzle.server.SolverPool;
+
+/**
+ * SolveHttpIntegration is the utility class.  It starts the HTTP/JSON solve endpoint on
+ * an anonymous port of localhost, sends the solve and health requests, and verifies the
+ * HTTP status codes and the replies.  It exits with status 1 if any check has failed.
+ *
+ * <p>Dependencies : SolveHttpServer.java, SolverPool.java
+ *
+ * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
+ *            target="_blank">Meisze Wong (linkedin)</a>
+ * @see <a href="http://www.github.com/mwong510ca/15PuzzleOptimalSolver/"
+ *         target="_blank">GitHub (full project)</a>
+ */
+public final class SolveHttpIntegration {
+  /** The number of solver threads. */
+  private static final int WORKERS = 1;
+  /** The number of requests waiting for a solver. */
+  private static final int QUEUE_SIZE = 4;
+  /** The board of 1 move from the goal. */
+  private static final String EASY_TILES = "[1,2,3,4,5,6,7,8,9,10,11,12,13,14,0,15]";
+
+  /** The number of failed checks. */
+  private static int failed;
+
+  /** private constructor, no instance. */
+  private SolveHttpIntegration() {
+    // Not called
+  }
+
+  /**
+   * Returns the HTTP status code and the reply of the given request, separated by space.
+   *
+   * @param url the URL of the request
+   * @param method the HTTP method
+   * @param body the request body, or null
+   * @return String of HTTP status code and the reply
+   * @throws IOException any IOException
+   */
+  private static String send(final URL url, final String method, final String body)
+      throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    connection.setRequestMethod(method);
+    if (body != null) {
+      connection.setDoOutput(true);
+      connection.setRequestProperty("Content-Type", "application/json");
+      try (OutputStream out = connection.getOutputStream()) {
+        out.write(body.getBytes(StandardCharsets.UTF_8));
+      }
+    }
+    int code = connection.getResponseCode();
+    InputStream in = code < HttpURLConnection.HTTP_BAD_REQUEST ? connection.getInputStream()
+        : connection.getErrorStream();
+    ByteArrayOutputStream reply = new ByteArrayOutputStream();
+    if (in != null) {
+      try (InputStream closing = in) {
+        byte[] buffer = new byte[1024];
+        int count;
+        while ((count = closing.read(buffer)) != -1) {
+          reply.write(buffer, 0, count);
+        }
+      }
+    }
+    connection.disconnect();
+    return code + " " + new String(reply.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Send the given request and verify the reply starts with the given HTTP status code
+   * and contains the given string.
+   *
+   * @param name the name of the check
+   * @param url the URL of the request
+   * @param method the HTTP method
+   * @param body the request body, or null
+   * @param code the expected HTTP status code
+   * @param contains the expected string of the reply
+   * @throws IOException any IOException
+   */
+  private static void check(final String name, final URL url, final String method,
+      final String body, final int code, final String contains) throws IOException {
+    String reply = send(url, method, body);
+    boolean passed = reply.startsWith(code + " ") && reply.contains(contains);
+    if (!passed) {
+      failed++;
+    }
+    System.out.println((passed ? "pass " : "FAIL ") + name + " : " + reply);
+  }
+
+  /**
+   * Start the endpoint on localhost and run the checks.
+   *
+   * @param args standard argument main function
+   * @throws IOException any IOException
+   */
+  public static void main(final String[] args) throws IOException {
+    SolverPool pool = new SolverPool(WORKERS, QUEUE_SIZE);
+    SolveHttpServer server = new SolveHttpServer(0, pool);
+    String base = "http://localhost:" + server.getPort();
+    URL solve = new URL(base + "/solve");
+    URL health = new URL(base + "/health");
+
+    try {
+      check("solve", solve, "POST", "{\"tiles\":" + EASY_TILES
+          + ",\"heuristic\":\"MD\",\"timeout\":2000}", HttpURLConnection.HTTP_OK,
+          "\"status\":\"SOLVED\",\"moves\":1,\"solution\":[\"RIGHT\"]");
+      check("unsolvable", solve, "POST",
+          "{\"tiles\":[2,1,3,4,5,6,7,8,9,10,11,12,13,14,15,0],\"heuristic\":\"wd\"}",
+          HttpURLConnection.HTTP_OK, "\"status\":\"UNSOLVABLE\"");
+      check("invalid tiles", solve, "POST", "{\"tiles\":[1,1,3],\"heuristic\":\"MD\"}",
+          HttpURLConnection.HTTP_BAD_REQUEST, "tiles");
+      check("invalid heuristic", solve, "POST", "{\"tiles\":" + EASY_TILES
+          + ",\"heuristic\":\"PDCustom\"}", HttpURLConnection.HTTP_BAD_REQUEST, "heuristic");
+      check("invalid timeout", solve, "POST", "{\"tiles\":" + EASY_TILES
+          + ",\"heuristic\":\"MD\",\"timeout\":0}", HttpURLConnection.HTTP_BAD_REQUEST,
+          "timeout");
+      check("method", solve, "GET", null, HttpURLConnection.HTTP_BAD_METHOD, "POST");
+      check("health", health, "GET", null, HttpURLConnection.HTTP_OK,
+          "\"status\":\"UP\",\"workers\":" + WORKERS);
+    } finally {
+      server.close();
+      pool.shutdown();
+    }
+
+    System.out.println(failed == 0 ? "All checks passed." : failed + " checks failed.");
+    if (failed > 0) {
+      System.exit(1);
+    }
+  }
+}
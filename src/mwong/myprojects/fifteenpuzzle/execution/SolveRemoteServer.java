@@ -0,0 +1,71 @@
+package mwong.myprojects.fifteenpuzzle.execution;
+
+import java.io.IOException;
+import java.net.BindException;
+
+import mwong.myprojects.fifteenpuzzle.puzzle.HeuristicOptions;
+import mwong.myprojects.fifteenpuzzle.server.SolveHttpServer;
+import mwong.myprojects.fifteenpuzzle.server.SolveServer;
+import mwong.myprojects.fifteenpuzzle.server.SolveServerProperties;
+import mwong.myprojects.fifteenpuzzle.server.SolverPool;
+
+/**
+ * SolveRemoteServer starts the solve server, thin clients send the boards to solve with
+ * SolveClient.  It also starts the HTTP/JSON endpoint sharing the same SolverPool.
+ *
+ * <p>Dependencies : HeuristicOptions.java, SolveHttpServer.java, SolveServer.java,
+ *                   SolveServerProperties.java, SolverPool.java
+ *
+ * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
+ *            target="_blank">Meisze Wong (linkedin)</a>
+ * @see SolveServerProperties
+ * @see <a href="http://www.github.com/mwong510ca/15PuzzleOptimalSolver/"
+ *         target="_blank">GitHub (full project)</a>
+ */
+public final class SolveRemoteServer {
+  /** private constructor, no instance. */
+  private SolveRemoteServer() {
+    // Not called
+  }
+
+  /**
+   * Create a solve server using the port number, number of workers and queue size
+   * from SolveServerProperties class.
+   *
+   * @param args standard argument main function
+   */
+  public static void main(final String[] args) {
+    int port = SolveServerProperties.getSolvePort();
+    SolverPool pool = new SolverPool(SolveServerProperties.getSolveWorkers(),
+        SolveServerProperties.getSolveQueueSize());
+    HeuristicOptions preload = SolveServerProperties.getSolvePreload();
+    if (preload != null) {
+      try {
+        pool.preload(preload);
+      } catch (RuntimeException | OutOfMemoryError ex) {
+        System.out.println("Failed to load " + preload + ", it will load on first request.");
+      }
+    }
+
+    try {
+      SolveServer server = new SolveServer(port, pool,
+          SolveServerProperties.getSolveConnections());
+      System.out.println("Solve server is running on port " + server.getPort() + " with "
+          + pool.getNumWorkers() + " workers");
+    } catch (BindException ex) {
+      System.out.println("Port " + port + " is not available.");
+      System.exit(0);
+    } catch (IOException ex) {
+      System.out.println("Check connection or use different port.");
+      System.exit(0);
+    }
+
+    int httpPort = SolveServerProperties.getSolveHttpPort();
+    try {
+      new SolveHttpServer(httpPort, pool);
+      System.out.println("HTTP solve endpoint is running on port " + httpPort);
+    } catch (IOException ex) {
+      System.out.println("Port " + httpPort + " is not available, HTTP endpoint disabled.");
+    }
+  }
+}
@@ -1,13 +1,23 @@
 package mwong.myprojects.fifteenpuzzle.puzzle;
 
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.Serializable;
 import java.util.Arrays;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Board is the data type of 15 puzzle. It take 16 numbers of the puzzle or
  * generate the random board at difficulty level. It verify the solvable state.
  * It also generate a new board after the shift.
  *
+ * <p>Serialization use the Externalizable record of 16 tiles packed in a long value,
+ * the receiver restores all properties from the tiles.
+ *
  * <p>Dependencies : PuzzleConstants.java, PuzzleProperties.java
  *
  * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
@@ -15,7 +25,8 @@ import java.util.Random;
  * @see <a href="http://www.github.com/mwong510ca/15PuzzleOptimalSolver/"
  *         target="_blank">GitHub (full project)</a>
  */
-public final class Board {
+public final class Board implements Serializable {
+  private static final long serialVersionUID = 17195273120L;
   /** Puzzle size.
    *  @see PuzzleConstants#SIZE */
   private static final byte SIZE = PuzzleConstants.getSize();
@@ -95,6 +106,16 @@ public final class Board {
     setMoreProperties();
   }
 
+  /**
+   * Initializes a Board object of a given 16 tiles packed in a long value.
+   *
+   * @param packedTiles the long value of 16 tiles packed in 4 bits per tile
+   * @see PuzzleConstants#packTiles(byte[])
+   */
+  public Board(final long packedTiles) {
+    this(PuzzleConstants.unpackTiles(packedTiles));
+  }
+
   /**
    * Private constructor initializes a new Board object from shift() after a move.
    *
@@ -218,7 +239,7 @@ public final class Board {
         if (level == DifficultyLevel.HARD) {
           // Split random case 20% vs 80% for the initial blocks
           final int split5 = 5;
-          int rand = new Random().nextInt(split5);
+          int rand = ThreadLocalRandom.current().nextInt(split5);
           if (rand == 0) {
             System.arraycopy(HARD_BOARDS_INSTANCE.getRandomHardZero15(), 0, blocks, 0, SIZE);
             zero = ZERO_IDX_15;
@@ -234,10 +255,11 @@ public final class Board {
         // Shuffle the blocks at a random number (10 - 99);
         final int range = 90;
         final int ten = 10;
-        int shuffle = (new Random().nextInt(range)) + ten;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int shuffle = random.nextInt(range) + ten;
         int count = 0;
         while (count < shuffle) {
-          int dir = new Random().nextInt(DIR_SIZE);
+          int dir = random.nextInt(DIR_SIZE);
           if (dir == Move.RIGHT.getValue() && zero % ROW_SIZE < ROW_SIZE - 1) {
             blocks[zero] = blocks[zero + 1];
             blocks[zero + 1] = 0;
@@ -282,7 +304,7 @@ public final class Board {
    * Generate a solvable random board using Knuth Shuffle.
    */
   private void generateRandomBoard() {
-    Random random = new Random();
+    ThreadLocalRandom random = ThreadLocalRandom.current();
     byte[] blocks = new byte[SIZE];
     int count = 1;
     while (count < SIZE) {
@@ -388,6 +410,21 @@ public final class Board {
     return manhattan;
   }
 
+  /**
+   * Returns the minimum Manhattan distance of the given difficulty level.
+   *
+   * @param level the given difficulty level
+   * @return minimum Manhattan distance of the given difficulty level
+   */
+  static int getMinRange(final DifficultyLevel level) {
+    switch (level) {
+      case EASY : return MIN_RANGE_EASY;
+      case MODERATE : return MIN_RANGE_MODERATE;
+      case HARD : return MIN_RANGE_HARD;
+      default : return 0;
+    }
+  }
+
   /**
    * Returns the boolean represent this board is the goal board.
    *
@@ -490,6 +527,15 @@ public final class Board {
     return tiles.clone();
   }
 
+  /**
+   * Returns the long value of board tiles packed in 4 bits per tile.
+   *
+   * @return long value of board tiles packed in 4 bits per tile
+   */
+  public long getPackedTiles() {
+    return ((long) hashKey1 << Integer.SIZE) | (hashKey2 & 0xFFFFFFFFL);
+  }
+
   /**
    * Returns the byte array of board's mirror reflection tiles.
    *
@@ -574,6 +620,74 @@ public final class Board {
     return false;
   }
 
+  /**
+   * Returns the PackedBoard of this board to serialize in place of this object.
+   *
+   * @return PackedBoard of this board
+   */
+  private Object writeReplace() {
+    return new PackedBoard(getPackedTiles());
+  }
+
+  /**
+   * Board is always serialized as PackedBoard.
+   *
+   * @param in the ObjectInputStream
+   * @throws InvalidObjectException always
+   */
+  private void readObject(final ObjectInputStream in) throws InvalidObjectException {
+    throw new InvalidObjectException("PackedBoard required");
+  }
+
+  /**
+   * PackedBoard is the Externalizable serialization proxy of Board, 8 bytes of tiles.
+   */
+  private static final class PackedBoard implements Externalizable {
+    private static final long serialVersionUID = 17195273121L;
+    /** The long value of 16 tiles packed in 4 bits per tile. */
+    private long packedTiles;
+
+    /**
+     * Initializes an empty PackedBoard object, use by deserialization only.
+     */
+    public PackedBoard() {
+      // read by readExternal
+    }
+
+    /**
+     * Initializes PackedBoard object with the given packed tiles.
+     *
+     * @param packedTiles the long value of 16 tiles packed in 4 bits per tile
+     */
+    PackedBoard(final long packedTiles) {
+      this.packedTiles = packedTiles;
+    }
+
+    @Override
+    public void writeExternal(final ObjectOutput out) throws IOException {
+      out.writeLong(packedTiles);
+    }
+
+    @Override
+    public void readExternal(final ObjectInput in) throws IOException {
+      packedTiles = in.readLong();
+    }
+
+    /**
+     * Returns the Board restore from the packed tiles.
+     *
+     * @return Board restore from the packed tiles
+     * @throws InvalidObjectException the tiles are not 0 to 15
+     */
+    private Object readResolve() throws InvalidObjectException {
+      if (!PuzzleConstants.isValidPacked(packedTiles)) {
+        throw new InvalidObjectException("Invalid packed tiles : "
+            + Long.toHexString(packedTiles));
+      }
+      return new Board(packedTiles);
+    }
+  }
+
   /**
    * DifficultyLevel is enum type that can be used.
    *
@@ -770,7 +884,7 @@ public final class Board {
      * @return byte array of preset hard puzzle with zero position 0 randomly
      */
     private byte[] getRandomHardZero0() {
-      int index = new Random().nextInt(ZERO_AT_0.length);
+      int index = ThreadLocalRandom.current().nextInt(ZERO_AT_0.length);
       return ZERO_AT_0[index];
     }
 
@@ -780,7 +894,7 @@ public final class Board {
      * @return byte array of preset hard puzzle with zero position 15 randomly
      */
     private byte[] getRandomHardZero15() {
-      int index = new Random().nextInt(ZERO_AT_15.length);
+      int index = ThreadLocalRandom.current().nextInt(ZERO_AT_15.length);
       return ZERO_AT_15[index];
     }
   }
@@ -0,0 +1,411 @@
+package mwong.myprojects.fifteenpuzzle.puzzle;
+
+import java.util.SplittableRandom;
+import java.util.function.LongPredicate;
+import java.util.stream.LongStream;
+
+import mwong.myprojects.fifteenpuzzle.puzzle.Board.DifficultyLevel;
+
+/**
+ * BoardGenerator is the seeded random board generator for bulk workloads.  It produces
+ * solvable boards in packed tiles (4 bits per tile) without creating any Board object.
+ * The boards of a Manhattan distance range are sampled directly by a random walk from
+ * the goal state with incremental Manhattan distance, it takes a move toward the range
+ * if any while outside, and dwell inside the range for a random number of moves.  For
+ * higher range, a random board in range is taken as is, otherwise the walk starts from
+ * it without dwell.  An optional filter can narrow the range with other heuristic,
+ * e.g. pattern database estimate.
+ *
+ * <p>The same seed always generate the same sequence of boards, include the parallel
+ * stream.  The generator itself is not thread-safe, use parallelPackedBoards() or
+ * split() for multiple threads.
+ *
+ * <p>Dependencies : Board.java, PuzzleConstants.java
+ *
+ * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
+ *            target="_blank">Meisze Wong (linkedin)</a>
+ * @see <a href="http://www.github.com/mwong510ca/15PuzzleOptimalSolver/"
+ *         target="_blank">GitHub (full project)</a>
+ */
+public final class BoardGenerator {
+  /** Puzzle size.
+   *  @see PuzzleConstants#SIZE */
+  private static final byte SIZE = PuzzleConstants.getSize();
+  /** Puzzle row size.
+   *  @see PuzzleConstants#ROW_SIZE */
+  private static final byte ROW_SIZE = PuzzleConstants.getRowSize();
+  /** Number of direction or moves.
+   *  @see PuzzleConstants#DIRECTION_SIZE */
+  private static final byte DIR_SIZE = PuzzleConstants.getDirectionSize();
+  /** Maximum moves of 15 puzzle, also the upper limit of Manhattan distance range.
+   *  @see PuzzleConstants#MAX_MOVES */
+  private static final byte MAX_MOVES = PuzzleConstants.getMaxMoves();
+  /** The tile bit size is 4 for 0-15.
+   *  @see PuzzleConstants#TILE_BIT_SIZE */
+  private static final int TILE_BIT_SIZE = PuzzleConstants.getTileBitSize();
+  /** The tile bits is 0x0F.
+   *  @see PuzzleConstants#TILE_BITS */
+  private static final long TILE_BITS = PuzzleConstants.getTileBits();
+  /** The packed tiles of goal state. */
+  private static final long GOAL_PACKED =
+      PuzzleConstants.packTiles(PuzzleConstants.getGoalTiles());
+  /** Space at lower right corner, index is 15. */
+  private static final int GOAL_ZERO_INDEX = PuzzleConstants.getGoalZeroIdx();
+  /** Zero position offset of each direction, right, down, left and up. */
+  private static final int[] ZERO_OFFSET = {1, ROW_SIZE, -1, -ROW_SIZE};
+  /** The Manhattan distance lookup table of tile value and position. */
+  private static final byte[][] MD_TABLE = new byte[SIZE][SIZE];
+  /** Start from a random board instead of goal state if minimum range is above it. */
+  private static final int RANDOM_START = Board.getMinRange(DifficultyLevel.MODERATE);
+  /** Maximum number of moves dwell inside the target range of a walk from goal state. */
+  private static final int DWELL_RANGE = 32;
+  /** Maximum number of moves of a single random walk before restart. */
+  private static final int WALK_LIMIT = 2000;
+  /** Maximum number of restart before the target range consider unreachable. */
+  private static final int RESTART_LIMIT = 200;
+
+  static {
+    for (int value = 1; value < SIZE; value++) {
+      int goal = value - 1;
+      for (int pos = 0; pos < SIZE; pos++) {
+        MD_TABLE[value][pos] = (byte) (Math.abs(goal % ROW_SIZE - pos % ROW_SIZE)
+            + Math.abs(goal / ROW_SIZE - pos / ROW_SIZE));
+      }
+    }
+  }
+
+  /** The splittable random number generator. */
+  private final SplittableRandom random;
+
+  /**
+   * Initializes a BoardGenerator object with a random seed.
+   */
+  public BoardGenerator() {
+    this(new SplittableRandom());
+  }
+
+  /**
+   * Initializes a BoardGenerator object with the given seed.
+   *
+   * @param seed the given long value of seed
+   */
+  public BoardGenerator(final long seed) {
+    this(new SplittableRandom(seed));
+  }
+
+  /**
+   * Private constructor initializes a BoardGenerator object with the given random generator.
+   *
+   * @param random the given splittable random generator
+   */
+  private BoardGenerator(final SplittableRandom random) {
+    this.random = random;
+  }
+
+  /**
+   * Returns a new BoardGenerator object split from this generator, it may use in another
+   * thread.
+   *
+   * @return new BoardGenerator object split from this generator
+   */
+  public BoardGenerator split() {
+    return new BoardGenerator(random.split());
+  }
+
+  /**
+   * Returns the packed tiles of a solvable random board using Knuth Shuffle.
+   *
+   * @return long value of packed tiles of a solvable random board
+   */
+  public long nextPacked() {
+    byte[] blocks = new byte[SIZE];
+    int count = 1;
+    while (count < SIZE) {
+      int rand = random.nextInt(count + 1);
+      blocks[count] = blocks[rand];
+      blocks[rand] = (byte) (count++);
+    }
+
+    // the parity of inversions of tiles is the parity of permutation (number of tiles
+    // minus number of cycles) plus the zero position, swap a pair of tiles if the board
+    // is not solvable
+    int zero = 0;
+    int parity = SIZE;
+    int visited = 0;
+    for (int i = 0; i < SIZE; i++) {
+      if (blocks[i] == 0) {
+        zero = i;
+      }
+      if ((visited & (1 << i)) == 0) {
+        parity--;
+        for (int j = i; (visited & (1 << j)) == 0; j = blocks[j]) {
+          visited |= 1 << j;
+        }
+      }
+    }
+    if ((zero / ROW_SIZE + zero + parity) % 2 == 0) {
+      int first = 0;
+      if (zero / ROW_SIZE == 0) {
+        first = ROW_SIZE;
+      }
+      byte temp = blocks[first];
+      blocks[first] = blocks[first + 1];
+      blocks[first + 1] = temp;
+    }
+    return PuzzleConstants.packTiles(blocks);
+  }
+
+  /**
+   * Returns the packed tiles of a solvable random board of the given difficulty level.
+   *
+   * @param level the given difficulty level
+   * @return long value of packed tiles of a solvable random board of the given level
+   */
+  public long nextPacked(final DifficultyLevel level) {
+    switch (level) {
+      case EASY :
+        return nextPacked(Board.getMinRange(DifficultyLevel.EASY),
+            Board.getMinRange(DifficultyLevel.MODERATE) - 1, null);
+      case MODERATE :
+        return nextPacked(Board.getMinRange(DifficultyLevel.MODERATE),
+            Board.getMinRange(DifficultyLevel.HARD) - 1, null);
+      case HARD :
+        return nextPacked(Board.getMinRange(DifficultyLevel.HARD), MAX_MOVES, null);
+      default :
+        return nextPacked();
+    }
+  }
+
+  /**
+   * Returns the packed tiles of a solvable random board within the given range of
+   * Manhattan distance.
+   *
+   * @param minMd the minimum Manhattan distance, inclusive
+   * @param maxMd the maximum Manhattan distance, inclusive
+   * @return long value of packed tiles of a solvable random board within the given range
+   */
+  public long nextPacked(final int minMd, final int maxMd) {
+    return nextPacked(minMd, maxMd, null);
+  }
+
+  /**
+   * Returns the packed tiles of a solvable random board within the given range of
+   * Manhattan distance and accepted by the given filter.
+   *
+   * @param minMd the minimum Manhattan distance, inclusive
+   * @param maxMd the maximum Manhattan distance, inclusive
+   * @param filter the given filter of packed tiles, or null for no filter
+   * @return long value of packed tiles of a solvable random board within the given range
+   */
+  public long nextPacked(final int minMd, final int maxMd, final LongPredicate filter) {
+    validateRange(minMd, maxMd);
+    for (int restart = 0; restart < RESTART_LIMIT; restart++) {
+      long packed = GOAL_PACKED;
+      int zero = GOAL_ZERO_INDEX;
+      int md = 0;
+      int dwell = random.nextInt(DWELL_RANGE);
+      if (minMd >= RANDOM_START) {
+        packed = nextPacked();
+        md = manhattan(packed);
+        if (md >= minMd && md <= maxMd && (filter == null || filter.test(packed))) {
+          return packed;
+        }
+        zero = zeroPosition(packed);
+        dwell = 0;
+      }
+      int lastDir = -1;
+
+      for (int step = 0; step < WALK_LIMIT; step++) {
+        int dir = random.nextInt(DIR_SIZE);
+        int next = zero + ZERO_OFFSET[dir];
+        if (!isValidMove(zero, dir) || dir == (lastDir + 2) % DIR_SIZE) {
+          continue;
+        }
+
+        int value = tileAt(packed, next);
+        int delta = MD_TABLE[value][zero] - MD_TABLE[value][next];
+        if (md < minMd && delta <= 0 || md > maxMd && delta >= 0) {
+          // outside the range, take another move toward it if any
+          for (int turn = 1; turn < DIR_SIZE; turn++) {
+            int move = (dir + turn) % DIR_SIZE;
+            if (!isValidMove(zero, move) || move == (lastDir + 2) % DIR_SIZE) {
+              continue;
+            }
+            int target = zero + ZERO_OFFSET[move];
+            int tile = tileAt(packed, target);
+            int change = MD_TABLE[tile][zero] - MD_TABLE[tile][target];
+            if (md < minMd && change > 0 || md > maxMd && change < 0) {
+              dir = move;
+              next = target;
+              value = tile;
+              delta = change;
+              break;
+            }
+          }
+        }
+        int shift = (SIZE - 1 - next) * TILE_BIT_SIZE;
+
+        packed = (packed & ~(TILE_BITS << shift))
+            | ((long) value << ((SIZE - 1 - zero) * TILE_BIT_SIZE));
+        zero = next;
+        md += delta;
+        lastDir = dir;
+
+        if (md >= minMd && md <= maxMd && packed != GOAL_PACKED && dwell-- <= 0) {
+          if (filter == null || filter.test(packed)) {
+            return packed;
+          }
+          dwell = random.nextInt(DWELL_RANGE);
+        }
+      }
+    }
+    throw new IllegalArgumentException("Manhattan distance range " + minMd + " to "
+        + maxMd + " is not reachable");
+  }
+
+  /**
+   * Returns the long array of packed tiles of given number of random boards within the
+   * given range of Manhattan distance.
+   *
+   * @param count the number of boards
+   * @param minMd the minimum Manhattan distance, inclusive
+   * @param maxMd the maximum Manhattan distance, inclusive
+   * @return long array of packed tiles of random boards within the given range
+   */
+  public long[] nextPackedBoards(final int count, final int minMd, final int maxMd) {
+    long[] boards = new long[count];
+    for (int i = 0; i < count; i++) {
+      boards[i] = nextPacked(minMd, maxMd, null);
+    }
+    return boards;
+  }
+
+  /**
+   * Returns the sequential LongStream of packed tiles of given number of random boards
+   * within the given range of Manhattan distance.
+   *
+   * @param count the number of boards
+   * @param minMd the minimum Manhattan distance, inclusive
+   * @param maxMd the maximum Manhattan distance, inclusive
+   * @return sequential LongStream of packed tiles of random boards within the given range
+   */
+  public LongStream packedBoards(final long count, final int minMd, final int maxMd) {
+    validateRange(minMd, maxMd);
+    return LongStream.generate(() -> nextPacked(minMd, maxMd, null)).limit(count);
+  }
+
+  /**
+   * Returns the parallel LongStream of packed tiles of given number of random boards
+   * within the given range of Manhattan distance and accepted by the given filter.
+   * Each board is generated from its own seed split from this generator, the result of
+   * the same seed is the same regardless of the number of threads.  The given filter
+   * must be thread-safe.
+   *
+   * @param count the number of boards
+   * @param minMd the minimum Manhattan distance, inclusive
+   * @param maxMd the maximum Manhattan distance, inclusive
+   * @param filter the given thread-safe filter of packed tiles, or null for no filter
+   * @return parallel LongStream of packed tiles of random boards within the given range
+   */
+  public LongStream parallelPackedBoards(final long count, final int minMd, final int maxMd,
+      final LongPredicate filter) {
+    validateRange(minMd, maxMd);
+    return random.split().longs(count).parallel()
+        .map(seed -> new BoardGenerator(seed).nextPacked(minMd, maxMd, filter));
+  }
+
+  /**
+   * Returns the parallel LongStream of packed tiles of given number of random boards
+   * of the given difficulty level.  Each board is generated from its own seed split from
+   * this generator.
+   *
+   * @param count the number of boards
+   * @param level the given difficulty level
+   * @return parallel LongStream of packed tiles of random boards of the given level
+   */
+  public LongStream parallelPackedBoards(final long count, final DifficultyLevel level) {
+    return random.split().longs(count).parallel()
+        .map(seed -> new BoardGenerator(seed).nextPacked(level));
+  }
+
+  /**
+   * Returns a new Board object of a solvable random board of the given difficulty level.
+   *
+   * @param level the given difficulty level
+   * @return Board object of a solvable random board of the given difficulty level
+   */
+  public Board nextBoard(final DifficultyLevel level) {
+    return new Board(nextPacked(level));
+  }
+
+  /**
+   * Returns the Manhattan distance of the given packed tiles.
+   *
+   * @param packed the long value of packed tiles
+   * @return integer value of Manhattan distance of the given packed tiles
+   */
+  public static int manhattan(final long packed) {
+    int md = 0;
+    long value = packed;
+    for (int pos = SIZE - 1; pos > -1; pos--) {
+      md += MD_TABLE[(int) (value & TILE_BITS)][pos];
+      value >>>= TILE_BIT_SIZE;
+    }
+    return md;
+  }
+
+  /**
+   * Returns the tile value at the given position of the given packed tiles.
+   *
+   * @param packed the long value of packed tiles
+   * @param pos the given position
+   * @return integer value of tile at the given position
+   */
+  private static int tileAt(final long packed, final int pos) {
+    return (int) ((packed >>> ((SIZE - 1 - pos) * TILE_BIT_SIZE)) & TILE_BITS);
+  }
+
+  /**
+   * Returns the position of zero space of the given packed tiles.
+   *
+   * @param packed the long value of packed tiles
+   * @return integer value of position of zero space
+   */
+  private static int zeroPosition(final long packed) {
+    for (int pos = 0; pos < SIZE; pos++) {
+      if (PuzzleConstants.packedTile(packed, pos) == 0) {
+        return pos;
+      }
+    }
+    return GOAL_ZERO_INDEX;
+  }
+
+  /**
+   * Returns the boolean represent the zero space can move in the given direction.
+   *
+   * @param zero the position of zero space
+   * @param dir the value of direction
+   * @return boolean represent the zero space can move in the given direction
+   */
+  private static boolean isValidMove(final int zero, final int dir) {
+    switch (dir) {
+      case 0 : return zero % ROW_SIZE < ROW_SIZE - 1;
+      case 1 : return zero / ROW_SIZE < ROW_SIZE - 1;
+      case 2 : return zero % ROW_SIZE > 0;
+      default : return zero / ROW_SIZE > 0;
+    }
+  }
+
+  /**
+   * Verify the given range of Manhattan distance.
+   *
+   * @param minMd the minimum Manhattan distance, inclusive
+   * @param maxMd the maximum Manhattan distance, inclusive
+   */
+  private static void validateRange(final int minMd, final int maxMd) {
+    if (minMd < 0 || maxMd > MAX_MOVES || minMd > maxMd) {
+      throw new IllegalArgumentException("Invalid Manhattan distance range " + minMd
+          + " to " + maxMd);
+    }
+  }
+}
@@ -0,0 +1,167 @@
+package mwong.myprojects.fifteenpuzzle.puzzle;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * MoveSequence is the compact data type of a sequence of moves for remote calls and the
+ * solve server protocol.  The moves are packed in 2 bits per move, 4 moves per byte,
+ * instead of the serialized array of enum.  Only the leading moves may be Move.NONE,
+ * as the solution starts with Move.NONE at index 0.
+ *
+ * <p>Dependencies : Board.java
+ *
+ * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
+ *            target="_blank">Meisze Wong (linkedin)</a>
+ * @see <a href="http://www.github.com/mwong510ca/15PuzzleOptimalSolver/"
+ *         target="_blank">GitHub (full project)</a>
+ */
+public final class MoveSequence implements Externalizable {
+  private static final long serialVersionUID = 17195273122L;
+  /** The maximum number of moves. */
+  private static final int MAX_LENGTH = 255;
+  /** The bit size of each move. */
+  private static final int MOVE_BIT_SIZE = 2;
+  /** The number of moves per byte. */
+  private static final int MOVES_PER_BYTE = Byte.SIZE / MOVE_BIT_SIZE;
+  /** The bit mask of each move. */
+  private static final int MOVE_BITS = 0x03;
+  /** The Board.Move of the direction value 0 - 3. */
+  private static final Board.Move[] DIRECTIONS = {Board.Move.RIGHT, Board.Move.DOWN,
+      Board.Move.LEFT, Board.Move.UP};
+
+  /** The number of moves. */
+  private int length;
+  /** The number of leading Move.NONE. */
+  private int leadingNone;
+  /** The packed moves after the leading Move.NONE, 2 bits per move. */
+  private byte[] packed;
+
+  /**
+   * Initializes an empty MoveSequence object, use by deserialization only.
+   */
+  public MoveSequence() {
+    packed = new byte[0];
+  }
+
+  /**
+   * Initializes MoveSequence object with the given array of moves.
+   *
+   * @param moves the given Board.Move array
+   */
+  public MoveSequence(final Board.Move[] moves) {
+    if (moves == null) {
+      throw new IllegalArgumentException("Moves is null");
+    }
+    if (moves.length > MAX_LENGTH) {
+      throw new IllegalArgumentException("Too many moves : " + moves.length);
+    }
+    length = moves.length;
+    while (leadingNone < length && moves[leadingNone] == Board.Move.NONE) {
+      leadingNone++;
+    }
+    packed = new byte[packedSize(length - leadingNone)];
+    for (int i = leadingNone; i < length; i++) {
+      if (moves[i] == null || moves[i] == Board.Move.NONE) {
+        throw new IllegalArgumentException("Invalid move at " + i + " : " + moves[i]);
+      }
+      int index = i - leadingNone;
+      packed[index / MOVES_PER_BYTE] |= moves[i].getValue()
+          << (index % MOVES_PER_BYTE * MOVE_BIT_SIZE);
+    }
+  }
+
+  /**
+   * Returns the number of bytes of the given number of packed moves.
+   *
+   * @param count the number of moves
+   * @return integer of number of bytes of packed moves
+   */
+  private static int packedSize(final int count) {
+    return (count + MOVES_PER_BYTE - 1) / MOVES_PER_BYTE;
+  }
+
+  /**
+   * Returns the number of moves include the leading Move.NONE.
+   *
+   * @return integer of number of moves
+   */
+  public int length() {
+    return length;
+  }
+
+  /**
+   * Returns a new Board.Move array of the sequence.
+   *
+   * @return Board.Move array of the sequence
+   */
+  public Board.Move[] getMoves() {
+    Board.Move[] moves = new Board.Move[length];
+    for (int i = 0; i < leadingNone; i++) {
+      moves[i] = Board.Move.NONE;
+    }
+    for (int i = leadingNone; i < length; i++) {
+      int index = i - leadingNone;
+      moves[i] = DIRECTIONS[packed[index / MOVES_PER_BYTE]
+          >>> (index % MOVES_PER_BYTE * MOVE_BIT_SIZE) & MOVE_BITS];
+    }
+    return moves;
+  }
+
+  /**
+   * Write the sequence to the given output, 1 byte of length, 1 byte of leading
+   * Move.NONE, follow by the packed moves.
+   *
+   * @param out the given DataOutput
+   * @throws IOException any IOException
+   */
+  public void writeTo(final DataOutput out) throws IOException {
+    out.writeByte(length);
+    out.writeByte(leadingNone);
+    out.write(packed);
+  }
+
+  /**
+   * Returns the MoveSequence read from the given input, written by writeTo.
+   *
+   * @param in the given DataInput
+   * @return MoveSequence read from the given input
+   * @throws IOException any IOException or invalid sequence
+   */
+  public static MoveSequence readFrom(final DataInput in) throws IOException {
+    MoveSequence sequence = new MoveSequence();
+    sequence.read(in);
+    return sequence;
+  }
+
+  /**
+   * Read the sequence from the given input, written by writeTo.
+   *
+   * @param in the given DataInput
+   * @throws IOException any IOException or invalid sequence
+   */
+  private void read(final DataInput in) throws IOException {
+    length = in.readUnsignedByte();
+    leadingNone = in.readUnsignedByte();
+    if (leadingNone > length) {
+      throw new InvalidObjectException("Invalid leading none : " + leadingNone);
+    }
+    packed = new byte[packedSize(length - leadingNone)];
+    in.readFully(packed);
+  }
+
+  @Override
+  public void writeExternal(final ObjectOutput out) throws IOException {
+    writeTo(out);
+  }
+
+  @Override
+  public void readExternal(final ObjectInput in) throws IOException {
+    read(in);
+  }
+}
@@ -146,6 +146,80 @@ public final class PuzzleConstants {
     return mirrorTiles;
   }
 
+  /**
+   * Returns the long value of given tiles packed in 4 bits per tile, first tile at the
+   * highest 4 bits.  The upper and lower 32 bits are the same as the hash key 1 and
+   * hash key 2 of Board.
+   *
+   * @param tiles the byte array of given tiles
+   * @return long value of given tiles packed in 4 bits per tile
+   */
+  public static long packTiles(final byte[] tiles) {
+    long packed = 0;
+    for (int i = 0; i < SIZE; i++) {
+      packed = (packed << TILE_BIT_SIZE) | tiles[i];
+    }
+    return packed;
+  }
+
+  /**
+   * Returns the byte array of tiles unpacked from the given long value.
+   *
+   * @param packed the long value of tiles packed in 4 bits per tile
+   * @return byte array of tiles unpacked from the given long value
+   */
+  public static byte[] unpackTiles(final long packed) {
+    byte[] tiles = new byte[SIZE];
+    long value = packed;
+    for (int i = SIZE - 1; i > -1; i--) {
+      tiles[i] = (byte) (value & TILE_BITS);
+      value >>>= TILE_BIT_SIZE;
+    }
+    return tiles;
+  }
+
+  /**
+   * Returns the tile value at the given position of the packed tiles.
+   *
+   * @param packed the long value of tiles packed in 4 bits per tile
+   * @param pos the given position
+   * @return tile value at the given position of the packed tiles
+   */
+  public static int packedTile(final long packed, final int pos) {
+    return (int) (packed >>> ((SIZE - 1 - pos) * TILE_BIT_SIZE)) & TILE_BITS;
+  }
+
+  /**
+   * Returns the boolean value represents the given packed tiles has every tile from 0
+   * to 15 once.
+   *
+   * @param packed the long value of tiles packed in 4 bits per tile
+   * @return boolean value represents the given packed tiles is a valid board
+   */
+  public static boolean isValidPacked(final long packed) {
+    int seen = 0;
+    for (int pos = 0; pos < SIZE; pos++) {
+      seen |= 1 << packedTile(packed, pos);
+    }
+    return seen == (1 << SIZE) - 1;
+  }
+
+  /**
+   * Returns the long value of mirror reflection of the given packed tiles, the same
+   * as tiles2mirror without allocation.
+   *
+   * @param packed the long value of tiles packed in 4 bits per tile
+   * @return long value of mirror reflection of the given packed tiles
+   */
+  public static long packedMirror(final long packed) {
+    long mirror = 0;
+    for (int pos = 0; pos < SIZE; pos++) {
+      mirror |= (long) MIRROR_VALUE[packedTile(packed, pos)]
+          << ((SIZE - 1 - MIRROR_POSITION[pos]) * TILE_BIT_SIZE);
+    }
+    return mirror;
+  }
+
   /**
    * Return the byte array of mirror tiles position conversion.
    *
@@ -3,24 +3,26 @@ package mwong.myprojects.fifteenpuzzle.server;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.rmi.RemoteException;
+import java.rmi.server.RMIClientSocketFactory;
+import java.rmi.server.RMIServerSocketFactory;
 import java.rmi.server.UnicastRemoteObject;
-import java.util.HashMap;
 
 import mwong.myprojects.fifteenpuzzle.puzzle.Board;
+import mwong.myprojects.fifteenpuzzle.puzzle.MoveSequence;
 import mwong.myprojects.fifteenpuzzle.solution.Solver;
 import mwong.myprojects.fifteenpuzzle.solution.SolverPdb78;
 import mwong.myprojects.fifteenpuzzle.solution.ai.Reference.ConnectionType;
 import mwong.myprojects.fifteenpuzzle.solution.ai.ReferenceAdapter;
-import mwong.myprojects.fifteenpuzzle.solution.ai.ReferenceBoard;
-import mwong.myprojects.fifteenpuzzle.solution.ai.ReferenceMoves;
 import mwong.myprojects.fifteenpuzzle.solution.ai.ReferenceRemote;
+import mwong.myprojects.fifteenpuzzle.solution.ai.ReferenceTable;
+import mwong.myprojects.fifteenpuzzle.solution.ai.ReferenceUpdate;
 
 /**
  * ReferenceRemoteImpl implements the remote connection with referenceAdapter object.
  *
- * <p>Dependencies : Board.java, Solver.java, Reference.java, ReferenceAdapter.java,
- *                   ReferenceBoard.java, ReferenceMoves.java, ReferenceRemote.java,
- *                   SolverPdb78.java
+ * <p>Dependencies : Board.java, MoveSequence.java, Solver.java, Reference.java,
+ *                   ReferenceAdapter.java, ReferenceRemote.java, ReferenceTable.java,
+ *                   ReferenceUpdate.java, SolverPdb78.java
  *
  * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
  *            target="_blank">Meisze Wong (linkedin)</a>
@@ -44,8 +46,23 @@ public final class ReferenceRemoteImpl extends UnicastRemoteObject implements Re
     refObject = new ReferenceAdapter(ConnectionType.REMOTESERVER);
   }
 
+  /**
+   * Implement the reference object with remote connection, export on the given port
+   * with the given socket factories.
+   *
+   * @param port the port number, 0 for an anonymous port
+   * @param csf the client side socket factory, null for default
+   * @param ssf the server side socket factory, null for default
+   * @throws RemoteException RemoteException
+   */
+  public ReferenceRemoteImpl(final int port, final RMIClientSocketFactory csf,
+      final RMIServerSocketFactory ssf) throws RemoteException {
+    super(port, csf, ssf);
+    refObject = new ReferenceAdapter(ConnectionType.REMOTESERVER);
+  }
+
   @Override
-  public HashMap<ReferenceBoard, ReferenceMoves> getActiveMap() throws RemoteException {
+  public ReferenceTable getActiveMap() throws RemoteException {
     return refObject.getActiveMap();
   }
 
@@ -70,7 +87,7 @@ public final class ReferenceRemoteImpl extends UnicastRemoteObject implements Re
   }
 
   @Override
-  public boolean addBoard(final Board board, final byte steps, final Board.Move[] solution)
+  public boolean addBoard(final Board board, final byte steps, final MoveSequence solution)
       throws RemoteException {
     return refObject.addBoard(board, steps, solution);
   }
@@ -106,6 +123,23 @@ public final class ReferenceRemoteImpl extends UnicastRemoteObject implements Re
     return refObject.updateLastSearch(copySolver, board);
   }
 
+  @Override
+  public int lookup(final long packedTiles) throws RemoteException {
+    return refObject.lookup(packedTiles);
+  }
+
+  @Override
+  public byte bestInverseEstimate(final long packedTiles, final byte basis)
+      throws RemoteException {
+    return refObject.bestInverseEstimate(packedTiles, basis);
+  }
+
+  @Override
+  public ReferenceUpdate getUpdates(final long tableId, final long version)
+      throws RemoteException {
+    return refObject.getUpdates(tableId, version);
+  }
+
   @Override
   public void printStatus() throws RemoteException {
     refObject.printStatus();
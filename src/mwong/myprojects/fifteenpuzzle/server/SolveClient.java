@@ -0,0 +1,94 @@
+package mwong.myprojects.fifteenpuzzle.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+
+import mwong.myprojects.fifteenpuzzle.puzzle.Board;
+import mwong.myprojects.fifteenpuzzle.puzzle.HeuristicOptions;
+
+/**
+ * SolveClient is the thin client of solve server.  It sends the board to the server and
+ * waits for the result, no pattern database is loaded by the client.  One request at a
+ * time on a connection, use one client per thread for concurrent requests.
+ *
+ * <p>Dependencies : Board.java, HeuristicOptions.java, SolveProtocol.java, SolveResult.java
+ *
+ * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
+ *            target="_blank">Meisze Wong (linkedin)</a>
+ * @see SolveServer
+ * @see <a href="http://www.github.com/mwong510ca/15PuzzleOptimalSolver/"
+ *         target="_blank">GitHub (full project)</a>
+ */
+public final class SolveClient implements Closeable {
+  /** The milliseconds to wait for the result after the timeout of request. */
+  private static final int GRACE_MILLIS = 5000;
+
+  /** The socket connected to the server. */
+  private final Socket socket;
+  /** The input stream of the connection. */
+  private final DataInputStream in;
+  /** The output stream of the connection. */
+  private final DataOutputStream out;
+
+  /**
+   * Initializes SolveClient object connect to the solve server of SolveServerProperties.
+   *
+   * @throws IOException if the server is not available
+   */
+  public SolveClient() throws IOException {
+    this(SolveServerProperties.getSolveHost(), SolveServerProperties.getSolvePort());
+  }
+
+  /**
+   * Initializes SolveClient object connect to the solve server of the given host and port.
+   *
+   * @param host the host name of the server
+   * @param port the port number of the server
+   * @throws IOException if the server is not available
+   */
+  public SolveClient(final String host, final int port) throws IOException {
+    socket = new Socket(host, port);
+    socket.setTcpNoDelay(true);
+    in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+  }
+
+  /**
+   * Returns the SolveResult of the given board with the given heuristic and timeout.
+   * The status is BUSY or EXPIRED if the server is overloaded, try again later.
+   *
+   * @param board the given board
+   * @param heuristic the given HeuristicOptions
+   * @param timeoutMillis the timeout in milliseconds, include the time in server queue
+   * @return SolveResult of the given board
+   * @throws IOException if the connection has failed or no reply after the timeout
+   */
+  public synchronized SolveResult solve(final Board board, final HeuristicOptions heuristic,
+      final int timeoutMillis) throws IOException {
+    if (board == null || heuristic == null) {
+      throw new IllegalArgumentException("Board or heuristic is null");
+    }
+    if (timeoutMillis < 1 || timeoutMillis > SolveServerProperties.getMaxTimeout()) {
+      throw new IllegalArgumentException("Invalid timeout : " + timeoutMillis);
+    }
+    socket.setSoTimeout(timeoutMillis + GRACE_MILLIS);
+    SolveProtocol.writeSolve(out, board, heuristic, timeoutMillis);
+    out.flush();
+    return SolveResult.readFrom(in);
+  }
+
+  /**
+   * Close the connection.
+   *
+   * @throws IOException any IOException
+   */
+  @Override
+  public void close() throws IOException {
+    socket.close();
+  }
+}
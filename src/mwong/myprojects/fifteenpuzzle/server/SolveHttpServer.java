@@ -0,0 +1,355 @@
+package mwong.myprojects.fifteenpuzzle.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import mwong.myprojects.fifteenpuzzle.puzzle.Board;
+import mwong.myprojects.fifteenpuzzle.puzzle.HeuristicOptions;
+import mwong.myprojects.fifteenpuzzle.puzzle.PuzzleConstants;
+import mwong.myprojects.fifteenpuzzle.server.SolveResult.Status;
+
+/**
+ * SolveHttpServer is the HTTP/JSON endpoint of the SolverPool for internal tools,
+ * without py4j or RMI.
+ *
+ * <p>POST /solve with {"tiles":[16 tiles, 0 is blank], "heuristic":"WDMD",
+ * "timeout":10000}, heuristic and timeout in milliseconds are optional.  It replies
+ * {"status":"SOLVED", "moves":n, "solution":["LEFT", ...], "time":seconds,
+ * "nodes":n}.  HTTP status 200 if solved, unsolvable or timeout, 400 if invalid request,
+ * 503 if busy or expired, 500 if the solver has failed.
+ *
+ * <p>GET /health replies the status of the SolverPool.
+ *
+ * <p>HTTP requests are handled on virtual threads if the Java runtime has virtual
+ * threads, otherwise on a cached thread pool.  The handler threads only wait for the
+ * SolverPool, the search runs on the fixed solver threads of the pool.
+ *
+ * <p>Dependencies : Board.java, HeuristicOptions.java, PuzzleConstants.java,
+ *                   SolveResult.java, SolverPool.java
+ *
+ * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
+ *            target="_blank">Meisze Wong (linkedin)</a>
+ * @see <a href="http://www.github.com/mwong510ca/15PuzzleOptimalSolver/"
+ *         target="_blank">GitHub (full project)</a>
+ */
+public final class SolveHttpServer implements Closeable {
+  /** The maximum size of request body in bytes. */
+  private static final int MAX_BODY = 4096;
+  /** The seconds for the client to wait before retry if busy. */
+  private static final String RETRY_AFTER = "1";
+  /** The pattern of tiles of request. */
+  private static final Pattern TILES = Pattern.compile("\"tiles\"\\s*:\\s*\\[([^\\]]*)\\]");
+  /** The pattern of heuristic of request. */
+  private static final Pattern HEURISTIC = Pattern.compile("\"heuristic\"\\s*:\\s*\"(\\w+)\"");
+  /** The pattern of timeout of request. */
+  private static final Pattern TIMEOUT = Pattern.compile("\"timeout\"\\s*:\\s*(-?\\d+)");
+  /** The default heuristic of request. */
+  private static final HeuristicOptions DEFAULT_HEURISTIC = HeuristicOptions.PD78;
+
+  /** The SolverPool of the endpoint. */
+  private final SolverPool pool;
+  /** The HTTP server. */
+  private final HttpServer server;
+  /** The executor of HTTP requests. */
+  private final ExecutorService executor;
+
+  /**
+   * Initializes SolveHttpServer object listen on the given port with the given SolverPool,
+   * and start accepting requests.
+   *
+   * @param port the port number, 0 for an anonymous port
+   * @param pool the given SolverPool
+   * @throws IOException if the port is not available
+   */
+  public SolveHttpServer(final int port, final SolverPool pool) throws IOException {
+    if (pool == null) {
+      throw new IllegalArgumentException("Solver pool is null");
+    }
+    this.pool = pool;
+    server = HttpServer.create(new InetSocketAddress(port), 0);
+    server.createContext("/solve", this::handleSolve);
+    server.createContext("/health", this::handleHealth);
+    executor = newRequestExecutor();
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  /**
+   * Returns the virtual thread per task executor if the Java runtime has virtual threads,
+   * otherwise a cached thread pool of daemon threads.
+   *
+   * @return ExecutorService of HTTP requests
+   */
+  private static ExecutorService newRequestExecutor() {
+    try {
+      Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) method.invoke(null);
+    } catch (ReflectiveOperationException ex) {
+      return Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "solve-http");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+
+  /**
+   * Returns the port number of the endpoint.
+   *
+   * @return integer of port number of the endpoint
+   */
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  /**
+   * Handle the solve request.
+   *
+   * @param exchange the HttpExchange of the request
+   * @throws IOException any IOException
+   */
+  private void handleSolve(final HttpExchange exchange) throws IOException {
+    try {
+      if (!"POST".equals(exchange.getRequestMethod())) {
+        exchange.getResponseHeaders().set("Allow", "POST");
+        reply(exchange, HttpURLConnection.HTTP_BAD_METHOD, error("POST required"));
+        return;
+      }
+      String body = readBody(exchange.getRequestBody());
+      if (body == null) {
+        reply(exchange, HttpURLConnection.HTTP_ENTITY_TOO_LARGE, error("Request too large"));
+        return;
+      }
+
+      Board board = parseBoard(body);
+      if (board == null) {
+        reply(exchange, HttpURLConnection.HTTP_BAD_REQUEST,
+            error("tiles must be 16 numbers of 0 to 15"));
+        return;
+      }
+      HeuristicOptions heuristic = parseHeuristic(body);
+      if (!SolverPool.isSupported(heuristic)) {
+        reply(exchange, HttpURLConnection.HTTP_BAD_REQUEST, error("Unsupported heuristic"));
+        return;
+      }
+      int timeout = parseTimeout(body);
+      if (timeout < 1 || timeout > SolveServerProperties.getMaxTimeout()) {
+        reply(exchange, HttpURLConnection.HTTP_BAD_REQUEST, error("timeout must be 1 to "
+            + SolveServerProperties.getMaxTimeout() + " milliseconds"));
+        return;
+      }
+
+      SolveResult result;
+      try {
+        result = pool.submit(board, heuristic, timeout).get();
+      } catch (ExecutionException ex) {
+        result = new SolveResult(Status.ERROR);
+      }
+      int code = HttpURLConnection.HTTP_OK;
+      if (result.getStatus().isRetryable()) {
+        exchange.getResponseHeaders().set("Retry-After", RETRY_AFTER);
+        code = HttpURLConnection.HTTP_UNAVAILABLE;
+      } else if (result.getStatus() == Status.ERROR) {
+        code = HttpURLConnection.HTTP_INTERNAL_ERROR;
+      }
+      reply(exchange, code, toJson(result));
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      reply(exchange, HttpURLConnection.HTTP_UNAVAILABLE, error("Server is shutting down"));
+    } finally {
+      exchange.close();
+    }
+  }
+
+  /**
+   * Handle the health request, reply the status of the SolverPool.
+   *
+   * @param exchange the HttpExchange of the request
+   * @throws IOException any IOException
+   */
+  private void handleHealth(final HttpExchange exchange) throws IOException {
+    try {
+      String json = "{\"status\":\"UP\",\"workers\":" + pool.getNumWorkers()
+          + ",\"queueDepth\":" + pool.getQueueDepth()
+          + ",\"expensiveQueued\":" + pool.getExpensiveQueued()
+          + ",\"expensiveRunning\":" + pool.getExpensiveRunning()
+          + ",\"completed\":" + pool.getCompleted()
+          + ",\"rejected\":" + pool.getRejected()
+          + ",\"expired\":" + pool.getExpired()
+          + ",\"coalesced\":" + pool.getCoalesced() + "}";
+      reply(exchange, HttpURLConnection.HTTP_OK, json);
+    } finally {
+      exchange.close();
+    }
+  }
+
+  /**
+   * Returns the string of the given request body, or null if the body is too large.
+   *
+   * @param in the InputStream of request body
+   * @return String of the request body
+   * @throws IOException any IOException
+   */
+  private static String readBody(final InputStream in) throws IOException {
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    byte[] buffer = new byte[MAX_BODY];
+    int count;
+    while ((count = in.read(buffer)) != -1) {
+      body.write(buffer, 0, count);
+      if (body.size() > MAX_BODY) {
+        return null;
+      }
+    }
+    return new String(body.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Returns the board of the tiles of the given request, or null if invalid.
+   *
+   * @param body the request body
+   * @return Board of the request, or null if invalid
+   */
+  private static Board parseBoard(final String body) {
+    Matcher matcher = TILES.matcher(body);
+    if (!matcher.find()) {
+      return null;
+    }
+    String[] values = matcher.group(1).split(",");
+    if (values.length != PuzzleConstants.getSize()) {
+      return null;
+    }
+    byte[] tiles = new byte[values.length];
+    int seen = 0;
+    try {
+      for (int i = 0; i < values.length; i++) {
+        int tile = Integer.parseInt(values[i].trim());
+        if (tile < 0 || tile >= values.length || (seen & (1 << tile)) != 0) {
+          return null;
+        }
+        seen |= 1 << tile;
+        tiles[i] = (byte) tile;
+      }
+    } catch (NumberFormatException ex) {
+      return null;
+    }
+    return new Board(tiles);
+  }
+
+  /**
+   * Returns the heuristic of the given request, the default heuristic if not given, or
+   * null if invalid.
+   *
+   * @param body the request body
+   * @return HeuristicOptions of the request
+   */
+  private static HeuristicOptions parseHeuristic(final String body) {
+    Matcher matcher = HEURISTIC.matcher(body);
+    if (!matcher.find()) {
+      return DEFAULT_HEURISTIC;
+    }
+    for (HeuristicOptions heuristic : HeuristicOptions.values()) {
+      if (heuristic.name().equalsIgnoreCase(matcher.group(1))) {
+        return heuristic;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the timeout in milliseconds of the given request, the default timeout if not
+   * given, or -1 if invalid.
+   *
+   * @param body the request body
+   * @return integer of timeout in milliseconds
+   */
+  private static int parseTimeout(final String body) {
+    Matcher matcher = TIMEOUT.matcher(body);
+    if (!matcher.find()) {
+      return SolveServerProperties.getSolveTimeout();
+    }
+    try {
+      return Integer.parseInt(matcher.group(1));
+    } catch (NumberFormatException ex) {
+      return -1;
+    }
+  }
+
+  /**
+   * Returns the JSON string of the given SolveResult.
+   *
+   * @param result the given SolveResult
+   * @return String of JSON of the given SolveResult
+   */
+  private static String toJson(final SolveResult result) {
+    StringBuilder json = new StringBuilder();
+    json.append("{\"status\":\"").append(result.getStatus()).append('"');
+    if (result.getStatus() == Status.SOLVED) {
+      json.append(",\"moves\":").append(result.moves()).append(",\"solution\":[");
+      Board.Move[] solution = result.solution();
+      for (int i = 1; i < solution.length; i++) {
+        if (i > 1) {
+          json.append(',');
+        }
+        json.append('"').append(solution[i]).append('"');
+      }
+      json.append(']');
+    }
+    if (result.getStatus() == Status.SOLVED || result.getStatus() == Status.TIMEOUT) {
+      json.append(",\"time\":").append(result.searchTime())
+          .append(",\"nodes\":").append(result.searchNodeCount());
+    }
+    return json.append('}').toString();
+  }
+
+  /**
+   * Returns the JSON string of the given error message.
+   *
+   * @param message the given error message
+   * @return String of JSON of the error
+   */
+  private static String error(final String message) {
+    return "{\"status\":\"ERROR\",\"message\":\"" + message + "\"}";
+  }
+
+  /**
+   * Send the given JSON string with the given HTTP status code.
+   *
+   * @param exchange the HttpExchange of the request
+   * @param code the HTTP status code
+   * @param json the JSON string
+   * @throws IOException any IOException
+   */
+  private static void reply(final HttpExchange exchange, final int code, final String json)
+      throws IOException {
+    byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(code, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  /**
+   * Stop the endpoint, the SolverPool is not shut down.
+   */
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+}
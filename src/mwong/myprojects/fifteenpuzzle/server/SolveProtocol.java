@@ -0,0 +1,99 @@
+package mwong.myprojects.fifteenpuzzle.server;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import mwong.myprojects.fifteenpuzzle.puzzle.Board;
+import mwong.myprojects.fifteenpuzzle.puzzle.HeuristicOptions;
+import mwong.myprojects.fifteenpuzzle.puzzle.PuzzleConstants;
+
+/**
+ * SolveProtocol is the binary protocol of solve server and client.  A client sends a
+ * sequence of requests on one connection, the server replies each request in order.
+ *
+ * <p>Request : 1 byte of operation, 8 bytes of packed tiles, 1 byte of heuristic,
+ * 4 bytes of timeout in milliseconds.  Response : SolveResult.
+ *
+ * <p>Dependencies : Board.java, HeuristicOptions.java, PuzzleConstants.java
+ *
+ * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
+ *            target="_blank">Meisze Wong (linkedin)</a>
+ * @see <a href="http://www.github.com/mwong510ca/15PuzzleOptimalSolver/"
+ *         target="_blank">GitHub (full project)</a>
+ */
+final class SolveProtocol {
+  /** The operation of solve request. */
+  static final int OP_SOLVE = 1;
+
+  /** private constructor, no instance. */
+  private SolveProtocol() {
+    // not called.
+  }
+
+  /**
+   * Write the solve request of the given board, heuristic and timeout.
+   *
+   * @param out the given DataOutput
+   * @param board the given board
+   * @param heuristic the given HeuristicOptions
+   * @param timeoutMillis the timeout in milliseconds
+   * @throws IOException any IOException
+   */
+  static void writeSolve(final DataOutput out, final Board board,
+      final HeuristicOptions heuristic, final int timeoutMillis) throws IOException {
+    out.writeByte(OP_SOLVE);
+    out.writeLong(board.getPackedTiles());
+    out.writeByte(heuristic.ordinal());
+    out.writeInt(timeoutMillis);
+  }
+
+  /**
+   * SolveRequest is the solve request read by the server, board and heuristic are null
+   * if invalid.
+   */
+  static final class SolveRequest {
+    /** The board to solve, or null if invalid. */
+    final Board board;
+    /** The heuristic of solver, or null if invalid. */
+    final HeuristicOptions heuristic;
+    /** The timeout in milliseconds. */
+    final int timeoutMillis;
+
+    /**
+     * Initializes SolveRequest object.
+     *
+     * @param board the board to solve, or null if invalid
+     * @param heuristic the heuristic of solver, or null if invalid
+     * @param timeoutMillis the timeout in milliseconds
+     */
+    private SolveRequest(final Board board, final HeuristicOptions heuristic,
+        final int timeoutMillis) {
+      this.board = board;
+      this.heuristic = heuristic;
+      this.timeoutMillis = timeoutMillis;
+    }
+  }
+
+  /**
+   * Returns the solve request read from the given input after the operation byte.
+   *
+   * @param in the given DataInput
+   * @return SolveRequest read from the given input
+   * @throws IOException any IOException
+   */
+  static SolveRequest readSolve(final DataInput in) throws IOException {
+    long packedTiles = in.readLong();
+    int code = in.readUnsignedByte();
+    int timeoutMillis = in.readInt();
+    Board board = null;
+    if (PuzzleConstants.isValidPacked(packedTiles)) {
+      board = new Board(packedTiles);
+    }
+    HeuristicOptions heuristic = null;
+    if (code < HeuristicOptions.values().length) {
+      heuristic = HeuristicOptions.values()[code];
+    }
+    return new SolveRequest(board, heuristic, timeoutMillis);
+  }
+}
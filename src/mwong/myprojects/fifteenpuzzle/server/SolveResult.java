@@ -0,0 +1,227 @@
+package mwong.myprojects.fifteenpuzzle.server;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+
+import mwong.myprojects.fifteenpuzzle.puzzle.Board;
+import mwong.myprojects.fifteenpuzzle.puzzle.MoveSequence;
+
+/**
+ * SolveResult is the immutable data type of the result of a solve request.  It has the
+ * status, the number of moves and the solution if solved, the search time and the number
+ * of nodes generated.
+ *
+ * <p>Dependencies : Board.java, MoveSequence.java
+ *
+ * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
+ *            target="_blank">Meisze Wong (linkedin)</a>
+ * @see <a href="http://www.github.com/mwong510ca/15PuzzleOptimalSolver/"
+ *         target="_blank">GitHub (full project)</a>
+ */
+public final class SolveResult {
+  /** Milliseconds in one second. */
+  private static final double SEC_TO_MS = 1000.0;
+
+  /** The Status of the request. */
+  private final Status status;
+  /** The number of moves of the solution, or -1 if not solved. */
+  private final byte moves;
+  /** The solution include Move.NONE at index 0, or null if not solved. */
+  private final Board.Move[] solution;
+  /** The search time in seconds. */
+  private final double searchTime;
+  /** The number of nodes generated. */
+  private final int searchNodeCount;
+
+  /**
+   * Initializes SolveResult object of the given status without solution.
+   *
+   * @param status the given Status
+   */
+  SolveResult(final Status status) {
+    this(status, null, 0, 0);
+  }
+
+  /**
+   * Initializes SolveResult object of the given status, solution, search time and number
+   * of nodes.
+   *
+   * @param status the given Status
+   * @param solution the Board.Move array of solution include Move.NONE at index 0, or null
+   * @param searchTime the search time in seconds
+   * @param searchNodeCount the number of nodes generated
+   */
+  SolveResult(final Status status, final Board.Move[] solution, final double searchTime,
+      final int searchNodeCount) {
+    this.status = status;
+    this.solution = solution;
+    if (solution == null) {
+      moves = -1;
+    } else {
+      moves = (byte) (solution.length - 1);
+    }
+    this.searchTime = searchTime;
+    this.searchNodeCount = searchNodeCount;
+  }
+
+  /**
+   * Returns the Status of the request.
+   *
+   * @return Status of the request
+   */
+  public Status getStatus() {
+    return status;
+  }
+
+  /**
+   * Returns the number of moves of the solution, or -1 if not solved.
+   *
+   * @return byte value of number of moves of the solution
+   */
+  public byte moves() {
+    return moves;
+  }
+
+  /**
+   * Returns a copy of the solution include Move.NONE at index 0, or null if not solved.
+   *
+   * @return Board.Move array of the solution
+   */
+  public Board.Move[] solution() {
+    if (solution == null) {
+      return null;
+    }
+    return solution.clone();
+  }
+
+  /**
+   * Returns the search time in seconds.
+   *
+   * @return double value of search time in seconds
+   */
+  public double searchTime() {
+    return searchTime;
+  }
+
+  /**
+   * Returns the number of nodes generated.
+   *
+   * @return integer of number of nodes generated
+   */
+  public int searchNodeCount() {
+    return searchNodeCount;
+  }
+
+  /**
+   * Returns the SolveResult of the mirror reflection board, the solution is converted
+   * by the mirror reflection of each direction.
+   *
+   * @return SolveResult of the mirror reflection board
+   */
+  SolveResult mirror() {
+    if (solution == null) {
+      return this;
+    }
+    Board.Move[] mirrorSolution = new Board.Move[solution.length];
+    for (int i = 0; i < solution.length; i++) {
+      mirrorSolution[i] = solution[i].mirrorDirection();
+    }
+    return new SolveResult(status, mirrorSolution, searchTime, searchNodeCount);
+  }
+
+  /**
+   * Write the result to the given output, 1 byte of status, 4 bytes of search time in
+   * milliseconds, 4 bytes of number of nodes, follow by the solution if solved.
+   *
+   * @param out the given DataOutput
+   * @throws IOException any IOException
+   */
+  void writeTo(final DataOutput out) throws IOException {
+    out.writeByte(status.ordinal());
+    out.writeInt((int) Math.round(searchTime * SEC_TO_MS));
+    out.writeInt(searchNodeCount);
+    if (status == Status.SOLVED) {
+      new MoveSequence(solution).writeTo(out);
+    }
+  }
+
+  /**
+   * Returns the SolveResult read from the given input, written by writeTo.
+   *
+   * @param in the given DataInput
+   * @return SolveResult read from the given input
+   * @throws IOException any IOException or invalid result
+   */
+  static SolveResult readFrom(final DataInput in) throws IOException {
+    int code = in.readUnsignedByte();
+    if (code >= Status.values().length) {
+      throw new InvalidObjectException("Invalid status : " + code);
+    }
+    Status status = Status.values()[code];
+    double searchTime = in.readInt() / SEC_TO_MS;
+    int searchNodeCount = in.readInt();
+    Board.Move[] solution = null;
+    if (status == Status.SOLVED) {
+      solution = MoveSequence.readFrom(in).getMoves();
+    }
+    return new SolveResult(status, solution, searchTime, searchNodeCount);
+  }
+
+  @Override
+  public String toString() {
+    if (status == Status.SOLVED) {
+      return status + " " + moves + " moves, " + searchTime + "s, " + searchNodeCount
+          + " nodes";
+    }
+    return status.toString();
+  }
+
+  /**
+   * Status is the enum type of the result of a solve request.
+   *
+   * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
+   *            target="_blank">Meisze Wong (linkedin)</a>
+   */
+  public enum Status {
+    /**
+     * The board has been solved.
+     */
+    SOLVED,
+
+    /**
+     * The board is not solvable.
+     */
+    UNSOLVABLE,
+
+    /**
+     * The search has timeout.
+     */
+    TIMEOUT,
+
+    /**
+     * The deadline has passed before a solver is available.
+     */
+    EXPIRED,
+
+    /**
+     * The request queue is full, try again later.
+     */
+    BUSY,
+
+    /**
+     * The request is invalid or the solver has failed.
+     */
+    ERROR;
+
+    /**
+     * Returns the boolean represents the request may succeed if try again.
+     *
+     * @return boolean represents the request may succeed if try again
+     */
+    public boolean isRetryable() {
+      return this == BUSY || this == EXPIRED;
+    }
+  }
+}
@@ -0,0 +1,184 @@
+package mwong.myprojects.fifteenpuzzle.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import mwong.myprojects.fifteenpuzzle.server.SolveProtocol.SolveRequest;
+import mwong.myprojects.fifteenpuzzle.server.SolveResult.Status;
+
+/**
+ * SolveServer is the TCP server of solve requests.  Thin clients send the boards to
+ * solve, the SolverPool of the server solves the boards with one copy of the pattern
+ * database.  Each connection has a thread to read the requests and reply the results
+ * in order, a new connection is rejected with status BUSY when the maximum number of
+ * connections is reached.
+ *
+ * <p>Dependencies : SolveProtocol.java, SolveResult.java, SolverPool.java
+ *
+ * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
+ *            target="_blank">Meisze Wong (linkedin)</a>
+ * @see SolveClient
+ * @see <a href="http://www.github.com/mwong510ca/15PuzzleOptimalSolver/"
+ *         target="_blank">GitHub (full project)</a>
+ */
+public final class SolveServer implements Closeable {
+  /** The seconds to keep an idle connection thread. */
+  private static final long IDLE_SECONDS = 60;
+
+  /** The SolverPool of the server. */
+  private final SolverPool pool;
+  /** The server socket. */
+  private final ServerSocket serverSocket;
+  /** The threads of connections. */
+  private final ThreadPoolExecutor connections;
+  /** The thread accepts connections. */
+  private final Thread acceptor;
+
+  /**
+   * Initializes SolveServer object listen on the given port with the given SolverPool
+   * and maximum number of connections, and start accepting connections.
+   *
+   * @param port the port number, 0 for an anonymous port
+   * @param pool the given SolverPool
+   * @param maxConnections the maximum number of connections
+   * @throws IOException if the port is not available
+   */
+  public SolveServer(final int port, final SolverPool pool, final int maxConnections)
+      throws IOException {
+    if (pool == null) {
+      throw new IllegalArgumentException("Solver pool is null");
+    }
+    this.pool = pool;
+    serverSocket = new ServerSocket(port);
+    connections = new ThreadPoolExecutor(0, maxConnections, IDLE_SECONDS, TimeUnit.SECONDS,
+        new SynchronousQueue<Runnable>(), runnable -> {
+          Thread thread = new Thread(runnable, "solve-connection");
+          thread.setDaemon(true);
+          return thread;
+        });
+    acceptor = new Thread(this::accept, "solve-acceptor");
+    acceptor.start();
+  }
+
+  /**
+   * Returns the port number of the server.
+   *
+   * @return integer of port number of the server
+   */
+  public int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  /**
+   * Returns the SolverPool of the server.
+   *
+   * @return SolverPool of the server
+   */
+  public SolverPool getPool() {
+    return pool;
+  }
+
+  /**
+   * The loop of acceptor thread, accept the connections until closed.
+   */
+  private void accept() {
+    while (!serverSocket.isClosed()) {
+      final Socket socket;
+      try {
+        socket = serverSocket.accept();
+        socket.setTcpNoDelay(true);
+      } catch (IOException ex) {
+        if (!serverSocket.isClosed()) {
+          System.err.println("System error : solve server accept error - " + ex.getMessage());
+        }
+        continue;
+      }
+      try {
+        connections.execute(() -> serve(socket));
+      } catch (RejectedExecutionException ex) {
+        reject(socket);
+      }
+    }
+  }
+
+  /**
+   * Reply status BUSY and close the given connection.
+   *
+   * @param socket the given connection
+   */
+  private static void reject(final Socket socket) {
+    try (Socket closing = socket) {
+      DataOutputStream out = new DataOutputStream(closing.getOutputStream());
+      new SolveResult(Status.BUSY).writeTo(out);
+      out.flush();
+    } catch (IOException ex) {
+      // client has gone
+    }
+  }
+
+  /**
+   * Read the requests of the given connection and reply the results until the client
+   * closes the connection.
+   *
+   * @param socket the given connection
+   */
+  private void serve(final Socket socket) {
+    try (Socket closing = socket;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+            closing.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+            closing.getOutputStream()))) {
+      while (true) {
+        int operation = in.read();
+        if (operation == -1) {
+          return;
+        }
+        if (operation != SolveProtocol.OP_SOLVE) {
+          new SolveResult(Status.ERROR).writeTo(out);
+          out.flush();
+          return;
+        }
+        SolveRequest request = SolveProtocol.readSolve(in);
+        SolveResult result;
+        try {
+          result = pool.submit(request.board, request.heuristic, request.timeoutMillis).get();
+        } catch (ExecutionException ex) {
+          result = new SolveResult(Status.ERROR);
+        }
+        result.writeTo(out);
+        out.flush();
+      }
+    } catch (EOFException | SocketException ex) {
+      // client has gone
+    } catch (IOException ex) {
+      System.err.println("System error : solve server connection error - " + ex.getMessage());
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Stop accepting connections, close the connections and shut down the SolverPool.
+   *
+   * @throws IOException any IOException
+   */
+  @Override
+  public void close() throws IOException {
+    serverSocket.close();
+    connections.shutdownNow();
+    pool.shutdown();
+  }
+}
@@ -0,0 +1,229 @@
+package mwong.myprojects.fifteenpuzzle.server;
+
+import mwong.myprojects.fifteenpuzzle.PropertiesCache;
+import mwong.myprojects.fifteenpuzzle.puzzle.HeuristicOptions;
+import mwong.myprojects.fifteenpuzzle.puzzle.PuzzleConstants;
+
+/**
+ * SolveServerProperties contains the host, ports, number of workers and queue size of
+ * the solve server and the HTTP solve endpoint.  The default values can be changed in
+ * config.properties.
+ *
+ * <p>Dependencies : HeuristicOptions.java, PropertiesCache.java, PuzzleConstants.java
+ *
+ * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
+ *            target="_blank">Meisze Wong (linkedin)</a>
+ * @see <a href="http://www.github.com/mwong510ca/15PuzzleOptimalSolver/"
+ *         target="_blank">GitHub (full project)</a>
+ */
+public final class SolveServerProperties {
+  /** The maximum timeout of a request in milliseconds, 5 minutes of solver timer. */
+  private static final int MAX_TIMEOUT = 300000;
+  /** The string of solve server host name. */
+  private static String solveHost = "localhost";
+  /** The integer of solve server port number. */
+  private static int solvePort = 1100;
+  /** The integer of HTTP solve endpoint port number. */
+  private static int solveHttpPort = 8080;
+  /** The default timeout of a request in milliseconds. */
+  private static int solveTimeout = 10000;
+  /** The number of solver threads. */
+  private static int solveWorkers = Runtime.getRuntime().availableProcessors();
+  /** The number of requests waiting for a solver. */
+  private static int solveQueueSize = 64;
+  /** The maximum number of client connections. */
+  private static int solveConnections = 256;
+  /** The milliseconds a request waits for each move of estimate, 0 for first come first
+   *  served. */
+  private static int solveCostWeight = 50;
+  /** The estimate of an expensive request. */
+  private static int solveExpensiveMoves = 60;
+  /** The percentage of workers solve expensive requests. */
+  private static int solveExpensiveShare = 50;
+  /** The HeuristicOptions to load before the first request, or null. */
+  private static HeuristicOptions solvePreload = HeuristicOptions.PD78;
+
+  static {
+    if (PropertiesCache.getInstance().containsKey("solveServerHost")) {
+      solveHost = PropertiesCache.getInstance().getProperty("solveServerHost").trim();
+    }
+    final int minPort = 1024;
+    final int maxPort = 65535;
+    solvePort = loadInteger("solveServerPort", solvePort, minPort, maxPort);
+    solveHttpPort = loadInteger("solveHttpPort", solveHttpPort, minPort, maxPort);
+    solveTimeout = loadInteger("solveServerTimeout", solveTimeout, 1, MAX_TIMEOUT);
+    final int maxWorkers = 256;
+    solveWorkers = loadInteger("solveServerWorkers", Math.min(solveWorkers, maxWorkers), 1,
+        maxWorkers);
+    final int maxQueueSize = 65536;
+    solveQueueSize = loadInteger("solveServerQueueSize", solveQueueSize, 1, maxQueueSize);
+    final int maxConnections = 65536;
+    solveConnections = loadInteger("solveServerConnections", solveConnections, 1,
+        maxConnections);
+    final int maxCostWeight = 10000;
+    solveCostWeight = loadInteger("solveCostWeight", solveCostWeight, 0, maxCostWeight);
+    solveExpensiveMoves = loadInteger("solveExpensiveMoves", solveExpensiveMoves, 1,
+        PuzzleConstants.getMaxMoves());
+    final int maxShare = 100;
+    solveExpensiveShare = loadInteger("solveExpensiveShare", solveExpensiveShare, 1,
+        maxShare);
+    if (PropertiesCache.getInstance().containsKey("solveServerPreload")) {
+      String preload = PropertiesCache.getInstance().getProperty("solveServerPreload")
+          .trim().toUpperCase();
+      if ("NONE".equals(preload)) {
+        solvePreload = null;
+      } else {
+        try {
+          solvePreload = HeuristicOptions.valueOf(preload);
+        } catch (IllegalArgumentException ex) {
+          System.err.println("Invalid solveServerPreload setting " + preload
+              + ", restore to system default PD78.");
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the integer value of the given property key within the given range,
+   * otherwise returns the given default value.
+   *
+   * @param key the String of properties key
+   * @param defaultValue the default value
+   * @param min the minimum value
+   * @param max the maximum value
+   * @return integer value of the given property key
+   */
+  private static int loadInteger(final String key, final int defaultValue, final int min,
+      final int max) {
+    if (!PropertiesCache.getInstance().containsKey(key)) {
+      return defaultValue;
+    }
+    try {
+      int value = Integer.parseInt(PropertiesCache.getInstance().getProperty(key).trim());
+      if (value >= min && value <= max) {
+        return value;
+      }
+      System.err.println("Invalid " + key + " setting " + value + ", allow minimum " + min
+          + " to maximum " + max + " only. Restore to system default " + defaultValue + ".");
+    } catch (NumberFormatException ex) {
+      System.err.println("Configuration " + key + " is not an iteger,"
+          + " restore to system default " + defaultValue + ".");
+    }
+    return defaultValue;
+  }
+
+  /** private constructor, no instance. */
+  private SolveServerProperties() {
+    // not called.
+  }
+
+  /**
+   * Returns the string of solve server host name.
+   *
+   * @return string of solve server host name
+   */
+  public static String getSolveHost() {
+    return solveHost;
+  }
+
+  /**
+   * Returns the integer of solve server port number.
+   *
+   * @return integer of solve server port number
+   */
+  public static int getSolvePort() {
+    return solvePort;
+  }
+
+  /**
+   * Returns the integer of HTTP solve endpoint port number.
+   *
+   * @return integer of HTTP solve endpoint port number
+   */
+  public static int getSolveHttpPort() {
+    return solveHttpPort;
+  }
+
+  /**
+   * Returns the default timeout of a request in milliseconds.
+   *
+   * @return integer of default timeout of a request in milliseconds
+   */
+  public static int getSolveTimeout() {
+    return solveTimeout;
+  }
+
+  /**
+   * Returns the number of solver threads.
+   *
+   * @return integer of number of solver threads
+   */
+  public static int getSolveWorkers() {
+    return solveWorkers;
+  }
+
+  /**
+   * Returns the number of requests waiting for a solver, a new request is rejected
+   * when the queue is full.
+   *
+   * @return integer of number of requests waiting for a solver
+   */
+  public static int getSolveQueueSize() {
+    return solveQueueSize;
+  }
+
+  /**
+   * Returns the maximum number of client connections.
+   *
+   * @return integer of maximum number of client connections
+   */
+  public static int getSolveConnections() {
+    return solveConnections;
+  }
+
+  /**
+   * Returns the milliseconds a request waits for each move of estimate, 0 for first
+   * come first served.
+   *
+   * @return integer of milliseconds a request waits for each move of estimate
+   */
+  public static int getSolveCostWeight() {
+    return solveCostWeight;
+  }
+
+  /**
+   * Returns the estimate of an expensive request.
+   *
+   * @return integer of estimate of an expensive request
+   */
+  public static int getSolveExpensiveMoves() {
+    return solveExpensiveMoves;
+  }
+
+  /**
+   * Returns the percentage of workers solve expensive requests.
+   *
+   * @return integer of percentage of workers solve expensive requests
+   */
+  public static int getSolveExpensiveShare() {
+    return solveExpensiveShare;
+  }
+
+  /**
+   * Returns the HeuristicOptions to load before the first request, or null.
+   *
+   * @return HeuristicOptions to load before the first request, or null
+   */
+  public static HeuristicOptions getSolvePreload() {
+    return solvePreload;
+  }
+
+  /**
+   * Returns the maximum timeout of a request in milliseconds.
+   *
+   * @return integer of maximum timeout of a request in milliseconds
+   */
+  public static int getMaxTimeout() {
+    return MAX_TIMEOUT;
+  }
+}
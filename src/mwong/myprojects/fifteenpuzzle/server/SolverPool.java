@@ -0,0 +1,645 @@
+package mwong.myprojects.fifteenpuzzle.server;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import mwong.myprojects.fifteenpuzzle.puzzle.Board;
+import mwong.myprojects.fifteenpuzzle.puzzle.HeuristicOptions;
+import mwong.myprojects.fifteenpuzzle.puzzle.PuzzleConstants;
+import mwong.myprojects.fifteenpuzzle.server.SolveResult.Status;
+import mwong.myprojects.fifteenpuzzle.solution.Solver;
+import mwong.myprojects.fifteenpuzzle.solution.Solver.ApplicationMode;
+import mwong.myprojects.fifteenpuzzle.solution.SolverBuilder;
+
+/**
+ * SolverPool is the pool of solver threads of the solve server.  The requests wait in a
+ * bounded queue, a new request is rejected with status BUSY when the queue is full.
+ * Each worker thread has its own solver of each heuristic, solvers are not thread safe.
+ * The solvers of pattern database 7-8 share the pattern database of SolverBuilder, it
+ * is loaded once for all workers.
+ *
+ * <p>The requests are scheduled shortest job first.  The cost of a request is predicted
+ * by the heuristic value of its board, the estimate of pattern database plus the boost
+ * of reference boards if the solver uses them.  A request waits for the time of its cost
+ * after it is queued, the request of the earliest start time is solved first.  So a
+ * cheap request passes the expensive requests, and an expensive request is solved once
+ * it has waited its cost, it is never starved.  The requests of estimate at least the
+ * expensive moves are limited to a share of the workers, the other workers are kept
+ * for the cheap requests.  The heuristic values are computed by a small fixed pool of
+ * predictor solvers of each heuristic, shared by the submitting threads.
+ *
+ * <p>Every request has a deadline.  A request is expired if the deadline has passed
+ * before a solver is available, otherwise the solver timer is set to the remaining time
+ * rounded up to seconds.
+ *
+ * <p>Concurrent requests of the same board or its mirror reflection with the same
+ * heuristic share one search.  A new request attaches to the request in queue or in
+ * search if its deadline is not later than the deadline of that request plus a slack,
+ * far below the solver timer of seconds, so a burst of the same board shares one
+ * search.  The solution is converted by the mirror reflection of each direction for
+ * the mirror board.  Otherwise it is a new search.
+ *
+ * <p>Dependencies : Board.java, HeuristicOptions.java, PuzzleConstants.java,
+ *                   SolveResult.java, Solver.java, SolverBuilder.java
+ *
+ * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
+ *            target="_blank">Meisze Wong (linkedin)</a>
+ * @see <a href="http://www.github.com/mwong510ca/15PuzzleOptimalSolver/"
+ *         target="_blank">GitHub (full project)</a>
+ */
+public final class SolverPool {
+  /** Nano seconds in one second. */
+  private static final long NANO_SEC = TimeUnit.SECONDS.toNanos(1);
+  /** The maximum timeout of solver in seconds. */
+  private static final int MAX_TIMEOUT_SEC = SolveServerProperties.getMaxTimeout() / 1000;
+  /** The maximum number of predictor solvers of each heuristic. */
+  private static final int MAX_PREDICTORS = 4;
+  /** The nano seconds a request may attach to a request of an earlier deadline. */
+  private static final long COALESCE_SLACK = TimeUnit.MILLISECONDS.toNanos(50);
+  /** The lock to create solvers, SolverBuilder loads the shared pattern database once. */
+  private static final Object BUILDER_LOCK = new Object();
+
+  /** The lock of the queues of requests. */
+  private final ReentrantLock queueLock = new ReentrantLock();
+  /** The condition of a request may be taken by a worker. */
+  private final Condition available = queueLock.newCondition();
+  /** The queue of cheap requests waiting for a solver, ordered by start time. */
+  private final PriorityQueue<Task> cheapQueue;
+  /** The queue of expensive requests waiting for a solver, ordered by start time. */
+  private final PriorityQueue<Task> expensiveQueue;
+  /** The maximum number of requests waiting for a solver. */
+  private final int queueSize;
+  /** The nano seconds a request waits for each move of estimate. */
+  private final long costNanos;
+  /** The estimate of an expensive request. */
+  private final int expensiveMoves;
+  /** The maximum number of workers solve expensive requests. */
+  private final int expensiveWorkers;
+  /** The number of workers solve expensive requests, guarded by queueLock. */
+  private int expensiveRunning;
+  /** The sequence number of next request, guarded by queueLock. */
+  private long sequence;
+  /** The idle solvers to predict the cost of requests of each heuristic. */
+  private final Map<HeuristicOptions, BlockingQueue<Solver>> predictors;
+  /** The number of predictor solvers created of each heuristic. */
+  private final Map<HeuristicOptions, AtomicInteger> predictorCount;
+  /** The maximum number of predictor solvers of each heuristic. */
+  private final int maxPredictors;
+  /** The worker threads. */
+  private final Thread[] workers;
+  /** The number of requests completed by solvers. */
+  private final AtomicLong completed = new AtomicLong();
+  /** The number of requests rejected when the queue is full. */
+  private final AtomicLong rejected = new AtomicLong();
+  /** The number of requests expired in queue. */
+  private final AtomicLong expired = new AtomicLong();
+  /** The number of requests attached to another request of the same board. */
+  private final AtomicLong coalesced = new AtomicLong();
+  /** The requests in queue or in search of each heuristic, key by canonical tiles. */
+  private final Map<HeuristicOptions, ConcurrentMap<Long, Task>> inflight;
+  /** The boolean value represents the pool has been shut down. */
+  private volatile boolean shutdown;
+
+  /**
+   * Initializes SolverPool object with the given number of worker threads and the given
+   * queue size, and start the workers.  The scheduler settings are from
+   * SolveServerProperties.
+   *
+   * @param numWorkers the number of worker threads
+   * @param queueSize the number of requests waiting for a solver
+   */
+  public SolverPool(final int numWorkers, final int queueSize) {
+    this(numWorkers, queueSize, SolveServerProperties.getSolveCostWeight(),
+        SolveServerProperties.getSolveExpensiveMoves(),
+        SolveServerProperties.getSolveExpensiveShare());
+  }
+
+  /**
+   * Initializes SolverPool object with the given number of worker threads, the given
+   * queue size and the given scheduler settings, and start the workers.
+   *
+   * @param numWorkers the number of worker threads
+   * @param queueSize the number of requests waiting for a solver
+   * @param costWeight the milliseconds a request waits for each move of estimate,
+   *     0 for first come first served
+   * @param expensiveMoves the estimate of an expensive request
+   * @param expensiveShare the percentage of workers solve expensive requests
+   */
+  public SolverPool(final int numWorkers, final int queueSize, final int costWeight,
+      final int expensiveMoves, final int expensiveShare) {
+    if (numWorkers < 1) {
+      throw new IllegalArgumentException("Invalid number of workers : " + numWorkers);
+    }
+    if (queueSize < 1) {
+      throw new IllegalArgumentException("Invalid queue size : " + queueSize);
+    }
+    if (costWeight < 0 || expensiveShare < 1 || expensiveShare > 100) {
+      throw new IllegalArgumentException("Invalid scheduler setting : " + costWeight
+          + "ms, " + expensiveShare + "%");
+    }
+    this.queueSize = queueSize;
+    costNanos = TimeUnit.MILLISECONDS.toNanos(costWeight);
+    this.expensiveMoves = expensiveMoves;
+    expensiveWorkers = Math.max(1, numWorkers * expensiveShare / 100);
+    cheapQueue = new PriorityQueue<Task>(16, SolverPool::compare);
+    expensiveQueue = new PriorityQueue<Task>(16, SolverPool::compare);
+    inflight = new EnumMap<HeuristicOptions, ConcurrentMap<Long, Task>>(
+        HeuristicOptions.class);
+    maxPredictors = Math.min(numWorkers, MAX_PREDICTORS);
+    predictors = new EnumMap<HeuristicOptions, BlockingQueue<Solver>>(HeuristicOptions.class);
+    predictorCount = new EnumMap<HeuristicOptions, AtomicInteger>(HeuristicOptions.class);
+    for (HeuristicOptions heuristic : HeuristicOptions.values()) {
+      inflight.put(heuristic, new ConcurrentHashMap<Long, Task>());
+      predictors.put(heuristic, new ArrayBlockingQueue<Solver>(maxPredictors));
+      predictorCount.put(heuristic, new AtomicInteger());
+    }
+    workers = new Thread[numWorkers];
+    for (int i = 0; i < numWorkers; i++) {
+      workers[i] = new Thread(this::work, "solver-worker-" + i);
+      workers[i].setDaemon(true);
+      workers[i].start();
+    }
+  }
+
+  /**
+   * Task is the solve request waiting in queue.
+   */
+  private static final class Task {
+    /** The board to solve. */
+    private final Board board;
+    /** The packed tiles of the board. */
+    private final long tiles;
+    /** The heuristic of solver. */
+    private final HeuristicOptions heuristic;
+    /** The deadline in System.nanoTime. */
+    private final long deadline;
+    /** The future of the result. */
+    private final CompletableFuture<SolveResult> future = new CompletableFuture<SolveResult>();
+    /** The start time in System.nanoTime, the time queued plus the predicted cost. */
+    private long start;
+    /** The sequence number in queue, first come first served of the same start time. */
+    private long order;
+    /** The boolean value represents the request is expensive. */
+    private boolean expensive;
+
+    /**
+     * Initializes Task object.
+     *
+     * @param board the board to solve
+     * @param tiles the packed tiles of the board
+     * @param heuristic the heuristic of solver
+     * @param deadline the deadline in System.nanoTime
+     */
+    private Task(final Board board, final long tiles, final HeuristicOptions heuristic,
+        final long deadline) {
+      this.board = board;
+      this.tiles = tiles;
+      this.heuristic = heuristic;
+      this.deadline = deadline;
+    }
+  }
+
+  /**
+   * Returns the negative integer, zero, or a positive integer as the first task starts
+   * before, same time or after the second task.
+   *
+   * @param first the first task
+   * @param second the second task
+   * @return integer of the order of the given tasks
+   */
+  private static int compare(final Task first, final Task second) {
+    long diff = first.start - second.start;
+    if (diff != 0) {
+      return diff < 0 ? -1 : 1;
+    }
+    return Long.compare(first.order, second.order);
+  }
+
+  /**
+   * Returns the new solver of the given heuristic, the solver timer is on.  The timer is
+   * always on except pattern database 7-8.
+   *
+   * @param heuristic the given HeuristicOptions
+   * @return Solver of the given heuristic
+   */
+  private static Solver createSolver(final HeuristicOptions heuristic) {
+    synchronized (BUILDER_LOCK) {
+      SolverBuilder builder = new SolverBuilder(ApplicationMode.SYSTEM);
+      builder.setTimerOnPdb78(true);
+      return builder.createSolver(heuristic);
+    }
+  }
+
+  /**
+   * Load the data of the given heuristic before the first request.  The pattern database
+   * 7-8 is loaded once and shared by all workers.  The solver is kept as a predictor of
+   * the cost of requests.
+   *
+   * @param heuristic the given HeuristicOptions
+   */
+  public void preload(final HeuristicOptions heuristic) {
+    if (!isSupported(heuristic)) {
+      throw new IllegalArgumentException("Unsupported heuristic : " + heuristic);
+    }
+    try {
+      predictors.get(heuristic).offer(takePredictor(heuristic));
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Returns the boolean value represents the given heuristic is supported.
+   *
+   * @param heuristic the given HeuristicOptions
+   * @return boolean value represents the given heuristic is supported
+   */
+  public static boolean isSupported(final HeuristicOptions heuristic) {
+    return heuristic != null && heuristic != HeuristicOptions.PDCustom;
+  }
+
+  /**
+   * Returns the future result of the given board with the given heuristic and timeout.
+   * The result is BUSY immediately if the queue is full.  The request shares the search
+   * of the same board or its mirror reflection in queue or in search.
+   *
+   * @param board the given board
+   * @param heuristic the given HeuristicOptions
+   * @param timeoutMillis the timeout in milliseconds from now, include the time in queue
+   * @return CompletableFuture of SolveResult
+   */
+  public CompletableFuture<SolveResult> submit(final Board board,
+      final HeuristicOptions heuristic, final int timeoutMillis) {
+    if (board == null || !isSupported(heuristic) || timeoutMillis < 1
+        || timeoutMillis > SolveServerProperties.getMaxTimeout() || shutdown) {
+      return CompletableFuture.completedFuture(new SolveResult(Status.ERROR));
+    }
+    final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    final long tiles = board.getPackedTiles();
+    final long mirrorTiles = PuzzleConstants.packedMirror(tiles);
+    final Long key = Math.min(tiles, mirrorTiles);
+    final ConcurrentMap<Long, Task> requests = inflight.get(heuristic);
+
+    // attach or insert in one step, a burst of the same board starts one search
+    final Task task = new Task(board, tiles, heuristic, deadline);
+    Task leader = requests.compute(key, (k, running) -> running != null
+        && running.deadline - deadline >= -COALESCE_SLACK && !running.future.isDone()
+        ? running : task);
+    if (leader != task) {
+      coalesced.incrementAndGet();
+      if (leader.tiles == tiles) {
+        return leader.future;
+      }
+      return leader.future.thenApply(SolveResult::mirror);
+    }
+    task.future.whenComplete((result, ex) -> requests.remove(key, task));
+    if (!offer(task, predict(board, heuristic))) {
+      rejected.incrementAndGet();
+      task.future.complete(new SolveResult(Status.BUSY));
+      return task.future;
+    }
+    // shut down after offer, the workers may have drained the queue
+    if (shutdown && remove(task)) {
+      task.future.complete(new SolveResult(Status.ERROR));
+    }
+    return task.future;
+  }
+
+  /**
+   * Returns an idle predictor solver of the given heuristic.  Create a new one if less
+   * than the maximum number of predictors, otherwise wait for an idle one.
+   *
+   * @param heuristic the given HeuristicOptions
+   * @return Solver of the given heuristic to predict the cost
+   * @throws InterruptedException if interrupted while waiting
+   */
+  private Solver takePredictor(final HeuristicOptions heuristic)
+      throws InterruptedException {
+    BlockingQueue<Solver> idle = predictors.get(heuristic);
+    Solver solver = idle.poll();
+    if (solver != null) {
+      return solver;
+    }
+    AtomicInteger count = predictorCount.get(heuristic);
+    if (count.incrementAndGet() > maxPredictors) {
+      count.decrementAndGet();
+      return idle.take();
+    }
+    try {
+      return createSolver(heuristic);
+    } catch (RuntimeException | OutOfMemoryError ex) {
+      count.decrementAndGet();
+      throw ex;
+    }
+  }
+
+  /**
+   * Returns the predicted cost of the given board with the given heuristic, the
+   * heuristic value of a predictor solver.  Returns 0 if the board is unsolvable or
+   * the solver is not available, the request finishes quickly or fails.
+   *
+   * @param board the given board
+   * @param heuristic the given HeuristicOptions
+   * @return integer of the predicted cost in number of moves
+   */
+  private int predict(final Board board, final HeuristicOptions heuristic) {
+    Solver solver;
+    try {
+      solver = takePredictor(heuristic);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return 0;
+    } catch (RuntimeException | OutOfMemoryError ex) {
+      return 0;
+    }
+    try {
+      return Math.max(0, solver.heuristic(board));
+    } catch (RuntimeException ex) {
+      return 0;
+    } finally {
+      predictors.get(heuristic).offer(solver);
+    }
+  }
+
+  /**
+   * Returns the boolean value represents the given task is queued with the given
+   * predicted cost, or false if the queue is full.
+   *
+   * @param task the given task
+   * @param estimate the predicted cost in number of moves
+   * @return boolean value represents the given task is queued
+   */
+  private boolean offer(final Task task, final int estimate) {
+    queueLock.lock();
+    try {
+      if (cheapQueue.size() + expensiveQueue.size() >= queueSize) {
+        return false;
+      }
+      task.start = System.nanoTime() + estimate * costNanos;
+      task.order = sequence++;
+      task.expensive = estimate >= expensiveMoves;
+      (task.expensive ? expensiveQueue : cheapQueue).add(task);
+      available.signal();
+      return true;
+    } finally {
+      queueLock.unlock();
+    }
+  }
+
+  /**
+   * Returns the boolean value represents the given task is removed from queue.
+   *
+   * @param task the given task
+   * @return boolean value represents the given task is removed from queue
+   */
+  private boolean remove(final Task task) {
+    queueLock.lock();
+    try {
+      return (task.expensive ? expensiveQueue : cheapQueue).remove(task);
+    } finally {
+      queueLock.unlock();
+    }
+  }
+
+  /**
+   * Returns the task of the earliest start time, wait until a task is available.  An
+   * expensive task is taken only if the expensive share of workers is not used up.
+   *
+   * @return the task of the earliest start time
+   * @throws InterruptedException if interrupted while waiting
+   */
+  private Task take() throws InterruptedException {
+    queueLock.lockInterruptibly();
+    try {
+      while (true) {
+        Task cheap = cheapQueue.peek();
+        Task expensive = expensiveRunning < expensiveWorkers ? expensiveQueue.peek() : null;
+        if (expensive != null && (cheap == null || compare(expensive, cheap) < 0)) {
+          expensiveQueue.poll();
+          expensiveRunning++;
+          return expensive;
+        }
+        if (cheap != null) {
+          return cheapQueue.poll();
+        }
+        available.await();
+      }
+    } finally {
+      queueLock.unlock();
+    }
+  }
+
+  /**
+   * Release the worker of the given task, an expensive request may be taken by a
+   * waiting worker.
+   *
+   * @param task the given task
+   */
+  private void release(final Task task) {
+    if (!task.expensive) {
+      return;
+    }
+    queueLock.lock();
+    try {
+      expensiveRunning--;
+      available.signalAll();
+    } finally {
+      queueLock.unlock();
+    }
+  }
+
+  /**
+   * Returns the task of the earliest start time without waiting, or null if the queue
+   * is empty.
+   *
+   * @return the task of the earliest start time, or null if the queue is empty
+   */
+  private Task poll() {
+    queueLock.lock();
+    try {
+      Task task = cheapQueue.poll();
+      return task != null ? task : expensiveQueue.poll();
+    } finally {
+      queueLock.unlock();
+    }
+  }
+
+  /**
+   * The loop of worker thread, solve the requests in queue until shut down.
+   */
+  private void work() {
+    Map<HeuristicOptions, Solver> solvers =
+        new EnumMap<HeuristicOptions, Solver>(HeuristicOptions.class);
+    while (!shutdown) {
+      Task task;
+      try {
+        task = take();
+      } catch (InterruptedException ex) {
+        break;
+      }
+      long remaining = task.deadline - System.nanoTime();
+      if (remaining <= 0) {
+        release(task);
+        expired.incrementAndGet();
+        task.future.complete(new SolveResult(Status.EXPIRED));
+        continue;
+      }
+      try {
+        Solver solver = solvers.get(task.heuristic);
+        if (solver == null) {
+          solver = createSolver(task.heuristic);
+          solvers.put(task.heuristic, solver);
+        }
+        task.future.complete(solve(solver, task.board, remaining));
+      } catch (RuntimeException | OutOfMemoryError ex) {
+        System.err.println("System error : solver " + task.heuristic + " failed - " + ex);
+        task.future.complete(new SolveResult(Status.ERROR));
+      } finally {
+        release(task);
+      }
+      completed.incrementAndGet();
+    }
+
+    Task task;
+    while ((task = poll()) != null) {
+      task.future.complete(new SolveResult(Status.ERROR));
+    }
+  }
+
+  /**
+   * Returns the SolveResult of the given board with the given solver and the given
+   * remaining time.
+   *
+   * @param solver the given solver
+   * @param board the given board
+   * @param remaining the remaining time in nano seconds
+   * @return SolveResult of the given board
+   */
+  private static SolveResult solve(final Solver solver, final Board board,
+      final long remaining) {
+    int seconds = (int) Math.min(MAX_TIMEOUT_SEC, (remaining + NANO_SEC - 1) / NANO_SEC);
+    solver.setTimeoutLimit(seconds);
+    solver.findOptimalPath(board);
+    if (!solver.isSolvable()) {
+      return new SolveResult(Status.UNSOLVABLE);
+    }
+    if (solver.isSearchTimeout()) {
+      return new SolveResult(Status.TIMEOUT, null, solver.searchTime(),
+          solver.searchNodeCount());
+    }
+    Board.Move[] solution = Arrays.copyOf(solver.solution(), solver.moves() + 1);
+    return new SolveResult(Status.SOLVED, solution, solver.searchTime(),
+        solver.searchNodeCount());
+  }
+
+  /**
+   * Returns the number of requests waiting for a solver.
+   *
+   * @return integer of number of requests waiting for a solver
+   */
+  public int getQueueDepth() {
+    queueLock.lock();
+    try {
+      return cheapQueue.size() + expensiveQueue.size();
+    } finally {
+      queueLock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of expensive requests waiting for a solver.
+   *
+   * @return integer of number of expensive requests waiting for a solver
+   */
+  public int getExpensiveQueued() {
+    queueLock.lock();
+    try {
+      return expensiveQueue.size();
+    } finally {
+      queueLock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of workers solve expensive requests.
+   *
+   * @return integer of number of workers solve expensive requests
+   */
+  public int getExpensiveRunning() {
+    queueLock.lock();
+    try {
+      return expensiveRunning;
+    } finally {
+      queueLock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of worker threads.
+   *
+   * @return integer of number of worker threads
+   */
+  public int getNumWorkers() {
+    return workers.length;
+  }
+
+  /**
+   * Returns the number of requests completed by solvers.
+   *
+   * @return long value of number of requests completed
+   */
+  public long getCompleted() {
+    return completed.get();
+  }
+
+  /**
+   * Returns the number of requests rejected when the queue is full.
+   *
+   * @return long value of number of requests rejected
+   */
+  public long getRejected() {
+    return rejected.get();
+  }
+
+  /**
+   * Returns the number of requests expired in queue.
+   *
+   * @return long value of number of requests expired
+   */
+  public long getExpired() {
+    return expired.get();
+  }
+
+  /**
+   * Returns the number of requests attached to another request of the same board or
+   * its mirror reflection.
+   *
+   * @return long value of number of requests attached to another request
+   */
+  public long getCoalesced() {
+    return coalesced.get();
+  }
+
+  /**
+   * Stop the workers after the current search, the requests in queue are completed
+   * with status ERROR.
+   */
+  public void shutdown() {
+    shutdown = true;
+    for (Thread worker : workers) {
+      worker.interrupt();
+    }
+  }
+}
@@ -1,5 +1,6 @@
 /**
- *  RMI or local connection to use reference collection.
+ *  RMI or local connection to use reference collection, and the TCP solve server with
+ *  its pool of solvers.
  *
  * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
  *            target="_blank">Meisze Wong (linkedin)</a>
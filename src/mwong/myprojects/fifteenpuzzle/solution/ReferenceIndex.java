@@ -0,0 +1,451 @@
+package mwong.myprojects.fifteenpuzzle.solution;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import mwong.myprojects.fifteenpuzzle.solution.ai.ReferenceBoard;
+import mwong.myprojects.fifteenpuzzle.solution.ai.ReferenceTable;
+
+/**
+ * ReferenceIndex is the vantage point tree of reference collection.  The Manhattan
+ * distance of a board transformed by ReferenceBoard.transformer is the sum of distance
+ * of each tile between the board and the reference tiles.  It is a metric, the triangle
+ * inequality prunes the subtrees out of the allowance, only the reference boards within
+ * the allowance are returned without transform each reference board.
+ *
+ * <p>The reference boards are stored in structure of arrays in tree order, each subtree
+ * is a continuous range with the vantage point at the start.  The tile positions of all
+ * reference boards are packed in a single byte array and the distance use a lookup
+ * table, the search does not create any object.  The subtrees are searched in parallel
+ * stream if the collection is large.  It is not thread-safe, one index per estimator.
+ *
+ * <p>Dependencies : ReferenceBoard.java, ReferenceMoves.java, SolverConstants.java
+ *
+ * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
+ *            target="_blank">Meisze Wong (linkedin)</a>
+ * @see <a href="http://www.github.com/mwong510ca/15PuzzleOptimalSolver/"
+ *         target="_blank">GitHub (full project)</a>
+ */
+final class ReferenceIndex {
+  /** The puzzle size.
+   *  @see mwong.myprojects.fifteenpuzzle.puzzle.PuzzleConstants#SIZE */
+  private static final int PUZZLE_SIZE = SolverConstants.getPuzzleSize();
+  /** The puzzle row size.
+   *  @see mwong.myprojects.fifteenpuzzle.puzzle.PuzzleConstants#ROW_SIZE */
+  private static final int ROW_SIZE = SolverConstants.getRowSize();
+  /** The bit shift of position in lookup table, 16 positions. */
+  private static final int POS_SHIFT = 4;
+  /** Maximum number of reference boards of a leaf node, linear scan. */
+  private static final int LEAF_SIZE = 8;
+  /** Minimum number of reference boards to search in parallel. */
+  private static final int PARALLEL_THRESHOLD = 20000;
+  /** The depth of subtrees search in parallel, up to 16 subtrees. */
+  private static final int PARALLEL_DEPTH = 4;
+  /** The Manhattan distance lookup table between 2 positions, index by pos1 &lt;&lt; 4 | pos2. */
+  private static final byte[] MD_TABLE = new byte[PUZZLE_SIZE * PUZZLE_SIZE];
+
+  static {
+    for (int pos1 = 0; pos1 < PUZZLE_SIZE; pos1++) {
+      for (int pos2 = 0; pos2 < PUZZLE_SIZE; pos2++) {
+        MD_TABLE[pos1 << POS_SHIFT | pos2] = (byte) (Math.abs(pos1 % ROW_SIZE - pos2 % ROW_SIZE)
+            + Math.abs(pos1 / ROW_SIZE - pos2 / ROW_SIZE));
+      }
+    }
+  }
+
+  /** The number of reference boards. */
+  private final int size;
+  /** The identity of ReferenceTable of this index. */
+  private final long tableId;
+  /** The version of ReferenceTable of this index. */
+  private final long version;
+  /** The reference boards in tree order. */
+  private final ReferenceBoard[] refBoards;
+  /** The estimate of reference boards in tree order. */
+  private final byte[] estimates;
+  /** The tile positions of reference boards in tree order, 16 bytes per board. */
+  private final byte[] positions;
+  /** The radius of the node start at the index, inside subtree within the radius. */
+  private final int[] radius;
+  /** The end of inside subtree of the node start at the index. */
+  private final int[] split;
+  /** The maximum estimate of the subtree start at the index. */
+  private final byte[] maxEstimate;
+  /** The tile positions of the query board. */
+  private final byte[] query;
+  /** The start of parallel subtrees. */
+  private final int[] taskStart;
+  /** The end of parallel subtrees. */
+  private final int[] taskEnd;
+  /** The candidates of each parallel subtree. */
+  private final Candidates[] taskCandidates;
+  /** The number of parallel subtrees need to search of current query. */
+  private int taskCount;
+
+  /**
+   * Initializes ReferenceIndex object of the given reference collection.
+   *
+   * @param refMap the given reference collection in ReferenceTable
+   */
+  ReferenceIndex(final ReferenceTable refMap) {
+    size = refMap.size();
+    tableId = refMap.getTableId();
+    version = refMap.getVersion();
+
+    ReferenceBoard[] orgBoards = new ReferenceBoard[size];
+    byte[] orgEstimates = new byte[size];
+    byte[] orgPositions = new byte[size * PUZZLE_SIZE];
+    int count = 0;
+    for (int slot = 0; slot < refMap.capacity(); slot++) {
+      if (!refMap.isOccupied(slot)) {
+        continue;
+      }
+      orgBoards[count] = refMap.getBoard(slot);
+      orgEstimates[count] = refMap.getEstimate(slot);
+      setPositions(orgBoards[count].getTiles(), orgPositions, count * PUZZLE_SIZE);
+      count++;
+    }
+
+    int[] members = new int[size];
+    for (int i = 0; i < size; i++) {
+      members[i] = i;
+    }
+    radius = new int[size];
+    split = new int[size];
+    build(members, orgPositions, 0, size);
+
+    refBoards = new ReferenceBoard[size];
+    estimates = new byte[size];
+    positions = new byte[size * PUZZLE_SIZE];
+    for (int i = 0; i < size; i++) {
+      refBoards[i] = orgBoards[members[i]];
+      estimates[i] = orgEstimates[members[i]];
+      System.arraycopy(orgPositions, members[i] * PUZZLE_SIZE, positions, i * PUZZLE_SIZE,
+          PUZZLE_SIZE);
+    }
+    maxEstimate = new byte[size];
+    setMaxEstimate(0, size);
+
+    query = new byte[PUZZLE_SIZE];
+    final int maxTasks = 1 << PARALLEL_DEPTH;
+    taskStart = new int[maxTasks];
+    taskEnd = new int[maxTasks];
+    taskCandidates = new Candidates[maxTasks];
+    for (int i = 0; i < maxTasks; i++) {
+      taskCandidates[i] = new Candidates();
+    }
+  }
+
+  /**
+   * Returns the boolean value represent this index built from the given reference
+   * collection.  The table identity and version number are carried by the copy from
+   * remote connection, a copy of the same version is valid too.
+   *
+   * @param map the given reference collection in ReferenceTable
+   * @return boolean value represent this index built from the given reference collection
+   */
+  boolean isIndexOf(final ReferenceTable map) {
+    return map.getTableId() == tableId && map.getVersion() == version && map.size() == size;
+  }
+
+  /**
+   * Returns the reference board of the given entry.
+   *
+   * @param entry the index of reference board
+   * @return reference board of the given entry
+   */
+  ReferenceBoard getReferenceBoard(final int entry) {
+    return refBoards[entry];
+  }
+
+  /**
+   * Returns the integer value of estimate of the given entry.
+   *
+   * @param entry the index of reference board
+   * @return integer value of estimate of the given entry
+   */
+  int getEstimate(final int entry) {
+    return estimates[entry];
+  }
+
+  /**
+   * Search the reference boards within the allowance of the given tiles and may
+   * improve the given estimate.  The candidates are in descending order of reference
+   * estimate minus the Manhattan distance.
+   *
+   * @param tiles the byte array of given tiles
+   * @param allowance the maximum Manhattan distance to the reference boards
+   * @param estimate the current estimate of the given tiles
+   * @param candidates the Candidates to store the result
+   */
+  void search(final byte[] tiles, final int allowance, final int estimate,
+      final Candidates candidates) {
+    candidates.clear();
+    setPositions(tiles, query, 0);
+    if (size < PARALLEL_THRESHOLD) {
+      search(0, size, allowance, estimate, candidates, Integer.MAX_VALUE);
+      return;
+    }
+
+    // search the top levels, collect the subtrees at parallel depth
+    taskCount = 0;
+    search(0, size, allowance, estimate, candidates, PARALLEL_DEPTH);
+    IntStream.range(0, taskCount).parallel().forEach(task -> {
+      taskCandidates[task].clear();
+      search(taskStart[task], taskEnd[task], allowance, estimate, taskCandidates[task],
+          Integer.MAX_VALUE);
+    });
+    for (int task = 0; task < taskCount; task++) {
+      Candidates partial = taskCandidates[task];
+      for (int i = 0; i < partial.size(); i++) {
+        candidates.add(partial.getEntry(i), partial.getDistance(i), partial.getBound(i));
+      }
+    }
+  }
+
+  /**
+   * Search the subtree of the given range for reference boards within the allowance.
+   *
+   * @param start the start index of the range, inclusive
+   * @param end the end index of the range, exclusive
+   * @param allowance the maximum Manhattan distance to the reference boards
+   * @param estimate the current estimate of the query board
+   * @param candidates the Candidates to store the result
+   * @param depth the remaining depth before collect as parallel subtree
+   */
+  private void search(final int start, final int end, final int allowance, final int estimate,
+      final Candidates candidates, final int depth) {
+    if (end - start <= LEAF_SIZE) {
+      for (int entry = start; entry < end; entry++) {
+        if (estimates[entry] > estimate) {
+          addCandidate(entry, distance(entry, allowance), allowance, estimate, candidates);
+        }
+      }
+      return;
+    }
+    if (depth == 0) {
+      taskStart[taskCount] = start;
+      taskEnd[taskCount++] = end;
+      return;
+    }
+
+    final int dist = distance(start, Integer.MAX_VALUE);
+    addCandidate(start, dist, allowance, estimate, candidates);
+    final int mid = split[start];
+    // inside members within radius of vantage point, distance at least dist - radius
+    if (dist - allowance <= radius[start]
+        && maxEstimate[start + 1] - Math.max(0, dist - radius[start]) > estimate) {
+      search(start + 1, mid, allowance, estimate, candidates, depth - 1);
+    }
+    // outside members over radius of vantage point, distance at least radius + 1 - dist
+    if (mid < end && dist + allowance > radius[start]
+        && maxEstimate[mid] - Math.max(0, radius[start] + 1 - dist) > estimate) {
+      search(mid, end, allowance, estimate, candidates, depth - 1);
+    }
+  }
+
+  /**
+   * Add the reference board to the candidates if it is within the allowance and may
+   * improve the estimate.
+   *
+   * @param entry the index of reference board
+   * @param dist the Manhattan distance to the reference board
+   * @param allowance the maximum Manhattan distance to the reference boards
+   * @param estimate the current estimate of the query board
+   * @param candidates the Candidates to store the result
+   */
+  private void addCandidate(final int entry, final int dist, final int allowance,
+      final int estimate, final Candidates candidates) {
+    if (dist <= allowance && estimates[entry] - dist > estimate) {
+      candidates.add(entry, dist, estimates[entry] - dist);
+    }
+  }
+
+  /**
+   * Returns the sum of Manhattan distance of each tile between the query board and the
+   * reference board.  It may stop once the distance is over the given limit.
+   *
+   * @param entry the index of reference board
+   * @param limit the distance limit
+   * @return sum of Manhattan distance of each tile, or any value over the given limit
+   */
+  private int distance(final int entry, final int limit) {
+    final int base = entry * PUZZLE_SIZE;
+    int dist = 0;
+    for (int value = 1; value < PUZZLE_SIZE && dist <= limit; value++) {
+      dist += MD_TABLE[query[value] << POS_SHIFT | positions[base + value]];
+    }
+    return dist;
+  }
+
+  /**
+   * Build the vantage point tree of the given range of members, and reorder the members
+   * in tree order.
+   *
+   * @param members the integer array of index of reference boards
+   * @param orgPositions the tile positions of reference boards in original order
+   * @param start the start index of the range, inclusive
+   * @param end the end index of the range, exclusive
+   */
+  private void build(final int[] members, final byte[] orgPositions, final int start,
+      final int end) {
+    if (end - start <= LEAF_SIZE) {
+      return;
+    }
+
+    // the middle member as vantage point, sort the rest by distance and split at median
+    int mid = (start + end) >>> 1;
+    int vantage = members[mid];
+    members[mid] = members[start];
+    members[start] = vantage;
+
+    long[] sorted = new long[end - start - 1];
+    for (int i = start + 1; i < end; i++) {
+      int dist = 0;
+      for (int value = 1; value < PUZZLE_SIZE; value++) {
+        dist += MD_TABLE[orgPositions[vantage * PUZZLE_SIZE + value] << POS_SHIFT
+            | orgPositions[members[i] * PUZZLE_SIZE + value]];
+      }
+      sorted[i - start - 1] = ((long) dist << Integer.SIZE) | members[i];
+    }
+    Arrays.sort(sorted);
+    for (int i = 0; i < sorted.length; i++) {
+      members[start + 1 + i] = (int) sorted[i];
+    }
+
+    // members equal to the radius must stay inside
+    int half = sorted.length / 2;
+    radius[start] = (int) (sorted[half - 1] >>> Integer.SIZE);
+    while (half < sorted.length && (int) (sorted[half] >>> Integer.SIZE) <= radius[start]) {
+      half++;
+    }
+    split[start] = start + 1 + half;
+    build(members, orgPositions, start + 1, split[start]);
+    build(members, orgPositions, split[start], end);
+  }
+
+  /**
+   * Set the maximum estimate of the subtree of the given range, and returns it.
+   *
+   * @param start the start index of the range, inclusive
+   * @param end the end index of the range, exclusive
+   * @return byte value of maximum estimate of the subtree
+   */
+  private byte setMaxEstimate(final int start, final int end) {
+    if (start >= end) {
+      return 0;
+    }
+    byte max = 0;
+    if (end - start <= LEAF_SIZE) {
+      for (int entry = start; entry < end; entry++) {
+        max = (byte) Math.max(max, estimates[entry]);
+      }
+    } else {
+      max = (byte) Math.max(estimates[start], Math.max(setMaxEstimate(start + 1, split[start]),
+          setMaxEstimate(split[start], end)));
+    }
+    maxEstimate[start] = max;
+    return max;
+  }
+
+  /**
+   * Set the position of each tile value of the given tiles to the destination array.
+   *
+   * @param tiles the byte array of given tiles
+   * @param dest the destination byte array
+   * @param offset the offset of destination byte array
+   */
+  private static void setPositions(final byte[] tiles, final byte[] dest, final int offset) {
+    for (int pos = 0; pos < PUZZLE_SIZE; pos++) {
+      dest[offset + tiles[pos]] = (byte) pos;
+    }
+  }
+
+  /**
+   * Candidates is the reusable list of reference boards within the allowance, in
+   * descending order of reference estimate minus the Manhattan distance.
+   */
+  static final class Candidates {
+    /** The initial capacity. */
+    private static final int INIT_CAPACITY = 16;
+    /** The index of reference boards. */
+    private int[] entries = new int[INIT_CAPACITY];
+    /** The Manhattan distance to the reference boards. */
+    private int[] distances = new int[INIT_CAPACITY];
+    /** The reference estimate minus the Manhattan distance. */
+    private int[] bounds = new int[INIT_CAPACITY];
+    /** The number of candidates. */
+    private int count;
+
+    /**
+     * Remove all candidates.
+     */
+    void clear() {
+      count = 0;
+    }
+
+    /**
+     * Add a candidate in descending order of bound.
+     *
+     * @param entry the index of reference board
+     * @param distance the Manhattan distance to the reference board
+     * @param bound the reference estimate minus the Manhattan distance
+     */
+    void add(final int entry, final int distance, final int bound) {
+      if (count == entries.length) {
+        entries = Arrays.copyOf(entries, count * 2);
+        distances = Arrays.copyOf(distances, count * 2);
+        bounds = Arrays.copyOf(bounds, count * 2);
+      }
+      int idx = count++;
+      while (idx > 0 && bounds[idx - 1] < bound) {
+        entries[idx] = entries[idx - 1];
+        distances[idx] = distances[idx - 1];
+        bounds[idx] = bounds[idx - 1];
+        idx--;
+      }
+      entries[idx] = entry;
+      distances[idx] = distance;
+      bounds[idx] = bound;
+    }
+
+    /**
+     * Returns the number of candidates.
+     *
+     * @return number of candidates
+     */
+    int size() {
+      return count;
+    }
+
+    /**
+     * Returns the index of reference board of the given candidate.
+     *
+     * @param idx the index of candidate
+     * @return index of reference board of the given candidate
+     */
+    int getEntry(final int idx) {
+      return entries[idx];
+    }
+
+    /**
+     * Returns the Manhattan distance to the reference board of the given candidate.
+     *
+     * @param idx the index of candidate
+     * @return Manhattan distance to the reference board of the given candidate
+     */
+    int getDistance(final int idx) {
+      return distances[idx];
+    }
+
+    /**
+     * Returns the reference estimate minus the Manhattan distance of the given candidate.
+     *
+     * @param idx the index of candidate
+     * @return reference estimate minus the Manhattan distance of the given candidate
+     */
+    int getBound(final int idx) {
+      return bounds[idx];
+    }
+  }
+}
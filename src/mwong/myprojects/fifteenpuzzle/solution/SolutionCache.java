@@ -0,0 +1,325 @@
+package mwong.myprojects.fifteenpuzzle.solution;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import mwong.myprojects.fifteenpuzzle.FileProperties;
+import mwong.myprojects.fifteenpuzzle.PropertiesCache;
+import mwong.myprojects.fifteenpuzzle.puzzle.Board;
+import mwong.myprojects.fifteenpuzzle.puzzle.MoveSequence;
+import mwong.myprojects.fifteenpuzzle.puzzle.PuzzleConstants;
+
+/**
+ * SolutionCache is the bounded cache of optimal solutions shared by all solvers.  A board
+ * and its mirror reflection have the same key, the solution of the board with smaller
+ * packed tiles is stored in 2 bits per move.  The solution of the mirror board is
+ * converted by the mirror reflection of each direction.  The least recently used
+ * solution is removed when the cache is full.
+ *
+ * <p>The cache size can be changed by solutionCacheSize in config.properties, 0 to
+ * disable.  If solutionCachePersist is true, the cache is saved when the application
+ * exits and loaded when the application starts.
+ *
+ * <p>Dependencies : Board.java, FileProperties.java, MoveSequence.java,
+ *                   PropertiesCache.java, PuzzleConstants.java
+ *
+ * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
+ *            target="_blank">Meisze Wong (linkedin)</a>
+ * @see <a href="http://www.github.com/mwong510ca/15PuzzleOptimalSolver/"
+ *         target="_blank">GitHub (full project)</a>
+ */
+public final class SolutionCache {
+  /** The maximum number of solutions. */
+  private static final int MAX_CAPACITY = 1 << 20;
+  /** The default number of solutions. */
+  private static final int DEFAULT_CAPACITY = 4096;
+
+  /** The maximum number of solutions, 0 if disabled. */
+  private final int capacity;
+  /** The solutions of canonical boards in access order. */
+  private final LinkedHashMap<Long, MoveSequence> solutions;
+  /** The number of lookups found a solution. */
+  private long hits;
+  /** The number of lookups without a solution. */
+  private long misses;
+  /** The number of solutions removed when the cache is full. */
+  private long evictions;
+
+  /**
+   * Initializes SolutionCache object with the settings of config.properties.
+   */
+  private SolutionCache() {
+    this(loadCapacity(), loadPersist());
+  }
+
+  /**
+   * Initializes SolutionCache object with the given capacity, and load the saved cache
+   * if persist.
+   *
+   * @param capacity the maximum number of solutions, 0 if disabled
+   * @param persist the boolean represents the cache is saved when the application exits
+   */
+  private SolutionCache(final int capacity, final boolean persist) {
+    this.capacity = capacity;
+    final float loadFactor = 0.75f;
+    solutions = new LinkedHashMap<Long, MoveSequence>(16, loadFactor, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<Long, MoveSequence> eldest) {
+        if (size() > SolutionCache.this.capacity) {
+          evictions++;
+          return true;
+        }
+        return false;
+      }
+    };
+    if (persist && capacity > 0) {
+      load();
+      Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+        @Override
+        public void run() {
+          save();
+        }
+      }, "solution-cache-writer"));
+    }
+  }
+
+  /**
+   * Inner Singleton class of SolutionCache.
+   */
+  private static class Singleton {
+    /** The shared SolutionCache object. */
+    private static final SolutionCache INSTANCE = new SolutionCache();
+  }
+
+  /**
+   * Returns the shared SolutionCache object.
+   *
+   * @return the shared SolutionCache object
+   */
+  public static SolutionCache getInstance() {
+    return Singleton.INSTANCE;
+  }
+
+  /**
+   * Returns the cache size of config.properties, or the default size if invalid.
+   *
+   * @return integer of cache size
+   */
+  private static int loadCapacity() {
+    if (!PropertiesCache.getInstance().containsKey("solutionCacheSize")) {
+      return DEFAULT_CAPACITY;
+    }
+    try {
+      int value = Integer.parseInt(PropertiesCache.getInstance().getProperty(
+          "solutionCacheSize").trim());
+      if (value >= 0 && value <= MAX_CAPACITY) {
+        return value;
+      }
+      System.err.println("Invalid solutionCacheSize setting " + value + ", allow minimum 0"
+          + " to maximum " + MAX_CAPACITY + " only. Restore to system default "
+          + DEFAULT_CAPACITY + ".");
+    } catch (NumberFormatException ex) {
+      System.err.println("Configuration solutionCacheSize is not an iteger,"
+          + " restore to system default " + DEFAULT_CAPACITY + ".");
+    }
+    return DEFAULT_CAPACITY;
+  }
+
+  /**
+   * Returns the persist setting of config.properties, default false.
+   *
+   * @return boolean represents the cache is saved when the application exits
+   */
+  private static boolean loadPersist() {
+    return PropertiesCache.getInstance().containsKey("solutionCachePersist")
+        && Boolean.parseBoolean(PropertiesCache.getInstance().getProperty(
+            "solutionCachePersist").trim());
+  }
+
+  /**
+   * Returns the boolean represents the cache is enabled.
+   *
+   * @return boolean represents the cache is enabled
+   */
+  public boolean isEnabled() {
+    return capacity > 0;
+  }
+
+  /**
+   * Returns the optimal solution of the given board include Move.NONE at index 0, or
+   * null if not in cache.
+   *
+   * @param board the given board
+   * @return Board.Move array of the optimal solution, or null if not in cache
+   */
+  public Board.Move[] get(final Board board) {
+    long tiles = board.getPackedTiles();
+    long mirrorTiles = PuzzleConstants.packedMirror(tiles);
+    MoveSequence sequence;
+    synchronized (this) {
+      sequence = solutions.get(Math.min(tiles, mirrorTiles));
+      if (sequence == null) {
+        misses++;
+        return null;
+      }
+      hits++;
+    }
+    Board.Move[] solution = sequence.getMoves();
+    if (tiles > mirrorTiles) {
+      for (int i = 0; i < solution.length; i++) {
+        solution[i] = solution[i].mirrorDirection();
+      }
+    }
+    return solution;
+  }
+
+  /**
+   * Store the optimal solution of the given board.
+   *
+   * @param board the given board
+   * @param solution the Board.Move array of solution include Move.NONE at index 0
+   * @param moves the number of moves of the solution
+   */
+  public void put(final Board board, final Board.Move[] solution, final int moves) {
+    if (capacity == 0) {
+      return;
+    }
+    long tiles = board.getPackedTiles();
+    long mirrorTiles = PuzzleConstants.packedMirror(tiles);
+    Board.Move[] canonical = new Board.Move[moves + 1];
+    for (int i = 0; i <= moves; i++) {
+      if (tiles > mirrorTiles) {
+        canonical[i] = solution[i].mirrorDirection();
+      } else {
+        canonical[i] = solution[i];
+      }
+    }
+    MoveSequence sequence = new MoveSequence(canonical);
+    synchronized (this) {
+      solutions.put(Math.min(tiles, mirrorTiles), sequence);
+    }
+  }
+
+  /**
+   * Returns the number of solutions in cache.
+   *
+   * @return integer of number of solutions in cache
+   */
+  public synchronized int size() {
+    return solutions.size();
+  }
+
+  /**
+   * Returns the maximum number of solutions.
+   *
+   * @return integer of maximum number of solutions
+   */
+  public int capacity() {
+    return capacity;
+  }
+
+  /**
+   * Returns the number of lookups found a solution.
+   *
+   * @return long value of number of lookups found a solution
+   */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  /**
+   * Returns the number of lookups without a solution.
+   *
+   * @return long value of number of lookups without a solution
+   */
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  /**
+   * Returns the number of solutions removed when the cache is full.
+   *
+   * @return long value of number of solutions removed
+   */
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * Remove all solutions and reset the counters.
+   */
+  public synchronized void clear() {
+    solutions.clear();
+    hits = 0;
+    misses = 0;
+    evictions = 0;
+  }
+
+  /**
+   * Save the solutions to file, least recently used first.  Write to a temporary file
+   * then replace the file.
+   */
+  public void save() {
+    Map<Long, MoveSequence> copy;
+    synchronized (this) {
+      copy = new LinkedHashMap<Long, MoveSequence>(solutions);
+    }
+    File file = new File(FileProperties.getFilepathSolutionCache());
+    File temp = new File(file.getPath() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+        new FileOutputStream(temp)))) {
+      out.writeInt(copy.size());
+      for (Map.Entry<Long, MoveSequence> entry : copy.entrySet()) {
+        out.writeLong(entry.getKey());
+        entry.getValue().writeTo(out);
+      }
+    } catch (IOException ex) {
+      System.err.println("System error : solution cache save - " + ex.getMessage());
+      return;
+    }
+    try {
+      Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException ex) {
+      System.err.println("System error : solution cache save - " + ex.getMessage());
+    }
+  }
+
+  /**
+   * Load the solutions from file if exists, the file of invalid record is ignored.
+   */
+  private void load() {
+    File file = new File(FileProperties.getFilepathSolutionCache());
+    if (!file.exists()) {
+      return;
+    }
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+        new FileInputStream(file)))) {
+      int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        long key = in.readLong();
+        MoveSequence sequence = MoveSequence.readFrom(in);
+        if (!PuzzleConstants.isValidPacked(key)) {
+          throw new IOException("invalid board " + Long.toHexString(key));
+        }
+        solutions.put(key, sequence);
+      }
+    } catch (IOException ex) {
+      System.err.println("System error : solution cache load - " + ex.getMessage());
+      solutions.clear();
+    }
+    evictions = 0;
+  }
+}
@@ -17,7 +17,7 @@ import mwong.myprojects.fifteenpuzzle.solution.ai.ReferenceRemote;
  * <p>Dependencies : HeuristicOptions.java, PatternOptions.java, ApplicationMode.java,
  *                   SolverVersion.java, ReferenceRemote.java, SolverMd.java,
  *                   SolverPdb.java, SolverPdb78.java, SolverPdb78Enh.java,
- *                   SolverPdbWd.java, SolverWd.java, SolverWdMd.java
+ *                   SolverPdbWd.java, SolverWd.java, SolverWdMd.java, SolutionCache.java
  *
  * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
  *            target="_blank">Meisze Wong (linkedin)</a>
@@ -42,6 +42,8 @@ public final class SolverBuilder {
   private boolean timerSettingPdb78;
   /** The time out limit to be use. If no preference, use default setting. */
   private int timeoutLimit;
+  /** The boolean represents the solvers use the shared SolutionCache. */
+  private boolean solutionCacheSetting;
 
   /**
    * Internal use only, default application type system.
@@ -98,6 +100,8 @@ public final class SolverBuilder {
     timerSettingPdb78 = false;
     setTimeoutLimit(timeoutLimit);
     versionSetting = SolverVersion.PRIME;
+    // console application compares the search of heuristics, solve every board
+    solutionCacheSetting = mode != ApplicationMode.CONSOLE;
   }
 
   /**
@@ -146,6 +150,16 @@ public final class SolverBuilder {
     this.timeoutLimit = timeoutLimit;
   }
 
+  /**
+   * Set the solvers use the shared SolutionCache, the optimal solution of a repeated
+   * board is returned without search.  Default on except console application.
+   *
+   * @param cacheFlag boolean represents the solvers use the shared SolutionCache
+   */
+  public void setSolutionCache(final boolean cacheFlag) {
+    this.solutionCacheSetting = cacheFlag;
+  }
+
   /**
    * Returns the Solver object with the given heuristic choice.
    *
@@ -318,6 +332,23 @@ public final class SolverBuilder {
     return solver;
   }
 
+  /**
+   * Returns the SolverPdb78 object use ReferenceRecorder, share the pattern database
+   * with the given solver, special for administrative tool.
+   *
+   * @param copySolver the given solver using pattern database 7-8
+   * @param recorder the given ReferenceRecorder object
+   * @return SolverPdb78 object
+   */
+  public SolverPdb78 duplicateSolverPdb78(final Solver copySolver,
+      final ReferenceRecorder recorder) {
+    SolverPdb78 solver = new SolverPdb78(copySolver, mode);
+    solver.setReferenceRecorder(recorder);
+    solver.setStatusOn(false);
+    solver.setTimerOn(false);
+    return solver;
+  }
+
   /**
    * Apply all setting to the given solver.
    *
@@ -327,6 +358,9 @@ public final class SolverBuilder {
     solver.setReferenceConnection(refObj);
     solver.setStatusOn(statusSetting);
     solver.setTimeoutLimit(timeoutLimit);
+    if (solutionCacheSetting) {
+      solver.setSolutionCache(SolutionCache.getInstance());
+    }
     if (solver.getHeuristic() == HeuristicOptions.PD78) {
       solver.setTimerOn(timerSettingPdb78);
     }
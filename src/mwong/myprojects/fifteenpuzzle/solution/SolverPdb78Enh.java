@@ -1,9 +1,11 @@
 package mwong.myprojects.fifteenpuzzle.solution;
 
 import java.rmi.RemoteException;
+import java.util.Arrays;
 
 import mwong.myprojects.fifteenpuzzle.puzzle.Board;
 import mwong.myprojects.fifteenpuzzle.puzzle.HeuristicOptions;
+import mwong.myprojects.fifteenpuzzle.puzzle.MoveSequence;
 import mwong.myprojects.fifteenpuzzle.puzzle.PatternDatabase;
 import mwong.myprojects.fifteenpuzzle.puzzle.PatternOptions;
 
@@ -99,6 +101,7 @@ public final class SolverPdb78Enh extends SolverSetup {
     }
 
     setEnhancement(level);
+    refreshReplica();
     stopwatch = new Stopwatch();
     stopwatch.stop();
     stopwatch.reset();
@@ -199,7 +202,8 @@ public final class SolverPdb78Enh extends SolverSetup {
                 || (heuristicBasis(lastBoard) == heuristicBoost(lastBoard))) {
               // update cached advanced priority if added to reference collection
               try {
-                flagNewReference = getReference().addBoard(lastBoard, steps, solutionMove);
+                flagNewReference = getReference().addBoard(lastBoard, steps,
+                    new MoveSequence(Arrays.copyOf(solutionMove, steps + 1)));
                 if (flagNewReference) {
                   priorityBoost = -1;
                 }
@@ -218,6 +218,20 @@ abstract class SolverSetup extends SolverTemplate {
     pdbCombo = new int[pdbComboSize];
   }
 
+  /**
+   * Returns a new SupplementaryEstimator object for optimum search.  Solver using pattern
+   * database 7-8 share its pattern database to verify the distance to the reference boards.
+   *
+   * @return new SupplementaryEstimator object for optimum search
+   */
+  @Override
+  final SupplementaryEstimator createEstimator() {
+    if (patternSet != null && getHeuristic() == HeuristicOptions.PD78) {
+      return new SupplementaryEstimator(this);
+    }
+    return super.createEstimator();
+  }
+
   // --- Manhattan distance with linear conflict ---
  /**
    * Returns the integer value of Manhattan distance, with linear conflict option.
@@ -5,8 +5,11 @@ import java.util.Arrays;
 
 import mwong.myprojects.fifteenpuzzle.puzzle.Board;
 import mwong.myprojects.fifteenpuzzle.puzzle.HeuristicOptions;
+import mwong.myprojects.fifteenpuzzle.puzzle.MoveSequence;
+import mwong.myprojects.fifteenpuzzle.solution.ai.Reference.ConnectionType;
 import mwong.myprojects.fifteenpuzzle.solution.ai.ReferenceRecorder;
 import mwong.myprojects.fifteenpuzzle.solution.ai.ReferenceRemote;
+import mwong.myprojects.fifteenpuzzle.solution.ai.ReferenceReplica;
 
 /**
  * AbstractSolver is the abstract class extends Solver Interface of 15 puzzle
@@ -95,8 +98,14 @@ abstract class SolverTemplate implements Solver {
   private int timeoutLimit;
   /** The instance of ReferenceRemote connection, for solver. */
   private ReferenceRemote refConnection;
+  /** The boolean represents reference lookups are computed on the remote server. */
+  private boolean remoteLookup;
+  /** The local replica of remote reference collection, or null if not available. */
+  private ReferenceReplica replica;
   /** The instance of ReferenceRecorder, for administrative tool. */
   private ReferenceRecorder refRecorder;
+  /** The SolutionCache of optimal solutions, or null if not use. */
+  private SolutionCache solutionCache;
   /** The double value of reference cutoff from reference collection object. */
   private double refCutoffLimit;
   /** The instance of SupplementaryEstimator object for optimum search. */
@@ -252,7 +261,20 @@ abstract class SolverTemplate implements Solver {
     this.refRecorder = inRecorder;
     refCutoffLimit = inRecorder.getCutoffLimit();
     if (estimator == null) {
-      this.estimator = new SupplementaryEstimator();
+      this.estimator = createEstimator();
+    }
+  }
+
+  /**
+   * Set the SolutionCache with the given object, or null to solve every board.
+   *
+   * @param cache the given SolutionCache object, or null
+   */
+  final void setSolutionCache(final SolutionCache cache) {
+    if (cache != null && !cache.isEnabled()) {
+      solutionCache = null;
+    } else {
+      solutionCache = cache;
     }
   }
 
@@ -270,6 +292,16 @@ abstract class SolverTemplate implements Solver {
     return refCutoffLimit;
   }
 
+  /**
+   * Returns a new SupplementaryEstimator object for optimum search, using Manhattan
+   * distance to verify the distance to the reference boards.
+   *
+   * @return new SupplementaryEstimator object for optimum search
+   */
+  SupplementaryEstimator createEstimator() {
+    return new SupplementaryEstimator();
+  }
+
   /**
    * Return SupplementaryEstimator object currently stored and using.
    *
@@ -286,6 +318,8 @@ abstract class SolverTemplate implements Solver {
     solverType = SolverVersion.PRIME;
     inUseVersion = SolverVersion.PRIME;
     refConnection = null;
+    remoteLookup = false;
+    replica = null;
     refCutoffLimit = Double.MAX_VALUE;
   }
 
@@ -299,9 +333,19 @@ abstract class SolverTemplate implements Solver {
     solverType = SolverVersion.OPTIMUM;
     inUseVersion = SolverVersion.OPTIMUM;
     this.refConnection = inRefConnection;
+    remoteLookup = refConnection.getConnectionTypeInUse() == ConnectionType.REMOTESERVER;
+    replica = null;
+    if (remoteLookup) {
+      try {
+        replica = new ReferenceReplica(refConnection);
+      } catch (RemoteException ex) {
+        System.err.println("Attention: Reference replica unavailable."
+            + " Advanced estimate will use remote lookups.");
+      }
+    }
     refCutoffLimit = refConnection.getCutoffLimit();
     if (estimator == null) {
-      this.estimator = new SupplementaryEstimator();
+      this.estimator = createEstimator();
     }
   }
 
@@ -647,7 +691,8 @@ abstract class SolverTemplate implements Solver {
 
   /**
    * Returns the SupplementaryData data type contains number of move and partial solution
-   * if the given board in reference collection.
+   * if the given board in reference collection.  Remote connection use the local replica,
+   * or the remote server answers the lookup if replica is not available.
    *
    * @param board the given board object
    * @return SupplementaryData data type of the given board.  Return null if board is not
@@ -658,6 +703,12 @@ abstract class SolverTemplate implements Solver {
       if (refRecorder != null) {
         return estimator.referenceContains(board, refRecorder.getActiveMap());
       }
+      if (replica != null) {
+        return estimator.referenceContains(board, replica.getTable());
+      }
+      if (remoteLookup) {
+        return SupplementaryData.decode(refConnection.lookup(board.getPackedTiles()));
+      }
       return estimator.referenceContains(board, refConnection.getActiveMap());
     } catch (RemoteException e) {
       resumePrimeSolver();
@@ -667,6 +718,8 @@ abstract class SolverTemplate implements Solver {
 
   /**
    * Returns the integer value of best inverse estimate based on reference collections.
+   * Remote connection use the local replica, or the remote server computes the estimate
+   * if replica is not available.
    *
    * @param board the given board object
    * @param priority the basic priority of the given board
@@ -677,6 +730,12 @@ abstract class SolverTemplate implements Solver {
       if (refRecorder != null) {
         return estimator.inverseEstimate(board, priority, refRecorder.getActiveMap());
       }
+      if (replica != null) {
+        return estimator.inverseEstimate(board, priority, replica.getTable());
+      }
+      if (remoteLookup) {
+        return refConnection.bestInverseEstimate(board.getPackedTiles(), (byte) priority);
+      }
       return estimator.inverseEstimate(board, priority, refConnection.getActiveMap());
     } catch (RemoteException e) {
       resumePrimeSolver();
@@ -684,6 +743,22 @@ abstract class SolverTemplate implements Solver {
     }
   }
 
+  /**
+   * Refresh the local replica of remote reference collection with the latest changes.
+   */
+  final void refreshReplica() {
+    if (replica == null) {
+      return;
+    }
+    try {
+      replica.refresh();
+    } catch (RemoteException ex) {
+      System.err.println(this.getClass().getSimpleName()
+          + " - Attention: Server connection failed. Resume to standard version.\n");
+      resumePrimeSolver();
+    }
+  }
+
   @Override
   public void findOptimalPath(final Board board) {
     if (board == null) {
@@ -699,6 +774,7 @@ abstract class SolverTemplate implements Solver {
           : "Timeout limit : " + timeoutLimit + " out of range 1 second to 5 minutes";
     }
 
+    refreshReplica();
     stopwatch = new Stopwatch();
     stopwatch.stop();
     stopwatch.reset();
@@ -708,7 +784,7 @@ abstract class SolverTemplate implements Solver {
       if (board.isGoal()) {
         solved = true;
         terminated = true;
-      } else {
+      } else if (!cachedSolution(board)) {
         stopwatch.start();
         resetDepthSummary(board);
         limit = heuristic(board, inUseVersion, SolverAction.SEARCH);
@@ -717,6 +793,9 @@ abstract class SolverTemplate implements Solver {
         if (solved) {
           assert board.checkSolution(steps, solutionMove)
               : "Not reach goal state, steps " + steps;
+          if (solutionCache != null) {
+            solutionCache.put(board, solutionMove, steps);
+          }
         } else if (!searchTimeout) {
           assert false : "Neither solver nor timeout.";
         }
@@ -728,6 +807,31 @@ abstract class SolverTemplate implements Solver {
     stopwatch = null;
   }
 
+  /**
+   * Returns the boolean value represents the solution of the given board is found in
+   * the SolutionCache, and set as the search result without search.
+   *
+   * @param board the given board
+   * @return boolean value represents the solution is found in the SolutionCache
+   */
+  private boolean cachedSolution(final Board board) {
+    if (solutionCache == null) {
+      return false;
+    }
+    Board.Move[] cached = solutionCache.get(board);
+    if (cached == null) {
+      return false;
+    }
+    System.arraycopy(cached, 0, solutionMove, 0, cached.length);
+    steps = (byte) (cached.length - 1);
+    searchDepth = steps;
+    lastSearchBoard = board;
+    solved = true;
+    terminated = true;
+    assert board.checkSolution(steps, solutionMove) : "Invalid cached solution of " + board;
+    return true;
+  }
+
   /**
    * Solve the puzzle using interactive deepening A* algorithm.  Start from the initial
    * limit, increment 2 at a time up to maximum 80 until solution found.
@@ -800,7 +904,8 @@ abstract class SolverTemplate implements Solver {
                   == heuristicBoost(lastBoard)))) {
             try {
               if (refConnection != null) {
-                flagNewReference = refConnection.addBoard(lastBoard, steps, solutionMove);
+                flagNewReference = refConnection.addBoard(lastBoard, steps,
+                    new MoveSequence(Arrays.copyOf(solutionMove, steps + 1)));
               }
               if (refRecorder != null) {
                 flagNewReference = refRecorder.addBoard(lastBoard, steps, solutionMove);
@@ -6,7 +6,7 @@ import mwong.myprojects.fifteenpuzzle.puzzle.Board;
  * A immutable data type stored the number of move, partial moves and boolean flag determine
  * the partial moves exists.
  *
- * <p>Dependencies : Board.java
+ * <p>Dependencies : Board.java, SolverConstants.java
  *
  * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
  *            target="_blank">Meisze Wong (linkedin)</a>
@@ -14,6 +14,24 @@ import mwong.myprojects.fifteenpuzzle.puzzle.Board;
  *         target="_blank">GitHub (full project)</a>
  */
 final class SupplementaryData {
+  /** The encoded value of board not in reference collection. */
+  static final int NOT_FOUND = -1;
+  /** The number of stored partial solution moves.
+   *  @see mwong.myprojects.fifteenpuzzle.solution.ai.ReferenceConstants#NUM_PARTIAL_MOVES */
+  private static final int NUM_PARTIAL_MOVES = SolverConstants.getNumPartialMoves();
+  /** The bit of encoded value represents the record contains partial moves. */
+  private static final int PARTIAL_FLAG = 1 << 8;
+  /** The bit shift of the first partial move of encoded value. */
+  private static final int MOVES_SHIFT = 9;
+  /** The bit size of each partial move of encoded value. */
+  private static final int MOVE_BIT_SIZE = 2;
+  /** The bit mask of estimate. */
+  private static final int ESTIMATE_BITS = 0xFF;
+  /** The bit mask of each partial move. */
+  private static final int MOVE_BITS = 0x03;
+  /** The Board.Move of the direction value 0 - 3. */
+  private static final Board.Move[] DIRECTIONS = {Board.Move.RIGHT, Board.Move.DOWN,
+      Board.Move.LEFT, Board.Move.UP};
   /** The byte value of estimate. */
   private byte estimate;
   /** The Borad.Move array of the partial moves. */
@@ -44,6 +62,46 @@ final class SupplementaryData {
     this.partialMoves = partialMoves;
   }
 
+  /**
+   * Returns the SupplementaryData object of the given encoded value, or null if the
+   * board is not in reference collection.
+   *
+   * @param code the encoded value of estimate and partial solution
+   * @return SupplementaryData object of the given encoded value, or null if not found
+   */
+  static SupplementaryData decode(final int code) {
+    if (code == NOT_FOUND) {
+      return null;
+    }
+    byte estimate = (byte) (code & ESTIMATE_BITS);
+    if ((code & PARTIAL_FLAG) == 0) {
+      return new SupplementaryData(estimate);
+    }
+    Board.Move[] moves = new Board.Move[estimate + 1];
+    moves[0] = Board.Move.NONE;
+    for (int i = 1; i <= NUM_PARTIAL_MOVES; i++) {
+      moves[i] = DIRECTIONS[code >>> (MOVES_SHIFT + (i - 1) * MOVE_BIT_SIZE) & MOVE_BITS];
+    }
+    return new SupplementaryData(estimate, moves);
+  }
+
+  /**
+   * Returns the integer of encoded estimate and partial solution.  Bits 0 - 7 are the
+   * estimate, bit 8 is set if partial solution exists, follow by 2 bits per move.
+   *
+   * @return integer of encoded estimate and partial solution
+   */
+  int encode() {
+    int code = estimate & ESTIMATE_BITS;
+    if (hasPartialMoves) {
+      code |= PARTIAL_FLAG;
+      for (int i = 1; i <= NUM_PARTIAL_MOVES; i++) {
+        code |= partialMoves[i].getValue() << (MOVES_SHIFT + (i - 1) * MOVE_BIT_SIZE);
+      }
+    }
+    return code;
+  }
+
   /**
    * Returns the byte values of number of moves.
    *
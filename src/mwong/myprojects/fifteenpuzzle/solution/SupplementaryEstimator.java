@@ -1,21 +1,23 @@
 package mwong.myprojects.fifteenpuzzle.solution;
 
 import java.rmi.UnexpectedException;
-import java.util.Map;
-import java.util.Map.Entry;
 
 import mwong.myprojects.fifteenpuzzle.puzzle.Board;
-import mwong.myprojects.fifteenpuzzle.solution.ai.ReferenceBoard;
-import mwong.myprojects.fifteenpuzzle.solution.ai.ReferenceMoves;
+import mwong.myprojects.fifteenpuzzle.solution.Solver.SolverVersion;
+import mwong.myprojects.fifteenpuzzle.solution.SolverTemplate.SolverAction;
+import mwong.myprojects.fifteenpuzzle.solution.ai.ReferenceTable;
 
 /**
  * SmartSolverExtra has the add on functions for advanced version. It return the
  * reference moves and solutions if the puzzle has been stored as a reference board.
  * It use Manhattan distance to calculate the advanced estimate from the collection
- * of reference boards.
+ * of reference boards, only the reference boards within the allowance from the
+ * ReferenceIndex are verified.  The distance is verified with pattern database 7-8
+ * if available, otherwise Manhattan distance.
  *
- * <p>Dependencies : Board.java, ReferenceBoard.java, ReferenceMoves.java,
- *                   SolverConstants.java, SolverBuilder.java, SolverMd.java
+ * <p>Dependencies : Board.java, ReferenceBoard.java, ReferenceIndex.java, ReferenceMoves.java,
+ *                   ReferenceTable.java, SolverConstants.java, SolverBuilder.java, SolverMd.java,
+ *                   SolverPdb78.java
  *
  * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
  *            target="_blank">Meisze Wong (linkedin)</a>
@@ -34,89 +36,105 @@ final class SupplementaryEstimator {
   private static final byte MIRROR_FLIP_GROUP = SolverConstants.getRefMirrorFlipGroup();
   /** The applicable distance to reference boards up to 20 moves.  */
   private static final int ALLOWANCE = 20;
+  /** The applicable distance to reference boards up to 30 moves with pattern database. */
+  private static final int ALLOWANCE_PDB = 30;
   /** The number of stored partial solution moves.
    *  @see mwong.myprojects.fifteenpuzzle.solution.ai.ReferenceConstants#NUM_PARTIAL_MOVES */
   private static final int NUM_PARTIAL_MOVES = SolverConstants.getNumPartialMoves();
   /** The SolverMd instance. */
   private SolverMd solverMd;
+  /** The SolverPdb78 instance share the pattern database 7-8, or null if not applicable. */
+  private SolverPdb78 solverPdb78;
+  /** The applicable distance to reference boards. */
+  private final int allowance;
+  /** The metric index of reference collection. */
+  private ReferenceIndex refIndex;
+  /** The reusable candidates of reference boards within the allowance. */
+  private final ReferenceIndex.Candidates candidates = new ReferenceIndex.Candidates();
 
   /**
    * Initialize SupplementaryEstimator object.
    */
   SupplementaryEstimator() {
     solverMd = new SolverBuilder().internalSolverMd();
+    allowance = ALLOWANCE;
+  }
+
+  /**
+   * Initialize SupplementaryEstimator object use the pattern database 7-8 of the given
+   * solver to verify the distance to the reference boards.  The transformed board use the
+   * reference board as goal state, the pattern database estimate is much closer than
+   * Manhattan distance.
+   *
+   * @param inSolver the given Solver object must using pattern database 78
+   */
+  SupplementaryEstimator(final Solver inSolver) {
+    solverPdb78 = new SolverBuilder().duplicateSolverPdb78(inSolver);
+    allowance = ALLOWANCE_PDB;
+  }
+
+  /**
+   * Returns the boolean value represents the distance is verified with pattern database 7-8.
+   *
+   * @return boolean value represents pattern database 7-8 in use
+   */
+  boolean hasPatternDatabase() {
+    return solverPdb78 != null;
   }
 
   /**
    * Returns the AdvancedRecord object if the given board is one of the reference board.
    * It carries the reference estimate and partial solutions for searching if exists.
-   * Otherwise return null.
+   * Otherwise return null.  The canonical key and mirror key are computed from the
+   * packed tiles, no object is created unless the board is found.  The hit is counted
+   * as a supply if the partial solution exists, otherwise as a boost.
    *
    * @param board the given board object
-   * @param refMap the given reference collection in HashMap.
+   * @param refMap the given reference collection in ReferenceTable.
    * @return AdvancedRecord object if the given board is one of the reference board.
    * @throws UnexpectedException unexpected connection error
    */
   SupplementaryData referenceContains(final Board board,
-      final Map<ReferenceBoard, ReferenceMoves> refMap) throws UnexpectedException {
+      final ReferenceTable refMap) throws UnexpectedException {
     if (refMap == null || refMap.size() == 0) {
       throw new UnexpectedException("inverseEstimate -reference map is null");
     }
 
-    byte lookupKey = REF_LOOKUP_TABLE[board.getZero1d()];
-    int group = REF_GROUP_TABLE[board.getZero1d()];
-
-    ReferenceBoard checkBoard = new ReferenceBoard(board);
-    ReferenceBoard checkBoardMirror = null;
+    final int zeroPos = board.getZero1d();
+    byte lookupKey = REF_LOOKUP_TABLE[zeroPos];
+    int group = REF_GROUP_TABLE[zeroPos];
+    boolean flagMirror = group == MIRROR_FLIP_GROUP;
 
-    if (group == 0 || group == 2) {
-      checkBoardMirror = new ReferenceBoard(new Board(board.getTilesMirror()));
-    }
-
-    if (refMap.containsKey(checkBoard)) {
-      ReferenceMoves advMoves = refMap.get(checkBoard);
-      final byte steps = advMoves.getEstimate(lookupKey);
-
-      if (advMoves.hasInitialMoves(lookupKey)) {
-        Board.Move[] solutionMove = new Board.Move[steps + 1];
-        solutionMove[0] = Board.Move.NONE;
-        if (group == MIRROR_FLIP_GROUP) {
-          System.arraycopy(advMoves.getInitialMoves(lookupKey, true), 0,
-              solutionMove, 1, NUM_PARTIAL_MOVES);
-          assert checkVaildMoves(board, solutionMove)
-              : "Incorrect initial moves (group 3 mirror)";
-        } else {
-          System.arraycopy(advMoves.getInitialMoves(lookupKey, false), 0,
-              solutionMove, 1, NUM_PARTIAL_MOVES);
-          assert checkVaildMoves(board, solutionMove)
-              : "Incorrect initial moves";
-        }
-        return new SupplementaryData(steps, solutionMove);
-      } else {
-        return new SupplementaryData(steps);
+    final long packedTiles = board.getPackedTiles();
+    long key = ReferenceTable.canonicalKey(packedTiles, zeroPos);
+    int slot = refMap.slotOf(key);
+    if (slot < 0) {
+      key = ReferenceTable.mirrorKey(packedTiles, zeroPos);
+      slot = refMap.slotOf(key);
+      if (slot < 0) {
+        return null;
       }
-    } else if (refMap.containsKey(checkBoardMirror)) {
-      ReferenceMoves advMoves = refMap.get(checkBoardMirror);
       if (lookupKey == 1) {
         lookupKey = MIRROR_FLIP_GROUP;
       } else if (lookupKey == MIRROR_FLIP_GROUP) {
         lookupKey = 1;
       }
-      final byte steps = advMoves.getEstimate(lookupKey);
-
-      if (advMoves.hasInitialMoves(lookupKey)) {
-        Board.Move[] solutionMove = new Board.Move[steps + 1];
-        solutionMove[0] = Board.Move.NONE;
-        System.arraycopy(advMoves.getInitialMoves(lookupKey, true), 0,
-            solutionMove, 1, NUM_PARTIAL_MOVES);
-        assert checkVaildMoves(board, solutionMove)
-            : "Incorrect initial moves (group 0 or 2 symmetry)";
-        return new SupplementaryData(steps, solutionMove);
-      } else {
-        return new SupplementaryData(steps);
-      }
+      flagMirror = true;
+    }
+
+    final byte steps = refMap.getEstimate(slot, lookupKey);
+    if (!refMap.hasInitialMoves(slot, lookupKey)) {
+      refMap.recordBoost(key);
+      return new SupplementaryData(steps);
     }
-    return null;
+    refMap.recordPartial(key);
+
+    Board.Move[] solutionMove = new Board.Move[steps + 1];
+    solutionMove[0] = Board.Move.NONE;
+    System.arraycopy(refMap.getMoves(slot).getInitialMoves(lookupKey, flagMirror), 0,
+        solutionMove, 1, NUM_PARTIAL_MOVES);
+    assert checkVaildMoves(board, solutionMove) : "Incorrect initial moves";
+    return new SupplementaryData(steps, solutionMove);
   }
 
   /**
@@ -145,13 +163,13 @@ final class SupplementaryEstimator {
    * partial solutions stored.
    *
    * @param board the given board object
-   * @param refMap the given reference collection in HashMap.
+   * @param refMap the given reference collection in ReferenceTable.
    * @return boolean value if the given board is a reference board with partial solutions
    *     stored in reference collection.
    * @throws UnexpectedException unexpected connection error
    */
   boolean hasPartialSolution(final Board board,
-      final Map<ReferenceBoard, ReferenceMoves> refMap) throws UnexpectedException {
+      final ReferenceTable refMap) throws UnexpectedException {
     SupplementaryData record = referenceContains(board, refMap);
     if (record == null) {
       return false;
@@ -164,64 +182,66 @@ final class SupplementaryEstimator {
    *
    * @param board the given board object
    * @param estimate the current estimate of the given puzzle.
-   * @param refMap the given reference collection in HashMap.
+   * @param refMap the given reference collection in ReferenceTable.
    * @return AdvancedRecord object if the given board is one of the reference board.
    * @throws UnexpectedException unexpected connection error
    */
   int inverseEstimate(final Board board, final int estimate,
-      final Map<ReferenceBoard, ReferenceMoves> refMap) throws UnexpectedException {
+      final ReferenceTable refMap) throws UnexpectedException {
     if (refMap == null || refMap.size() == 0) {
       throw new UnexpectedException("inverseEstimate - reference map is null");
     }
 
-    final int rowSize = SolverConstants.getRowSize();
+    ReferenceIndex index = getIndex(refMap);
+    index.search(board.getTiles(), allowance, estimate, candidates);
     int newEstimate = estimate;
-    for (Entry<ReferenceBoard, ReferenceMoves> entry
-        : refMap.entrySet()) {
-      byte[] transTiles = entry.getKey().transformer(board.getTiles());
-
-      int transPriority = 0;
-      int value;
-      int base = 0;
-      for (int row = 0; row < rowSize; row++) {
-        for (int col = 0; col < rowSize; col++) {
-          value = transTiles[base + col];
-          if (value > 0) {
-            transPriority += Math.abs((value - 1) % rowSize - col);
-            transPriority += Math.abs((((value - 1)
-                - (value - 1) % rowSize) / rowSize) - row);
-          }
-        }
-        base += rowSize;
+    for (int i = 0; i < candidates.size(); i++) {
+      // candidates in descending order of bound, the rest cannot improve the estimate
+      if (candidates.getBound(i) <= newEstimate) {
+        break;
       }
 
-      if (transPriority > ALLOWANCE) {
-        continue;
-      }
-      if (entry.getValue().getEstimate() - transPriority <= newEstimate) {
-        continue;
-      }
-
-      Board temp = new Board(transTiles);
-      if (inverseDistance(temp, transPriority,
-          entry.getValue().getEstimate() - newEstimate)) {
-        newEstimate = (byte) (entry.getValue().getEstimate() - solverMd.moves());
+      int entry = candidates.getEntry(i);
+      Board temp = new Board(index.getReferenceBoard(entry).transformer(board.getTiles()));
+      int distance = inverseDistance(temp, candidates.getDistance(i),
+          index.getEstimate(entry) - newEstimate);
+      if (distance > -1) {
+        newEstimate = (byte) (index.getEstimate(entry) - distance);
+        refMap.recordBoost(ReferenceTable.keyOf(index.getReferenceBoard(entry)));
       }
     }
     return newEstimate;
   }
 
   /**
-   * Returns the boolean value represent the given board is solve in the given range.
+   * Returns the ReferenceIndex of the given reference collection, rebuild the index
+   * if the reference collection has been changed.
+   *
+   * @param refMap the given reference collection in ReferenceTable.
+   * @return ReferenceIndex of the given reference collection
+   */
+  private ReferenceIndex getIndex(final ReferenceTable refMap) {
+    if (refIndex == null || !refIndex.isIndexOf(refMap)) {
+      refIndex = new ReferenceIndex(refMap);
+    }
+    return refIndex;
+  }
+
+  /**
+   * Returns the number of moves of the given board if it is solved in the given range,
+   * otherwise returns -1.
    *
    * @param board the given Board object
    * @param lowerLimit the lower boundary to start the search
    * @param upperLimit the maximum number of moves allowed
-   * @return boolean value if solution found within the given range
+   * @return number of moves if solution found within the given range, otherwise -1
    */
-  private boolean inverseDistance(final Board board, final int lowerLimit, final int upperLimit) {
+  private int inverseDistance(final Board board, final int lowerLimit, final int upperLimit) {
     if (lowerLimit > upperLimit) {
-      return false;
+      return -1;
+    }
+    if (solverPdb78 != null) {
+      return inverseDistancePdb(board, lowerLimit, upperLimit);
     }
 
     solverMd.clearHistory();
@@ -232,10 +252,43 @@ final class SupplementaryEstimator {
     while (initLimit <= upperLimit) {
       solverMd.dfsStartingOrder(initLimit, orgLimit);
       if (solverMd.solved) {
-        return true;
+        return solverMd.moves();
+      }
+      initLimit += 2;
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the number of moves of the given board if it is solved in the given range
+   * using pattern database 7-8, otherwise returns -1.  The search start from the pattern
+   * database estimate, it has the same parity as Manhattan distance.
+   *
+   * @param board the given Board object
+   * @param lowerLimit the Manhattan distance of the given board
+   * @param upperLimit the maximum number of moves allowed
+   * @return number of moves if solution found within the given range, otherwise -1
+   */
+  private int inverseDistancePdb(final Board board, final int lowerLimit, final int upperLimit) {
+    solverPdb78.clearHistory();
+    int initLimit = solverPdb78.heuristic(board, SolverVersion.PRIME, SolverAction.SEARCH);
+    if (initLimit < lowerLimit) {
+      initLimit = lowerLimit;
+    } else if ((initLimit - lowerLimit) % 2 != 0) {
+      initLimit++;
+    }
+    if (initLimit > upperLimit) {
+      return -1;
+    }
+
+    solverPdb78.resetDepthSummary(board);
+    while (initLimit <= upperLimit) {
+      solverPdb78.dfsStartingOrder(initLimit);
+      if (solverPdb78.solved) {
+        return solverPdb78.moves();
       }
       initLimit += 2;
     }
-    return false;
+    return -1;
   }
 }
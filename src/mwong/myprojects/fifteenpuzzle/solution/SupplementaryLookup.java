@@ -0,0 +1,98 @@
+package mwong.myprojects.fifteenpuzzle.solution;
+
+import java.rmi.RemoteException;
+
+import mwong.myprojects.fifteenpuzzle.puzzle.Board;
+import mwong.myprojects.fifteenpuzzle.solution.ai.ReferenceRemote;
+
+/**
+ * SupplementaryLookup is the server side of reference collection lookups.  It answers the
+ * reference estimate and the best inverse estimate of a packed board with the reference
+ * collection of the given ReferenceRemote object, the client receives a few bytes instead
+ * of the full reference collection.
+ *
+ * <p>Each thread has its own SupplementaryEstimator, it use pattern database 7-8 once the
+ * reference object has a SolverPdb78, otherwise Manhattan distance.
+ *
+ * <p>Dependencies : Board.java, ReferenceRemote.java, SupplementaryData.java,
+ *                   SupplementaryEstimator.java
+ *
+ * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
+ *            target="_blank">Meisze Wong (linkedin)</a>
+ * @see <a href="http://www.github.com/mwong510ca/15PuzzleOptimalSolver/"
+ *         target="_blank">GitHub (full project)</a>
+ */
+public final class SupplementaryLookup {
+  /** The encoded value of board not in reference collection.
+   *  @see SupplementaryData#NOT_FOUND */
+  private static final int NOT_FOUND = SupplementaryData.NOT_FOUND;
+  /** The reference object of the reference collection. */
+  private final ReferenceRemote reference;
+  /** The SupplementaryEstimator of each thread. */
+  private final ThreadLocal<SupplementaryEstimator> estimators =
+      new ThreadLocal<SupplementaryEstimator>();
+
+  /**
+   * Initializes SupplementaryLookup object with the given reference object.
+   *
+   * @param reference the given ReferenceRemote object of reference collection
+   */
+  public SupplementaryLookup(final ReferenceRemote reference) {
+    if (reference == null) {
+      throw new IllegalArgumentException("Reference is null");
+    }
+    this.reference = reference;
+  }
+
+  /**
+   * Returns the encoded reference estimate and partial solution of the given packed board,
+   * or -1 if the board is not in reference collection.
+   *
+   * @param packedTiles the long value of 16 tiles packed in 4 bits per tile
+   * @return integer of encoded reference estimate and partial solution, -1 if not found
+   * @throws RemoteException reference collection is not available
+   */
+  public int lookup(final long packedTiles) throws RemoteException {
+    SupplementaryData record = getEstimator().referenceContains(new Board(packedTiles),
+        reference.getActiveMap());
+    if (record == null) {
+      return NOT_FOUND;
+    }
+    return record.encode();
+  }
+
+  /**
+   * Returns the best inverse estimate of the given packed board with the reference
+   * collection, at least the given basic estimate.
+   *
+   * @param packedTiles the long value of 16 tiles packed in 4 bits per tile
+   * @param basis the basic estimate of the given board
+   * @return byte value of best inverse estimate of the given board
+   * @throws RemoteException reference collection is not available
+   */
+  public byte bestInverseEstimate(final long packedTiles, final byte basis)
+      throws RemoteException {
+    return (byte) getEstimator().inverseEstimate(new Board(packedTiles), basis,
+        reference.getActiveMap());
+  }
+
+  /**
+   * Returns the SupplementaryEstimator of the current thread, upgrade it to pattern
+   * database 7-8 when the reference object has loaded the SolverPdb78.
+   *
+   * @return SupplementaryEstimator of the current thread
+   * @throws RemoteException RemoteException
+   */
+  private SupplementaryEstimator getEstimator() throws RemoteException {
+    SupplementaryEstimator estimator = estimators.get();
+    if (estimator == null || !estimator.hasPatternDatabase() && reference.hasSolver78()) {
+      if (reference.hasSolver78()) {
+        estimator = new SupplementaryEstimator(reference.getSolver78());
+      } else if (estimator == null) {
+        estimator = new SupplementaryEstimator();
+      }
+      estimators.set(estimator);
+    }
+    return estimator;
+  }
+}
@@ -0,0 +1,303 @@
+package mwong.myprojects.fifteenpuzzle.solution.ai;
+
+import java.io.ObjectStreamException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * ConcurrentReferenceTable is the ReferenceTable of the reference collection shared by
+ * concurrent threads, the threads of remote connections and the background maintenance.
+ * Writers update the table in place with the write lock, a write takes constant time.
+ * Readers use the immutable copy published in a volatile field, lock free.  A write
+ * marks the copy out of date, the next reader of an out of date copy reads the table
+ * with the read lock, and the next snapshot publishes a new copy.  A bulk of writes
+ * copies the table once for the next snapshot, not once per write.
+ *
+ * <p>The slots of the table in use change with the writes.  Use snapshot for a sequence
+ * of reads of the same copy, e.g.: slotOf follow by getMoves, the slot based reads
+ * always use the snapshot.
+ *
+ * <p>Serialization sends the snapshot.
+ *
+ * <p>Dependencies : ReferenceBoard.java, ReferenceMoves.java, ReferenceTable.java,
+ *                   ReferenceUpdate.java
+ *
+ * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
+ *            target="_blank">Meisze Wong (linkedin)</a>
+ * @see <a href="http://www.github.com/mwong510ca/15PuzzleOptimalSolver/"
+ *         target="_blank">GitHub (full project)</a>
+ */
+public final class ConcurrentReferenceTable extends ReferenceTable {
+  private static final long serialVersionUID = 17195273126L;
+
+  /** The read write lock of the table in use. */
+  private final transient ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  /** The lock of publishing a new copy. */
+  private final transient Object publishLock = new Object();
+  /** The ReferenceTable in use, updated in place with the write lock. */
+  private final transient ReferenceTable table;
+  /** The immutable copy of the table in use, or null if out of date. */
+  private transient volatile ReferenceTable published;
+  /** The number of copies published. */
+  private transient long publishCount;
+
+  /**
+   * Initializes ConcurrentReferenceTable object with a copy of the given table, same
+   * identity, version and journal.
+   *
+   * @param source the given ReferenceTable object
+   */
+  public ConcurrentReferenceTable(final ReferenceTable source) {
+    super(0, source.getTableId());
+    table = source.copy();
+  }
+
+  /**
+   * Returns the immutable copy of the table in use, publish a new copy if the last
+   * copy is out of date.  It must not be modified.
+   *
+   * @return ReferenceTable copy of the table in use
+   */
+  public ReferenceTable snapshot() {
+    ReferenceTable view = published;
+    if (view != null) {
+      return view;
+    }
+    synchronized (publishLock) {
+      view = published;
+      if (view == null) {
+        lock.readLock().lock();
+        try {
+          // no write while holding the read lock, the copy is up to date
+          view = table.copy();
+          published = view;
+          publishCount++;
+        } finally {
+          lock.readLock().unlock();
+        }
+      }
+      return view;
+    }
+  }
+
+  /**
+   * Returns the number of copies published.
+   *
+   * @return long value of number of copies published
+   */
+  public long getPublishCount() {
+    synchronized (publishLock) {
+      return publishCount;
+    }
+  }
+
+  /**
+   * Returns the result of the given reader of the published copy if it is up to date,
+   * otherwise of the table in use with the read lock.
+   *
+   * @param reader the given reader of ReferenceTable
+   * @param <T> the type of result
+   * @return the result of the given reader
+   */
+  private <T> T read(final Function<ReferenceTable, T> reader) {
+    ReferenceTable view = published;
+    if (view != null) {
+      return reader.apply(view);
+    }
+    lock.readLock().lock();
+    try {
+      return reader.apply(table);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public int slotOf(final long key) {
+    return snapshot().slotOf(key);
+  }
+
+  @Override
+  public int size() {
+    return read(ReferenceTable::size);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return read(ReferenceTable::isEmpty);
+  }
+
+  @Override
+  public boolean containsKey(final ReferenceBoard advBoard) {
+    return read(view -> view.containsKey(advBoard));
+  }
+
+  @Override
+  public boolean containsKey(final long key) {
+    return read(view -> view.containsKey(key));
+  }
+
+  @Override
+  public ReferenceMoves get(final ReferenceBoard advBoard) {
+    return read(view -> view.get(advBoard));
+  }
+
+  @Override
+  public boolean mightContain(final long key) {
+    return read(view -> view.mightContain(key));
+  }
+
+  @Override
+  public int capacity() {
+    return snapshot().capacity();
+  }
+
+  @Override
+  public boolean isOccupied(final int slot) {
+    return snapshot().isOccupied(slot);
+  }
+
+  @Override
+  public long getKey(final int slot) {
+    return snapshot().getKey(slot);
+  }
+
+  @Override
+  public ReferenceBoard getBoard(final int slot) {
+    return snapshot().getBoard(slot);
+  }
+
+  @Override
+  public ReferenceMoves getMoves(final int slot) {
+    return snapshot().getMoves(slot);
+  }
+
+  @Override
+  public byte getEstimate(final int slot) {
+    return snapshot().getEstimate(slot);
+  }
+
+  @Override
+  public byte getEstimate(final int slot, final int lookup) {
+    return snapshot().getEstimate(slot, lookup);
+  }
+
+  @Override
+  public boolean hasInitialMoves(final int slot, final int lookup) {
+    return snapshot().hasInitialMoves(slot, lookup);
+  }
+
+  @Override
+  public long getVersion() {
+    return read(ReferenceTable::getVersion);
+  }
+
+  @Override
+  public ReferenceUpdate changesSince(final long fromTableId, final long fromVersion) {
+    return snapshot().changesSince(fromTableId, fromVersion);
+  }
+
+  /**
+   * Insert or replace the given reference board with the given ReferenceMoves in the
+   * table in use.
+   *
+   * @param advBoard the given ReferenceBoard object
+   * @param advMoves the given ReferenceMoves object
+   */
+  @Override
+  public void put(final ReferenceBoard advBoard, final ReferenceMoves advMoves) {
+    lock.writeLock().lock();
+    try {
+      table.put(advBoard, advMoves);
+      published = null;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  boolean removeKey(final long key) {
+    lock.writeLock().lock();
+    try {
+      if (!table.removeKey(key)) {
+        return false;
+      }
+      published = null;
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  int removeAll(final long[] removeKeys) {
+    lock.writeLock().lock();
+    try {
+      int count = table.removeAll(removeKeys);
+      if (count > 0) {
+        published = null;
+      }
+      return count;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  void enableJournal(final int journalSize) {
+    lock.writeLock().lock();
+    try {
+      table.enableJournal(journalSize);
+      published = null;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  void setVersion(final long version) {
+    lock.writeLock().lock();
+    try {
+      table.setVersion(version);
+      published = null;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  void setUsage(final ReferenceUsage usage) {
+    lock.writeLock().lock();
+    try {
+      table.setUsage(usage);
+      published = null;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  ReferenceUsage getUsage() {
+    return read(ReferenceTable::getUsage);
+  }
+
+  @Override
+  ReferenceTable copy() {
+    lock.readLock().lock();
+    try {
+      return table.copy();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Replace the concurrent table with the snapshot for serialization.
+   *
+   * @return ReferenceTable copy of the table in use
+   * @throws ObjectStreamException never thrown
+   */
+  private Object writeReplace() throws ObjectStreamException {
+    return snapshot();
+  }
+}
@@ -1,7 +1,6 @@
 package mwong.myprojects.fifteenpuzzle.solution.ai;
 
 import java.rmi.UnexpectedException;
-import java.util.HashMap;
 
 import mwong.myprojects.fifteenpuzzle.puzzle.Board;
 import mwong.myprojects.fifteenpuzzle.solution.Solver;
@@ -20,12 +19,12 @@ import mwong.myprojects.fifteenpuzzle.solution.SolverPdb78;
  */
 public interface Reference {
   /**
-   * Returns a HashMap of collection of reference boards.
+   * Returns a ReferenceTable of collection of reference boards.
    *
-   * @return HashMap of collection of reference boards
+   * @return ReferenceTable of collection of reference boards
    * @throws UnexpectedException an unexpected reference collection error
    */
-  HashMap<ReferenceBoard, ReferenceMoves> getActiveMap() throws UnexpectedException;
+  ReferenceTable getActiveMap() throws UnexpectedException;
 
   /**
    * Return the connection type currently using.
@@ -113,6 +112,17 @@ public interface Reference {
    */
   void updatePending(Solver copySolver);
 
+  /**
+   * Returns the ReferenceUpdate of the changes after the given version of the given
+   * table identity, or a snapshot of the full collection.
+   *
+   * @param tableId the table identity of the replica, any value for the first update
+   * @param version the version of the replica
+   * @return ReferenceUpdate of the changes after the given version
+   * @throws UnexpectedException an unexpected reference collection error
+   */
+  ReferenceUpdate getUpdates(long tableId, long version) throws UnexpectedException;
+
   /**
    * Print the current status of reference boards collection.
    */
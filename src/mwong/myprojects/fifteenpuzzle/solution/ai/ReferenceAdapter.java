@@ -1,11 +1,12 @@
 package mwong.myprojects.fifteenpuzzle.solution.ai;
 
 import java.rmi.RemoteException;
-import java.util.HashMap;
 
 import mwong.myprojects.fifteenpuzzle.puzzle.Board;
+import mwong.myprojects.fifteenpuzzle.puzzle.MoveSequence;
 import mwong.myprojects.fifteenpuzzle.solution.Solver;
 import mwong.myprojects.fifteenpuzzle.solution.SolverPdb78;
+import mwong.myprojects.fifteenpuzzle.solution.SupplementaryLookup;
 import mwong.myprojects.fifteenpuzzle.solution.ai.Reference.ConnectionType;
 
 /**
@@ -14,7 +15,8 @@ import mwong.myprojects.fifteenpuzzle.solution.ai.Reference.ConnectionType;
  * local or remote connection. Remote connection will load ReferenceRemoteImpl object from server.
  * It provides the same functionality as ReferenceLog.class with any type of connections.
  *
- * <p>Dependencies : Board.java, Solver.java, Solverpdb78.java, Reference.java
+ * <p>Dependencies : Board.java, MoveSequence.java, Solver.java, Solverpdb78.java,
+ *                   Reference.java, SupplementaryLookup.java
  *
  * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
  *            target="_blank">Meisze Wong (linkedin)</a>
@@ -24,6 +26,8 @@ import mwong.myprojects.fifteenpuzzle.solution.ai.Reference.ConnectionType;
 public final class ReferenceAdapter implements ReferenceRemote {
   /** The instance of Reference object. */
   private Reference refObject;
+  /** The SupplementaryLookup of reference collection lookups. */
+  private final SupplementaryLookup lookup = new SupplementaryLookup(this);
 
   /**
    * Initialize ReferenceAdapter object with given connection type.
@@ -36,7 +40,7 @@ public final class ReferenceAdapter implements ReferenceRemote {
   }
 
   @Override
-  public HashMap<ReferenceBoard, ReferenceMoves> getActiveMap() throws RemoteException {
+  public ReferenceTable getActiveMap() throws RemoteException {
     return refObject.getActiveMap();
   }
 
@@ -71,9 +75,9 @@ public final class ReferenceAdapter implements ReferenceRemote {
   }
 
   @Override
-  public boolean addBoard(final Board board, final byte steps, final Board.Move[] solution)
+  public boolean addBoard(final Board board, final byte steps, final MoveSequence solution)
       throws RemoteException {
-    return refObject.addBoard(board, steps, solution);
+    return refObject.addBoard(board, steps, solution.getMoves());
   }
 
   @Override
@@ -97,6 +101,23 @@ public final class ReferenceAdapter implements ReferenceRemote {
     refObject.updatePending(copySolver);
   }
 
+  @Override
+  public int lookup(final long packedTiles) throws RemoteException {
+    return lookup.lookup(packedTiles);
+  }
+
+  @Override
+  public byte bestInverseEstimate(final long packedTiles, final byte basis)
+      throws RemoteException {
+    return lookup.bestInverseEstimate(packedTiles, basis);
+  }
+
+  @Override
+  public ReferenceUpdate getUpdates(final long tableId, final long version)
+      throws RemoteException {
+    return refObject.getUpdates(tableId, version);
+  }
+
   @Override
   public void printStatus() {
     refObject.printStatus();
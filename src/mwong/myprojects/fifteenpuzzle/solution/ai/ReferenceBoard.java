@@ -1,6 +1,11 @@
 package mwong.myprojects.fifteenpuzzle.solution.ai;
 
+import java.io.Externalizable;
 import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
 import java.io.Serializable;
 
 import mwong.myprojects.fifteenpuzzle.puzzle.Board;
@@ -8,7 +13,10 @@ import mwong.myprojects.fifteenpuzzle.puzzle.Board;
 /**
  * ReferenceBoard is the data type of stored board of reference collection.
  *
- * <p>Dependencies : Board.java, ReferenceConstants.java
+ * <p>Serialization use the Externalizable record of canonical key, transform key and
+ * group, 17 bytes per board.
+ *
+ * <p>Dependencies : Board.java, ReferenceConstants.java, ReferenceTable.java
  *
  * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
  *            target="_blank">Meisze Wong (linkedin)</a>
@@ -288,5 +296,85 @@ public final class ReferenceBoard implements Serializable {
     }
     return str;
   }
+
+  /**
+   * Returns the Record of this board to serialize in place of this object.
+   *
+   * @return Record of this board
+   */
+  private Object writeReplace() {
+    return new Record(ReferenceTable.keyOf(this), ReferenceTable.transformKeyOf(this), group);
+  }
+
+  /**
+   * ReferenceBoard is always serialized as Record.
+   *
+   * @param in the ObjectInputStream
+   * @throws InvalidObjectException always
+   */
+  private void readObject(final ObjectInputStream in) throws InvalidObjectException {
+    throw new InvalidObjectException("Record required");
+  }
+
+  /**
+   * Record is the Externalizable serialization proxy of ReferenceBoard.
+   */
+  private static final class Record implements Externalizable {
+    private static final long serialVersionUID = 17195273126L;
+    /** The canonical key of the reference board. */
+    private long key;
+    /** The transform key of the reference board. */
+    private long transformKey;
+    /** The reference group of the reference board. */
+    private byte group;
+
+    /**
+     * Initializes an empty Record object, use by deserialization only.
+     */
+    public Record() {
+      // read by readExternal
+    }
+
+    /**
+     * Initializes Record object with the given keys and group.
+     *
+     * @param key the canonical key of the reference board
+     * @param transformKey the transform key of the reference board
+     * @param group the reference group of the reference board
+     */
+    Record(final long key, final long transformKey, final byte group) {
+      this.key = key;
+      this.transformKey = transformKey;
+      this.group = group;
+    }
+
+    @Override
+    public void writeExternal(final ObjectOutput out) throws IOException {
+      out.writeLong(key);
+      out.writeLong(transformKey);
+      out.writeByte(group);
+    }
+
+    @Override
+    public void readExternal(final ObjectInput in) throws IOException {
+      key = in.readLong();
+      transformKey = in.readLong();
+      group = in.readByte();
+    }
+
+    /**
+     * Returns the ReferenceBoard restore from this record.
+     *
+     * @return ReferenceBoard restore from this record
+     * @throws InvalidObjectException invalid record
+     */
+    private Object readResolve() throws InvalidObjectException {
+      try {
+        return ReferenceTable.restoreBoard(key, transformKey, group);
+      } catch (IllegalStateException ex) {
+        throw new InvalidObjectException(ex.getMessage());
+      }
+    }
+  }
 }
 
@@ -13,7 +13,7 @@ import mwong.myprojects.fifteenpuzzle.solution.ai.Reference.ConnectionType;
  * It returns an instance of the reference collection. getReferenceLocal returns the local
  * instance and getReferenceServer returns the network instance.
  *
- * <p>Dependencies : PropertiesCache.java, Reference.java
+ * <p>Dependencies : PropertiesCache.java, Reference.java, ReferenceRemoteGuard.java
  *
  * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
  *            target="_blank">Meisze Wong (linkedin)</a>
@@ -38,7 +38,9 @@ public class ReferenceFactory {
   }
 
   /**
-   * A network Reference connection will be returned.
+   * A network Reference connection will be returned.  The connection is guarded with
+   * call timeout and circuit breaker, a slow or unavailable server does not block the
+   * search.
    *
    * @return ReferenceRemote ReferenceRemote
    * @throws RemoteException RemoteException
@@ -57,7 +59,8 @@ public class ReferenceFactory {
     String lookupString = "rmi://" + rmiHost + ":" + rmiPort + "/" + rmiServiceName;
 
     try {
-      refObj = (ReferenceRemote) Naming.lookup(lookupString);
+      refObj = new ReferenceRemoteGuard((ReferenceRemote) Naming.lookup(lookupString),
+          lookupString);
       return refObj;
     } catch (NotBoundException nbex) {
       throw new RemoteException(nbex.toString() + " " + lookupString);
@@ -0,0 +1,348 @@
+package mwong.myprojects.fifteenpuzzle.solution.ai;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import mwong.myprojects.fifteenpuzzle.puzzle.Board;
+import mwong.myprojects.fifteenpuzzle.puzzle.Board.DifficultyLevel;
+import mwong.myprojects.fifteenpuzzle.server.ReferenceServerProperties;
+import mwong.myprojects.fifteenpuzzle.solution.SolverPdb78;
+
+/**
+ * ReferenceLearner is the idle time daemon grows the reference collection.  While the
+ * host is idle, it generates the candidate boards in turn, solves them with pattern
+ * database 7-8 and records the boards take over the cutoff limit with ReferenceRecorder.
+ * The user search of the same board will be solved within the cutoff limit.
+ *
+ * <p>The candidate boards are the random boards of hard level shuffled from the hard
+ * boards of Board, the random walks from the reference boards, and the random boards of
+ * hard level with the largest difference between advanced estimate and standard
+ * estimate.
+ *
+ * <p>The learner runs on one low priority thread.  It waits while the load average of
+ * the host is above learnerIdleLoad, and pauses after each candidate board to use
+ * learnerCpuBudget percent of one core.  Each candidate board stops at learnerTimeout.
+ *
+ * <p>Dependencies : Board.java, ReferenceBoard.java, ReferenceProperties.java,
+ *                   ReferenceRecorder.java, ReferenceServerProperties.java,
+ *                   ReferenceTable.java, SolverPdb78.java
+ *
+ * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
+ *            target="_blank">Meisze Wong (linkedin)</a>
+ * @see ReferenceProperties
+ * @see <a href="http://www.github.com/mwong510ca/15PuzzleOptimalSolver/"
+ *         target="_blank">GitHub (full project)</a>
+ */
+public final class ReferenceLearner implements Runnable {
+  /** The number of candidate sources, hard board, random walk and estimate gap. */
+  private static final int NUM_SOURCES = 3;
+  /** The number of random boards sampled for the largest estimate gap. */
+  private static final int GAP_SAMPLES = 16;
+  /** The minimum number of moves of a random walk from a reference board. */
+  private static final int MIN_WALK = 2;
+  /** The milliseconds to wait while the host is busy. */
+  private static final long BUSY_PAUSE = 5000;
+  /** Constant number, 100.0. */
+  private static final double HUNDRED = 100.0;
+  /** Nano seconds in one millisecond. */
+  private static final long NANO_MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  /** The ReferenceRecorder of the reference collection. */
+  private final ReferenceRecorder recorder;
+  /** The solver of candidate boards, shares the pattern database of the recorder. */
+  private final SolverPdb78 solver;
+  /** The random number generator of random walks. */
+  private final SplittableRandom random = new SplittableRandom();
+  /** The operating system bean of load average. */
+  private final OperatingSystemMXBean system = ManagementFactory.getOperatingSystemMXBean();
+  /** The percentage of one core the learner may use. */
+  private final int cpuBudget;
+  /** The load average below which the host is idle. */
+  private final double idleLoad;
+  /** The maximum number of moves of a random walk. */
+  private final int walkMoves;
+  /** The boolean value represents the learner is running. */
+  private volatile boolean running = true;
+  /** The number of candidate boards solved. */
+  private final AtomicLong candidates = new AtomicLong();
+  /** The number of candidate boards timeout. */
+  private final AtomicLong timeouts = new AtomicLong();
+  /** The number of candidate boards added to reference collection. */
+  private final AtomicLong learned = new AtomicLong();
+  /** The number of waits while the host is busy. */
+  private final AtomicLong busyWaits = new AtomicLong();
+  /** The total time of candidate boards in milliseconds. */
+  private final AtomicLong busyMillis = new AtomicLong();
+
+  /**
+   * Initializes ReferenceLearner object of the given ReferenceRecorder.
+   *
+   * @param recorder the ReferenceRecorder of the reference collection
+   */
+  ReferenceLearner(final ReferenceRecorder recorder) {
+    this.recorder = recorder;
+    solver = recorder.duplicateSolver();
+    solver.setTimeoutLimit(ReferenceProperties.getLearnerTimeout());
+    solver.setTimerOn(true);
+    cpuBudget = ReferenceProperties.getLearnerCpuBudget();
+    idleLoad = system.getAvailableProcessors() * ReferenceProperties.getLearnerIdleLoad()
+        / HUNDRED;
+    walkMoves = ReferenceProperties.getLearnerWalkMoves();
+  }
+
+  /**
+   * Solve the candidate boards until stop.
+   */
+  @Override
+  public void run() {
+    int source = 0;
+    while (running) {
+      if (!isHostIdle()) {
+        busyWaits.incrementAndGet();
+        pause(BUSY_PAUSE);
+        continue;
+      }
+
+      long start = System.nanoTime();
+      learn(nextCandidate(source));
+      source = (source + 1) % NUM_SOURCES;
+      long elapsed = (System.nanoTime() - start) / NANO_MS;
+      busyMillis.addAndGet(elapsed);
+      pause((long) (elapsed * (HUNDRED - cpuBudget) / cpuBudget));
+    }
+  }
+
+  /**
+   * Stop the learner after the candidate board in progress.
+   */
+  public void stop() {
+    running = false;
+  }
+
+  /**
+   * Returns the boolean value represents the load average of the host, exclude the share
+   * of the learner itself, is below the idle load.  The host is idle if the load average
+   * is not available.
+   *
+   * @return boolean value represents the host is idle
+   */
+  private boolean isHostIdle() {
+    double load = system.getSystemLoadAverage();
+    return load < 0 || load - cpuBudget / HUNDRED < idleLoad;
+  }
+
+  /**
+   * Sleep the given milliseconds, stop the learner if interrupted.
+   *
+   * @param millis the milliseconds to sleep
+   */
+  private void pause(final long millis) {
+    if (millis <= 0) {
+      return;
+    }
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException ex) {
+      running = false;
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Returns the candidate board of the given source.
+   *
+   * @param source the given source, 0 - hard board, 1 - random walk, 2 - estimate gap
+   * @return Board object of the candidate board
+   */
+  private Board nextCandidate(final int source) {
+    if (source == 1) {
+      ReferenceBoard advBoard = randomReference();
+      if (advBoard != null) {
+        return randomWalk(new Board(advBoard.getTiles()));
+      }
+    } else if (source == 2) {
+      return largestGap();
+    }
+    return new Board(DifficultyLevel.HARD);
+  }
+
+  /**
+   * Returns a random reference board of the collection, or null if empty.
+   *
+   * @return ReferenceBoard of a random reference board, or null
+   */
+  private ReferenceBoard randomReference() {
+    ReferenceTable table = recorder.scanMap();
+    int capacity = table.capacity();
+    int start = random.nextInt(capacity);
+    for (int i = 0; i < capacity; i++) {
+      int slot = (start + i) % capacity;
+      if (table.isOccupied(slot)) {
+        return table.getBoard(slot);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the board after a random number of random moves from the given board, never
+   * move back to the previous board.
+   *
+   * @param board the given board
+   * @return Board object after the random walk
+   */
+  private Board randomWalk(final Board board) {
+    final int numDirections = 4;
+    Board walk = board;
+    int previous = -1;
+    int moves = MIN_WALK + random.nextInt(walkMoves - MIN_WALK + 1);
+    while (moves > 0) {
+      int dir = random.nextInt(numDirections);
+      if (previous >= 0 && dir == (previous + 2) % numDirections) {
+        continue;
+      }
+      Board next = walk.shift(Board.Move.values()[dir]);
+      if (next != null) {
+        walk = next;
+        previous = dir;
+        moves--;
+      }
+    }
+    return walk;
+  }
+
+  /**
+   * Returns the random board of hard level with the largest difference between advanced
+   * estimate and standard estimate of the samples.
+   *
+   * @return Board object with the largest estimate gap of the samples
+   */
+  private Board largestGap() {
+    Board best = null;
+    int bestGap = -1;
+    for (int i = 0; i < GAP_SAMPLES; i++) {
+      Board board = new Board(DifficultyLevel.HARD);
+      int gap = solver.heuristicBoost(board) - solver.heuristicBasis(board);
+      if (gap > bestGap) {
+        best = board;
+        bestGap = gap;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Solve the given candidate board, add to reference collection if it takes over the
+   * cutoff limit, and complete the pending reference boards.
+   *
+   * @param board the given candidate board
+   */
+  private void learn(final Board board) {
+    if (recorder.containsBoard(board)) {
+      return;
+    }
+    solver.findOptimalPath(board);
+    candidates.incrementAndGet();
+    if (solver.isSearchTimeout()) {
+      timeouts.incrementAndGet();
+      return;
+    }
+    if (recorder.addBoard(solver)) {
+      learned.incrementAndGet();
+      recorder.updatePending();
+    }
+  }
+
+  /**
+   * Returns the number of candidate boards solved.
+   *
+   * @return long value of number of candidate boards solved
+   */
+  public long getCandidates() {
+    return candidates.get();
+  }
+
+  /**
+   * Returns the number of candidate boards timeout.
+   *
+   * @return long value of number of candidate boards timeout
+   */
+  public long getTimeouts() {
+    return timeouts.get();
+  }
+
+  /**
+   * Returns the number of candidate boards added to reference collection.
+   *
+   * @return long value of number of candidate boards added to reference collection
+   */
+  public long getLearned() {
+    return learned.get();
+  }
+
+  /**
+   * Returns the number of waits while the host is busy.
+   *
+   * @return long value of number of waits while the host is busy
+   */
+  public long getBusyWaits() {
+    return busyWaits.get();
+  }
+
+  @Override
+  public String toString() {
+    return "Reference learner : " + getCandidates() + " candidates, " + getTimeouts()
+        + " timeout, " + getLearned() + " learned, " + getBusyWaits() + " busy waits, "
+        + busyMillis.get() + "ms";
+  }
+
+  /**
+   * Run the reference learner until the given number of minutes, or until the program
+   * stops if not given.  The remote server must not be running.
+   *
+   * @param args optional number of minutes to run
+   * @throws RemoteException if failed to reserve the remote port
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public static void main(final String[] args) throws RemoteException,
+      InterruptedException {
+    if (ReferenceServerProperties.isPortInUse()) {
+      System.out.println("Remote server is running, system exit.");
+      System.exit(0);
+    }
+    LocateRegistry.createRegistry(ReferenceServerProperties.getRemotePort());
+
+    long minutes = 0;
+    if (args.length > 0) {
+      try {
+        minutes = Long.parseLong(args[0]);
+      } catch (NumberFormatException ex) {
+        System.out.println("Invalid number of minutes " + args[0] + ", run until stop.");
+      }
+    }
+
+    ReferenceRecorder recorder = new ReferenceRecorder(true);
+    recorder.printStatus();
+    ReferenceLearner learner = new ReferenceLearner(recorder);
+    Thread thread = new Thread(learner, "reference-learner");
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MIN_PRIORITY);
+    thread.start();
+    System.out.println("Reference learner is running.");
+
+    if (minutes > 0) {
+      thread.join(TimeUnit.MINUTES.toMillis(minutes));
+      learner.stop();
+    }
+    thread.join();
+    System.out.println(learner);
+    recorder.updateData();
+    recorder.printStatus();
+    System.exit(0);
+  }
+}
@@ -1,14 +1,15 @@
 package mwong.myprojects.fifteenpuzzle.solution.ai;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
+import java.rmi.UnexpectedException;
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.Map.Entry;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 
 import mwong.myprojects.fifteenpuzzle.FileProperties;
 import mwong.myprojects.fifteenpuzzle.puzzle.Board;
@@ -23,8 +24,25 @@ import mwong.myprojects.fifteenpuzzle.solution.SolverBuilder;
  * It has full features of load the storage, add or remove a board, change setting,
  * reset the collection, etc.
  *
- * <p>Dependencies : FileProperties.java, Board.java, HeuristicOptions.java,
- *                   Solver.java, SolverPdb78.java, SolverBuilder.java
+ * <p>The reference server shares the collection with the threads of remote connections.
+ * It uses a ConcurrentReferenceTable, the lookups are lock free.  The updates of the same
+ * reference board are serialized by the lock stripe of its canonical key, and the local
+ * solver is used by one thread at a time.
+ *
+ * <p>The extra searches to complete a new reference board run in background by
+ * ReferenceMaintenance, except the administrative tool.  The collection is concurrent
+ * with background maintenance, the searches read the collection while it is updated.
+ * The lookup positions of reference boards are solved in parallel by
+ * ReferenceSolverPool, each completed reference board is stored and saved on its own.
+ *
+ * <p>The hits of reference boards are counted by ReferenceUsage.  The administrative
+ * compaction removes the reference boards of least value by the retention policy.
+ *
+ * <p>Dependencies : FileProperties.java, Board.java, ConcurrentReferenceTable.java,
+ *                   HeuristicOptions.java, ReferenceMaintenance.java,
+ *                   ReferenceSolverPool.java, ReferenceStorage.java, ReferenceTable.java,
+ *                   ReferenceUsage.java, SharedReferenceTable.java, Solver.java, SolverPdb78.java,
+ *                   SolverBuilder.java
  *
  * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
  *            target="_blank">Meisze Wong (linkedin)</a>
@@ -36,6 +54,12 @@ public class ReferenceLog implements Reference {
   static final String DIRECTORY = FileProperties.getDirectory();
   /** The String of file path of data files. */
   static final String FILEPATH = FileProperties.getFilepathReference();
+  /** The String of file path of delta log of data files. */
+  static final String DELTA_FILEPATH = FileProperties.getFilepathReferenceDelta();
+  /** The String of file path of shared reference collection. */
+  static final String SHARED_FILEPATH = FileProperties.getFilepathReferenceShared();
+  /** The String of file path of usage counters of reference collection. */
+  static final String USAGE_FILEPATH = FileProperties.getFilepathReferenceUsage();
   /** The buffer size per record.
    *  @see ReferenceConstants#BUFFER_SIZE_PER_RECORD */
   static final int BUFFER_SIZE_PER_RECORD = ReferenceConstants.getBufferSizePerRecord();
@@ -48,14 +72,18 @@ public class ReferenceLog implements Reference {
    *  @see mwong.myprojects.fifteenpuzzle.puzzle.PuzzleConstants#TILE_BIT_SIZE */
   static final int TILE_BIT_SIZE = ReferenceConstants.getTileBitSize();
   /** The number of lookups, split in 4 groups, 4 lookup per group.
-   *  @see ReferenceConstants#NUM_LOOKUPS*/
+   *  @see ReferenceConstants#NUM_LOOKUPS */
   static final int NUM_LOOKUPS = ReferenceConstants.getNumLookups();
-
-  /** The HashMap of reference collections. */
-  HashMap<ReferenceBoard, ReferenceMoves> referenceMap;
-  /** The HashMap of default boards. These boards never remove from collections.
+  /** The number of lock stripes of reference board updates, must be power of 2. */
+  private static final int LOCK_STRIPES = 64;
+  /** The golden ratio constant to mix the key of lock stripe. */
+  private static final long MIX_CONSTANT = 0x9E3779B97F4A7C15L;
+
+  /** The ReferenceTable of reference collections. */
+  volatile ReferenceTable referenceMap;
+  /** The ReferenceTable of default boards. These boards never remove from collections.
    *  @see ReferenceProperties#DEFAULT_BOARDS */
-  HashMap<ReferenceBoard, ReferenceMoves> defaultMap;
+  ReferenceTable defaultMap;
   /** The integer of cutoff setting. */
   int cutoffSetting;
   /** The double value of cutoff setting with buffer percentage off. */
@@ -63,73 +91,181 @@ public class ReferenceLog implements Reference {
   /** The boolean value represents the data file is ready to use. */
   boolean fileReady = false;
   /** The boolean value represents a copy of local solver is ready to use. */
-  boolean solverReady = false;
+  volatile boolean solverReady = false;
   /** The instance of SolverPdb78 object. */
-  SolverPdb78 localSolver = null;
+  volatile SolverPdb78 localSolver = null;
   /** The ConnectionType in use. */
   ConnectionType connectionTypeInUse;
+  /** The ReferenceStorage of data files. */
+  final ReferenceStorage storage = new ReferenceStorage(FILEPATH, DELTA_FILEPATH);
+  /** The hit counters of reference boards of the retention policy. */
+  final ReferenceUsage usage = ReferenceUsage.of(USAGE_FILEPATH);
+  /** The boolean value represents the collection is the shared memory mapped file. */
+  boolean sharedMode = false;
+  /** The boolean value represents the collection is shared by concurrent threads. */
+  final boolean concurrentMode;
+  /** The locks of reference board updates, striped by the canonical key. */
+  private final Object[] boardLocks = new Object[LOCK_STRIPES];
+  /** The lock of local solver, the solver is not thread safe. */
+  private final Object solverLock = new Object();
+  /** The background executor of reference board maintenance, or null if synchronous. */
+  private final ReferenceMaintenance maintenance;
+  /** The pool of solvers of reference board updates, created on first use. */
+  private ReferenceSolverPool solverPool;
 
   /**
    * Initializes ReferenceLog object. Load the stored collection from file.
-   * Use default setting if not available.
+   * Use default setting if not available.  Standalone connection maps the shared
+   * collection file if it is enabled in configuration.  New reference boards are
+   * completed in background.
    *
    * @param connectionType the choice connectionType
    */
   public ReferenceLog(final ConnectionType connectionType) {
+    this(connectionType, true);
+  }
+
+  /**
+   * Initializes ReferenceLog object. Load the stored collection from file.
+   * Use default setting if not available.  Standalone connection maps the shared
+   * collection file if it is enabled in configuration.  Remote server, background
+   * maintenance and more than one solver of reference updates use the concurrent
+   * collection.
+   *
+   * @param connectionType the choice connectionType
+   * @param background the boolean represents new reference boards are completed in
+   *     background, otherwise by the caller
+   */
+  ReferenceLog(final ConnectionType connectionType, final boolean background) {
     this.connectionTypeInUse = connectionType;
+    concurrentMode = connectionType == ConnectionType.REMOTESERVER || background
+        || ReferenceProperties.getUpdateThreads() > 1;
+    if (background) {
+      maintenance = new ReferenceMaintenance(this);
+    } else {
+      maintenance = null;
+    }
+    for (int i = 0; i < LOCK_STRIPES; i++) {
+      boardLocks[i] = new Object();
+    }
     try {
-      referenceMap = new HashMap<ReferenceBoard, ReferenceMoves>();
+      referenceMap = new ReferenceTable();
       loadFile();
+      useMap(referenceMap);
     } catch (IOException ex) {
       reset();
     }
+    if (connectionType == ConnectionType.STANDALONE
+        && ReferenceProperties.isSharedCollection()) {
+      try {
+        openShared();
+      } catch (IOException ex) {
+        System.err.println("System error : unable to open shared file " + SHARED_FILEPATH
+            + ", use local collection.");
+      }
+    }
   }
 
   /**
-   * Load the reference collection from file.
+   * Map the shared reference collection file.  The first application imports the
+   * local collection to a new shared file, others use the cutoff setting of the
+   * shared file.
    *
    * @throws IOException any IOExcpetion
    */
-  private void loadFile() throws IOException {
-    FileInputStream fin = new FileInputStream(FILEPATH);
-    FileChannel inChannel = fin.getChannel();
-    ByteBuffer buffer = inChannel.map(FileChannel.MapMode.READ_ONLY, 0, inChannel.size());
+  private void openShared() throws IOException {
+    SharedReferenceTable shared = SharedReferenceTable.open(SHARED_FILEPATH,
+        ReferenceProperties.getSharedCapacity());
+    if (shared.getCutoff() == 0) {
+      shared.importAll(referenceMap, cutoffSetting);
+      shared.force();
+    } else {
+      cutoffSetting = shared.getCutoff();
+      int cutoffBuffer = ReferenceProperties.getCutoffBuffer();
+      cutoffLimit = cutoffSetting * ((HUNDRED - cutoffBuffer) / HUNDRED);
+    }
+    shared.setUsage(usage);
+    referenceMap = shared;
+    sharedMode = true;
+    fileReady = true;
+  }
 
-    cutoffSetting = buffer.getInt();
-    int cutoffBuffer = ReferenceProperties.getCutoffBuffer();
-    cutoffLimit = cutoffSetting * ((HUNDRED - cutoffBuffer) / HUNDRED);
+  /**
+   * Use the given table as reference collection with journal and hit counters.  The
+   * concurrent collection publishes the copies of the given table.  The storage takes
+   * the snapshots from the collection in use, the given table is not used afterward.
+   *
+   * @param table the given ReferenceTable object
+   */
+  private void useMap(final ReferenceTable table) {
+    table.enableJournal(ReferenceProperties.getJournalSize());
+    table.setUsage(usage);
+    if (concurrentMode) {
+      referenceMap = new ConcurrentReferenceTable(table);
+    } else {
+      referenceMap = table;
+    }
+    storage.use(referenceMap);
+  }
 
-    while (buffer.remaining() >= BUFFER_SIZE_PER_RECORD) {
-      ReferenceBoard advBoard = null;
-
-      long transformKey = buffer.getLong();
-      byte group = buffer.get();
-      int hash1 = buffer.getInt();
-      int hash2 = buffer.getInt();
-      int hashcode = buffer.getInt();
-      advBoard = new ReferenceBoard(transformKey, group, hash1, hash2, hashcode);
-
-      byte[] moves = new byte[NUM_LOOKUPS];
-      buffer.get(moves);
-      short[] initMoves = new short[NUM_LOOKUPS];
-      for (int i = 0; i < NUM_LOOKUPS; i++) {
-        initMoves[i] = buffer.getShort();
-      }
-      byte status = buffer.get();
-      if (referenceMap.containsKey(advBoard)) {
-        ReferenceMoves advMoves = referenceMap.get(advBoard);
-        advMoves.updateMoves(moves, initMoves, status);
-      } else {
-        ReferenceMoves advMoves = new ReferenceMoves(moves, initMoves, status);
-        referenceMap.put(advBoard, advMoves);
-      }
+  /**
+   * Write the queued records of reference collection, then stop the writer of the
+   * storage and remove its shutdown hook.  A later change starts a new writer.  Save
+   * the hit counters of reference boards.
+   */
+  public void close() {
+    usage.save();
+    try {
+      storage.close();
+    } catch (IOException ex) {
+      System.err.println("System error : write file error - " + DELTA_FILEPATH);
     }
+  }
+
+  /**
+   * Returns the index of lock stripe of the given canonical key.
+   *
+   * @param key the given canonical key
+   * @return integer of index of lock stripe
+   */
+  private static int stripeOf(final long key) {
+    long hash = key * MIX_CONSTANT;
+    return (int) (hash >>> Integer.SIZE) & (LOCK_STRIPES - 1);
+  }
 
-    if (buffer.remaining() > 0) {
-      fin.close();
-      throw new IOException("Data file error - advanced_accumulator.db");
+  /**
+   * Returns the result of the given action with the lock stripes of the given board.
+   * The given board may update the reference board of itself or its mirror reflection,
+   * hold the lock stripes of both canonical keys in the order of stripes.
+   *
+   * @param board the given board
+   * @param action the given update of reference collection
+   * @return boolean value of the result of the given action
+   */
+  private boolean withBoardLocks(final Board board, final BooleanSupplier action) {
+    long packedTiles = board.getPackedTiles();
+    int stripe = stripeOf(ReferenceTable.canonicalKey(packedTiles, board.getZero1d()));
+    int mirrorStripe = stripe;
+    long mirror = ReferenceTable.mirrorKey(packedTiles, board.getZero1d());
+    if (mirror != 0) {
+      mirrorStripe = stripeOf(mirror);
+    }
+    synchronized (boardLocks[Math.min(stripe, mirrorStripe)]) {
+      synchronized (boardLocks[Math.max(stripe, mirrorStripe)]) {
+        return action.getAsBoolean();
+      }
     }
-    fin.close();
+  }
+
+  /**
+   * Load the reference collection from file.
+   *
+   * @throws IOException any IOExcpetion
+   */
+  private void loadFile() throws IOException {
+    cutoffSetting = storage.load(referenceMap);
+    int cutoffBuffer = ReferenceProperties.getCutoffBuffer();
+    cutoffLimit = cutoffSetting * ((HUNDRED - cutoffBuffer) / HUNDRED);
     fileReady = true;
   }
 
@@ -137,7 +273,7 @@ public class ReferenceLog implements Reference {
    * Load the default reference collection.
    */
   final void loadDefault() {
-    defaultMap = new HashMap<ReferenceBoard, ReferenceMoves>();
+    defaultMap = new ReferenceTable();
     for (byte[][] preset : ReferenceProperties.getDefaultBoards()) {
       ReferenceBoard advBoard = new ReferenceBoard(new Board(preset[0]));
       ReferenceMoves advMoves = new ReferenceMoves(preset[1][0], preset[1][1]);
@@ -163,22 +299,64 @@ public class ReferenceLog implements Reference {
     cutoffLimit = cutoffSetting * ((HUNDRED - cutoffBuffer) / HUNDRED);
 
     loadDefault();
-    referenceMap = new HashMap<ReferenceBoard, ReferenceMoves>();
-    for (Entry<ReferenceBoard, ReferenceMoves> entry : defaultMap.entrySet()) {
-      referenceMap.put(entry.getKey(), entry.getValue());
+    if (sharedMode) {
+      SharedReferenceTable shared = (SharedReferenceTable) referenceMap;
+      shared.clear();
+      shared.setCutoff(cutoffSetting);
+      shared.importAll(defaultMap, cutoffSetting);
+      shared.force();
+    } else {
+      ReferenceTable resetMap = new ReferenceTable();
+      for (int slot = 0; slot < defaultMap.capacity(); slot++) {
+        if (defaultMap.isOccupied(slot)) {
+          resetMap.put(defaultMap.getBoard(slot), defaultMap.getMoves(slot));
+        }
+      }
+      useMap(resetMap);
     }
     clearDefault();
   }
 
+  /**
+   * Returns the ReferenceTable to scan the slots, the immutable copy in use of the
+   * concurrent collection.
+   *
+   * @return ReferenceTable to scan the slots
+   */
+  final ReferenceTable scanMap() {
+    ReferenceTable table = referenceMap;
+    if (table instanceof ConcurrentReferenceTable) {
+      return ((ConcurrentReferenceTable) table).snapshot();
+    }
+    return table;
+  }
+
+  /**
+   * Returns the ReferenceTable of reference collection.  Returns the immutable copy in
+   * use of the concurrent collection.
+   *
+   * @return ReferenceTable of reference collection
+   * @throws NullPointerException if the collection is empty
+   */
   @Override
-  public final HashMap<ReferenceBoard, ReferenceMoves> getActiveMap() throws NullPointerException {
+  public final ReferenceTable getActiveMap() throws NullPointerException {
     if (referenceMap == null) {
       reset();
     }
-    if (referenceMap == null || referenceMap.isEmpty()) {
+    ReferenceTable activeMap = scanMap();
+    if (activeMap == null || activeMap.isEmpty()) {
       throw new NullPointerException("getActiveMap is empyt");
     }
-    return referenceMap;
+    return activeMap;
+  }
+
+  @Override
+  public final ReferenceUpdate getUpdates(final long tableId, final long version)
+      throws UnexpectedException {
+    if (referenceMap == null) {
+      throw new UnexpectedException("getUpdates - reference map is null");
+    }
+    return referenceMap.changesSince(tableId, version);
   }
 
   @Override
@@ -193,18 +371,146 @@ public class ReferenceLog implements Reference {
 
   @Override
   public final boolean loadSolver(final Solver copySolver) {
-    if (solverReady) {
-      return false;
+    synchronized (solverLock) {
+      if (solverReady) {
+        return false;
+      }
+      if (copySolver.getHeuristic() != HeuristicOptions.PD78) {
+        System.out.println("error 1");
+        return false;
+      }
+      SolverBuilder builder = new SolverBuilder(ApplicationMode.SYSTEM);
+      builder.setReference(copySolver.getReference());
+      builder.setSolutionCache(false);
+      localSolver = builder.duplicateSolverPdb78(copySolver);
+      solverReady = true;
+      return solverReady;
+    }
+  }
+
+  /**
+   * Returns the SolverPdb78 object shares the pattern database with the local solver,
+   * for the pool of solvers of reference board updates.
+   *
+   * @return SolverPdb78 object shares the pattern database with the local solver
+   */
+  SolverPdb78 duplicateSolver() {
+    SolverBuilder builder = new SolverBuilder(ApplicationMode.SYSTEM);
+    if (localSolver.getReference() != null) {
+      builder.setReference(localSolver.getReference());
+    }
+    builder.setSolutionCache(false);
+    return builder.duplicateSolverPdb78(localSolver);
+  }
+
+  /**
+   * Returns the pool of solvers of reference board updates, create the solvers with the
+   * number of update threads of ReferenceProperties on first use.
+   *
+   * @return ReferenceSolverPool of reference board updates
+   */
+  final ReferenceSolverPool getSolverPool() {
+    synchronized (solverLock) {
+      if (solverPool == null) {
+        SolverPdb78[] solvers = new SolverPdb78[ReferenceProperties.getUpdateThreads()];
+        for (int i = 0; i < solvers.length; i++) {
+          solvers[i] = duplicateSolver();
+        }
+        solverPool = new ReferenceSolverPool(solvers);
+      }
+      return solverPool;
+    }
+  }
+
+  /**
+   * Update the full set of moves and partial solutions of the given reference board,
+   * the lookup positions are solved in parallel by the pool of solvers.  The caller
+   * must not hold a lock stripe, the solvers may add the boards of lookup positions.
+   *
+   * @param advBoard the given ReferenceBoard object
+   * @param advMoves the ReferenceMoves of the given reference board
+   */
+  final void updateSolutions(final ReferenceBoard advBoard, final ReferenceMoves advMoves) {
+    try {
+      getSolverPool().complete(advBoard, advMoves).join();
+    } catch (CompletionException ex) {
+      if (ex.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) ex.getCause();
+      }
+      throw ex;
     }
-    if (copySolver.getHeuristic() != HeuristicOptions.PD78) {
-      System.out.println("error 1");
+  }
+
+  /**
+   * Complete the moves and partial solutions of the given reference board with the pool
+   * of solvers, called by ReferenceMaintenance.  The solvers work on a copy without the
+   * lock stripe, the copy is stored with the lock stripe if the reference board is still
+   * not completed.
+   *
+   * @param advBoard the given ReferenceBoard object
+   * @return boolean value represents the reference board has been updated
+   */
+  final boolean completeReference(final ReferenceBoard advBoard) {
+    ReferenceMoves current = referenceMap.get(advBoard);
+    if (current == null || current.isCompleted()) {
       return false;
     }
-    SolverBuilder builder = new SolverBuilder(ApplicationMode.SYSTEM);
-    builder.setReference(copySolver.getReference());
-    localSolver = builder.duplicateSolverPdb78(copySolver);
-    solverReady = true;
-    return solverReady;
+    ReferenceMoves advMoves = new ReferenceMoves(current.getMoves(), current.getInitMoves(),
+        current.getStatus());
+    updateSolutions(advBoard, advMoves);
+    return storeCompleted(advBoard, advMoves);
+  }
+
+  /**
+   * Store and save the completed moves and partial solutions of the given reference
+   * board with its lock stripe, if the reference board in collection is still not
+   * completed.
+   *
+   * @param advBoard the given ReferenceBoard object
+   * @param advMoves the completed ReferenceMoves of the given reference board
+   * @return boolean value represents the reference board has been updated
+   */
+  private boolean storeCompleted(final ReferenceBoard advBoard,
+      final ReferenceMoves advMoves) {
+    synchronized (boardLocks[stripeOf(ReferenceTable.keyOf(advBoard))]) {
+      ReferenceMoves current = referenceMap.get(advBoard);
+      if (current == null || current.isCompleted()) {
+        return false;
+      }
+      referenceMap.put(advBoard, advMoves);
+      add2file(advBoard, advMoves);
+      return true;
+    }
+  }
+
+  /**
+   * Complete the given reference board in background, or now if no background
+   * maintenance.  The caller must hold the lock stripe of the reference board, the
+   * local solver is used instead of the pool of solvers.
+   *
+   * @param advBoard the given ReferenceBoard object
+   * @param advMoves the ReferenceMoves of the given reference board
+   */
+  private void scheduleUpdate(final ReferenceBoard advBoard, final ReferenceMoves advMoves) {
+    if (maintenance != null) {
+      maintenance.schedule(advBoard);
+      return;
+    }
+    System.out.println("System update, please wait.");
+    synchronized (solverLock) {
+      advMoves.updateSolutions(advBoard, localSolver);
+    }
+    referenceMap.put(advBoard, advMoves);
+    add2file(advBoard, advMoves);
+  }
+
+  /**
+   * Returns the ReferenceMaintenance of background maintenance, or null if synchronous.
+   *
+   * @return ReferenceMaintenance of background maintenance, or null
+   */
+  public final ReferenceMaintenance getMaintenance() {
+    return maintenance;
   }
 
   @Override
@@ -244,50 +550,30 @@ public class ReferenceLog implements Reference {
   }
 
   /**
-   * Append a reference board with moves and partial solutions to file.
+   * Append a reference board with moves and partial solutions to the delta log.  The
+   * record is queued and written behind by the writer thread of ReferenceStorage.
+   * The shared collection has been changed in the mapped file, no delta log.
    *
    * @param advBoard the given ReferenceBoard from function call
    * @param advMoves the given ReferenceMoves from function call
    */
-  synchronized void add2file(final ReferenceBoard advBoard, final ReferenceMoves advMoves) {
+  void add2file(final ReferenceBoard advBoard, final ReferenceMoves advMoves) {
     if (!fileReady) {
       System.err.println("System error : file system is not ready.");
       return;
     }
+    if (sharedMode) {
+      return;
+    }
     if (!(new File(FILEPATH)).exists()) {
       System.err.println("System error : " + FILEPATH + " is missing.");
       return;
     }
 
-    FileOutputStream fout;
-    FileChannel outChannel;
     try {
-      fout = new FileOutputStream(FILEPATH, true);
-      outChannel = fout.getChannel();
-
-      ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE_PER_RECORD);
-      long key = 0L;
-      for (int val : advBoard.getTilesTransform()) {
-        key <<= TILE_BIT_SIZE;
-        key |= val;
-      }
-      buffer.putLong(key);                       // 8
-      buffer.put(advBoard.getGroup());           // 1
-      buffer.putInt(advBoard.getHash1());        // 4
-      buffer.putInt(advBoard.getHash2());        // 4
-      buffer.putInt(advBoard.hashCode());        // 4
-      buffer.put(advMoves.getMoves());           // 4
-      for (short move : advMoves.getInitMoves()) {   // 8 (2x4)
-        buffer.putShort(move);
-      }
-      buffer.put(advMoves.getStatus());          // 1
-      buffer.flip();
-      outChannel.write(buffer);
-
-      outChannel.close();
-      fout.close();
+      storage.append(advBoard, advMoves);
     } catch (IOException ex) {
-      System.err.println("System error : write file error - " + FILEPATH);
+      System.err.println("System error : write file error - " + DELTA_FILEPATH);
     }
   }
 
@@ -297,7 +583,20 @@ public class ReferenceLog implements Reference {
       System.err.println("empty map");
       return false;
     }
+    return withBoardLocks(board, () -> addBoardLocked(board, steps, solution));
+  }
 
+  /**
+   * Add the given board with the solution to reference collection, the caller must hold
+   * the lock stripes of the board.
+   *
+   * @param board the given board
+   * @param steps the number of moves of the solution
+   * @param solution the Board.Move array of the solution
+   * @return boolean value represents the board has been added or updated
+   */
+  private boolean addBoardLocked(final Board board, final byte steps,
+      final Board.Move[] solution) {
     ReferenceBoard advBoard = new ReferenceBoard(board);
     byte lookup = ReferenceConstants.getReferenceLookup(board.getZero1d());
     int group = ReferenceConstants.getReferenceGroup(board.getZero1d());
@@ -309,6 +608,7 @@ public class ReferenceLog implements Reference {
       } else {
         advMoves.updateSolution(lookup, steps, solution, false);
       }
+      referenceMap.put(advBoard, advMoves);
       add2file(advBoard, advMoves);
       return true;
     }
@@ -326,6 +626,7 @@ public class ReferenceLog implements Reference {
         lookup = 1;
       }
       advMoves.updateSolution(lookup, steps, solution, true);
+      referenceMap.put(advBoardMirror, advMoves);
       add2file(advBoardMirror, advMoves);
       return true;
     }
@@ -337,10 +638,37 @@ public class ReferenceLog implements Reference {
       advMoves.updateSolution(lookup, steps, solution, false);
     }
     referenceMap.put(advBoard, advMoves);
+    usage.added(ReferenceTable.keyOf(advBoard));
     add2file(advBoard, advMoves);
     return true;
   }
 
+  /**
+   * Remove the reference boards of least value by the retention policy, except default
+   * reference boards.  The boards not used over referenceRetentionDays are removed, then
+   * the boards of least hits and oldest last use above referenceMaxSize.  It is used by
+   * the administrative compaction, no concurrent update.
+   *
+   * @return integer of number of reference boards removed
+   */
+  final int applyRetention() {
+    final int maxSize = ReferenceProperties.getMaxSize();
+    final int retentionDays = ReferenceProperties.getRetentionDays();
+    if (maxSize == 0 && retentionDays == 0) {
+      return 0;
+    }
+    if (defaultMap == null) {
+      loadDefault();
+    }
+    long[] evictions = usage.selectEvictions(scanMap(), defaultMap, maxSize,
+        TimeUnit.DAYS.toMillis(retentionDays));
+    int removed = referenceMap.removeAll(evictions);
+    for (long key : evictions) {
+      usage.remove(key);
+    }
+    return removed;
+  }
+
   @Override
   public final boolean updateLastSearch(final Solver copySolver) {
     return updateLastSearch(copySolver, copySolver.lastSearchBoard());
@@ -358,39 +686,55 @@ public class ReferenceLog implements Reference {
     }
 
     if (solverReady || loadSolver(copySolver)) {
-      ReferenceBoard advBoard = new ReferenceBoard(copySolver.lastSearchBoard());
-      int group = ReferenceConstants.getReferenceGroup(board.getZero1d());
+      return withBoardLocks(board, () -> updateLastSearchLocked(copySolver, board));
+    }
+    return false;
+  }
 
-      if (referenceMap.containsKey(advBoard)) {
-        ReferenceMoves advMoves = referenceMap.get(advBoard);
-        if (!advMoves.isCompleted()) {
-          System.out.println("System update, please wait.");
-          advMoves.updateSolutions(advBoard, localSolver);
-          add2file(advBoard, advMoves);
-        }
-        copySolver.clearNewReference();
-        return true;
-      }
+  /**
+   * Verify the reference board of the last search of the given solver, the caller must
+   * hold the lock stripes of the given board.
+   *
+   * @param copySolver the given solver of the last search
+   * @param board the given board of the last search
+   * @return boolean value represents the board is a reference board
+   */
+  private boolean updateLastSearchLocked(final Solver copySolver, final Board board) {
+    ReferenceBoard advBoard = new ReferenceBoard(copySolver.lastSearchBoard());
+    int group = ReferenceConstants.getReferenceGroup(board.getZero1d());
 
-      ReferenceBoard advBoardMirror = null;
-      if (group == 0 || group == 2) {
-        advBoardMirror = new ReferenceBoard(new Board(board.getTilesMirror()));
+    if (referenceMap.containsKey(advBoard)) {
+      ReferenceMoves advMoves = referenceMap.get(advBoard);
+      if (!advMoves.isCompleted()) {
+        scheduleUpdate(advBoard, advMoves);
       }
+      copySolver.clearNewReference();
+      return true;
+    }
 
-      if (referenceMap.containsKey(advBoardMirror)) {
-        ReferenceMoves advMoves = referenceMap.get(advBoardMirror);
-        if (!advMoves.isCompleted()) {
-          System.out.println("System update, please wait.");
-          advMoves.updateSolutions(advBoardMirror, localSolver);
-          add2file(advBoardMirror, advMoves);
-        }
-        copySolver.clearNewReference();
-        return true;
+    ReferenceBoard advBoardMirror = null;
+    if (group == 0 || group == 2) {
+      advBoardMirror = new ReferenceBoard(new Board(board.getTilesMirror()));
+    }
+
+    if (referenceMap.containsKey(advBoardMirror)) {
+      ReferenceMoves advMoves = referenceMap.get(advBoardMirror);
+      if (!advMoves.isCompleted()) {
+        scheduleUpdate(advBoardMirror, advMoves);
       }
+      copySolver.clearNewReference();
+      return true;
     }
     return false;
   }
 
+  /**
+   * Verify all reference boards not completed with the pool of solvers.  The concurrent
+   * collection scans the copy in use.  The reference boards are queued for background
+   * maintenance if available, otherwise solved in parallel and wait until all completed.
+   * Each reference board is stored and saved with the lock stripe of its canonical key
+   * once completed.
+   */
   @Override
   public final void updatePending() {
     if (referenceMap == null) {
@@ -400,14 +744,33 @@ public class ReferenceLog implements Reference {
       return;
     }
 
-    for (Entry<ReferenceBoard, ReferenceMoves> entry : referenceMap.entrySet()) {
-      ReferenceMoves advMoves = entry.getValue();
-      if (advMoves.isCompleted()) {
+    ReferenceTable pendingMap = scanMap();
+    List<CompletableFuture<Void>> updates = new ArrayList<CompletableFuture<Void>>();
+    for (int slot = 0; slot < pendingMap.capacity(); slot++) {
+      if (!pendingMap.isOccupied(slot) || pendingMap.getMoves(slot).isCompleted()) {
         continue;
       }
-      ReferenceBoard advBoard = entry.getKey();
-      advMoves.updateSolutions(advBoard, localSolver);
-      add2file(advBoard, advMoves);
+      final ReferenceBoard advBoard = pendingMap.getBoard(slot);
+      if (maintenance != null) {
+        maintenance.schedule(advBoard);
+        continue;
+      }
+      ReferenceMoves current = referenceMap.get(advBoard);
+      if (current == null || current.isCompleted()) {
+        continue;
+      }
+      final ReferenceMoves advMoves = new ReferenceMoves(current.getMoves(),
+          current.getInitMoves(), current.getStatus());
+      updates.add(getSolverPool().complete(advBoard, advMoves).thenRun(
+          () -> storeCompleted(advBoard, advMoves)));
+    }
+
+    for (CompletableFuture<Void> update : updates) {
+      try {
+        update.join();
+      } catch (CompletionException ex) {
+        System.err.println("System error : reference update - " + ex.getCause());
+      }
     }
   }
 
@@ -418,12 +781,32 @@ public class ReferenceLog implements Reference {
     }
   }
 
+  /**
+   * Returns the number of records waiting in the queue of the writer thread.
+   *
+   * @return integer of number of records waiting to write
+   */
+  public final int getWriteQueueDepth() {
+    return storage.getQueueDepth();
+  }
+
   @Override
   public final void printStatus() {
     System.out.println("Data file size: " + (new File(FILEPATH).length())
         + " saved at " + new Date((new File(FILEPATH)).lastModified()));
     System.out.println("Boards takes over " + cutoffSetting + "s will store in file.");
-    System.out.println(referenceMap.size() + " of boards stored in data file.");
+    if (sharedMode) {
+      System.out.println(referenceMap.size() + " of boards stored in shared file "
+          + SHARED_FILEPATH + ", " + referenceMap.capacity() + " slots.");
+    } else {
+      System.out.println(referenceMap.size() + " of boards stored in data file, "
+          + storage.getDeltaRecords() + " records in delta log, "
+          + storage.getQueueDepth() + " waiting to write.");
+    }
+    if (maintenance != null) {
+      System.out.println(maintenance);
+    }
+    System.out.println(usage);
     System.out.println("The cutoff limit with buffer: " + cutoffLimit + "\n");
   }
 
@@ -435,10 +818,12 @@ public class ReferenceLog implements Reference {
     if (defaultMap == null) {
       loadDefault();
     }
+    ReferenceTable printMap = scanMap();
 
-    for (Entry<ReferenceBoard, ReferenceMoves> entry : referenceMap.entrySet()) {
-      if (!defaultMap.containsKey(entry.getKey())) {
-        byte[] moves = entry.getValue().getMoves();
+    for (int slot = 0; slot < printMap.capacity(); slot++) {
+      if (printMap.isOccupied(slot) && !defaultMap.containsKey(printMap.getKey(slot))) {
+        ReferenceMoves advMoves = printMap.getMoves(slot);
+        byte[] moves = advMoves.getMoves();
         for (byte move : moves) {
           if (move < min) {
             min = move;
@@ -447,8 +832,8 @@ public class ReferenceLog implements Reference {
             max = move;
           }
         }
-        System.out.println(entry.getKey());
-        System.out.println(entry.getValue());
+        System.out.println(printMap.getBoard(slot));
+        System.out.println(advMoves);
       }
     }
 
@@ -0,0 +1,201 @@
+package mwong.myprojects.fifteenpuzzle.solution.ai;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ReferenceMaintenance is the background executor of reference collection maintenance.
+ * A new reference board needs up to 4 extra searches of pattern database 7-8 to complete
+ * its moves and partial solutions.  The searches run on low priority threads, the
+ * user search is not delayed.  One reference board per solver of ReferenceSolverPool
+ * is in progress.  A reference board is queued once until it starts.
+ *
+ * <p>Dependencies : ReferenceBoard.java, ReferenceLog.java, ReferenceProperties.java,
+ *                   ReferenceTable.java
+ *
+ * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
+ *            target="_blank">Meisze Wong (linkedin)</a>
+ * @see <a href="http://www.github.com/mwong510ca/15PuzzleOptimalSolver/"
+ *         target="_blank">GitHub (full project)</a>
+ */
+public final class ReferenceMaintenance {
+  /** The seconds to keep the idle maintenance threads. */
+  private static final long IDLE_SECONDS = 60;
+  /** Nano seconds in one millisecond. */
+  private static final long NANO_MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  /** The ReferenceLog of the reference collection. */
+  private final ReferenceLog owner;
+  /** The executor of low priority threads, one per solver of reference updates. */
+  private final ThreadPoolExecutor executor;
+  /** The canonical keys of reference boards in queue. */
+  private final Set<Long> queued = ConcurrentHashMap.newKeySet();
+  /** The number of reference boards queued. */
+  private final AtomicLong scheduled = new AtomicLong();
+  /** The number of reference boards already in queue. */
+  private final AtomicLong duplicates = new AtomicLong();
+  /** The number of reference boards completed. */
+  private final AtomicLong completed = new AtomicLong();
+  /** The number of reference boards completed by another update before it starts. */
+  private final AtomicLong skipped = new AtomicLong();
+  /** The number of reference boards failed. */
+  private final AtomicLong failed = new AtomicLong();
+  /** The total time of maintenance in milliseconds. */
+  private final AtomicLong busyMillis = new AtomicLong();
+
+  /**
+   * Initializes ReferenceMaintenance object of the given ReferenceLog.
+   *
+   * @param owner the ReferenceLog of the reference collection
+   */
+  ReferenceMaintenance(final ReferenceLog owner) {
+    this.owner = owner;
+    final int threads = ReferenceProperties.getUpdateThreads();
+    final AtomicInteger count = new AtomicInteger();
+    executor = new ThreadPoolExecutor(threads, threads, IDLE_SECONDS, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(), runnable -> {
+          Thread thread = new Thread(runnable, "reference-maintenance-"
+              + count.incrementAndGet());
+          thread.setDaemon(true);
+          thread.setPriority(Thread.MIN_PRIORITY);
+          return thread;
+        });
+    executor.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Queue the given reference board to complete its moves and partial solutions.
+   *
+   * @param advBoard the given ReferenceBoard object
+   * @return boolean value represents the reference board is queued, false if already
+   *     in queue
+   */
+  boolean schedule(final ReferenceBoard advBoard) {
+    final Long key = ReferenceTable.keyOf(advBoard);
+    if (!queued.add(key)) {
+      duplicates.incrementAndGet();
+      return false;
+    }
+    scheduled.incrementAndGet();
+    executor.execute(() -> {
+      queued.remove(key);
+      long start = System.nanoTime();
+      try {
+        if (owner.completeReference(advBoard)) {
+          completed.incrementAndGet();
+        } else {
+          skipped.incrementAndGet();
+        }
+      } catch (RuntimeException ex) {
+        failed.incrementAndGet();
+        System.err.println("System error : reference maintenance - " + ex);
+      } finally {
+        busyMillis.addAndGet((System.nanoTime() - start) / NANO_MS);
+      }
+    });
+    return true;
+  }
+
+  /**
+   * Returns the number of reference boards waiting in queue.
+   *
+   * @return integer of number of reference boards waiting in queue
+   */
+  public int getQueued() {
+    return queued.size();
+  }
+
+  /**
+   * Returns the number of reference boards queued.
+   *
+   * @return long value of number of reference boards queued
+   */
+  public long getScheduled() {
+    return scheduled.get();
+  }
+
+  /**
+   * Returns the number of requests of reference boards already in queue.
+   *
+   * @return long value of number of requests of reference boards already in queue
+   */
+  public long getDuplicates() {
+    return duplicates.get();
+  }
+
+  /**
+   * Returns the number of reference boards completed.
+   *
+   * @return long value of number of reference boards completed
+   */
+  public long getCompleted() {
+    return completed.get();
+  }
+
+  /**
+   * Returns the number of reference boards completed by another update before it starts.
+   *
+   * @return long value of number of reference boards skipped
+   */
+  public long getSkipped() {
+    return skipped.get();
+  }
+
+  /**
+   * Returns the number of reference boards failed.
+   *
+   * @return long value of number of reference boards failed
+   */
+  public long getFailed() {
+    return failed.get();
+  }
+
+  /**
+   * Returns the total time of maintenance in milliseconds.
+   *
+   * @return long value of total time of maintenance in milliseconds
+   */
+  public long getBusyMillis() {
+    return busyMillis.get();
+  }
+
+  /**
+   * Returns the boolean value represents no reference board is in queue or in progress.
+   *
+   * @return boolean value represents the maintenance is idle
+   */
+  public boolean isIdle() {
+    return executor.getActiveCount() == 0 && executor.getQueue().isEmpty();
+  }
+
+  /**
+   * Wait until all reference boards in queue are completed or the given timeout.
+   *
+   * @param timeoutMillis the timeout in milliseconds
+   * @return boolean value represents the maintenance is idle
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public boolean awaitIdle(final long timeoutMillis) throws InterruptedException {
+    final long pause = 10;
+    long deadline = System.currentTimeMillis() + timeoutMillis;
+    while (!isIdle()) {
+      if (System.currentTimeMillis() >= deadline) {
+        return false;
+      }
+      Thread.sleep(pause);
+    }
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return "Reference maintenance : " + getQueued() + " queued, " + getCompleted()
+        + " completed, " + getSkipped() + " skipped, " + getDuplicates() + " duplicates, "
+        + getFailed() + " failed, " + getBusyMillis() + "ms";
+  }
+}
@@ -0,0 +1,115 @@
+package mwong.myprojects.fifteenpuzzle.solution.ai;
+
+import java.io.File;
+import java.io.IOException;
+
+import mwong.myprojects.fifteenpuzzle.FileProperties;
+import mwong.myprojects.fifteenpuzzle.server.ReferenceServerProperties;
+
+/**
+ * ReferenceMerger is the merge tool of the reference collections learned on multiple
+ * hosts.  Each collection file is memory mapped and its records are replayed with the
+ * delta logs, the same as the collection is loaded.  The record of a reference board
+ * keeps the most moves of each lookup with its partial solution and the verified status,
+ * and a reference board and its mirror reflection are merged into one record as adding
+ * a board.  The merged collection is written in one pass as a compacted snapshot with
+ * the lowest cutoff setting of the input files.
+ *
+ * <p>The input files are not modified.  The delta logs of the output file are cleared.
+ *
+ * <p>Dependencies : FileProperties.java, ReferenceServerProperties.java,
+ *                   ReferenceStorage.java, ReferenceTable.java
+ *
+ * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
+ *            target="_blank">Meisze Wong (linkedin)</a>
+ * @see <a href="http://www.github.com/mwong510ca/15PuzzleOptimalSolver/"
+ *         target="_blank">GitHub (full project)</a>
+ */
+public final class ReferenceMerger {
+  /** The ReferenceTable of merged reference collection. */
+  private final ReferenceTable mergedMap = new ReferenceTable();
+  /** The lowest cutoff setting of the input files. */
+  private int cutoffSetting = Integer.MAX_VALUE;
+  /** The number of input files merged. */
+  private int filesMerged;
+
+  /**
+   * Merge the collection file of the given file path and its delta logs.
+   *
+   * @param filepath the file path of collection file
+   * @throws IOException any IOException, the collection file not exists or data error
+   */
+  void merge(final String filepath) throws IOException {
+    int before = mergedMap.size();
+    int cutoff = ReferenceStorage.mergeFile(filepath,
+        FileProperties.getFilepathReferenceDelta(filepath), mergedMap);
+    cutoffSetting = Math.min(cutoffSetting, cutoff);
+    filesMerged++;
+    System.out.println(filepath + " : cutoff " + cutoff + "s, "
+        + (mergedMap.size() - before) + " new boards, " + mergedMap.size() + " total.");
+  }
+
+  /**
+   * Write the merged collection to the given file path as a compacted snapshot, and
+   * clear its delta logs.
+   *
+   * @param filepath the file path of output collection file
+   * @throws IOException any IOException
+   */
+  void write(final String filepath) throws IOException {
+    if (filesMerged == 0) {
+      throw new IOException("No collection file merged");
+    }
+    ReferenceStorage storage = new ReferenceStorage(filepath,
+        FileProperties.getFilepathReferenceDelta(filepath));
+    try {
+      storage.saveSnapshot(mergedMap, cutoffSetting);
+    } finally {
+      storage.close();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "Reference merge : " + filesMerged + " files, " + mergedMap.size()
+        + " boards, cutoff " + cutoffSetting + "s";
+  }
+
+  /**
+   * Merge the given collection files into the given output file.  The remote server
+   * must not be running if the output is the reference collection in use.
+   *
+   * @param args the output file path follow by the input file paths
+   */
+  public static void main(final String[] args) {
+    if (args.length < 2) {
+      System.out.println("Usage : ReferenceMerger output_file input_file [input_file ...]");
+      System.exit(1);
+    }
+    File output = new File(args[0]).getAbsoluteFile();
+    if (output.equals(new File(FileProperties.getFilepathReference()).getAbsoluteFile())
+        && ReferenceServerProperties.isPortInUse()) {
+      System.out.println("Remote server is running, system exit.");
+      System.exit(0);
+    }
+
+    ReferenceMerger merger = new ReferenceMerger();
+    for (int i = 1; i < args.length; i++) {
+      try {
+        merger.merge(args[i]);
+      } catch (IOException ex) {
+        System.err.println("System error : unable to merge " + args[i] + " - "
+            + ex.getMessage());
+      }
+    }
+    try {
+      merger.write(args[0]);
+    } catch (IOException ex) {
+      System.err.println("System error : unable to save file " + args[0] + " - "
+          + ex.getMessage());
+      System.exit(1);
+    }
+    System.out.println(merger);
+    System.exit(0);
+  }
+}
@@ -1,5 +1,11 @@
 package mwong.myprojects.fifteenpuzzle.solution.ai;
 
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
 import java.io.Serializable;
 import java.util.Arrays;
 
@@ -10,6 +16,9 @@ import mwong.myprojects.fifteenpuzzle.solution.SolverPdb78;
  * ReferenceMoves is the data type that stored number of moves or temporary estimate
  * and partial solution associated with ReferenceBoard object for reference collection.
  *
+ * <p>Serialization use the Externalizable record of moves, partial solutions and status,
+ * 13 bytes per record.
+ *
  * <p>Dependencies : Board.java, SolverPdb78.java
  *
  * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
@@ -28,6 +37,9 @@ public final class ReferenceMoves implements Serializable {
   /** Move value from 0 to 3, the bit size is 2, move bits is 0011(3).
    *  @see mwong.myprojects.fifteenpuzzle.puzzle.Board.Move */
   private static final int MOVE_BITS = 0x03;
+  /** The byte value of mirror flip group, lookup 1 and 3 swap in mirror reflection.
+   *  @see ReferenceConstants#MIRROR_FLIP_GROUP */
+  private static final byte MIRROR_FLIP_GROUP = ReferenceConstants.getMirrorFlipGroup();
 
   /** The byte array of status bit per group lookup.
    *  @see ReferenceConstants#STATUS_BIT */
@@ -108,6 +120,55 @@ public final class ReferenceMoves implements Serializable {
     }
   }
 
+  /**
+   * While ReferenceMoves object already exists, update with the given values of its
+   * mirror reflection board.  Lookup 1 and 3 are swapped, and the partial solutions are
+   * reflected.
+   *
+   * @param steps the new set of moves of the mirror reflection board
+   * @param updateMoves the new set of updateMoves of the mirror reflection board
+   * @param status2 the given status of the mirror reflection board
+   */
+  public void updateMirrorMoves(final byte[] steps, final short[] updateMoves,
+      final byte status2) {
+    byte[] mirrorSteps = new byte[NUM_LOOKUPS];
+    short[] mirrorInitMoves = new short[NUM_LOOKUPS];
+    byte mirrorStatus = 0;
+    for (int lookup = 0; lookup < NUM_LOOKUPS; lookup++) {
+      int flip = lookup;
+      if (lookup == 1) {
+        flip = MIRROR_FLIP_GROUP;
+      } else if (lookup == MIRROR_FLIP_GROUP) {
+        flip = 1;
+      }
+      mirrorSteps[flip] = steps[lookup];
+      mirrorInitMoves[flip] = mirrorValue(updateMoves[lookup]);
+      if ((status2 & STATUS_BIT[lookup]) != 0) {
+        mirrorStatus |= STATUS_BIT[flip];
+      }
+    }
+    updateMoves(mirrorSteps, mirrorInitMoves, mirrorStatus);
+  }
+
+  /**
+   * Returns the short value of the mirror reflection of the given compressed partial
+   * moves, 0 if no partial solution.
+   *
+   * @param value the short value of compressed partial moves
+   * @return short value of compressed partial moves of mirror reflection
+   */
+  private static short mirrorValue(final short value) {
+    if (value == 0) {
+      return 0;
+    }
+    int mirror = 0;
+    for (int i = 0; i < NUM_PARTIAL_MOVES; i++) {
+      int dir = (value >>> (2 * i)) & MOVE_BITS;
+      mirror |= Board.Move.values()[dir].mirrorDirection().getValue() << (2 * i);
+    }
+    return (short) mirror;
+  }
+
   /**
    * Update moves and partial solution at the given lookup key.
    *
@@ -132,19 +193,36 @@ public final class ReferenceMoves implements Serializable {
    */
   public void updateSolutions(final ReferenceBoard advBoard, final SolverPdb78 solver) {
     assert solver != null : "Require solver is null";
+    Board[] boards = getPendingBoards(advBoard);
+    for (byte lookup = 0; lookup < NUM_LOOKUPS; lookup++) {
+      if (boards[lookup] != null) {
+        solver.findOptimalPath(boards[lookup], moves[lookup]);
+        assert solver.solution() != null : "No solution from updateSolutions function";
+        updateSolution(lookup, solver.moves(), solver.solution(), false);
+      }
+    }
+    status = STATUS_COMPLETED;
+  }
+
+  /**
+   * Returns the Board array of the given reference board at each lookup position not
+   * verified, null if verified.  Each board is an independent search, the searches can
+   * run in parallel.
+   *
+   * @param advBoard the given board
+   * @return Board array of lookup positions not verified
+   */
+  public Board[] getPendingBoards(final ReferenceBoard advBoard) {
+    Board[] boards = new Board[NUM_LOOKUPS];
     byte group = advBoard.getGroup();
     byte[] blocks = advBoard.getTiles();
     for (int lookup = 0; lookup < NUM_LOOKUPS; lookup++) {
       if ((status & STATUS_BIT[lookup]) == 0) {
-        Board board = new Board(blocks);
-        solver.findOptimalPath(board, moves[lookup]);
-        assert solver.solution() != null : "No solution from updateSolutions function";
-        moves[lookup] = solver.moves();
-        initMoves[lookup] = initialMoves2value(solver.solution(), false);
+        boards[lookup] = new Board(blocks);
       }
       blocks = shiftOne(blocks, group, lookup);
     }
-    status = STATUS_COMPLETED;
+    return boards;
   }
 
   /**
@@ -292,4 +370,85 @@ public final class ReferenceMoves implements Serializable {
   public byte getStatus() {
     return status;
   }
+
+  /**
+   * Returns the Record of this moves to serialize in place of this object.
+   *
+   * @return Record of this moves
+   */
+  private Object writeReplace() {
+    return new Record(moves, initMoves, status);
+  }
+
+  /**
+   * ReferenceMoves is always serialized as Record.
+   *
+   * @param in the ObjectInputStream
+   * @throws InvalidObjectException always
+   */
+  private void readObject(final ObjectInputStream in) throws InvalidObjectException {
+    throw new InvalidObjectException("Record required");
+  }
+
+  /**
+   * Record is the Externalizable serialization proxy of ReferenceMoves.
+   */
+  private static final class Record implements Externalizable {
+    private static final long serialVersionUID = 17195273127L;
+    /** The byte array of number of solution moves per group lookup. */
+    private byte[] moves;
+    /** The short array of compress move code of partial solution per group lookup. */
+    private short[] initMoves;
+    /** The status represents the group lookup has been reviewed with partial solution. */
+    private byte status;
+
+    /**
+     * Initializes an empty Record object, use by deserialization only.
+     */
+    public Record() {
+      // read by readExternal
+    }
+
+    /**
+     * Initializes Record object with the given moves, partial solutions and status.
+     *
+     * @param moves the byte array of number of solution moves
+     * @param initMoves the short array of partial solutions
+     * @param status the status of group lookups
+     */
+    Record(final byte[] moves, final short[] initMoves, final byte status) {
+      this.moves = moves;
+      this.initMoves = initMoves;
+      this.status = status;
+    }
+
+    @Override
+    public void writeExternal(final ObjectOutput out) throws IOException {
+      out.write(moves, 0, NUM_LOOKUPS);
+      for (int i = 0; i < NUM_LOOKUPS; i++) {
+        out.writeShort(initMoves[i]);
+      }
+      out.writeByte(status);
+    }
+
+    @Override
+    public void readExternal(final ObjectInput in) throws IOException {
+      moves = new byte[NUM_LOOKUPS];
+      in.readFully(moves);
+      initMoves = new short[NUM_LOOKUPS];
+      for (int i = 0; i < NUM_LOOKUPS; i++) {
+        initMoves[i] = in.readShort();
+      }
+      status = in.readByte();
+    }
+
+    /**
+     * Returns the ReferenceMoves restore from this record.
+     *
+     * @return ReferenceMoves restore from this record
+     */
+    private Object readResolve() {
+      return new ReferenceMoves(moves, initMoves, status);
+    }
+  }
 }
@@ -53,6 +53,42 @@ public final class ReferenceProperties {
 
   /** The cutoff buffer limit in use. */
   private static int cutoffBuffer;
+  /** The fsync policy of reference collection writer. */
+  private static FsyncPolicy fsyncPolicy = FsyncPolicy.BATCH;
+  /** The maximum milliseconds the writer waits to fill a batch. */
+  private static int flushInterval = 200;
+  /** The maximum number of records per batch of the writer. */
+  private static int flushRecords = 256;
+  /** The capacity of the writer queue. */
+  private static int writeQueueSize = 4096;
+  /** The boolean represents standalone applications share a memory mapped collection. */
+  private static boolean sharedCollection = false;
+  /** The number of slots of a new shared collection file, power of 2. */
+  private static int sharedCapacity = 65536;
+  /** The number of latest changes kept for the change feed of replicas, power of 2. */
+  private static int journalSize = 4096;
+  /** The maximum number of reference boards kept by compaction, 0 if unlimited. */
+  private static int maxSize = 0;
+  /** The number of days a reference board kept without use, 0 if unlimited. */
+  private static int retentionDays = 0;
+  /** The milliseconds of call timeout of the remote reference collection. */
+  private static int remoteTimeout = 2000;
+  /** The number of consecutive failures to open the circuit of remote connection. */
+  private static int remoteFailures = 3;
+  /** The milliseconds between reconnections while the circuit is open. */
+  private static int remoteRetry = 5000;
+  /** The capacity of the write-behind queue of new boards while server unavailable. */
+  private static int remoteQueueSize = 1024;
+  /** The number of solvers of reference collection updates, default number of cores. */
+  private static int updateThreads = Runtime.getRuntime().availableProcessors();
+  /** The percentage of one core the reference learner may use. */
+  private static int learnerCpuBudget = 25;
+  /** The load average per core in percentage below which the host is idle. */
+  private static int learnerIdleLoad = 50;
+  /** The maximum number of moves of a random walk from a reference board. */
+  private static int learnerWalkMoves = 12;
+  /** The timeout limit in seconds of a candidate board of the reference learner. */
+  private static int learnerTimeout = 60;
 
   static {
     final int defaultCutoff = 5;
@@ -76,6 +112,101 @@ public final class ReferenceProperties {
             + " restore to system default 5 (95%).");
       }
     }
+
+    if (PropertiesCache.getInstance().containsKey("referenceFsync")) {
+      try {
+        fsyncPolicy = FsyncPolicy.valueOf(PropertiesCache.getInstance().getProperty(
+            "referenceFsync").trim().toUpperCase());
+      } catch (IllegalArgumentException ex) {
+        System.err.println("Invalid reference fsync setting, allow none, batch or periodic"
+            + " only. Restore to system default batch.");
+      }
+    }
+    final int maxInterval = 10000;
+    flushInterval = loadInteger("referenceFlushInterval", flushInterval, 1, maxInterval);
+    final int maxRecords = 65536;
+    flushRecords = loadInteger("referenceFlushRecords", flushRecords, 1, maxRecords);
+    final int maxQueueSize = 1 << 20;
+    writeQueueSize = loadInteger("referenceWriteQueueSize", writeQueueSize, 1, maxQueueSize);
+
+    if (PropertiesCache.getInstance().containsKey("referenceShared")) {
+      sharedCollection = Boolean.parseBoolean(PropertiesCache.getInstance().getProperty(
+          "referenceShared").trim());
+    }
+    final int minCapacity = 1024;
+    final int maxCapacity = 1 << 24;
+    int capacity = loadInteger("referenceSharedCapacity", sharedCapacity, minCapacity,
+        maxCapacity);
+    if (Integer.bitCount(capacity) == 1) {
+      sharedCapacity = capacity;
+    } else {
+      System.err.println("Invalid referenceSharedCapacity setting " + capacity
+          + ", must be power of 2. Restore to system default " + sharedCapacity + ".");
+    }
+    final int minJournal = 64;
+    final int maxJournal = 1 << 20;
+    int journal = loadInteger("referenceJournalSize", journalSize, minJournal, maxJournal);
+    if (Integer.bitCount(journal) == 1) {
+      journalSize = journal;
+    } else {
+      System.err.println("Invalid referenceJournalSize setting " + journal
+          + ", must be power of 2. Restore to system default " + journalSize + ".");
+    }
+    final int maxEntries = 1 << 24;
+    maxSize = loadInteger("referenceMaxSize", maxSize, 0, maxEntries);
+    final int maxDays = 3650;
+    retentionDays = loadInteger("referenceRetentionDays", retentionDays, 0, maxDays);
+    final int minTimeout = 10;
+    final int maxTimeout = 60000;
+    remoteTimeout = loadInteger("referenceRemoteTimeout", remoteTimeout, minTimeout,
+        maxTimeout);
+    final int maxFailures = 100;
+    remoteFailures = loadInteger("referenceRemoteFailures", remoteFailures, 1, maxFailures);
+    final int minRetry = 100;
+    final int maxRetry = 3600000;
+    remoteRetry = loadInteger("referenceRemoteRetry", remoteRetry, minRetry, maxRetry);
+    final int maxQueue = 1 << 20;
+    remoteQueueSize = loadInteger("referenceRemoteQueueSize", remoteQueueSize, 1, maxQueue);
+    final int maxThreads = 64;
+    updateThreads = loadInteger("referenceUpdateThreads", Math.min(updateThreads, maxThreads),
+        1, maxThreads);
+    final int maxPercent = 100;
+    learnerCpuBudget = loadInteger("learnerCpuBudget", learnerCpuBudget, 1, maxPercent);
+    learnerIdleLoad = loadInteger("learnerIdleLoad", learnerIdleLoad, 1, maxPercent);
+    final int minWalk = 2;
+    final int maxWalk = 40;
+    learnerWalkMoves = loadInteger("learnerWalkMoves", learnerWalkMoves, minWalk, maxWalk);
+    final int maxLearnerTimeout = 300;
+    learnerTimeout = loadInteger("learnerTimeout", learnerTimeout, 1, maxLearnerTimeout);
+  }
+
+  /**
+   * Returns the integer value of the given property key within the given range,
+   * otherwise returns the given default value.
+   *
+   * @param key the String of properties key
+   * @param defaultValue the default value
+   * @param min the minimum value
+   * @param max the maximum value
+   * @return integer value of the given property key
+   */
+  private static int loadInteger(final String key, final int defaultValue, final int min,
+      final int max) {
+    if (!PropertiesCache.getInstance().containsKey(key)) {
+      return defaultValue;
+    }
+    try {
+      int value = Integer.parseInt(PropertiesCache.getInstance().getProperty(key).trim());
+      if (value >= min && value <= max) {
+        return value;
+      }
+      System.err.println("Invalid " + key + " setting " + value + ", allow minimum " + min
+          + " to maximum " + max + " only. Restore to system default " + defaultValue + ".");
+    } catch (NumberFormatException ex) {
+      System.err.println("Configuration " + key + " is not an iteger,"
+          + " restore to system default " + defaultValue + ".");
+    }
+    return defaultValue;
   }
 
   /** private constructor, no instance. */
@@ -101,6 +232,170 @@ public final class ReferenceProperties {
     return cutoffBuffer;
   }
 
+  /**
+   * Returns the fsync policy of reference collection writer.
+   *
+   * @return FsyncPolicy of reference collection writer
+   */
+  public static FsyncPolicy getFsyncPolicy() {
+    return fsyncPolicy;
+  }
+
+  /**
+   * Returns the maximum milliseconds the writer waits to fill a batch.
+   *
+   * @return integer of maximum milliseconds the writer waits to fill a batch
+   */
+  public static int getFlushInterval() {
+    return flushInterval;
+  }
+
+  /**
+   * Returns the maximum number of records per batch of the writer.
+   *
+   * @return integer of maximum number of records per batch
+   */
+  public static int getFlushRecords() {
+    return flushRecords;
+  }
+
+  /**
+   * Returns the capacity of the writer queue.
+   *
+   * @return integer of capacity of the writer queue
+   */
+  public static int getWriteQueueSize() {
+    return writeQueueSize;
+  }
+
+  /**
+   * Returns the boolean represents standalone applications share a memory mapped
+   * reference collection.
+   *
+   * @return boolean represents the shared reference collection is enabled
+   */
+  public static boolean isSharedCollection() {
+    return sharedCollection;
+  }
+
+  /**
+   * Returns the number of slots of a new shared reference collection file.
+   *
+   * @return integer of number of slots of a new shared collection file
+   */
+  public static int getSharedCapacity() {
+    return sharedCapacity;
+  }
+
+  /**
+   * Returns the number of latest changes kept for the change feed of replicas.
+   *
+   * @return integer of number of latest changes kept for the change feed
+   */
+  public static int getJournalSize() {
+    return journalSize;
+  }
+
+  /**
+   * Returns the maximum number of reference boards kept by compaction, 0 if unlimited.
+   *
+   * @return integer of maximum number of reference boards
+   */
+  public static int getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Returns the number of days a reference board kept without use, 0 if unlimited.
+   *
+   * @return integer of number of days a reference board kept without use
+   */
+  public static int getRetentionDays() {
+    return retentionDays;
+  }
+
+  /**
+   * Returns the milliseconds of call timeout of the remote reference collection.
+   *
+   * @return integer of milliseconds of call timeout
+   */
+  public static int getRemoteTimeout() {
+    return remoteTimeout;
+  }
+
+  /**
+   * Returns the number of consecutive failures to open the circuit of remote connection.
+   *
+   * @return integer of number of consecutive failures to open the circuit
+   */
+  public static int getRemoteFailures() {
+    return remoteFailures;
+  }
+
+  /**
+   * Returns the milliseconds between reconnections while the circuit is open.
+   *
+   * @return integer of milliseconds between reconnections
+   */
+  public static int getRemoteRetry() {
+    return remoteRetry;
+  }
+
+  /**
+   * Returns the capacity of the write-behind queue of new boards while the remote server
+   * is unavailable.
+   *
+   * @return integer of capacity of the write-behind queue
+   */
+  public static int getRemoteQueueSize() {
+    return remoteQueueSize;
+  }
+
+  /**
+   * Returns the number of solvers of reference collection updates.
+   *
+   * @return integer of number of solvers of reference collection updates
+   */
+  public static int getUpdateThreads() {
+    return updateThreads;
+  }
+
+  /**
+   * Returns the percentage of one core the reference learner may use.
+   *
+   * @return integer of percentage of one core the reference learner may use
+   */
+  public static int getLearnerCpuBudget() {
+    return learnerCpuBudget;
+  }
+
+  /**
+   * Returns the load average per core in percentage below which the host is idle.
+   *
+   * @return integer of load average per core in percentage of an idle host
+   */
+  public static int getLearnerIdleLoad() {
+    return learnerIdleLoad;
+  }
+
+  /**
+   * Returns the maximum number of moves of a random walk from a reference board.
+   *
+   * @return integer of maximum number of moves of a random walk
+   */
+  public static int getLearnerWalkMoves() {
+    return learnerWalkMoves;
+  }
+
+  /**
+   * Returns the timeout limit in seconds of a candidate board of the reference learner.
+   *
+   * @return integer of timeout limit in seconds of a candidate board
+   */
+  public static int getLearnerTimeout() {
+    return learnerTimeout;
+  }
+
   /**
    * Returns the arrays of selected default reference boards.
    *
@@ -109,4 +404,20 @@ public final class ReferenceProperties {
   public static byte[][][] getDefaultBoards() {
     return DEFAULT_BOARDS;
   }
+
+  /**
+   * FsyncPolicy is the enum type of when the reference collection writer force the
+   * delta log to storage device.
+   *
+   * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
+   *            target="_blank">Meisze Wong (linkedin)</a>
+   */
+  public enum FsyncPolicy {
+    /** Never force, leave to operating system. */
+    NONE,
+    /** Force after every batch. */
+    BATCH,
+    /** Force at most once per second. */
+    PERIODIC;
+  }
 }
@@ -1,11 +1,6 @@
 package mwong.myprojects.fifteenpuzzle.solution.ai;
 
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
-import java.util.Map.Entry;
 
 import mwong.myprojects.fifteenpuzzle.puzzle.Board;
 import mwong.myprojects.fifteenpuzzle.server.ReferenceServerProperties;
@@ -20,7 +15,8 @@ import mwong.myprojects.fifteenpuzzle.solution.SolverBuilder;
  * reset the collection, etc.
  *
  * <p>Dependencies : FileProperties.java, Board.java, HeuristicOptions.java,
- *                   Solver.java, SolverPdb78.java, SolverBuilder.java
+ *                   SharedReferenceTable.java, Solver.java, SolverPdb78.java,
+ *                   SolverBuilder.java
  *
  * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
  *            target="_blank">Meisze Wong (linkedin)</a>
@@ -43,7 +39,7 @@ public final class ReferenceRecorder extends ReferenceLog {
    * @param reserved represents the remote port is not in used and reserve for recorder
    */
   ReferenceRecorder(final boolean reserved) {
-    super(ConnectionType.STANDALONE);
+    super(ConnectionType.STANDALONE, false);
     if (!reserved && ReferenceServerProperties.isPortInUse()) {
       System.out.println("Warning: Port " + ReferenceServerProperties.getRemotePort()
           + " in use, not recommand to modify reference collection.");
@@ -147,8 +143,9 @@ public final class ReferenceRecorder extends ReferenceLog {
         advMoves.updateSolution(lookup, moves, solution, false);
       }
       if (bypass && !advMoves.isCompleted()) {
-         advMoves.updateSolutions(advBoard, localSolver);
+        updateSolutions(advBoard, advMoves);
       }
+      referenceMap.put(advBoard, advMoves);
       add2file(advBoard, advMoves);
       return true;
     }
@@ -167,8 +164,9 @@ public final class ReferenceRecorder extends ReferenceLog {
       }
       advMoves.updateSolution(lookup, moves, solution, true);
       if (bypass && !advMoves.isCompleted()) {
-        advMoves.updateSolutions(advBoardMirror, localSolver);
+        updateSolutions(advBoardMirror, advMoves);
       }
+      referenceMap.put(advBoardMirror, advMoves);
       add2file(advBoardMirror, advMoves);
       return true;
     }
@@ -180,13 +178,18 @@ public final class ReferenceRecorder extends ReferenceLog {
       advMoves.updateSolution(lookup, moves, solution, false);
     }
     if (bypass && !advMoves.isCompleted()) {
-      advMoves.updateSolutions(advBoard, localSolver);
+      updateSolutions(advBoard, advMoves);
     }
     referenceMap.put(advBoard, advMoves);
     add2file(advBoard, advMoves);
     return true;
   }
 
+  @Override
+  SolverPdb78 duplicateSolver() {
+    return new SolverBuilder(ApplicationMode.SYSTEM).duplicateSolverPdb78(localSolver, this);
+  }
+
   /**
    * Remove the given board from reference boards collection if exists, except
    * default reference boards.
@@ -203,9 +206,8 @@ public final class ReferenceRecorder extends ReferenceLog {
       return;
     }
 
-    if (referenceMap.containsKey(advBoard)) {
-      referenceMap.remove(advBoard);
-    }
+    referenceMap.remove(advBoard);
+    usage.remove(ReferenceTable.keyOf(advBoard));
     refreshFile();
   }
 
@@ -222,45 +224,26 @@ public final class ReferenceRecorder extends ReferenceLog {
   }
 
   /**
-   * Create the new file to store the reference boards.
+   * Save all reference board in a new snapshot, clear the delta log.  The reference
+   * boards of least value are removed by the retention policy first.  Also store the
+   * cutoff setting in the shared collection file.
    */
-  private void createFile() {
-    fileReady = false;
-    if (!(new File(DIRECTORY)).exists()) {
-      (new File(DIRECTORY)).mkdir();
+  void refreshFile() {
+    int removed = applyRetention();
+    if (removed > 0) {
+      System.out.println(removed + " reference boards removed by retention policy.");
     }
-
-    if ((new File(FILEPATH)).exists()) {
-      (new File(FILEPATH)).delete();
+    if (sharedMode) {
+      SharedReferenceTable shared = (SharedReferenceTable) referenceMap;
+      shared.setCutoff(cutoffSetting);
+      shared.force();
     }
-
-    FileOutputStream fout;
-    FileChannel outChannel;
-    ByteBuffer buffer;
-
     try {
-      fout = new FileOutputStream(FILEPATH);
-      outChannel = fout.getChannel();
-      final int emptyFileSize = 8;
-      buffer = ByteBuffer.allocateDirect(emptyFileSize);
-      buffer.putInt(cutoffSetting);
-      buffer.flip();
-      outChannel.write(buffer);
-      outChannel.close();
-      fout.close();
+      storage.saveSnapshot(referenceMap, cutoffSetting);
+      usage.save();
       fileReady = true;
     } catch (IOException ex) {
       System.err.println("System error : unable to save file.");
     }
   }
-
-  /**
-   * Save all reference board in a new copy.
-   */
- void refreshFile() {
-    createFile();
-    for (Entry<ReferenceBoard, ReferenceMoves> entry : referenceMap.entrySet()) {
-      add2file(entry.getKey(), entry.getValue());
-    }
-  }
 }
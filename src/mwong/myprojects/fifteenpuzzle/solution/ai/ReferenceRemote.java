@@ -2,9 +2,9 @@ package mwong.myprojects.fifteenpuzzle.solution.ai;
 
 import java.rmi.Remote;
 import java.rmi.RemoteException;
-import java.util.HashMap;
 
 import mwong.myprojects.fifteenpuzzle.puzzle.Board;
+import mwong.myprojects.fifteenpuzzle.puzzle.MoveSequence;
 import mwong.myprojects.fifteenpuzzle.solution.Solver;
 import mwong.myprojects.fifteenpuzzle.solution.SolverPdb78;
 import mwong.myprojects.fifteenpuzzle.solution.ai.Reference.ConnectionType;
@@ -12,8 +12,10 @@ import mwong.myprojects.fifteenpuzzle.solution.ai.Reference.ConnectionType;
 /**
  * ReferenceRemote is the remote interface of stored board of reference collection.
  * It has the same set of functions as the Reference interface with remote feature.
+ * Board and ReferenceUpdate are serialized in compact records, the moves are packed
+ * in MoveSequence.
  *
- * <p>Dependencies : Board.java, Solver.java, SolverPdb78.java
+ * <p>Dependencies : Board.java, MoveSequence.java, Solver.java, SolverPdb78.java
  *
  * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
  *            target="_blank">Meisze Wong (linkedin)</a>
@@ -22,12 +24,12 @@ import mwong.myprojects.fifteenpuzzle.solution.ai.Reference.ConnectionType;
  */
 public interface ReferenceRemote extends Remote {
   /**
-   * Returns a HashMap of collection of reference boards.
+   * Returns a ReferenceTable of collection of reference boards.
    *
-   * @return HashMap of collection of reference boards
+   * @return ReferenceTable of collection of reference boards
    * @throws RemoteException RemoteException
    */
-  HashMap<ReferenceBoard, ReferenceMoves> getActiveMap() throws RemoteException;
+  ReferenceTable getActiveMap() throws RemoteException;
 
   /**
    * Return the connection type currently using.
@@ -84,11 +86,11 @@ public interface ReferenceRemote extends Remote {
    *
    * @param board the given board object
    * @param steps the byte value of number of moves
-   * @param solution the Direction array of moves
+   * @param solution the MoveSequence of solution moves
    * @return boolean represents add to collection success
    * @throws RemoteException RemoteException
    */
-  boolean addBoard(Board board, byte steps, Board.Move[] solution) throws RemoteException;
+  boolean addBoard(Board board, byte steps, MoveSequence solution) throws RemoteException;
 
   /**
    * Update the latest search results if the board exists in reference collection.
@@ -127,6 +129,40 @@ public interface ReferenceRemote extends Remote {
    */
   void updatePending(Solver copySolver) throws RemoteException;
 
+  /**
+   * Returns the encoded reference estimate and partial solution of the given packed board
+   * computed on the reference side, or -1 if the board is not in reference collection.
+   * Bits 0 - 7 are the estimate, bit 8 is set if partial solution exists, follow by
+   * 2 bits per move.
+   *
+   * @param packedTiles the long value of 16 tiles packed in 4 bits per tile
+   * @return integer of encoded reference estimate and partial solution, -1 if not found
+   * @throws RemoteException RemoteException
+   */
+  int lookup(long packedTiles) throws RemoteException;
+
+  /**
+   * Returns the best inverse estimate of the given packed board computed on the reference
+   * side, at least the given basic estimate.
+   *
+   * @param packedTiles the long value of 16 tiles packed in 4 bits per tile
+   * @param basis the basic estimate of the given board
+   * @return byte value of best inverse estimate of the given board
+   * @throws RemoteException RemoteException
+   */
+  byte bestInverseEstimate(long packedTiles, byte basis) throws RemoteException;
+
+  /**
+   * Returns the ReferenceUpdate of the changes after the given version of the given
+   * table identity, or a snapshot of the full collection.
+   *
+   * @param tableId the table identity of the replica, any value for the first update
+   * @param version the version of the replica
+   * @return ReferenceUpdate of the changes after the given version
+   * @throws RemoteException RemoteException
+   */
+  ReferenceUpdate getUpdates(long tableId, long version) throws RemoteException;
+
   /**
    * Print the current status of reference boards collection.
    *
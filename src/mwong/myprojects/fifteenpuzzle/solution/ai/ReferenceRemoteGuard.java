@@ -0,0 +1,582 @@
+package mwong.myprojects.fifteenpuzzle.solution.ai;
+
+import java.net.MalformedURLException;
+import java.rmi.Naming;
+import java.rmi.NotBoundException;
+import java.rmi.RemoteException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import mwong.myprojects.fifteenpuzzle.puzzle.Board;
+import mwong.myprojects.fifteenpuzzle.puzzle.MoveSequence;
+import mwong.myprojects.fifteenpuzzle.solution.Solver;
+import mwong.myprojects.fifteenpuzzle.solution.SolverPdb78;
+import mwong.myprojects.fifteenpuzzle.solution.ai.Reference.ConnectionType;
+
+/**
+ * ReferenceRemoteGuard is the client side guard of the remote reference collection.  The
+ * calls of the search run on the guard threads with the call timeout, the solve thread
+ * never waits on a slow or hung server longer than the timeout.  After the number of
+ * consecutive failures, the circuit opens and the calls fail fast without network.
+ *
+ * <p>The calls of the search return the standard answer instead of RemoteException.  A
+ * lookup is not found, the inverse estimate is the given basis, and the replica stays at
+ * its current version.  The new reference boards are queued in a bounded write-behind
+ * queue, the oldest board is dropped if full.  A guard thread reconnects in background
+ * every retry interval, replays the queued boards in order then closes the circuit.
+ *
+ * <p>The guard threads are bounded.  A call cancelled of timeout may stay blocked in the
+ * socket read until the connection is lost, the call is rejected as a failure while all
+ * guard threads are blocked, the stuck calls never grow without limit.  The reconnection
+ * looks up the server on a guard thread with the call timeout as well.
+ *
+ * <p>The maintenance and administrative calls are not timed, they fail fast while the
+ * circuit is open and throw RemoteException as before.
+ *
+ * <p>Dependencies : Board.java, MoveSequence.java, Reference.java, ReferenceProperties.java,
+ *                   ReferenceRemote.java, ReferenceTable.java, ReferenceUpdate.java,
+ *                   Solver.java, SolverPdb78.java
+ *
+ * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
+ *            target="_blank">Meisze Wong (linkedin)</a>
+ * @see ReferenceProperties
+ * @see <a href="http://www.github.com/mwong510ca/15PuzzleOptimalSolver/"
+ *         target="_blank">GitHub (full project)</a>
+ */
+public final class ReferenceRemoteGuard implements ReferenceRemote {
+  /** The multiple of call timeout of the collection updates. */
+  private static final int UPDATE_TIMEOUT_FACTOR = 10;
+  /** The maximum number of guard threads of the timed calls. */
+  private static final int MAX_CALL_THREADS = 16;
+  /** The seconds of an idle guard thread to keep alive. */
+  private static final long IDLE_SECONDS = 60;
+  /** The encoded value of lookup not found. */
+  private static final int NOT_FOUND = -1;
+
+  /** The RMI lookup string of the remote server, or null if not reconnect. */
+  private final String lookupString;
+  /** The remote connection in use. */
+  private volatile ReferenceRemote source;
+  /** The connection type of the remote connection. */
+  private final ConnectionType connectionType;
+  /** The cutoff limit of the last successful call. */
+  private volatile double cutoffLimit;
+  /** The milliseconds of call timeout. */
+  private final long callTimeout;
+  /** The number of consecutive failures to open the circuit. */
+  private final int failureThreshold;
+  /** The milliseconds between reconnections while the circuit is open. */
+  private final long retryInterval;
+  /** The write-behind queue of new reference boards while the server is unavailable. */
+  private final BlockingQueue<PendingBoard> pendingBoards;
+  /** The executor of the timed calls. */
+  private final ExecutorService executor;
+  /** The executor of background reconnection. */
+  private final ScheduledExecutorService reconnector;
+  /** The lock of circuit state. */
+  private final Object stateLock = new Object();
+  /** The number of consecutive failures. */
+  private int failures;
+  /** The boolean value represents the circuit is open. */
+  private volatile boolean circuitOpen;
+  /** The number of calls timeout. */
+  private final AtomicLong timeouts = new AtomicLong();
+  /** The number of calls rejected while the circuit is open. */
+  private final AtomicLong rejected = new AtomicLong();
+  /** The number of queued boards replayed to the server. */
+  private final AtomicLong replayed = new AtomicLong();
+  /** The number of queued boards dropped of full queue. */
+  private final AtomicLong dropped = new AtomicLong();
+
+  /**
+   * Initializes ReferenceRemoteGuard object of the given remote connection, use the
+   * setting of ReferenceProperties.
+   *
+   * @param source the given remote connection
+   * @param lookupString the RMI lookup string to reconnect, or null to reuse the given
+   *     connection
+   * @throws RemoteException RemoteException of the first call
+   */
+  public ReferenceRemoteGuard(final ReferenceRemote source, final String lookupString)
+      throws RemoteException {
+    if (source == null) {
+      throw new IllegalArgumentException("Reference connection is null");
+    }
+    this.source = source;
+    this.lookupString = lookupString;
+    callTimeout = ReferenceProperties.getRemoteTimeout();
+    failureThreshold = ReferenceProperties.getRemoteFailures();
+    retryInterval = ReferenceProperties.getRemoteRetry();
+    pendingBoards = new ArrayBlockingQueue<PendingBoard>(
+        ReferenceProperties.getRemoteQueueSize());
+
+    final AtomicInteger count = new AtomicInteger();
+    executor = new ThreadPoolExecutor(0, MAX_CALL_THREADS, IDLE_SECONDS, TimeUnit.SECONDS,
+        new SynchronousQueue<Runnable>(), runnable -> {
+          Thread thread = new Thread(runnable, "reference-remote-" + count.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+    reconnector = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "reference-reconnect");
+      thread.setDaemon(true);
+      return thread;
+    });
+    connectionType = source.getConnectionTypeInUse();
+    cutoffLimit = source.getCutoffLimit();
+  }
+
+  /**
+   * The remote call of a remote connection.
+   *
+   * @param <T> the type of result
+   */
+  private interface RemoteCall<T> {
+    /**
+     * Returns the result of the call of the given remote connection.
+     *
+     * @param remote the given remote connection
+     * @return the result of the call
+     * @throws RemoteException RemoteException
+     */
+    T call(ReferenceRemote remote) throws RemoteException;
+  }
+
+  /**
+   * The new reference board waiting to add to the remote server.
+   */
+  private static final class PendingBoard {
+    /** The board. */
+    private final Board board;
+    /** The number of moves. */
+    private final byte steps;
+    /** The solution moves. */
+    private final MoveSequence solution;
+
+    /**
+     * Initializes PendingBoard object with the given board and solution.
+     *
+     * @param board the given board
+     * @param steps the number of moves
+     * @param solution the solution moves
+     */
+    private PendingBoard(final Board board, final byte steps, final MoveSequence solution) {
+      this.board = board;
+      this.steps = steps;
+      this.solution = solution;
+    }
+  }
+
+  /**
+   * Returns the result of the given call of the given remote connection on a guard
+   * thread, wait up to the given timeout.  The circuit state is not changed.
+   *
+   * @param <T> the type of result
+   * @param remote the given remote connection
+   * @param action the given remote call
+   * @param timeout the milliseconds of timeout
+   * @return the result of the call
+   * @throws RemoteException timeout, all guard threads busy or RemoteException of the call
+   */
+  private <T> T invoke(final ReferenceRemote remote, final RemoteCall<T> action,
+      final long timeout) throws RemoteException {
+    Future<T> future;
+    try {
+      future = executor.submit(() -> action.call(remote));
+    } catch (RejectedExecutionException ex) {
+      if (executor.isShutdown()) {
+        throw new RemoteException("Reference guard stopped", ex);
+      }
+      throw new RemoteException("Reference guard busy, " + MAX_CALL_THREADS
+          + " calls in progress", ex);
+    }
+    try {
+      return future.get(timeout, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException ex) {
+      future.cancel(true);
+      timeouts.incrementAndGet();
+      throw new RemoteException("Reference server call timeout " + timeout + "ms");
+    } catch (InterruptedException ex) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new RemoteException("Reference server call interrupted", ex);
+    } catch (ExecutionException ex) {
+      Throwable cause = ex.getCause();
+      if (cause instanceof RemoteException) {
+        throw (RemoteException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new RemoteException("Reference server call failed", cause);
+    }
+  }
+
+  /**
+   * Returns the result of the given timed call, fail fast if the circuit is open.
+   *
+   * @param <T> the type of result
+   * @param action the given remote call
+   * @param timeout the milliseconds of timeout
+   * @return the result of the call
+   * @throws RemoteException circuit open, timeout or RemoteException of the call
+   */
+  private <T> T timedCall(final RemoteCall<T> action, final long timeout)
+      throws RemoteException {
+    checkCircuit();
+    try {
+      T result = invoke(source, action, timeout);
+      success();
+      return result;
+    } catch (RemoteException ex) {
+      failure();
+      throw ex;
+    }
+  }
+
+  /**
+   * Returns the result of the given call on the current thread without timeout, fail
+   * fast if the circuit is open.
+   *
+   * @param <T> the type of result
+   * @param action the given remote call
+   * @return the result of the call
+   * @throws RemoteException circuit open or RemoteException of the call
+   */
+  private <T> T directCall(final RemoteCall<T> action) throws RemoteException {
+    checkCircuit();
+    try {
+      T result = action.call(source);
+      success();
+      return result;
+    } catch (RemoteException ex) {
+      failure();
+      throw ex;
+    }
+  }
+
+  /**
+   * Throws RemoteException if the circuit is open.
+   *
+   * @throws RemoteException the circuit is open
+   */
+  private void checkCircuit() throws RemoteException {
+    if (circuitOpen) {
+      rejected.incrementAndGet();
+      throw new RemoteException("Reference server unavailable, circuit open");
+    }
+  }
+
+  /**
+   * Reset the number of consecutive failures.
+   */
+  private void success() {
+    synchronized (stateLock) {
+      failures = 0;
+    }
+  }
+
+  /**
+   * Count a failure, open the circuit and schedule the reconnection if the number of
+   * consecutive failures reaches the threshold.
+   */
+  private void failure() {
+    synchronized (stateLock) {
+      failures++;
+      if (circuitOpen || failures < failureThreshold) {
+        return;
+      }
+      circuitOpen = true;
+    }
+    System.err.println("Attention: Reference server unavailable. Advanced estimate will"
+        + " use local data, retry every " + retryInterval + "ms.");
+    scheduleReconnect();
+  }
+
+  /**
+   * Schedule the reconnection after the retry interval.
+   */
+  private void scheduleReconnect() {
+    try {
+      reconnector.schedule(this::reconnect, retryInterval, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException ex) {
+      // guard stopped
+    }
+  }
+
+  /**
+   * Returns the remote connection of the RMI lookup string.
+   *
+   * @return the remote connection of the RMI lookup string
+   * @throws RemoteException RemoteException of the lookup or server not found
+   */
+  private ReferenceRemote lookup() throws RemoteException {
+    try {
+      return (ReferenceRemote) Naming.lookup(lookupString);
+    } catch (NotBoundException | MalformedURLException ex) {
+      throw new RemoteException("Reference server not found : " + lookupString, ex);
+    }
+  }
+
+  /**
+   * Reconnect to the remote server, replay the queued boards and close the circuit.
+   * Schedule the next reconnection if failed.
+   */
+  private void reconnect() {
+    try {
+      ReferenceRemote remote = source;
+      if (lookupString != null) {
+        remote = invoke(remote, server -> lookup(), callTimeout);
+      }
+      cutoffLimit = invoke(remote, ReferenceRemote::getCutoffLimit, callTimeout);
+      replay(remote);
+      source = remote;
+      synchronized (stateLock) {
+        failures = 0;
+        circuitOpen = false;
+      }
+      // the boards queued while replaying
+      replay(remote);
+      System.err.println("Attention: Reference server connection resumed.");
+    } catch (RemoteException ex) {
+      if (circuitOpen) {
+        scheduleReconnect();
+      } else {
+        failure();
+      }
+    }
+  }
+
+  /**
+   * Add the queued boards to the given remote connection in order.  The board stays in
+   * queue if failed.
+   *
+   * @param remote the given remote connection
+   * @throws RemoteException RemoteException of the call
+   */
+  private void replay(final ReferenceRemote remote) throws RemoteException {
+    PendingBoard pending;
+    while ((pending = pendingBoards.peek()) != null) {
+      final PendingBoard next = pending;
+      invoke(remote, server -> server.addBoard(next.board, next.steps, next.solution),
+          callTimeout);
+      pendingBoards.remove(next);
+      replayed.incrementAndGet();
+    }
+  }
+
+  /**
+   * Queue the given board to add when the server is available, drop the oldest board if
+   * the queue is full.
+   *
+   * @param pending the given PendingBoard object
+   */
+  private void enqueue(final PendingBoard pending) {
+    while (!pendingBoards.offer(pending)) {
+      if (pendingBoards.poll() != null) {
+        dropped.incrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Returns the boolean value represents the circuit is open, the remote server is
+   * unavailable.
+   *
+   * @return boolean value represents the circuit is open
+   */
+  public boolean isCircuitOpen() {
+    return circuitOpen;
+  }
+
+  /**
+   * Returns the number of boards waiting in the write-behind queue.
+   *
+   * @return integer of number of boards waiting to add
+   */
+  public int getQueueDepth() {
+    return pendingBoards.size();
+  }
+
+  /**
+   * Stop the guard threads.  The queued boards are not replayed.
+   */
+  public void shutdown() {
+    reconnector.shutdownNow();
+    executor.shutdownNow();
+  }
+
+  @Override
+  public String toString() {
+    return "Reference guard : circuit " + (circuitOpen ? "open" : "closed") + ", "
+        + timeouts.get() + " timeouts, " + rejected.get() + " rejected, "
+        + getQueueDepth() + " queued, " + replayed.get() + " replayed, " + dropped.get()
+        + " dropped";
+  }
+
+  @Override
+  public ReferenceTable getActiveMap() throws RemoteException {
+    return directCall(ReferenceRemote::getActiveMap);
+  }
+
+  @Override
+  public ConnectionType getConnectionTypeInUse() {
+    return connectionType;
+  }
+
+  @Override
+  public double getCutoffLimit() {
+    try {
+      cutoffLimit = timedCall(ReferenceRemote::getCutoffLimit, callTimeout);
+    } catch (RemoteException ex) {
+      // use the cutoff limit of the last successful call
+    }
+    return cutoffLimit;
+  }
+
+  @Override
+  public boolean loadSolver(final Solver copySolver) throws RemoteException {
+    return directCall(remote -> remote.loadSolver(copySolver));
+  }
+
+  @Override
+  public boolean hasSolver78() throws RemoteException {
+    return directCall(ReferenceRemote::hasSolver78);
+  }
+
+  @Override
+  public SolverPdb78 getSolver78() throws RemoteException {
+    return directCall(ReferenceRemote::getSolver78);
+  }
+
+  @Override
+  public boolean containsBoard(final Board board) {
+    try {
+      return timedCall(remote -> remote.containsBoard(board), callTimeout);
+    } catch (RemoteException ex) {
+      return false;
+    }
+  }
+
+  /**
+   * Add the given board and solutions to reference collection.  The board is queued if
+   * the server is unavailable, and returns false.
+   *
+   * @param board the given board object
+   * @param steps the byte value of number of moves
+   * @param solution the MoveSequence of solution moves
+   * @return boolean represents add to collection success
+   */
+  @Override
+  public boolean addBoard(final Board board, final byte steps,
+      final MoveSequence solution) {
+    if (!circuitOpen) {
+      try {
+        return timedCall(remote -> remote.addBoard(board, steps, solution), callTimeout);
+      } catch (RemoteException ex) {
+        // queue the board below
+      }
+    }
+    enqueue(new PendingBoard(board, steps, solution));
+    return false;
+  }
+
+  @Override
+  public boolean updateLastSearch(final Solver copySolver) throws RemoteException {
+    return directCall(remote -> remote.updateLastSearch(copySolver));
+  }
+
+  @Override
+  public boolean updateLastSearch(final Solver copySolver, final Board board)
+      throws RemoteException {
+    return directCall(remote -> remote.updateLastSearch(copySolver, board));
+  }
+
+  @Override
+  public void updatePending() throws RemoteException {
+    directCall(remote -> {
+      remote.updatePending();
+      return null;
+    });
+  }
+
+  @Override
+  public void updatePending(final Solver copySolver) throws RemoteException {
+    directCall(remote -> {
+      remote.updatePending(copySolver);
+      return null;
+    });
+  }
+
+  @Override
+  public int lookup(final long packedTiles) {
+    try {
+      return timedCall(remote -> remote.lookup(packedTiles), callTimeout);
+    } catch (RemoteException ex) {
+      return NOT_FOUND;
+    }
+  }
+
+  @Override
+  public byte bestInverseEstimate(final long packedTiles, final byte basis) {
+    try {
+      return timedCall(remote -> remote.bestInverseEstimate(packedTiles, basis),
+          callTimeout);
+    } catch (RemoteException ex) {
+      return basis;
+    }
+  }
+
+  /**
+   * Returns the ReferenceUpdate of the changes after the given version of the given
+   * table identity.  Returns no change if the server is unavailable, throws
+   * RemoteException if it is the first update.
+   *
+   * @param tableId the table identity of the replica, any value for the first update
+   * @param version the version of the replica, -1 for the first update
+   * @return ReferenceUpdate of the changes after the given version
+   * @throws RemoteException the server is unavailable for the first update
+   */
+  @Override
+  public ReferenceUpdate getUpdates(final long tableId, final long version)
+      throws RemoteException {
+    try {
+      return timedCall(remote -> remote.getUpdates(tableId, version),
+          callTimeout * UPDATE_TIMEOUT_FACTOR);
+    } catch (RemoteException ex) {
+      if (version < 0) {
+        throw ex;
+      }
+      return new ReferenceUpdate(tableId, version);
+    }
+  }
+
+  @Override
+  public void printStatus() throws RemoteException {
+    directCall(remote -> {
+      remote.printStatus();
+      return null;
+    });
+  }
+
+  @Override
+  public void printAllBoards() throws RemoteException {
+    directCall(remote -> {
+      remote.printAllBoards();
+      return null;
+    });
+  }
+}
@@ -0,0 +1,99 @@
+package mwong.myprojects.fifteenpuzzle.solution.ai;
+
+import java.rmi.RemoteException;
+
+/**
+ * ReferenceReplica is the client side copy of the reference collection of a remote
+ * connection.  It starts from a snapshot, then refresh with the changes after its
+ * version, the remote traffic is proportional to the new reference boards only.
+ *
+ * <p>The ReferenceTable in use is never modified, refresh apply the changes to a copy
+ * then replace it.  Solvers read the table without lock.
+ *
+ * <p>Dependencies : ReferenceRemote.java, ReferenceTable.java, ReferenceUpdate.java
+ *
+ * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
+ *            target="_blank">Meisze Wong (linkedin)</a>
+ * @see <a href="http://www.github.com/mwong510ca/15PuzzleOptimalSolver/"
+ *         target="_blank">GitHub (full project)</a>
+ */
+public final class ReferenceReplica {
+  /** The remote connection of reference collection. */
+  private final ReferenceRemote source;
+  /** The ReferenceTable in use. */
+  private volatile ReferenceTable table;
+  /** The number of changed reference boards received. */
+  private long recordsReceived;
+  /** The number of snapshots received. */
+  private int snapshotsReceived;
+
+  /**
+   * Initializes ReferenceReplica object with the snapshot of the given remote connection.
+   *
+   * @param source the given remote connection of reference collection
+   * @throws RemoteException RemoteException
+   */
+  public ReferenceReplica(final ReferenceRemote source) throws RemoteException {
+    if (source == null) {
+      throw new IllegalArgumentException("Reference connection is null");
+    }
+    this.source = source;
+    refresh();
+  }
+
+  /**
+   * Returns the ReferenceTable of the latest refresh.  It must not be modified.
+   *
+   * @return ReferenceTable of the latest refresh
+   */
+  public ReferenceTable getTable() {
+    return table;
+  }
+
+  /**
+   * Request the changes after the current version and apply to a copy of the table.
+   * Returns true if the table has been changed.
+   *
+   * @return boolean value represents the table has been changed
+   * @throws RemoteException RemoteException
+   */
+  public synchronized boolean refresh() throws RemoteException {
+    ReferenceTable current = table;
+    ReferenceUpdate update;
+    if (current == null) {
+      update = source.getUpdates(0, -1);
+    } else {
+      update = source.getUpdates(current.getTableId(), current.getVersion());
+    }
+
+    if (update.isSnapshot()) {
+      snapshotsReceived++;
+    } else {
+      recordsReceived += update.size();
+    }
+    ReferenceTable next = update.applyTo(current);
+    if (next == current) {
+      return false;
+    }
+    table = next;
+    return true;
+  }
+
+  /**
+   * Returns the number of changed reference boards received after snapshots.
+   *
+   * @return long value of number of changed reference boards received
+   */
+  public synchronized long getRecordsReceived() {
+    return recordsReceived;
+  }
+
+  /**
+   * Returns the number of snapshots received.
+   *
+   * @return integer of number of snapshots received
+   */
+  public synchronized int getSnapshotsReceived() {
+    return snapshotsReceived;
+  }
+}
@@ -0,0 +1,257 @@
+package mwong.myprojects.fifteenpuzzle.solution.ai;
+
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import mwong.myprojects.fifteenpuzzle.puzzle.Board;
+import mwong.myprojects.fifteenpuzzle.puzzle.PuzzleConstants;
+import mwong.myprojects.fifteenpuzzle.server.ReferenceServerProperties;
+
+/**
+ * ReferenceSeeder is the bulk seeding tool of the reference collection.  It expands
+ * breadth first from the default reference boards of 80 moves and the stored reference
+ * boards.  A neighbor of a board of n moves takes at least n - 1 moves, the search of
+ * each neighbor starts from this lower bound instead of the heuristic value.  The boards
+ * take at least the minimum moves are added to the collection and expanded to the next
+ * level.
+ *
+ * <p>Each level is solved in parallel by the pool of solvers of reference updates.  A
+ * board and its mirror reflection are solved once.  The extra searches of new reference
+ * boards run after all levels.
+ *
+ * <p>Dependencies : Board.java, PuzzleConstants.java, ReferenceProperties.java,
+ *                   ReferenceRecorder.java, ReferenceServerProperties.java,
+ *                   ReferenceSolverPool.java, ReferenceTable.java
+ *
+ * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
+ *            target="_blank">Meisze Wong (linkedin)</a>
+ * @see <a href="http://www.github.com/mwong510ca/15PuzzleOptimalSolver/"
+ *         target="_blank">GitHub (full project)</a>
+ */
+public final class ReferenceSeeder {
+  /** Maximum moves of 15 puzzle.
+   *  @see PuzzleConstants#MAX_MOVES */
+  private static final byte MAX_MOVES = PuzzleConstants.getMaxMoves();
+  /** The default number of levels to expand. */
+  private static final int DEFAULT_DEPTH = 4;
+  /** The maximum number of levels to expand. */
+  private static final int MAX_DEPTH = 12;
+  /** The default minimum moves of a board to add and expand. */
+  private static final int DEFAULT_MIN_MOVES = 76;
+
+  /** The ReferenceRecorder of the reference collection. */
+  private final ReferenceRecorder recorder;
+  /** The pool of solvers share the pattern database. */
+  private final ReferenceSolverPool pool;
+  /** The canonical packed tiles of boards already queued, include mirror reflection. */
+  private final Set<Long> visited = new HashSet<Long>();
+  /** The number of boards solved. */
+  private long solved;
+  /** The number of boards added to reference collection. */
+  private long recorded;
+  /** The number of neighbors already queued. */
+  private long duplicates;
+  /** The number of boards failed. */
+  private long failed;
+
+  /**
+   * Initializes ReferenceSeeder object of the given ReferenceRecorder.
+   *
+   * @param recorder the ReferenceRecorder of the reference collection
+   */
+  ReferenceSeeder(final ReferenceRecorder recorder) {
+    this.recorder = recorder;
+    pool = recorder.getSolverPool();
+  }
+
+  /**
+   * The board with the lower bound of number of moves, and the number of moves once
+   * solved.
+   */
+  private static final class Node {
+    /** The board. */
+    private final Board board;
+    /** The lower bound of number of moves. */
+    private final int estimate;
+    /** The search of the board. */
+    private CompletableFuture<Board.Move[]> search;
+
+    /**
+     * Initializes Node object with the given board and lower bound.
+     *
+     * @param board the given board
+     * @param estimate the lower bound of number of moves
+     */
+    private Node(final Board board, final int estimate) {
+      this.board = board;
+      this.estimate = estimate;
+    }
+  }
+
+  /**
+   * Returns the canonical packed tiles of the given board, same for its mirror
+   * reflection.
+   *
+   * @param board the given board
+   * @return long value of the canonical packed tiles
+   */
+  private static long canonical(final Board board) {
+    long tiles = board.getPackedTiles();
+    return Math.min(tiles, PuzzleConstants.packedMirror(tiles));
+  }
+
+  /**
+   * Add the given board to the given level if not queued before.
+   *
+   * @param level the list of boards of the level
+   * @param board the given board
+   * @param estimate the lower bound of number of moves
+   */
+  private void enqueue(final List<Node> level, final Board board, final int estimate) {
+    if (visited.add(canonical(board))) {
+      level.add(new Node(board, estimate));
+    } else {
+      duplicates++;
+    }
+  }
+
+  /**
+   * Returns the first level of the default reference boards of 80 moves and the stored
+   * reference boards.  The number of moves of a stored reference board is solved again.
+   *
+   * @return List of Node of the first level
+   */
+  private List<Node> roots() {
+    List<Node> level = new ArrayList<Node>();
+    for (byte[][] entry : ReferenceProperties.getDefaultBoards()) {
+      if (entry[1][1] == MAX_MOVES) {
+        enqueue(level, new Board(entry[0]), MAX_MOVES);
+      }
+    }
+    ReferenceTable table = recorder.scanMap();
+    for (int slot = 0; slot < table.capacity(); slot++) {
+      if (table.isOccupied(slot)) {
+        enqueue(level, new Board(table.getBoard(slot).getTiles()), 0);
+      }
+    }
+    return level;
+  }
+
+  /**
+   * Expand breadth first up to the given number of levels, add the boards take at least
+   * the given minimum moves to the collection.
+   *
+   * @param depth the number of levels to expand
+   * @param minMoves the minimum moves of a board to add and expand
+   */
+  void seed(final int depth, final int minMoves) {
+    List<Node> level = roots();
+    for (int distance = 0; distance <= depth && !level.isEmpty(); distance++) {
+      for (Node node : level) {
+        node.search = pool.solve(node.board, node.estimate);
+      }
+
+      long recordedBefore = recorded;
+      List<Node> next = new ArrayList<Node>();
+      for (Node node : level) {
+        Board.Move[] solution;
+        try {
+          solution = node.search.join();
+        } catch (CompletionException ex) {
+          failed++;
+          System.err.println("System error : reference seeding - " + ex.getCause());
+          continue;
+        }
+        solved++;
+        byte moves = (byte) (solution.length - 1);
+        if (moves < minMoves) {
+          continue;
+        }
+        if (distance > 0 && recorder.addBoard(node.board, moves, solution)) {
+          recorded++;
+        }
+        if (distance < depth) {
+          for (Board.Move move : Board.Move.values()) {
+            if (move == Board.Move.NONE) {
+              continue;
+            }
+            Board neighbor = node.board.shift(move);
+            if (neighbor != null) {
+              enqueue(next, neighbor, moves - 1);
+            }
+          }
+        }
+      }
+      System.out.println("Level " + distance + " : " + level.size() + " boards, "
+          + (recorded - recordedBefore) + " added");
+      level = next;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "Reference seeding : " + solved + " solved, " + recorded + " added, "
+        + duplicates + " duplicates, " + failed + " failed";
+  }
+
+  /**
+   * Returns the integer of the given argument within the given range, otherwise returns
+   * the given default value.
+   *
+   * @param args the arguments of main function
+   * @param index the index of the argument
+   * @param defaultValue the default value
+   * @param max the maximum value
+   * @return integer of the given argument
+   */
+  private static int argument(final String[] args, final int index, final int defaultValue,
+      final int max) {
+    if (args.length <= index) {
+      return defaultValue;
+    }
+    try {
+      int value = Integer.parseInt(args[index]);
+      if (value >= 1 && value <= max) {
+        return value;
+      }
+    } catch (NumberFormatException ex) {
+      // use default value
+    }
+    System.out.println("Invalid argument " + args[index] + ", allow 1 to " + max
+        + " only. Use default " + defaultValue + ".");
+    return defaultValue;
+  }
+
+  /**
+   * Seed the reference collection.  The remote server must not be running.
+   *
+   * @param args optional number of levels (default 4) and minimum moves (default 76)
+   * @throws RemoteException if failed to reserve the remote port
+   */
+  public static void main(final String[] args) throws RemoteException {
+    if (ReferenceServerProperties.isPortInUse()) {
+      System.out.println("Remote server is running, system exit.");
+      System.exit(0);
+    }
+    LocateRegistry.createRegistry(ReferenceServerProperties.getRemotePort());
+
+    int depth = argument(args, 0, DEFAULT_DEPTH, MAX_DEPTH);
+    int minMoves = argument(args, 1, DEFAULT_MIN_MOVES, MAX_MOVES);
+
+    ReferenceRecorder recorder = new ReferenceRecorder(true);
+    recorder.printStatus();
+    ReferenceSeeder seeder = new ReferenceSeeder(recorder);
+    seeder.seed(depth, minMoves);
+    System.out.println(seeder);
+    System.out.println("System update, please wait.");
+    recorder.updateData();
+    recorder.printStatus();
+    System.exit(0);
+  }
+}
@@ -0,0 +1,165 @@
+package mwong.myprojects.fifteenpuzzle.solution.ai;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import mwong.myprojects.fifteenpuzzle.puzzle.Board;
+import mwong.myprojects.fifteenpuzzle.solution.SolverPdb78;
+
+/**
+ * ReferenceSolverPool is the pool of solvers of reference collection updates.  The
+ * solvers share one pattern database 7-8, each lookup position of a reference board is
+ * an independent search on its own solver.  The 4 lookup positions of a reference
+ * board, and the reference boards of a collection update, are solved in parallel.  It
+ * also solves the candidate boards of bulk seeding with a known lower bound.
+ *
+ * <p>Dependencies : Board.java, ReferenceBoard.java, ReferenceMoves.java,
+ *                   SolverPdb78.java
+ *
+ * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
+ *            target="_blank">Meisze Wong (linkedin)</a>
+ * @see <a href="http://www.github.com/mwong510ca/15PuzzleOptimalSolver/"
+ *         target="_blank">GitHub (full project)</a>
+ */
+final class ReferenceSolverPool {
+  /** The seconds to keep the idle solver threads. */
+  private static final long IDLE_SECONDS = 60;
+
+  /** The idle solvers, one per thread. */
+  private final BlockingQueue<SolverPdb78> solvers;
+  /** The executor of low priority solver threads. */
+  private final ExecutorService executor;
+  /** The number of solvers. */
+  private final int size;
+
+  /**
+   * Initializes ReferenceSolverPool object with the given solvers.
+   *
+   * @param solverArray the SolverPdb78 array of solvers share the pattern database
+   */
+  ReferenceSolverPool(final SolverPdb78[] solverArray) {
+    size = solverArray.length;
+    solvers = new ArrayBlockingQueue<SolverPdb78>(size);
+    for (SolverPdb78 solver : solverArray) {
+      solvers.add(solver);
+    }
+    final AtomicInteger count = new AtomicInteger();
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(size, size, IDLE_SECONDS,
+        TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), runnable -> {
+          Thread thread = new Thread(runnable, "reference-solver-" + count.incrementAndGet());
+          thread.setDaemon(true);
+          thread.setPriority(Thread.MIN_PRIORITY);
+          return thread;
+        });
+    pool.allowCoreThreadTimeOut(true);
+    executor = pool;
+  }
+
+  /**
+   * Returns the number of solvers.
+   *
+   * @return integer of number of solvers
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Solve each lookup position not verified of the given reference board in parallel,
+   * and update the given ReferenceMoves.  The future completes when all lookup
+   * positions are verified, or completes exceptionally if any search has failed.
+   *
+   * @param advBoard the given ReferenceBoard object
+   * @param advMoves the ReferenceMoves of the given reference board
+   * @return CompletableFuture completes when the reference board is completed
+   */
+  CompletableFuture<Void> complete(final ReferenceBoard advBoard,
+      final ReferenceMoves advMoves) {
+    Board[] boards;
+    synchronized (advMoves) {
+      boards = advMoves.getPendingBoards(advBoard);
+    }
+    CompletableFuture<?>[] searches = new CompletableFuture<?>[boards.length];
+    for (byte lookup = 0; lookup < boards.length; lookup++) {
+      if (boards[lookup] == null) {
+        searches[lookup] = CompletableFuture.completedFuture(null);
+      } else {
+        final byte key = lookup;
+        final Board board = boards[lookup];
+        final byte estimate = advMoves.getEstimate(lookup);
+        searches[lookup] = CompletableFuture.runAsync(
+            () -> search(advMoves, key, board, estimate), executor);
+      }
+    }
+    return CompletableFuture.allOf(searches);
+  }
+
+  /**
+   * Solve the given board with an idle solver, the given estimate is a lower bound of the
+   * number of moves.  The search starts from the estimate if it is not below the
+   * heuristic value of the same parity, otherwise from the heuristic value.  The future
+   * completes with the solution include Move.NONE at index 0, the number of moves is the
+   * length minus 1.
+   *
+   * @param board the given board
+   * @param estimate the lower bound of the number of moves
+   * @return CompletableFuture of the optimal solution of the given board
+   */
+  CompletableFuture<Board.Move[]> solve(final Board board, final int estimate) {
+    return CompletableFuture.supplyAsync(() -> {
+      SolverPdb78 solver = solvers.poll();
+      if (solver == null) {
+        throw new IllegalStateException("No idle solver in reference solver pool");
+      }
+      try {
+        int heuristic = solver.heuristic(board);
+        if (estimate >= heuristic && (estimate - heuristic) % 2 == 0) {
+          solver.findOptimalPath(board, estimate);
+        } else {
+          solver.findOptimalPath(board);
+        }
+        if (solver.solution() == null) {
+          throw new IllegalStateException("No solution of board " + board);
+        }
+        return Arrays.copyOf(solver.solution(), solver.moves() + 1);
+      } finally {
+        solvers.add(solver);
+      }
+    }, executor);
+  }
+
+  /**
+   * Solve the given board of the lookup position with an idle solver, and update the
+   * given ReferenceMoves.
+   *
+   * @param advMoves the ReferenceMoves of the reference board
+   * @param lookup the given lookup position
+   * @param board the board of the lookup position
+   * @param estimate the estimate of the lookup position
+   */
+  private void search(final ReferenceMoves advMoves, final byte lookup, final Board board,
+      final byte estimate) {
+    SolverPdb78 solver = solvers.poll();
+    if (solver == null) {
+      throw new IllegalStateException("No idle solver in reference solver pool");
+    }
+    try {
+      solver.findOptimalPath(board, estimate);
+      if (solver.solution() == null) {
+        throw new IllegalStateException("No solution of lookup " + lookup);
+      }
+      synchronized (advMoves) {
+        advMoves.updateSolution(lookup, solver.moves(), solver.solution(), false);
+      }
+    } finally {
+      solvers.add(solver);
+    }
+  }
+}
@@ -0,0 +1,752 @@
+package mwong.myprojects.fifteenpuzzle.solution.ai;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import mwong.myprojects.fifteenpuzzle.solution.ai.ReferenceProperties.FsyncPolicy;
+
+/**
+ * ReferenceStorage is the storage engine of reference collection.  It has a snapshot
+ * file of the cutoff setting and one record per reference board, and a delta log of
+ * the records changed after the snapshot.  When the delta log exceeds the number of
+ * reference boards, it rotate the delta log and write a new snapshot in background,
+ * then replace the snapshot file with an atomic move.  Loading time is proportional
+ * to the reference boards plus a bounded delta log.
+ *
+ * <p>The record format is the same as the original data file, 34 bytes per record.  An
+ * existing data file with duplicate records is loaded as the snapshot and compacted
+ * with the next rotation.
+ *
+ * <p>Records are written behind by a dedicated writer thread.  The caller only encode
+ * the record to the bounded queue, block if the queue is full.  The writer collects up
+ * to the flush records or the flush interval, write the batch in one channel write and
+ * force to storage device by the fsync policy.  Rotation and snapshot requests go
+ * through the same queue, all file changes in order.  The writer and its shutdown hook
+ * start on the first request, close stops the writer and removes the hook.
+ *
+ * <p>Dependencies : ConcurrentReferenceTable.java, ReferenceBoard.java,
+ *                   ReferenceConstants.java, ReferenceMoves.java, ReferenceProperties.java,
+ *                   ReferenceTable.java
+ *
+ * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
+ *            target="_blank">Meisze Wong (linkedin)</a>
+ * @see <a href="http://www.github.com/mwong510ca/15PuzzleOptimalSolver/"
+ *         target="_blank">GitHub (full project)</a>
+ */
+final class ReferenceStorage {
+  /** The buffer size per record.
+   *  @see ReferenceConstants#BUFFER_SIZE_PER_RECORD */
+  private static final int BUFFER_SIZE_PER_RECORD = ReferenceConstants.getBufferSizePerRecord();
+  /** The number of lookups, split in 4 groups, 4 lookup per group.
+   *  @see ReferenceConstants#NUM_LOOKUPS */
+  private static final int NUM_LOOKUPS = ReferenceConstants.getNumLookups();
+  /** The minimum number of records in delta log before compaction. */
+  private static final int MIN_COMPACT_RECORDS = 1024;
+  /** The number of records per write of snapshot file. */
+  private static final int RECORDS_PER_WRITE = 1024;
+  /** The file extension of the delta log in compaction. */
+  private static final String COMPACT_EXTENSION = ".compact";
+  /** The file extension of the snapshot file in writing. */
+  private static final String TEMP_EXTENSION = ".tmp";
+  /** The minimum milliseconds between force of periodic fsync policy. */
+  private static final long FSYNC_PERIOD = 1000;
+
+  /** The path of snapshot file. */
+  private final Path snapshotPath;
+  /** The path of delta log. */
+  private final Path deltaPath;
+  /** The path of delta log in compaction. */
+  private final Path compactPath;
+  /** The path of snapshot file in writing. */
+  private final Path tempPath;
+  /** The fsync policy of the writer. */
+  private final FsyncPolicy fsyncPolicy;
+  /** The maximum milliseconds the writer waits to fill a batch. */
+  private final int flushInterval;
+  /** The maximum number of records per batch. */
+  private final int flushRecords;
+  /** The bounded queue of the writer. */
+  private final BlockingQueue<Request> queue;
+  /** The lock keeps the order of enqueue and rotation decision. */
+  private final Object enqueueLock = new Object();
+  /** The ReferenceTable of reference collection in use, the source of rotation. */
+  private ReferenceTable table;
+  /** The integer of cutoff setting stored. */
+  private int cutoffSetting;
+  /** The number of records in delta log, include the records in queue. */
+  private int deltaRecords;
+  /** The boolean value represents the compaction is requested or running. */
+  private boolean compacting;
+  /** The writer thread, start on first request. */
+  private Thread writer;
+  /** The shutdown hook flushes the queued records, registered with the writer. */
+  private Thread shutdownHook;
+  /** The delta log channel of the writer. */
+  private FileChannel deltaChannel;
+  /** The time of last force of the writer. */
+  private long lastForce;
+
+  /**
+   * Initializes ReferenceStorage object with the given file paths, use the writer
+   * setting of ReferenceProperties.
+   *
+   * @param snapshotFile the file path of snapshot file
+   * @param deltaFile the file path of delta log
+   */
+  ReferenceStorage(final String snapshotFile, final String deltaFile) {
+    this(snapshotFile, deltaFile, ReferenceProperties.getFsyncPolicy(),
+        ReferenceProperties.getFlushInterval(), ReferenceProperties.getFlushRecords(),
+        ReferenceProperties.getWriteQueueSize());
+  }
+
+  /**
+   * Initializes ReferenceStorage object with the given file paths and writer setting.
+   *
+   * @param snapshotFile the file path of snapshot file
+   * @param deltaFile the file path of delta log
+   * @param fsyncPolicy the fsync policy of the writer
+   * @param flushInterval the maximum milliseconds the writer waits to fill a batch
+   * @param flushRecords the maximum number of records per batch
+   * @param queueSize the capacity of the writer queue
+   */
+  ReferenceStorage(final String snapshotFile, final String deltaFile,
+      final FsyncPolicy fsyncPolicy, final int flushInterval, final int flushRecords,
+      final int queueSize) {
+    snapshotPath = Paths.get(snapshotFile);
+    deltaPath = Paths.get(deltaFile);
+    compactPath = Paths.get(deltaFile + COMPACT_EXTENSION);
+    tempPath = Paths.get(snapshotFile + TEMP_EXTENSION);
+    this.fsyncPolicy = fsyncPolicy;
+    this.flushInterval = flushInterval;
+    this.flushRecords = flushRecords;
+    queue = new ArrayBlockingQueue<Request>(queueSize);
+  }
+
+  /**
+   * Load the snapshot file and replay the delta logs to the given ReferenceTable.
+   * Returns the cutoff setting.
+   *
+   * @param refTable the given ReferenceTable object
+   * @return integer of cutoff setting
+   * @throws IOException any IOException, the snapshot file not exists or data error
+   */
+  int load(final ReferenceTable refTable) throws IOException {
+    ByteBuffer buffer = map(snapshotPath);
+    int cutoff = buffer.getInt();
+    readRecords(buffer, refTable, false);
+
+    boolean incomplete = Files.exists(compactPath);
+    if (incomplete) {
+      readRecords(map(compactPath), refTable, false);
+    }
+    int records = 0;
+    if (Files.exists(deltaPath)) {
+      records = readRecords(map(deltaPath), refTable, false);
+    }
+
+    synchronized (enqueueLock) {
+      table = refTable;
+      cutoffSetting = cutoff;
+      deltaRecords = records;
+    }
+    if (incomplete) {
+      saveSnapshot(refTable, cutoff);
+    }
+    return cutoff;
+  }
+
+  /**
+   * Use the given table as the reference collection of the rotation snapshots.  It must
+   * be the collection in use, the records appended are the changes of this table.
+   *
+   * @param refTable the ReferenceTable of reference collection in use
+   */
+  void use(final ReferenceTable refTable) {
+    synchronized (enqueueLock) {
+      table = refTable;
+    }
+  }
+
+  /**
+   * Returns the read only ByteBuffer of the given file.
+   *
+   * @param path the given file path
+   * @return ByteBuffer of the given file
+   * @throws IOException any IOException
+   */
+  private static ByteBuffer map(final Path path) throws IOException {
+    try (FileChannel inChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return inChannel.map(FileChannel.MapMode.READ_ONLY, 0, inChannel.size());
+    }
+  }
+
+  /**
+   * Merge the snapshot file and the delta logs of the given file paths into the given
+   * table, the files are not modified.  The record of a reference board merges with
+   * the same reference board, or its mirror reflection if exists.  Returns the cutoff
+   * setting of the snapshot file.
+   *
+   * @param snapshotFile the file path of snapshot file
+   * @param deltaFile the file path of delta log
+   * @param refTable the given ReferenceTable object
+   * @return integer of cutoff setting of the snapshot file
+   * @throws IOException any IOException, the snapshot file not exists or data error
+   */
+  static int mergeFile(final String snapshotFile, final String deltaFile,
+      final ReferenceTable refTable) throws IOException {
+    ByteBuffer buffer = map(Paths.get(snapshotFile));
+    int cutoff = buffer.getInt();
+    readRecords(buffer, refTable, true);
+
+    Path compact = Paths.get(deltaFile + COMPACT_EXTENSION);
+    if (Files.exists(compact)) {
+      readRecords(map(compact), refTable, true);
+    }
+    Path delta = Paths.get(deltaFile);
+    if (Files.exists(delta)) {
+      readRecords(map(delta), refTable, true);
+    }
+    return cutoff;
+  }
+
+  /**
+   * Read all records from the given buffer and merge into the given table.  Returns
+   * the number of records.
+   *
+   * @param buffer the given ByteBuffer
+   * @param refTable the given ReferenceTable object
+   * @param mergeMirror the boolean represents a new reference board merges with its
+   *     mirror reflection if exists
+   * @return integer of number of records
+   * @throws IOException data file error
+   */
+  private static int readRecords(final ByteBuffer buffer, final ReferenceTable refTable,
+      final boolean mergeMirror) throws IOException {
+    int count = 0;
+    while (buffer.remaining() >= BUFFER_SIZE_PER_RECORD) {
+      long transformKey = buffer.getLong();
+      byte group = buffer.get();
+      int hash1 = buffer.getInt();
+      int hash2 = buffer.getInt();
+      int hashcode = buffer.getInt();
+      ReferenceBoard advBoard = new ReferenceBoard(transformKey, group, hash1, hash2, hashcode);
+
+      byte[] moves = new byte[NUM_LOOKUPS];
+      buffer.get(moves);
+      short[] initMoves = new short[NUM_LOOKUPS];
+      for (int i = 0; i < NUM_LOOKUPS; i++) {
+        initMoves[i] = buffer.getShort();
+      }
+      byte status = buffer.get();
+
+      ReferenceMoves advMoves = refTable.get(advBoard);
+      int mirrorSlot = -1;
+      if (advMoves == null && mergeMirror) {
+        mirrorSlot = refTable.slotOf(ReferenceTable.mirrorKeyOf(advBoard));
+      }
+      if (advMoves != null) {
+        advMoves.updateMoves(moves, initMoves, status);
+      } else if (mirrorSlot >= 0) {
+        advBoard = refTable.getBoard(mirrorSlot);
+        advMoves = refTable.getMoves(mirrorSlot);
+        advMoves.updateMirrorMoves(moves, initMoves, status);
+      } else {
+        advMoves = new ReferenceMoves(moves, initMoves, status);
+      }
+      refTable.put(advBoard, advMoves);
+      count++;
+    }
+
+    if (buffer.remaining() > 0) {
+      throw new IOException("Data file error - reference collection");
+    }
+    return count;
+  }
+
+  /**
+   * Write a record of the given reference board and moves to the given buffer.
+   *
+   * @param buffer the given ByteBuffer
+   * @param advBoard the given ReferenceBoard object
+   * @param advMoves the given ReferenceMoves object
+   */
+  static void putRecord(final ByteBuffer buffer, final ReferenceBoard advBoard,
+      final ReferenceMoves advMoves) {
+    buffer.putLong(ReferenceTable.transformKeyOf(advBoard));   // 8
+    buffer.put(advBoard.getGroup());                          // 1
+    buffer.putInt(advBoard.getHash1());                       // 4
+    buffer.putInt(advBoard.getHash2());                       // 4
+    buffer.putInt(advBoard.hashCode());                       // 4
+    buffer.put(advMoves.getMoves());                          // 4
+    for (short move : advMoves.getInitMoves()) {              // 8 (2x4)
+      buffer.putShort(move);
+    }
+    buffer.put(advMoves.getStatus());                         // 1
+  }
+
+  /**
+   * Queue a record of the given reference board and moves to append to the delta log.
+   * Request the rotation if the delta log exceeds the number of reference boards.
+   *
+   * @param advBoard the given ReferenceBoard object
+   * @param advMoves the given ReferenceMoves object
+   * @throws IOException interrupted while the queue is full
+   */
+  void append(final ReferenceBoard advBoard, final ReferenceMoves advMoves)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE_PER_RECORD);
+    putRecord(buffer, advBoard, advMoves);
+
+    synchronized (enqueueLock) {
+      enqueue(new Request(buffer.array()));
+      deltaRecords++;
+      synchronized (this) {
+        if (compacting || table == null
+            || deltaRecords <= Math.max(MIN_COMPACT_RECORDS, table.size())) {
+          return;
+        }
+        compacting = true;
+      }
+      deltaRecords = 0;
+      enqueue(new Request(Request.ROTATE, table.copy(), cutoffSetting));
+    }
+  }
+
+  /**
+   * Save a new snapshot of the given table and cutoff setting, and clear the delta logs.
+   * Wait for the queued records and the compaction in background to finish first.
+   *
+   * @param refTable the given ReferenceTable object
+   * @param cutoff the integer of cutoff setting
+   * @throws IOException any IOException
+   */
+  void saveSnapshot(final ReferenceTable refTable, final int cutoff) throws IOException {
+    Request request = new Request(Request.SNAPSHOT, refTable, cutoff);
+    synchronized (enqueueLock) {
+      table = refTable;
+      cutoffSetting = cutoff;
+      deltaRecords = 0;
+      enqueue(request);
+    }
+    request.await();
+  }
+
+  /**
+   * Wait for all queued records written to the delta log.
+   *
+   * @throws IOException any IOException of the writer
+   */
+  void flush() throws IOException {
+    Request request = new Request(Request.FLUSH, null, 0);
+    synchronized (enqueueLock) {
+      enqueue(request);
+    }
+    request.await();
+  }
+
+  /**
+   * Write the queued records and wait for the compaction in background, then stop the
+   * writer and remove its shutdown hook.  A later request starts a new writer.
+   *
+   * @throws IOException any IOException of the writer
+   */
+  void close() throws IOException {
+    Request request = new Request(Request.CLOSE, null, 0);
+    synchronized (enqueueLock) {
+      if (writer == null) {
+        return;
+      }
+      try {
+        enqueue(request);
+        request.await();
+      } finally {
+        writer = null;
+        try {
+          Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException ex) {
+          // the virtual machine is shutting down, the hook is running
+        }
+        shutdownHook = null;
+      }
+    }
+  }
+
+  /**
+   * Put the given request to the writer queue, start the writer if not started.
+   *
+   * @param request the given Request object
+   * @throws IOException interrupted while the queue is full
+   */
+  private void enqueue(final Request request) throws IOException {
+    if (writer == null) {
+      writer = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          writeBehind();
+        }
+      }, "reference-writer");
+      writer.setDaemon(true);
+      writer.start();
+      shutdownHook = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            flush();
+          } catch (IOException ex) {
+            System.err.println("System error : reference writer - " + ex.getMessage());
+          }
+        }
+      }, "reference-writer-shutdown");
+      Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+    try {
+      queue.put(request);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while queuing reference record");
+    }
+  }
+
+  /**
+   * The writer loop, collects a batch of records until the flush records, the flush
+   * interval or a non record request, then process the batch.  Stop after a close
+   * request.
+   */
+  private void writeBehind() {
+    final List<Request> batch = new ArrayList<Request>(flushRecords + 1);
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE_PER_RECORD * flushRecords);
+    while (true) {
+      Request request;
+      try {
+        request = queue.take();
+      } catch (InterruptedException ex) {
+        // keep running, the writer is a daemon thread
+        continue;
+      }
+      batch.add(request);
+      long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushInterval);
+      while (request.kind == Request.RECORD && batch.size() < flushRecords) {
+        long wait = deadline - System.nanoTime();
+        try {
+          request = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+        } catch (InterruptedException ex) {
+          break;
+        }
+        if (request == null) {
+          break;
+        }
+        batch.add(request);
+      }
+      boolean stop = batch.get(batch.size() - 1).kind == Request.CLOSE;
+      processBatch(batch, buffer);
+      batch.clear();
+      if (stop) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Write the records of the given batch in one channel write, then process the last
+   * request if it is not a record.
+   *
+   * @param batch the given list of requests
+   * @param buffer the direct ByteBuffer of the records
+   */
+  private void processBatch(final List<Request> batch, final ByteBuffer buffer) {
+    Request last = batch.get(batch.size() - 1);
+    IOException error = null;
+    try {
+      buffer.clear();
+      for (Request request : batch) {
+        if (request.kind == Request.RECORD) {
+          buffer.put(request.record);
+        }
+      }
+      buffer.flip();
+      if (buffer.hasRemaining()) {
+        if (deltaChannel == null) {
+          deltaChannel = FileChannel.open(deltaPath, StandardOpenOption.CREATE,
+              StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        while (buffer.hasRemaining()) {
+          deltaChannel.write(buffer);
+        }
+        force(false);
+      }
+
+      if (last.kind == Request.FLUSH) {
+        force(true);
+      } else if (last.kind == Request.ROTATE) {
+        rotate(last);
+      } else if (last.kind == Request.CLOSE) {
+        closeDelta();
+        synchronized (this) {
+          while (compacting) {
+            wait();
+          }
+        }
+      } else if (last.kind == Request.SNAPSHOT) {
+        closeDelta();
+        synchronized (this) {
+          while (compacting) {
+            wait();
+          }
+        }
+        writeSnapshot(last.table, last.cutoff);
+        Files.deleteIfExists(compactPath);
+        Files.deleteIfExists(deltaPath);
+      }
+    } catch (IOException ex) {
+      error = ex;
+      System.err.println("System error : write file error - " + ex.getMessage());
+    } catch (InterruptedException ex) {
+      error = new IOException("Interrupted while waiting for reference compaction");
+    }
+    last.done(error);
+  }
+
+  /**
+   * Force the delta log to storage device by the fsync policy, never force if the
+   * policy is none.
+   *
+   * @param flush the boolean value represents a flush request, force any policy
+   *     except none
+   * @throws IOException any IOException
+   */
+  private void force(final boolean flush) throws IOException {
+    if (deltaChannel == null || fsyncPolicy == FsyncPolicy.NONE) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    if (flush || fsyncPolicy == FsyncPolicy.BATCH || now - lastForce >= FSYNC_PERIOD) {
+      deltaChannel.force(false);
+      lastForce = now;
+    }
+  }
+
+  /**
+   * Close the delta log channel of the writer.
+   *
+   * @throws IOException any IOException
+   */
+  private void closeDelta() throws IOException {
+    if (deltaChannel != null) {
+      deltaChannel.close();
+      deltaChannel = null;
+    }
+  }
+
+  /**
+   * Rotate the delta log and write a new snapshot of the table copy of the given request
+   * in background.  The records queued after the rotation go to the new delta log.
+   *
+   * @param request the given rotate request
+   * @throws IOException any IOException
+   */
+  private void rotate(final Request request) throws IOException {
+    try {
+      closeDelta();
+      if (Files.exists(deltaPath)) {
+        Files.move(deltaPath, compactPath, StandardCopyOption.ATOMIC_MOVE);
+      }
+    } catch (IOException ex) {
+      compactionDone();
+      throw ex;
+    }
+
+    Thread compactor = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          writeSnapshot(request.table, request.cutoff);
+          Files.deleteIfExists(compactPath);
+        } catch (IOException ex) {
+          System.err.println("System error : reference compaction failed - " + ex.getMessage());
+        } finally {
+          compactionDone();
+        }
+      }
+    }, "reference-compaction");
+    compactor.setDaemon(true);
+    compactor.start();
+  }
+
+  /**
+   * Clear the compacting flag and notify the waiting snapshot request.
+   */
+  private synchronized void compactionDone() {
+    compacting = false;
+    notifyAll();
+  }
+
+  /**
+   * Write the snapshot of the given table to temporary file, then replace the snapshot
+   * file with an atomic move.
+   *
+   * @param refTable the given ReferenceTable object
+   * @param cutoff the integer of cutoff setting
+   * @throws IOException any IOException
+   */
+  private void writeSnapshot(final ReferenceTable refTable, final int cutoff)
+      throws IOException {
+    ReferenceTable view = refTable;
+    if (refTable instanceof ConcurrentReferenceTable) {
+      // scan one immutable copy, the collection in use may change while writing
+      view = ((ConcurrentReferenceTable) refTable).snapshot();
+    }
+    if (snapshotPath.getParent() != null) {
+      Files.createDirectories(snapshotPath.getParent());
+    }
+
+    try (FileChannel outChannel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE_PER_RECORD * RECORDS_PER_WRITE);
+      buffer.putInt(cutoff);
+      for (int slot = 0; slot < view.capacity(); slot++) {
+        if (!view.isOccupied(slot)) {
+          continue;
+        }
+        if (buffer.remaining() < BUFFER_SIZE_PER_RECORD) {
+          buffer.flip();
+          while (buffer.hasRemaining()) {
+            outChannel.write(buffer);
+          }
+          buffer.clear();
+        }
+        putRecord(buffer, view.getBoard(slot), view.getMoves(slot));
+      }
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        outChannel.write(buffer);
+      }
+      outChannel.force(true);
+    }
+
+    try {
+      Files.move(tempPath, snapshotPath, StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException ex) {
+      Files.move(tempPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Returns the number of records in delta log, include the records in queue.
+   *
+   * @return integer of number of records in delta log
+   */
+  int getDeltaRecords() {
+    synchronized (enqueueLock) {
+      return deltaRecords;
+    }
+  }
+
+  /**
+   * Returns the number of requests waiting in the writer queue.
+   *
+   * @return integer of number of requests waiting in the writer queue
+   */
+  int getQueueDepth() {
+    return queue.size();
+  }
+
+  /**
+   * Request is the element of the writer queue, a record to append or a command.
+   */
+  private static final class Request {
+    /** Append a record to delta log. */
+    static final int RECORD = 0;
+    /** Rotate the delta log and compact in background. */
+    static final int ROTATE = 1;
+    /** Save a snapshot and clear the delta logs. */
+    static final int SNAPSHOT = 2;
+    /** Force the delta log and notify the caller. */
+    static final int FLUSH = 3;
+    /** Close the delta log, wait for the compaction and stop the writer. */
+    static final int CLOSE = 4;
+
+    /** The kind of request. */
+    private final int kind;
+    /** The encoded record, or null if not a record. */
+    private final byte[] record;
+    /** The table of rotate or snapshot request. */
+    private final ReferenceTable table;
+    /** The cutoff setting of rotate or snapshot request. */
+    private final int cutoff;
+    /** The latch of the caller waiting for the request. */
+    private final CountDownLatch latch;
+    /** The IOException of the request if failed. */
+    private volatile IOException error;
+
+    /**
+     * Initializes a record request.
+     *
+     * @param record the encoded record
+     */
+    Request(final byte[] record) {
+      kind = RECORD;
+      this.record = record;
+      table = null;
+      cutoff = 0;
+      latch = null;
+    }
+
+    /**
+     * Initializes a command request.
+     *
+     * @param kind the kind of request
+     * @param table the table of rotate or snapshot request
+     * @param cutoff the cutoff setting of rotate or snapshot request
+     */
+    Request(final int kind, final ReferenceTable table, final int cutoff) {
+      this.kind = kind;
+      record = null;
+      this.table = table;
+      this.cutoff = cutoff;
+      latch = new CountDownLatch(1);
+    }
+
+    /**
+     * Mark the request is done with the given error, or null if success.
+     *
+     * @param ex the IOException of the request, or null if success
+     */
+    void done(final IOException ex) {
+      if (latch != null) {
+        error = ex;
+        latch.countDown();
+      }
+    }
+
+    /**
+     * Wait for the request is done, throw the error if failed.
+     *
+     * @throws IOException the IOException of the request or interrupted
+     */
+    void await() throws IOException {
+      try {
+        latch.await();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while waiting for reference writer");
+      }
+      if (error != null) {
+        throw error;
+      }
+    }
+  }
+}
@@ -0,0 +1,897 @@
+package mwong.myprojects.fifteenpuzzle.solution.ai;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+import mwong.myprojects.fifteenpuzzle.puzzle.PuzzleConstants;
+
+/**
+ * ReferenceTable is the open addressing hash table of reference collection.  Each
+ * reference board is keyed by the 64 bits canonical key, hash key 1 and hash key 2 of
+ * ReferenceBoard, with linear probing.  The transform key, group, moves, partial
+ * solutions and status are stored in parallel primitive arrays, about 30 bytes per slot
+ * instead of a ReferenceBoard and ReferenceMoves object per entry.
+ *
+ * <p>The ReferenceMoves and ReferenceBoard returned are copies restore from the table,
+ * the modification of ReferenceMoves must put back to the table.
+ *
+ * <p>Serialization writes the occupied slots only, 30 bytes per reference board, the
+ * receiver rebuilds the table.
+ *
+ * <p>SharedReferenceTable overrides the storage with a memory mapped file shared by
+ * multiple applications on the same machine.  ConcurrentReferenceTable publishes
+ * immutable copies for the reference server shared by many threads.
+ *
+ * <p>The canonical key and mirror key can be computed from the packed tiles of a board
+ * without creating a ReferenceBoard.  A Bloom filter of 2 bits per key in front of the
+ * table rejects most of the boards not in the collection before probing.
+ *
+ * <p>Dependencies : PuzzleConstants.java, ReferenceBoard.java, ReferenceConstants.java,
+ *                   ReferenceMoves.java
+ *
+ * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
+ *            target="_blank">Meisze Wong (linkedin)</a>
+ * @see <a href="http://www.github.com/mwong510ca/15PuzzleOptimalSolver/"
+ *         target="_blank">GitHub (full project)</a>
+ */
+public class ReferenceTable implements Serializable {
+  private static final long serialVersionUID = 17195273122L;
+  /** The number of lookups, split in 4 groups, 4 lookup per group.
+   *  @see ReferenceConstants#NUM_LOOKUPS */
+  private static final int NUM_LOOKUPS = ReferenceConstants.getNumLookups();
+  /** The bit size of tile value. (0 - 15)
+   *  @see mwong.myprojects.fifteenpuzzle.puzzle.PuzzleConstants#TILE_BIT_SIZE */
+  private static final int TILE_BIT_SIZE = ReferenceConstants.getTileBitSize();
+  /** The tile bits in binary is 00001111.
+   *  @see mwong.myprojects.fifteenpuzzle.puzzle.PuzzleConstants#TILE_BITS */
+  private static final long TILE_BITS = ReferenceConstants.getTileBits();
+  /** The puzzle size.
+   *  @see mwong.myprojects.fifteenpuzzle.puzzle.PuzzleConstants#SIZE */
+  private static final int PUZZLE_SIZE = ReferenceConstants.getPuzzleSize();
+  /** The byte array of reference lookup of zero space.
+   *  @see ReferenceConstants#REFERENCE_LOOKUP */
+  private static final byte[] REF_LOOKUP = ReferenceConstants.getReferenceLookup();
+  /** The byte array of reference group of zero space.
+   *  @see ReferenceConstants#REFERENCE_GROUP */
+  private static final byte[] REF_GROUP = ReferenceConstants.getReferenceGroup();
+  /** The double byte array combines group with lookup of zero space.
+   *  @see ReferenceConstants#GROUP_LOOKUP_POS */
+  private static final byte[][] GROUP_LOOKUP_POS = ReferenceConstants.getGroupLookupPos();
+  /** The byte value of mirror flip group.
+   *  @see ReferenceConstants#MIRROR_FLIP_GROUP */
+  private static final byte MIRROR_FLIP_GROUP = ReferenceConstants.getMirrorFlipGroup();
+  /** Mirror reflection, position conversion table.
+   *  @see mwong.myprojects.fifteenpuzzle.puzzle.PuzzleConstants#MIRROR_POSITION */
+  private static final byte[] MIRROR_POSITION = PuzzleConstants.getMirrorPosition();
+  /** The constant of hash code of ReferenceBoard. */
+  private static final int HASHCODE_CONSTANT = 0x1111;
+  /** The golden ratio constant to mix the key. */
+  private static final long MIX_CONSTANT = 0x9E3779B97F4A7C15L;
+  /** The default initial capacity. */
+  private static final int DEFAULT_CAPACITY = 64;
+  /** The key of empty slot, never a valid board. */
+  private static final long EMPTY = 0L;
+  /** The constant to mix the key of Bloom filter, independent of table slot. */
+  private static final long BLOOM_CONSTANT = 0xC2B2AE3D27D4EB4FL;
+  /** The number of slots per long of Bloom filter, 16 bits per slot. */
+  private static final int BLOOM_SLOTS_SHIFT = 2;
+
+  /** The canonical keys, 0 represents empty slot. */
+  private transient long[] keys;
+  /** The transform keys of reference boards. */
+  private transient long[] transforms;
+  /** The reference groups of reference boards. */
+  private transient byte[] groups;
+  /** The number of moves per group lookup, 4 bytes per slot. */
+  private transient byte[] moves;
+  /** The compress partial solution per group lookup, 4 shorts per slot. */
+  private transient short[] initMoves;
+  /** The status of group lookups that has been verified. */
+  private transient byte[] status;
+  /** The bits of Bloom filter. */
+  private transient long[] bloom;
+  /** The bit mask of Bloom filter. */
+  private transient int bloomMask;
+  /** The number of reference boards. */
+  private transient int size;
+  /** The bit mask of capacity. */
+  private transient int mask;
+  /** The random identity of this table. */
+  private final long tableId;
+  /** The version number, increment on every modification. */
+  private long version;
+  /** The canonical keys of the latest changes indexed by version, or null if disabled. */
+  private transient long[] journal;
+  /** The version when the journal was enabled. */
+  private transient long journalStart;
+  /** The hit counters of reference boards, or null if not tracked. */
+  private transient ReferenceUsage usage;
+
+  /**
+   * Initializes an empty ReferenceTable object with default capacity.
+   */
+  public ReferenceTable() {
+    this(DEFAULT_CAPACITY / 2);
+  }
+
+  /**
+   * Initializes an empty ReferenceTable object with the capacity of the given
+   * expected number of reference boards.
+   *
+   * @param expectedSize the expected number of reference boards
+   */
+  public ReferenceTable(final int expectedSize) {
+    this(expectedSize, ThreadLocalRandom.current().nextLong());
+  }
+
+  /**
+   * Initializes an empty ReferenceTable object with the given identity and the capacity
+   * of the given expected number of reference boards.
+   *
+   * @param expectedSize the expected number of reference boards
+   * @param tableId the identity of the table
+   */
+  ReferenceTable(final int expectedSize, final long tableId) {
+    if (expectedSize < 0) {
+      throw new IllegalArgumentException("Invalid size : " + expectedSize);
+    }
+    allocate(capacityOf(expectedSize));
+    this.tableId = tableId;
+  }
+
+  /**
+   * Returns the capacity of the given expected number of reference boards.
+   *
+   * @param expectedSize the expected number of reference boards
+   * @return integer of capacity, power of 2
+   */
+  private static int capacityOf(final int expectedSize) {
+    int capacity = DEFAULT_CAPACITY;
+    while (capacity < expectedSize * 2) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+
+  /**
+   * Initializes a ReferenceTable object copy from the given table, same identity,
+   * version and journal.
+   *
+   * @param source the given ReferenceTable object
+   */
+  private ReferenceTable(final ReferenceTable source) {
+    keys = source.keys.clone();
+    transforms = source.transforms.clone();
+    groups = source.groups.clone();
+    moves = source.moves.clone();
+    initMoves = source.initMoves.clone();
+    status = source.status.clone();
+    bloom = source.bloom.clone();
+    bloomMask = source.bloomMask;
+    size = source.size;
+    mask = source.mask;
+    tableId = source.tableId;
+    version = source.version;
+    if (source.journal != null) {
+      journal = source.journal.clone();
+      journalStart = source.journalStart;
+    }
+    usage = source.usage;
+  }
+
+  /**
+   * Returns a copy of this table, the copy is not affected by the later modification.
+   *
+   * @return ReferenceTable copy of this table
+   */
+  ReferenceTable copy() {
+    return new ReferenceTable(this);
+  }
+
+  /**
+   * Allocate the arrays of the given capacity.
+   *
+   * @param capacity the given capacity, must be power of 2
+   */
+  private void allocate(final int capacity) {
+    keys = new long[capacity];
+    transforms = new long[capacity];
+    groups = new byte[capacity];
+    moves = new byte[capacity * NUM_LOOKUPS];
+    initMoves = new short[capacity * NUM_LOOKUPS];
+    status = new byte[capacity];
+    mask = capacity - 1;
+    bloom = new long[capacity >> BLOOM_SLOTS_SHIFT];
+    bloomMask = (bloom.length << 6) - 1;
+  }
+
+  /**
+   * Returns the long value of canonical key of the given reference board.
+   *
+   * @param advBoard the given ReferenceBoard object
+   * @return long value of canonical key of the given reference board
+   */
+  public static long keyOf(final ReferenceBoard advBoard) {
+    return (long) advBoard.getHash1() << Integer.SIZE | (advBoard.getHash2() & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Returns the long value of canonical key of the board of the given packed tiles and
+   * zero position, the same as keyOf(new ReferenceBoard(board)) without allocation.
+   *
+   * @param packedTiles the long value of tiles packed in 4 bits per tile
+   * @param zeroPos the position of zero space
+   * @return long value of canonical key of the given board
+   */
+  public static long canonicalKey(final long packedTiles, final int zeroPos) {
+    long tiles = packedTiles;
+    int group = REF_GROUP[zeroPos];
+    int lookup = REF_LOOKUP[zeroPos];
+    if (group == MIRROR_FLIP_GROUP) {
+      group = 1;
+      tiles = PuzzleConstants.packedMirror(packedTiles);
+    }
+
+    while (lookup > 0) {
+      int dest = tileShift(GROUP_LOOKUP_POS[group][lookup]);
+      int src = tileShift(GROUP_LOOKUP_POS[group][--lookup]);
+      tiles = (tiles & ~(TILE_BITS << dest)) | (((tiles >>> src) & TILE_BITS) << dest);
+      tiles &= ~(TILE_BITS << src);
+    }
+    return tiles;
+  }
+
+  /**
+   * Returns the long value of canonical key of the mirror reflection of the board of the
+   * given packed tiles and zero position if the zero space in group 0 or 2, otherwise
+   * returns 0 that never matches.
+   *
+   * @param packedTiles the long value of tiles packed in 4 bits per tile
+   * @param zeroPos the position of zero space
+   * @return long value of canonical key of the mirror board, or 0 if not applicable
+   */
+  public static long mirrorKey(final long packedTiles, final int zeroPos) {
+    int group = REF_GROUP[zeroPos];
+    if (group != 0 && group != 2) {
+      return EMPTY;
+    }
+    return canonicalKey(PuzzleConstants.packedMirror(packedTiles), MIRROR_POSITION[zeroPos]);
+  }
+
+  /**
+   * Returns the long value of canonical key of the mirror reflection of the given
+   * reference board if it is in group 0 or 2, otherwise returns 0 that never matches.
+   *
+   * @param advBoard the given ReferenceBoard object
+   * @return long value of canonical key of the mirror board, or 0 if not applicable
+   */
+  static long mirrorKeyOf(final ReferenceBoard advBoard) {
+    long key = keyOf(advBoard);
+    for (int pos = 0; pos < PUZZLE_SIZE; pos++) {
+      if (((key >>> tileShift(pos)) & TILE_BITS) == 0) {
+        return mirrorKey(key, pos);
+      }
+    }
+    return EMPTY;
+  }
+
+  /**
+   * Returns the bit shift of the tile at the given position of packed tiles.
+   *
+   * @param pos the given position
+   * @return integer of bit shift of the tile at the given position
+   */
+  private static int tileShift(final int pos) {
+    return (PUZZLE_SIZE - 1 - pos) * TILE_BIT_SIZE;
+  }
+
+  /**
+   * Returns the long value of transform key of the given reference board, 4 bits per tile.
+   *
+   * @param advBoard the given ReferenceBoard object
+   * @return long value of transform key of the given reference board
+   */
+  static long transformKeyOf(final ReferenceBoard advBoard) {
+    long key = 0L;
+    for (int val : advBoard.getTilesTransform()) {
+      key <<= TILE_BIT_SIZE;
+      key |= val;
+    }
+    return key;
+  }
+
+  /**
+   * Returns the home slot of the given key.
+   *
+   * @param key the given canonical key
+   * @return integer of home slot of the given key
+   */
+  private int home(final long key) {
+    long hash = key * MIX_CONSTANT;
+    return (int) (hash ^ hash >>> Integer.SIZE) & mask;
+  }
+
+  /**
+   * Returns the slot of the given key, or -1 if not exists.
+   *
+   * @param key the given canonical key
+   * @return integer of the slot of the given key, or -1 if not exists
+   */
+  public int slotOf(final long key) {
+    if (key == EMPTY || !mightContain(key)) {
+      return -1;
+    }
+    int slot = home(key);
+    while (keys[slot] != EMPTY) {
+      if (keys[slot] == key) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the number of reference boards.
+   *
+   * @return integer of number of reference boards
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the boolean value represents the table is empty.
+   *
+   * @return boolean value represents the table is empty
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Returns the boolean value represents the given reference board in the table.
+   *
+   * @param advBoard the given ReferenceBoard object, may be null
+   * @return boolean value represents the given reference board in the table
+   */
+  public boolean containsKey(final ReferenceBoard advBoard) {
+    return advBoard != null && slotOf(keyOf(advBoard)) > -1;
+  }
+
+  /**
+   * Returns the boolean value represents the given canonical key in the table.
+   *
+   * @param key the given canonical key
+   * @return boolean value represents the given canonical key in the table
+   */
+  public boolean containsKey(final long key) {
+    return slotOf(key) > -1;
+  }
+
+  /**
+   * Returns a copy of ReferenceMoves of the given reference board, or null if not exists.
+   *
+   * @param advBoard the given ReferenceBoard object, may be null
+   * @return copy of ReferenceMoves of the given reference board, or null if not exists
+   */
+  public ReferenceMoves get(final ReferenceBoard advBoard) {
+    if (advBoard == null) {
+      return null;
+    }
+    int slot = slotOf(keyOf(advBoard));
+    if (slot < 0) {
+      return null;
+    }
+    return getMoves(slot);
+  }
+
+  /**
+   * Insert or replace the given reference board with the given ReferenceMoves.
+   *
+   * @param advBoard the given ReferenceBoard object
+   * @param advMoves the given ReferenceMoves object
+   */
+  public void put(final ReferenceBoard advBoard, final ReferenceMoves advMoves) {
+    long key = keyOf(advBoard);
+    int slot = slotOf(key);
+    if (slot < 0) {
+      if ((size + 1) * 2 > keys.length) {
+        resize(keys.length << 1);
+      }
+      slot = home(key);
+      while (keys[slot] != EMPTY) {
+        slot = (slot + 1) & mask;
+      }
+      keys[slot] = key;
+      addBloom(key);
+      transforms[slot] = transformKeyOf(advBoard);
+      groups[slot] = advBoard.getGroup();
+      size++;
+    }
+    System.arraycopy(advMoves.getMoves(), 0, moves, slot * NUM_LOOKUPS, NUM_LOOKUPS);
+    System.arraycopy(advMoves.getInitMoves(), 0, initMoves, slot * NUM_LOOKUPS, NUM_LOOKUPS);
+    status[slot] = advMoves.getStatus();
+    version++;
+    journal(key);
+  }
+
+  /**
+   * Remove the given reference board from the table.  The following entries of the same
+   * cluster shift backward, no tombstone.
+   *
+   * @param advBoard the given ReferenceBoard object
+   * @return boolean value represents the reference board has been removed
+   */
+  public boolean remove(final ReferenceBoard advBoard) {
+    return removeKey(keyOf(advBoard));
+  }
+
+  /**
+   * Remove the reference board of the given canonical key from the table.
+   *
+   * @param key the canonical key of the given reference board
+   * @return boolean value represents the reference board has been removed
+   */
+  boolean removeKey(final long key) {
+    if (!removeSlot(key)) {
+      return false;
+    }
+    rebuildBloom();
+    return true;
+  }
+
+  /**
+   * Remove the reference boards of the given canonical keys if exist, the Bloom filter
+   * is rebuilt once.
+   *
+   * @param removeKeys the long array of canonical keys
+   * @return integer of number of reference boards removed
+   */
+  int removeAll(final long[] removeKeys) {
+    int count = 0;
+    for (long key : removeKeys) {
+      if (removeSlot(key)) {
+        count++;
+      }
+    }
+    if (count > 0) {
+      rebuildBloom();
+    }
+    return count;
+  }
+
+  /**
+   * Remove the reference board of the given canonical key from the slots, the Bloom
+   * filter is not updated.
+   *
+   * @param key the canonical key of the given reference board
+   * @return boolean value represents the reference board has been removed
+   */
+  private boolean removeSlot(final long key) {
+    int slot = slotOf(key);
+    if (slot < 0) {
+      return false;
+    }
+    int next = (slot + 1) & mask;
+    while (keys[next] != EMPTY) {
+      if (((next - home(keys[next])) & mask) >= ((next - slot) & mask)) {
+        copySlot(next, slot);
+        slot = next;
+      }
+      next = (next + 1) & mask;
+    }
+    keys[slot] = EMPTY;
+    size--;
+    version++;
+    journal(key);
+    return true;
+  }
+
+  /**
+   * Rebuild the Bloom filter from the remaining keys, Bloom filter does not support
+   * removal.
+   */
+  private void rebuildBloom() {
+    Arrays.fill(bloom, 0L);
+    for (long remain : keys) {
+      if (remain != EMPTY) {
+        addBloom(remain);
+      }
+    }
+  }
+
+  /**
+   * Returns the boolean value represents the given key may be in the table, false
+   * represents the given key is definitely not in the table.
+   *
+   * @param key the given canonical key
+   * @return boolean value represents the given key may be in the table
+   */
+  public boolean mightContain(final long key) {
+    long hash = key * BLOOM_CONSTANT;
+    int bit1 = (int) (hash >>> Integer.SIZE) & bloomMask;
+    int bit2 = (int) hash & bloomMask;
+    return (bloom[bit1 >>> 6] & 1L << bit1) != 0 && (bloom[bit2 >>> 6] & 1L << bit2) != 0;
+  }
+
+  /**
+   * Add the given key to Bloom filter.
+   *
+   * @param key the given canonical key
+   */
+  private void addBloom(final long key) {
+    long hash = key * BLOOM_CONSTANT;
+    int bit1 = (int) (hash >>> Integer.SIZE) & bloomMask;
+    int bit2 = (int) hash & bloomMask;
+    bloom[bit1 >>> 6] |= 1L << bit1;
+    bloom[bit2 >>> 6] |= 1L << bit2;
+  }
+
+  /**
+   * Copy the entry from the source slot to the destination slot.
+   *
+   * @param src the source slot
+   * @param dest the destination slot
+   */
+  private void copySlot(final int src, final int dest) {
+    keys[dest] = keys[src];
+    transforms[dest] = transforms[src];
+    groups[dest] = groups[src];
+    System.arraycopy(moves, src * NUM_LOOKUPS, moves, dest * NUM_LOOKUPS, NUM_LOOKUPS);
+    System.arraycopy(initMoves, src * NUM_LOOKUPS, initMoves, dest * NUM_LOOKUPS, NUM_LOOKUPS);
+    status[dest] = status[src];
+  }
+
+  /**
+   * Rehash all entries to the new capacity.
+   *
+   * @param capacity the new capacity, must be power of 2
+   */
+  private void resize(final int capacity) {
+    long[] orgKeys = keys;
+    long[] orgTransforms = transforms;
+    byte[] orgGroups = groups;
+    byte[] orgMoves = moves;
+    short[] orgInitMoves = initMoves;
+    byte[] orgStatus = status;
+    allocate(capacity);
+
+    for (int src = 0; src < orgKeys.length; src++) {
+      if (orgKeys[src] == EMPTY) {
+        continue;
+      }
+      int slot = home(orgKeys[src]);
+      while (keys[slot] != EMPTY) {
+        slot = (slot + 1) & mask;
+      }
+      keys[slot] = orgKeys[src];
+      addBloom(orgKeys[src]);
+      transforms[slot] = orgTransforms[src];
+      groups[slot] = orgGroups[src];
+      System.arraycopy(orgMoves, src * NUM_LOOKUPS, moves, slot * NUM_LOOKUPS, NUM_LOOKUPS);
+      System.arraycopy(orgInitMoves, src * NUM_LOOKUPS, initMoves, slot * NUM_LOOKUPS,
+          NUM_LOOKUPS);
+      status[slot] = orgStatus[src];
+    }
+  }
+
+  /**
+   * Write the identity and version, follow by the number of reference boards and 30 bytes
+   * per reference board.  The empty slots and Bloom filter are not written.
+   *
+   * @param out the ObjectOutputStream
+   * @throws IOException any IOException
+   */
+  private void writeObject(final ObjectOutputStream out) throws IOException {
+    out.defaultWriteObject();
+    out.writeInt(size);
+    for (int slot = 0; slot < keys.length; slot++) {
+      if (keys[slot] == EMPTY) {
+        continue;
+      }
+      out.writeLong(keys[slot]);
+      out.writeLong(transforms[slot]);
+      out.writeByte(groups[slot]);
+      out.write(moves, slot * NUM_LOOKUPS, NUM_LOOKUPS);
+      for (int i = slot * NUM_LOOKUPS; i < (slot + 1) * NUM_LOOKUPS; i++) {
+        out.writeShort(initMoves[i]);
+      }
+      out.writeByte(status[slot]);
+    }
+  }
+
+  /**
+   * Read the identity and version, rebuild the table from the reference boards.
+   *
+   * @param in the ObjectInputStream
+   * @throws IOException any IOException
+   * @throws ClassNotFoundException ClassNotFoundException
+   */
+  private void readObject(final ObjectInputStream in) throws IOException,
+      ClassNotFoundException {
+    in.defaultReadObject();
+    int count = in.readInt();
+    if (count < 0) {
+      throw new InvalidObjectException("Invalid size : " + count);
+    }
+    allocate(capacityOf(count));
+    for (int i = 0; i < count; i++) {
+      long key = in.readLong();
+      if (key == EMPTY || slotOf(key) > -1) {
+        throw new InvalidObjectException("Invalid or duplicate key : " + key);
+      }
+      int slot = home(key);
+      while (keys[slot] != EMPTY) {
+        slot = (slot + 1) & mask;
+      }
+      keys[slot] = key;
+      addBloom(key);
+      transforms[slot] = in.readLong();
+      groups[slot] = in.readByte();
+      in.readFully(moves, slot * NUM_LOOKUPS, NUM_LOOKUPS);
+      for (int j = slot * NUM_LOOKUPS; j < (slot + 1) * NUM_LOOKUPS; j++) {
+        initMoves[j] = in.readShort();
+      }
+      status[slot] = in.readByte();
+    }
+    size = count;
+  }
+
+  /**
+   * Returns the number of slots, scan the slots from 0 to capacity - 1 with isOccupied
+   * to iterate all reference boards.
+   *
+   * @return integer of number of slots
+   */
+  public int capacity() {
+    return keys.length;
+  }
+
+  /**
+   * Returns the boolean value represents the given slot has a reference board.
+   *
+   * @param slot the given slot
+   * @return boolean value represents the given slot has a reference board
+   */
+  public boolean isOccupied(final int slot) {
+    return keys[slot] != EMPTY;
+  }
+
+  /**
+   * Returns the canonical key of the given slot.
+   *
+   * @param slot the given slot
+   * @return long value of canonical key of the given slot
+   */
+  public long getKey(final int slot) {
+    return keys[slot];
+  }
+
+  /**
+   * Returns the ReferenceBoard restore from the given slot.
+   *
+   * @param slot the given occupied slot
+   * @return ReferenceBoard restore from the given slot
+   */
+  public ReferenceBoard getBoard(final int slot) {
+    return restoreBoard(keys[slot], transforms[slot], groups[slot]);
+  }
+
+  /**
+   * Returns the ReferenceBoard restore from the given canonical key, transform key
+   * and group.
+   *
+   * @param key the given canonical key
+   * @param transformKey the given transform key
+   * @param group the given reference group
+   * @return ReferenceBoard restore from the given keys
+   */
+  static ReferenceBoard restoreBoard(final long key, final long transformKey,
+      final byte group) {
+    int hash1 = (int) (key >>> Integer.SIZE);
+    int hash2 = (int) key;
+    try {
+      return new ReferenceBoard(transformKey, group, hash1, hash2,
+          hash1 * (hash2 + HASHCODE_CONSTANT));
+    } catch (IOException ex) {
+      throw new IllegalStateException("Reference table error - invalid transform key");
+    }
+  }
+
+  /**
+   * Returns a copy of ReferenceMoves of the given slot.
+   *
+   * @param slot the given occupied slot
+   * @return copy of ReferenceMoves of the given slot
+   */
+  public ReferenceMoves getMoves(final int slot) {
+    byte[] copyMoves = new byte[NUM_LOOKUPS];
+    short[] copyInitMoves = new short[NUM_LOOKUPS];
+    System.arraycopy(moves, slot * NUM_LOOKUPS, copyMoves, 0, NUM_LOOKUPS);
+    System.arraycopy(initMoves, slot * NUM_LOOKUPS, copyInitMoves, 0, NUM_LOOKUPS);
+    return new ReferenceMoves(copyMoves, copyInitMoves, status[slot]);
+  }
+
+  /**
+   * Returns the byte of estimate of the reference board of the given slot.
+   *
+   * @param slot the given occupied slot
+   * @return byte of estimate of the reference board of the given slot
+   */
+  public byte getEstimate(final int slot) {
+    return moves[slot * NUM_LOOKUPS];
+  }
+
+  /**
+   * Returns the byte of estimate of the given lookup position of the reference board
+   * of the given slot.
+   *
+   * @param slot the given occupied slot
+   * @param lookup the give lookup key of the reference board
+   * @return byte of estimate of the given lookup position of the reference board
+   */
+  public byte getEstimate(final int slot, final int lookup) {
+    return moves[slot * NUM_LOOKUPS + lookup];
+  }
+
+  /**
+   * Returns the boolean represents the given lookup position of the reference board of
+   * the given slot has partial solution.
+   *
+   * @param slot the given occupied slot
+   * @param lookup the give lookup key of the reference board
+   * @return boolean represents the given lookup position has partial solution
+   */
+  public boolean hasInitialMoves(final int slot, final int lookup) {
+    return initMoves[slot * NUM_LOOKUPS + lookup] != 0;
+  }
+
+  /**
+   * Returns the long value of the random identity of this table.
+   *
+   * @return long value of the random identity of this table
+   */
+  public long getTableId() {
+    return tableId;
+  }
+
+  /**
+   * Returns the long value of version number, increment on every modification.
+   *
+   * @return long value of version number
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Keep the canonical keys of the latest changes in a ring buffer indexed by version,
+   * for the change feed of remote replicas.
+   *
+   * @param journalSize the number of changes kept in journal, must be power of 2
+   */
+  void enableJournal(final int journalSize) {
+    if (journalSize < 1 || Integer.bitCount(journalSize) != 1) {
+      throw new IllegalArgumentException("Invalid journal size : " + journalSize);
+    }
+    journal = new long[journalSize];
+    journalStart = version;
+  }
+
+  /**
+   * Record the given key of the current version in journal if enabled.
+   *
+   * @param key the canonical key of the changed reference board
+   */
+  private void journal(final long key) {
+    if (journal != null) {
+      journal[(int) version & (journal.length - 1)] = key;
+    }
+  }
+
+  /**
+   * Returns the ReferenceUpdate of the changes after the given version of the given table
+   * identity.  Returns a snapshot if the table identity is different, or the changes are
+   * no longer in journal.
+   *
+   * @param fromTableId the table identity of the replica
+   * @param fromVersion the version of the replica
+   * @return ReferenceUpdate of the changes after the given version
+   */
+  public ReferenceUpdate changesSince(final long fromTableId, final long fromVersion) {
+    while (true) {
+      final long currentVersion = getVersion();
+      if (fromTableId == getTableId() && fromVersion == currentVersion) {
+        return new ReferenceUpdate(getTableId(), currentVersion);
+      }
+      if (fromTableId != getTableId() || journal == null || fromVersion < journalStart
+          || fromVersion > currentVersion || currentVersion - fromVersion > journal.length) {
+        return new ReferenceUpdate(copy());
+      }
+
+      long[] changed = new long[(int) (currentVersion - fromVersion)];
+      for (int i = 0; i < changed.length; i++) {
+        changed[i] = journal[(int) (fromVersion + 1 + i) & (journal.length - 1)];
+      }
+      Arrays.sort(changed);
+      int count = 0;
+      for (int i = 0; i < changed.length; i++) {
+        if (i == 0 || changed[i] != changed[i - 1]) {
+          changed[count++] = changed[i];
+        }
+      }
+      ReferenceUpdate update = new ReferenceUpdate(getTableId(), currentVersion, count);
+      for (int i = 0; i < count; i++) {
+        int slot = slotOf(changed[i]);
+        if (slot < 0) {
+          update.addRemoved(changed[i]);
+        } else {
+          update.addRecord(changed[i], transforms[slot], groups[slot], getMoves(slot));
+        }
+      }
+      // modified during collection, try again
+      if (getVersion() == currentVersion) {
+        return update;
+      }
+    }
+  }
+
+  /**
+   * Set the hit counters of reference boards, the copies of this table share the same
+   * counters.
+   *
+   * @param usage the ReferenceUsage of hit counters, or null if not tracked
+   */
+  void setUsage(final ReferenceUsage usage) {
+    this.usage = usage;
+  }
+
+  /**
+   * Returns the hit counters of reference boards, or null if not tracked.
+   *
+   * @return ReferenceUsage of hit counters, or null
+   */
+  ReferenceUsage getUsage() {
+    return usage;
+  }
+
+  /**
+   * Count the reference board of the given canonical key improved an advanced estimate.
+   *
+   * @param key the canonical key of the reference board
+   */
+  public void recordBoost(final long key) {
+    ReferenceUsage tracker = getUsage();
+    if (tracker != null) {
+      tracker.boosted(key);
+    }
+  }
+
+  /**
+   * Count a search starts from the partial solution of the reference board of the given
+   * canonical key.
+   *
+   * @param key the canonical key of the reference board
+   */
+  public void recordPartial(final long key) {
+    ReferenceUsage tracker = getUsage();
+    if (tracker != null) {
+      tracker.supplied(key);
+    }
+  }
+
+  /**
+   * Set the version number, use by the copy of the same identity.
+   *
+   * @param version the long value of version number
+   */
+  void setVersion(final long version) {
+    this.version = version;
+  }
+}
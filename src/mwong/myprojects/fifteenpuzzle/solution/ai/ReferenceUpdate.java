@@ -0,0 +1,197 @@
+package mwong.myprojects.fifteenpuzzle.solution.ai;
+
+import java.io.Serializable;
+
+/**
+ * ReferenceUpdate is the change feed of reference collection from a given version.  It is
+ * either a snapshot of the full collection, or the latest records of the reference boards
+ * changed after the given version in primitive arrays.  A removed board has group -1.
+ *
+ * <p>Dependencies : ReferenceConstants.java, ReferenceMoves.java, ReferenceTable.java
+ *
+ * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
+ *            target="_blank">Meisze Wong (linkedin)</a>
+ * @see <a href="http://www.github.com/mwong510ca/15PuzzleOptimalSolver/"
+ *         target="_blank">GitHub (full project)</a>
+ */
+public final class ReferenceUpdate implements Serializable {
+  private static final long serialVersionUID = 17195273125L;
+  /** The number of lookups, split in 4 groups, 4 lookup per group.
+   *  @see ReferenceConstants#NUM_LOOKUPS */
+  private static final int NUM_LOOKUPS = ReferenceConstants.getNumLookups();
+  /** The group value of removed reference board. */
+  private static final byte REMOVED = -1;
+
+  /** The table identity of the source. */
+  private final long tableId;
+  /** The version of the source after the update. */
+  private final long version;
+  /** The snapshot of the full collection, or null if incremental update. */
+  private final ReferenceTable snapshot;
+  /** The canonical keys of changed reference boards. */
+  private final long[] keys;
+  /** The transform keys of changed reference boards. */
+  private final long[] transforms;
+  /** The groups of changed reference boards, -1 if removed. */
+  private final byte[] groups;
+  /** The moves of changed reference boards, 4 per board. */
+  private final byte[] moves;
+  /** The partial solutions of changed reference boards, 4 per board. */
+  private final short[] initMoves;
+  /** The status of changed reference boards. */
+  private final byte[] status;
+  /** The number of records. */
+  private int size;
+
+  /**
+   * Initializes an empty ReferenceUpdate object, the replica is up to date.
+   *
+   * @param tableId the table identity of the source
+   * @param version the version of the source
+   */
+  ReferenceUpdate(final long tableId, final long version) {
+    this(tableId, version, 0);
+  }
+
+  /**
+   * Initializes an incremental ReferenceUpdate object with the space of the given
+   * number of records.
+   *
+   * @param tableId the table identity of the source
+   * @param version the version of the source
+   * @param capacity the number of records
+   */
+  ReferenceUpdate(final long tableId, final long version, final int capacity) {
+    this.tableId = tableId;
+    this.version = version;
+    snapshot = null;
+    keys = new long[capacity];
+    transforms = new long[capacity];
+    groups = new byte[capacity];
+    moves = new byte[capacity * NUM_LOOKUPS];
+    initMoves = new short[capacity * NUM_LOOKUPS];
+    status = new byte[capacity];
+  }
+
+  /**
+   * Initializes a ReferenceUpdate object of the given snapshot.
+   *
+   * @param snapshot the copy of the full collection
+   */
+  ReferenceUpdate(final ReferenceTable snapshot) {
+    tableId = snapshot.getTableId();
+    version = snapshot.getVersion();
+    this.snapshot = snapshot;
+    keys = new long[0];
+    transforms = new long[0];
+    groups = new byte[0];
+    moves = new byte[0];
+    initMoves = new short[0];
+    status = new byte[0];
+  }
+
+  /**
+   * Add the record of the given changed reference board.
+   *
+   * @param key the canonical key of the reference board
+   * @param transformKey the transform key of the reference board
+   * @param group the group of the reference board
+   * @param advMoves the ReferenceMoves of the reference board
+   */
+  void addRecord(final long key, final long transformKey, final byte group,
+      final ReferenceMoves advMoves) {
+    keys[size] = key;
+    transforms[size] = transformKey;
+    groups[size] = group;
+    System.arraycopy(advMoves.getMoves(), 0, moves, size * NUM_LOOKUPS, NUM_LOOKUPS);
+    System.arraycopy(advMoves.getInitMoves(), 0, initMoves, size * NUM_LOOKUPS, NUM_LOOKUPS);
+    status[size] = advMoves.getStatus();
+    size++;
+  }
+
+  /**
+   * Add the record of the given removed reference board.
+   *
+   * @param key the canonical key of the removed reference board
+   */
+  void addRemoved(final long key) {
+    keys[size] = key;
+    groups[size] = REMOVED;
+    size++;
+  }
+
+  /**
+   * Returns the long value of table identity of the source.
+   *
+   * @return long value of table identity of the source
+   */
+  public long getTableId() {
+    return tableId;
+  }
+
+  /**
+   * Returns the long value of version of the source after the update.
+   *
+   * @return long value of version of the source
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Returns the boolean value represents the update is a snapshot of full collection.
+   *
+   * @return boolean value represents the update is a snapshot
+   */
+  public boolean isSnapshot() {
+    return snapshot != null;
+  }
+
+  /**
+   * Returns the number of changed reference boards, or the size of snapshot.
+   *
+   * @return integer of number of changed reference boards
+   */
+  public int size() {
+    if (snapshot != null) {
+      return snapshot.size();
+    }
+    return size;
+  }
+
+  /**
+   * Returns the ReferenceTable after apply this update to the given table.  The given
+   * table is not modified, the changes apply to a copy.  Returns the given table if no
+   * change, or the snapshot.
+   *
+   * @param current the given ReferenceTable of replica, or null
+   * @return ReferenceTable after apply this update
+   */
+  public ReferenceTable applyTo(final ReferenceTable current) {
+    if (snapshot != null) {
+      return snapshot;
+    }
+    if (current == null || current.getTableId() != tableId) {
+      throw new IllegalArgumentException("Update of a different reference collection");
+    }
+    if (size == 0 && current.getVersion() == version) {
+      return current;
+    }
+
+    ReferenceTable next = current.copy();
+    for (int i = 0; i < size; i++) {
+      if (groups[i] == REMOVED) {
+        next.removeKey(keys[i]);
+        continue;
+      }
+      byte[] copyMoves = new byte[NUM_LOOKUPS];
+      short[] copyInitMoves = new short[NUM_LOOKUPS];
+      System.arraycopy(moves, i * NUM_LOOKUPS, copyMoves, 0, NUM_LOOKUPS);
+      System.arraycopy(initMoves, i * NUM_LOOKUPS, copyInitMoves, 0, NUM_LOOKUPS);
+      next.put(ReferenceTable.restoreBoard(keys[i], transforms[i], groups[i]),
+          new ReferenceMoves(copyMoves, copyInitMoves, status[i]));
+    }
+    next.setVersion(version);
+    return next;
+  }
+}
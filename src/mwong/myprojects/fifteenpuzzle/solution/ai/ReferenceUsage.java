@@ -0,0 +1,324 @@
+package mwong.myprojects.fifteenpuzzle.solution.ai;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ReferenceUsage is the hit counters of reference boards.  A boost is counted when the
+ * reference board improves the advanced estimate of a search, a supply is counted when
+ * the search starts from its partial solution.  The last use is the time of the last
+ * hit, or the time the reference board added or first tracked.
+ *
+ * <p>The retention policy selects the reference boards of least value, except default
+ * reference boards: the boards not used longer than the maximum age, then the boards of
+ * least hits and oldest last use above the maximum size.  The counters are saved in a
+ * separate file, the data file format of reference collection is not changed.
+ *
+ * <p>The counters are kept in the process of the collection.  A remote client uses a
+ * copy of the collection and its hits are not counted.  The collections of the same
+ * file share one ReferenceUsage object, it is saved once by a shutdown hook.
+ *
+ * <p>Dependencies : ReferenceTable.java
+ *
+ * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
+ *            target="_blank">Meisze Wong (linkedin)</a>
+ * @see <a href="http://www.github.com/mwong510ca/15PuzzleOptimalSolver/"
+ *         target="_blank">GitHub (full project)</a>
+ */
+final class ReferenceUsage {
+  /** The ReferenceUsage objects by the absolute file path of saved counters. */
+  private static final Map<String, ReferenceUsage> INSTANCES =
+      new ConcurrentHashMap<String, ReferenceUsage>();
+
+  /** The file path of saved counters. */
+  private final String filepath;
+  /** The counters of reference boards by canonical key. */
+  private final Map<Long, Usage> counters = new ConcurrentHashMap<Long, Usage>();
+  /** The time the counters started, the last use of the boards without counter. */
+  private long startTime = System.currentTimeMillis();
+
+  /**
+   * Initializes ReferenceUsage object, load the saved counters of the given file if
+   * exists.
+   *
+   * @param filepath the file path of saved counters
+   */
+  private ReferenceUsage(final String filepath) {
+    this.filepath = filepath;
+    load();
+  }
+
+  /**
+   * Returns the ReferenceUsage object of the given file, load the saved counters and
+   * register the shutdown hook to save them on first use of the file.
+   *
+   * @param filepath the file path of saved counters
+   * @return ReferenceUsage object of the given file
+   */
+  static ReferenceUsage of(final String filepath) {
+    return INSTANCES.computeIfAbsent(new File(filepath).getAbsolutePath(), path -> {
+      ReferenceUsage usage = new ReferenceUsage(path);
+      Runtime.getRuntime().addShutdownHook(new Thread(usage::save, "reference-usage"));
+      return usage;
+    });
+  }
+
+  /**
+   * The counters of a reference board.
+   */
+  private static final class Usage {
+    /** The number of improved advanced estimates. */
+    private int boosts;
+    /** The number of searches start from the partial solution. */
+    private int supplies;
+    /** The time of last use in milliseconds. */
+    private long lastUse;
+
+    /**
+     * Initializes Usage object with the given counters.
+     *
+     * @param boosts the number of improved advanced estimates
+     * @param supplies the number of searches start from the partial solution
+     * @param lastUse the time of last use in milliseconds
+     */
+    private Usage(final int boosts, final int supplies, final long lastUse) {
+      this.boosts = boosts;
+      this.supplies = supplies;
+      this.lastUse = lastUse;
+    }
+  }
+
+  /**
+   * Returns the Usage object of the given canonical key, create if not exists.
+   *
+   * @param key the given canonical key
+   * @return Usage object of the given canonical key
+   */
+  private Usage usageOf(final long key) {
+    return counters.computeIfAbsent(key, k -> new Usage(0, 0, 0));
+  }
+
+  /**
+   * Count the reference board of the given canonical key improved an advanced estimate.
+   *
+   * @param key the given canonical key
+   */
+  void boosted(final long key) {
+    Usage usage = usageOf(key);
+    synchronized (usage) {
+      usage.boosts++;
+      usage.lastUse = System.currentTimeMillis();
+    }
+  }
+
+  /**
+   * Count a search starts from the partial solution of the reference board of the given
+   * canonical key.
+   *
+   * @param key the given canonical key
+   */
+  void supplied(final long key) {
+    Usage usage = usageOf(key);
+    synchronized (usage) {
+      usage.supplies++;
+      usage.lastUse = System.currentTimeMillis();
+    }
+  }
+
+  /**
+   * Start the age of the new reference board of the given canonical key.
+   *
+   * @param key the given canonical key
+   */
+  void added(final long key) {
+    Usage usage = usageOf(key);
+    synchronized (usage) {
+      usage.lastUse = System.currentTimeMillis();
+    }
+  }
+
+  /**
+   * Remove the counters of the given canonical key.
+   *
+   * @param key the given canonical key
+   */
+  void remove(final long key) {
+    counters.remove(key);
+  }
+
+  /**
+   * Returns the total number of hits of the given canonical key.
+   *
+   * @param key the given canonical key
+   * @return integer of total number of hits
+   */
+  int getHits(final long key) {
+    Usage usage = counters.get(key);
+    if (usage == null) {
+      return 0;
+    }
+    synchronized (usage) {
+      return usage.boosts + usage.supplies;
+    }
+  }
+
+  /**
+   * Returns the time of last use of the given canonical key, or the time the counters
+   * started if not used.
+   *
+   * @param key the given canonical key
+   * @return long value of time of last use in milliseconds
+   */
+  long getLastUse(final long key) {
+    Usage usage = counters.get(key);
+    if (usage == null) {
+      return startTime;
+    }
+    synchronized (usage) {
+      return Math.max(usage.lastUse, startTime);
+    }
+  }
+
+  /**
+   * Returns the canonical keys of the given table to remove by the retention policy,
+   * except the reference boards of the given default table.
+   *
+   * @param table the given ReferenceTable to scan, must not be modified
+   * @param defaultMap the ReferenceTable of default reference boards
+   * @param maxSize the maximum number of reference boards, 0 if unlimited
+   * @param maxAge the maximum milliseconds without use, 0 if unlimited
+   * @return long array of canonical keys to remove
+   */
+  long[] selectEvictions(final ReferenceTable table, final ReferenceTable defaultMap,
+      final int maxSize, final long maxAge) {
+    final long now = System.currentTimeMillis();
+    List<Long> evictions = new ArrayList<Long>();
+    List<long[]> candidates = new ArrayList<long[]>();
+    for (int slot = 0; slot < table.capacity(); slot++) {
+      if (!table.isOccupied(slot) || defaultMap.containsKey(table.getKey(slot))) {
+        continue;
+      }
+      long key = table.getKey(slot);
+      long lastUse = getLastUse(key);
+      if (maxAge > 0 && now - lastUse > maxAge) {
+        evictions.add(key);
+      } else {
+        candidates.add(new long[] {getHits(key), lastUse, key});
+      }
+    }
+
+    int excess = table.size() - evictions.size() - maxSize;
+    if (maxSize > 0 && excess > 0) {
+      // least hits first, then oldest last use
+      Collections.sort(candidates, (first, second) -> first[0] != second[0]
+          ? Long.compare(first[0], second[0]) : Long.compare(first[1], second[1]));
+      for (int i = 0; i < excess && i < candidates.size(); i++) {
+        evictions.add(candidates.get(i)[2]);
+      }
+    }
+
+    long[] keys = new long[evictions.size()];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = evictions.get(i);
+    }
+    return keys;
+  }
+
+  /**
+   * Returns the number of reference boards with counters.
+   *
+   * @return integer of number of reference boards with counters
+   */
+  int size() {
+    return counters.size();
+  }
+
+  /**
+   * Returns the total number of hits of all reference boards.
+   *
+   * @return long value of total number of hits
+   */
+  long getTotalHits() {
+    long total = 0;
+    for (Usage usage : counters.values()) {
+      synchronized (usage) {
+        total += usage.boosts + usage.supplies;
+      }
+    }
+    return total;
+  }
+
+  /**
+   * Save the counters to file.  Write to a temporary file then replace the file.
+   */
+  synchronized void save() {
+    File file = new File(filepath);
+    File temp = new File(filepath + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+        new FileOutputStream(temp)))) {
+      List<Map.Entry<Long, Usage>> entries =
+          new ArrayList<Map.Entry<Long, Usage>>(counters.entrySet());
+      out.writeLong(startTime);
+      out.writeInt(entries.size());
+      for (Map.Entry<Long, Usage> entry : entries) {
+        Usage usage = entry.getValue();
+        synchronized (usage) {
+          out.writeLong(entry.getKey());
+          out.writeInt(usage.boosts);
+          out.writeInt(usage.supplies);
+          out.writeLong(usage.lastUse);
+        }
+      }
+    } catch (IOException ex) {
+      System.err.println("System error : reference usage save - " + ex.getMessage());
+      return;
+    }
+    try {
+      Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException ex) {
+      System.err.println("System error : reference usage save - " + ex.getMessage());
+    }
+  }
+
+  /**
+   * Load the counters from file if exists, the file of invalid record is ignored.
+   */
+  private void load() {
+    File file = new File(filepath);
+    if (!file.exists()) {
+      return;
+    }
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+        new FileInputStream(file)))) {
+      long start = in.readLong();
+      int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        long key = in.readLong();
+        counters.put(key, new Usage(in.readInt(), in.readInt(), in.readLong()));
+      }
+      startTime = start;
+    } catch (IOException ex) {
+      System.err.println("System error : reference usage load - " + ex.getMessage());
+      counters.clear();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "Reference usage : " + size() + " boards used, " + getTotalHits() + " hits";
+  }
+}
@@ -0,0 +1,713 @@
+package mwong.myprojects.fifteenpuzzle.solution.ai;
+
+import java.io.IOException;
+import java.io.ObjectStreamException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * SharedReferenceTable is the ReferenceTable stored in a memory mapped file, shared by
+ * multiple standalone applications on the same machine.  Every application maps the
+ * same file, no heap copy of the reference collection.
+ *
+ * <p>The file has a 64 bytes header and a fixed number of slots of 32 bytes, linear
+ * probing of the canonical key same as ReferenceTable.  Readers are lock free with a
+ * sequence lock, the sequence number is odd while a writer is changing the slots, and
+ * the reader retry if the sequence number has changed.  Writers hold the exclusive file
+ * lock of the whole file.  The capacity is fixed when the file is created, a new board
+ * is rejected when the table is half full.
+ *
+ * <p>The reads and writes of mapped buffer are plain memory access, the sequence lock
+ * uses the load and store fences of sun.misc.Unsafe.  If the fences are not available,
+ * it falls back to a volatile field, only safe of the total store order of x86.  A
+ * writer that dies in the middle of a write leaves the sequence number odd, the next
+ * application opens the file rebuilds the slots and sets it to even.
+ *
+ * <p>Serialization sends a heap copy of ReferenceTable.
+ *
+ * <p>Dependencies : ReferenceBoard.java, ReferenceConstants.java, ReferenceMoves.java,
+ *                   ReferenceTable.java
+ *
+ * @author <a href="http://www.linkedin.com/pub/macy-wong/46/550/37b/"
+ *            target="_blank">Meisze Wong (linkedin)</a>
+ * @see <a href="http://www.github.com/mwong510ca/15PuzzleOptimalSolver/"
+ *         target="_blank">GitHub (full project)</a>
+ */
+public final class SharedReferenceTable extends ReferenceTable {
+  private static final long serialVersionUID = 17195273123L;
+  /** The number of lookups, split in 4 groups, 4 lookup per group.
+   *  @see ReferenceConstants#NUM_LOOKUPS */
+  private static final int NUM_LOOKUPS = ReferenceConstants.getNumLookups();
+  /** The magic number of shared file, "REF1". */
+  private static final int MAGIC = 0x52454631;
+  /** The header size. */
+  private static final int HEADER_SIZE = 64;
+  /** The slot size. */
+  private static final int SLOT_SIZE = 32;
+  /** The offset of magic number in header. */
+  private static final int MAGIC_OFFSET = 0;
+  /** The offset of capacity in header. */
+  private static final int CAPACITY_OFFSET = 4;
+  /** The offset of sequence number in header. */
+  private static final int SEQUENCE_OFFSET = 8;
+  /** The offset of number of reference boards in header. */
+  private static final int SIZE_OFFSET = 16;
+  /** The offset of cutoff setting in header. */
+  private static final int CUTOFF_OFFSET = 20;
+  /** The offset of table identity in header. */
+  private static final int TABLE_ID_OFFSET = 24;
+  /** The offset of version number in header. */
+  private static final int VERSION_OFFSET = 32;
+  /** The offset of transform key in slot. */
+  private static final int TRANSFORM_OFFSET = 8;
+  /** The offset of group in slot. */
+  private static final int GROUP_OFFSET = 16;
+  /** The offset of status in slot. */
+  private static final int STATUS_OFFSET = 17;
+  /** The offset of moves in slot, 4 bytes. */
+  private static final int MOVES_OFFSET = 18;
+  /** The offset of partial solutions in slot, 4 shorts. */
+  private static final int INIT_MOVES_OFFSET = 22;
+  /** The golden ratio constant to mix the key. */
+  private static final long MIX_CONSTANT = 0x9E3779B97F4A7C15L;
+  /** The key of empty slot, never a valid board. */
+  private static final long EMPTY = 0L;
+  /** The lock of writers in this application, file lock cannot overlap in one JVM. */
+  private static final Object WRITE_LOCK = new Object();
+  /** The load fence of sun.misc.Unsafe, or null if not available. */
+  private static final MethodHandle LOAD_FENCE = fence("loadFence");
+  /** The store fence of sun.misc.Unsafe, or null if not available. */
+  private static final MethodHandle STORE_FENCE = fence("storeFence");
+
+  /** The file channel of shared file. */
+  private final transient FileChannel channel;
+  /** The memory mapped buffer of shared file. */
+  private final transient MappedByteBuffer buffer;
+  /** The number of slots. */
+  private final transient int slots;
+  /** The bit mask of number of slots. */
+  private final transient int mask;
+  /** The volatile field orders the access of mapped buffer if no Unsafe fences. */
+  private transient volatile int fence;
+
+  /**
+   * Initializes SharedReferenceTable object with the given file channel, the file has
+   * been initialized.
+   *
+   * @param channel the file channel of shared file
+   * @param buffer the memory mapped buffer of shared file
+   */
+  private SharedReferenceTable(final FileChannel channel, final MappedByteBuffer buffer) {
+    super(0);
+    this.channel = channel;
+    this.buffer = buffer;
+    slots = buffer.getInt(CAPACITY_OFFSET);
+    mask = slots - 1;
+  }
+
+  /**
+   * Returns the SharedReferenceTable of the given file, create the file with the given
+   * capacity if not exists.
+   *
+   * @param filepath the file path of shared file
+   * @param capacity the number of slots of a new file, must be power of 2
+   * @return SharedReferenceTable of the given file
+   * @throws IOException any IOException or invalid shared file
+   */
+  public static SharedReferenceTable open(final String filepath, final int capacity)
+      throws IOException {
+    if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("Invalid capacity : " + capacity);
+    }
+    Path path = Paths.get(filepath);
+    if (path.getParent() != null) {
+      Files.createDirectories(path.getParent());
+    }
+
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      synchronized (WRITE_LOCK) {
+        int slots = capacity;
+        FileLock lock = channel.lock();
+        try {
+          if (channel.size() < HEADER_SIZE) {
+            MappedByteBuffer init = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                HEADER_SIZE + (long) slots * SLOT_SIZE);
+            init.putInt(CAPACITY_OFFSET, slots);
+            init.putLong(TABLE_ID_OFFSET, ThreadLocalRandom.current().nextLong());
+            init.putInt(MAGIC_OFFSET, MAGIC);
+            init.force();
+          } else {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                HEADER_SIZE);
+            slots = header.getInt(CAPACITY_OFFSET);
+            if (header.getInt(MAGIC_OFFSET) != MAGIC || slots < 2
+                || Integer.bitCount(slots) != 1
+                || channel.size() < HEADER_SIZE + (long) slots * SLOT_SIZE) {
+              throw new IOException("Data file error - " + filepath);
+            }
+          }
+          MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+              HEADER_SIZE + (long) slots * SLOT_SIZE);
+          SharedReferenceTable table = new SharedReferenceTable(channel, buffer);
+          if ((buffer.getLong(SEQUENCE_OFFSET) & 1) != 0) {
+            System.err.println("System error : shared reference collection write"
+                + " abandoned, rebuild - " + filepath);
+            table.rebuild();
+          }
+          return table;
+        } finally {
+          lock.release();
+        }
+      }
+    } catch (IOException | RuntimeException ex) {
+      channel.close();
+      throw ex;
+    }
+  }
+
+  /**
+   * Returns the method handle of the given fence method of sun.misc.Unsafe.
+   *
+   * @param name the name of fence method
+   * @return MethodHandle of the fence method, or null if not available
+   */
+  private static MethodHandle fence(final String name) {
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Field field = unsafeClass.getDeclaredField("theUnsafe");
+      field.setAccessible(true);
+      return MethodHandles.lookup().unreflect(unsafeClass.getMethod(name))
+          .bindTo(field.get(null));
+    } catch (ReflectiveOperationException | RuntimeException ex) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns the byte offset of the given slot.
+   *
+   * @param slot the given slot
+   * @return integer of byte offset of the given slot
+   */
+  private static int offset(final int slot) {
+    return HEADER_SIZE + slot * SLOT_SIZE;
+  }
+
+  /**
+   * Returns the home slot of the given key.
+   *
+   * @param key the given canonical key
+   * @return integer of home slot of the given key
+   */
+  private int home(final long key) {
+    long hash = key * MIX_CONSTANT;
+    return (int) (hash ^ hash >>> Integer.SIZE) & mask;
+  }
+
+  /**
+   * Returns the sequence number after the writer finished, spin while it is odd.
+   *
+   * @return long value of sequence number
+   */
+  private long beginRead() {
+    long sequence = buffer.getLong(SEQUENCE_OFFSET);
+    while ((sequence & 1) != 0) {
+      Thread.yield();
+      sequence = buffer.getLong(SEQUENCE_OFFSET);
+    }
+    loadFence();
+    return sequence;
+  }
+
+  /**
+   * Returns the boolean value represents the reads since the given sequence number
+   * are consistent.
+   *
+   * @param sequence the sequence number of beginRead
+   * @return boolean value represents the reads are consistent
+   */
+  private boolean endRead(final long sequence) {
+    loadFence();
+    return buffer.getLong(SEQUENCE_OFFSET) == sequence;
+  }
+
+  /**
+   * Load fence, the reads of mapped buffer are not reordered across it.  Without the
+   * Unsafe fence, a volatile read is enough of x86 only.
+   */
+  private void loadFence() {
+    if (LOAD_FENCE == null) {
+      if (fence != 0) {
+        fence = 0;
+      }
+      return;
+    }
+    try {
+      LOAD_FENCE.invokeExact();
+    } catch (Throwable ex) {
+      throw new IllegalStateException("Load fence error", ex);
+    }
+  }
+
+  /**
+   * Store fence, the writes of mapped buffer are not reordered across it.  Without the
+   * Unsafe fence, a volatile write is enough of x86 only.
+   */
+  private void storeFence() {
+    if (STORE_FENCE == null) {
+      fence = 0;
+      return;
+    }
+    try {
+      STORE_FENCE.invokeExact();
+    } catch (Throwable ex) {
+      throw new IllegalStateException("Store fence error", ex);
+    }
+  }
+
+  @Override
+  public int slotOf(final long key) {
+    if (key == EMPTY) {
+      return -1;
+    }
+    while (true) {
+      long sequence = beginRead();
+      int found = -1;
+      int slot = home(key);
+      for (int count = 0; count < slots; count++) {
+        long value = buffer.getLong(offset(slot));
+        if (value == EMPTY) {
+          break;
+        }
+        if (value == key) {
+          found = slot;
+          break;
+        }
+        slot = (slot + 1) & mask;
+      }
+      if (endRead(sequence)) {
+        return found;
+      }
+    }
+  }
+
+  @Override
+  public boolean mightContain(final long key) {
+    return key != EMPTY;
+  }
+
+  @Override
+  public int size() {
+    return buffer.getInt(SIZE_OFFSET);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  /**
+   * Returns the integer of cutoff setting stored in header, 0 if not set.
+   *
+   * @return integer of cutoff setting stored in header
+   */
+  public int getCutoff() {
+    return buffer.getInt(CUTOFF_OFFSET);
+  }
+
+  /**
+   * Set the cutoff setting stored in header.
+   *
+   * @param cutoff the integer of cutoff setting
+   */
+  public void setCutoff(final int cutoff) {
+    buffer.putInt(CUTOFF_OFFSET, cutoff);
+  }
+
+  @Override
+  public long getTableId() {
+    return buffer.getLong(TABLE_ID_OFFSET);
+  }
+
+  @Override
+  public long getVersion() {
+    return buffer.getLong(VERSION_OFFSET);
+  }
+
+  @Override
+  public int capacity() {
+    return slots;
+  }
+
+  @Override
+  public boolean isOccupied(final int slot) {
+    return buffer.getLong(offset(slot)) != EMPTY;
+  }
+
+  @Override
+  public long getKey(final int slot) {
+    return buffer.getLong(offset(slot));
+  }
+
+  @Override
+  public ReferenceBoard getBoard(final int slot) {
+    while (true) {
+      long sequence = beginRead();
+      long key = buffer.getLong(offset(slot));
+      long transformKey = buffer.getLong(offset(slot) + TRANSFORM_OFFSET);
+      byte group = buffer.get(offset(slot) + GROUP_OFFSET);
+      if (endRead(sequence)) {
+        return restoreBoard(key, transformKey, group);
+      }
+    }
+  }
+
+  @Override
+  public ReferenceMoves getMoves(final int slot) {
+    byte[] moves = new byte[NUM_LOOKUPS];
+    short[] initMoves = new short[NUM_LOOKUPS];
+    while (true) {
+      long sequence = beginRead();
+      int base = offset(slot);
+      for (int i = 0; i < NUM_LOOKUPS; i++) {
+        moves[i] = buffer.get(base + MOVES_OFFSET + i);
+        initMoves[i] = buffer.getShort(base + INIT_MOVES_OFFSET + i * Short.BYTES);
+      }
+      byte status = buffer.get(base + STATUS_OFFSET);
+      if (endRead(sequence)) {
+        return new ReferenceMoves(moves, initMoves, status);
+      }
+    }
+  }
+
+  @Override
+  public byte getEstimate(final int slot) {
+    return buffer.get(offset(slot) + MOVES_OFFSET);
+  }
+
+  @Override
+  public byte getEstimate(final int slot, final int lookup) {
+    return buffer.get(offset(slot) + MOVES_OFFSET + lookup);
+  }
+
+  @Override
+  public boolean hasInitialMoves(final int slot, final int lookup) {
+    return buffer.getShort(offset(slot) + INIT_MOVES_OFFSET + lookup * Short.BYTES) != 0;
+  }
+
+  /**
+   * Start a write, the caller must hold the file lock.  Set the sequence number to odd.
+   */
+  private void beginWrite() {
+    buffer.putLong(SEQUENCE_OFFSET, buffer.getLong(SEQUENCE_OFFSET) + 1);
+    storeFence();
+  }
+
+  /**
+   * End a write, increment the version and set the sequence number to even.
+   */
+  private void endWrite() {
+    buffer.putLong(VERSION_OFFSET, buffer.getLong(VERSION_OFFSET) + 1);
+    storeFence();
+    buffer.putLong(SEQUENCE_OFFSET, buffer.getLong(SEQUENCE_OFFSET) + 1);
+  }
+
+  /**
+   * Rebuild the slots after an abandoned write, the caller must hold the file lock and
+   * the sequence number is odd.  Reinsert every reference board in its probe sequence,
+   * drop the duplicate copy of a half done removal, then end the write.
+   */
+  private void rebuild() {
+    final int words = SLOT_SIZE / Long.BYTES;
+    int count = 0;
+    for (int slot = 0; slot < slots; slot++) {
+      if (buffer.getLong(offset(slot)) != EMPTY) {
+        count++;
+      }
+    }
+    long[] saved = new long[count * words];
+    int index = 0;
+    for (int slot = 0; slot < slots; slot++) {
+      if (buffer.getLong(offset(slot)) != EMPTY) {
+        for (int i = 0; i < words; i++) {
+          saved[index++] = buffer.getLong(offset(slot) + i * Long.BYTES);
+        }
+        buffer.putLong(offset(slot), EMPTY);
+      }
+    }
+
+    int size = 0;
+    for (int start = 0; start < saved.length; start += words) {
+      long key = saved[start];
+      int slot = home(key);
+      while (buffer.getLong(offset(slot)) != EMPTY && buffer.getLong(offset(slot)) != key) {
+        slot = (slot + 1) & mask;
+      }
+      if (buffer.getLong(offset(slot)) == key) {
+        continue;
+      }
+      for (int i = 0; i < words; i++) {
+        buffer.putLong(offset(slot) + i * Long.BYTES, saved[start + i]);
+      }
+      size++;
+    }
+    buffer.putInt(SIZE_OFFSET, size);
+    endWrite();
+  }
+
+  /**
+   * Write the given moves to the given slot.
+   *
+   * @param slot the given slot
+   * @param advMoves the given ReferenceMoves object
+   */
+  private void writeMoves(final int slot, final ReferenceMoves advMoves) {
+    int base = offset(slot);
+    for (int i = 0; i < NUM_LOOKUPS; i++) {
+      buffer.put(base + MOVES_OFFSET + i, advMoves.getMoves()[i]);
+      buffer.putShort(base + INIT_MOVES_OFFSET + i * Short.BYTES, advMoves.getInitMoves()[i]);
+    }
+    buffer.put(base + STATUS_OFFSET, advMoves.getStatus());
+  }
+
+  /**
+   * Returns the slot of the given key, the caller must hold the file lock.
+   *
+   * @param key the given canonical key
+   * @return integer of the slot of the given key, or -1 if not exists
+   */
+  private int lockedSlotOf(final long key) {
+    int slot = home(key);
+    for (int count = 0; count < slots; count++) {
+      long value = buffer.getLong(offset(slot));
+      if (value == EMPTY) {
+        return -1;
+      }
+      if (value == key) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  /**
+   * Insert or replace the given reference board with the given ReferenceMoves.  Print an
+   * error if the shared file is half full, the board is not added.
+   *
+   * @param advBoard the given ReferenceBoard object
+   * @param advMoves the given ReferenceMoves object
+   */
+  @Override
+  public void put(final ReferenceBoard advBoard, final ReferenceMoves advMoves) {
+    long key = keyOf(advBoard);
+    synchronized (WRITE_LOCK) {
+      putLocked(key, advBoard, advMoves);
+    }
+  }
+
+  /**
+   * Insert or replace the given reference board, the caller must hold the write lock.
+   *
+   * @param key the canonical key of the given reference board
+   * @param advBoard the given ReferenceBoard object
+   * @param advMoves the given ReferenceMoves object
+   */
+  private void putLocked(final long key, final ReferenceBoard advBoard,
+      final ReferenceMoves advMoves) {
+    try {
+      FileLock lock = channel.lock();
+      try {
+        int slot = lockedSlotOf(key);
+        if (slot < 0) {
+          if ((size() + 1) * 2 > slots) {
+            System.err.println("System error : shared reference collection is full, "
+                + size() + " of " + slots + " slots in use.");
+            return;
+          }
+          slot = home(key);
+          while (buffer.getLong(offset(slot)) != EMPTY) {
+            slot = (slot + 1) & mask;
+          }
+          beginWrite();
+          buffer.putLong(offset(slot) + TRANSFORM_OFFSET, transformKeyOf(advBoard));
+          buffer.put(offset(slot) + GROUP_OFFSET, advBoard.getGroup());
+          writeMoves(slot, advMoves);
+          buffer.putLong(offset(slot), key);
+          buffer.putInt(SIZE_OFFSET, size() + 1);
+        } else {
+          beginWrite();
+          writeMoves(slot, advMoves);
+        }
+        endWrite();
+      } finally {
+        lock.release();
+      }
+    } catch (IOException ex) {
+      System.err.println("System error : shared reference collection lock error - "
+          + ex.getMessage());
+    }
+  }
+
+  @Override
+  boolean removeKey(final long key) {
+    synchronized (WRITE_LOCK) {
+      return removeLocked(key);
+    }
+  }
+
+  @Override
+  int removeAll(final long[] removeKeys) {
+    int count = 0;
+    for (long key : removeKeys) {
+      if (removeKey(key)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Remove the reference board of the given key, the caller must hold the write lock.
+   *
+   * @param key the canonical key of the given reference board
+   * @return boolean value represents the reference board has been removed
+   */
+  private boolean removeLocked(final long key) {
+    try {
+      FileLock lock = channel.lock();
+      try {
+        int slot = lockedSlotOf(key);
+        if (slot < 0) {
+          return false;
+        }
+        beginWrite();
+        int next = (slot + 1) & mask;
+        while (buffer.getLong(offset(next)) != EMPTY) {
+          long nextKey = buffer.getLong(offset(next));
+          if (((next - home(nextKey)) & mask) >= ((next - slot) & mask)) {
+            for (int i = 0; i < SLOT_SIZE; i += Long.BYTES) {
+              buffer.putLong(offset(slot) + i, buffer.getLong(offset(next) + i));
+            }
+            slot = next;
+          }
+          next = (next + 1) & mask;
+        }
+        buffer.putLong(offset(slot), EMPTY);
+        buffer.putInt(SIZE_OFFSET, size() - 1);
+        endWrite();
+        return true;
+      } finally {
+        lock.release();
+      }
+    } catch (IOException ex) {
+      System.err.println("System error : shared reference collection lock error - "
+          + ex.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * The changes of shared file are not journaled, the change feed sends a snapshot
+   * when the version has changed.
+   *
+   * @param journalSize the number of changes kept in journal
+   */
+  @Override
+  void enableJournal(final int journalSize) {
+    // changes from other applications cannot be journaled
+  }
+
+  /**
+   * Remove all reference boards of the shared file, keep the capacity and identity.
+   */
+  public void clear() {
+    synchronized (WRITE_LOCK) {
+      try {
+        FileLock lock = channel.lock();
+        try {
+          beginWrite();
+          for (int slot = 0; slot < slots; slot++) {
+            buffer.putLong(offset(slot), EMPTY);
+          }
+          buffer.putInt(SIZE_OFFSET, 0);
+          endWrite();
+        } finally {
+          lock.release();
+        }
+      } catch (IOException ex) {
+        System.err.println("System error : shared reference collection lock error - "
+            + ex.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Add the reference boards of the given table not in the shared table, and set the
+   * cutoff setting if not set.  Use by the first application of a new shared file.
+   *
+   * @param source the given ReferenceTable object
+   * @param cutoff the integer of cutoff setting
+   */
+  public void importAll(final ReferenceTable source, final int cutoff) {
+    for (int slot = 0; slot < source.capacity(); slot++) {
+      if (source.isOccupied(slot) && !containsKey(source.getKey(slot))) {
+        put(source.getBoard(slot), source.getMoves(slot));
+      }
+    }
+    if (getCutoff() == 0) {
+      setCutoff(cutoff);
+    }
+  }
+
+  /**
+   * Force the changes of shared file to storage device.
+   */
+  public void force() {
+    buffer.force();
+  }
+
+  /**
+   * Returns a heap copy of the shared table, with the same identity and version.
+   *
+   * @return ReferenceTable heap copy of the shared table
+   */
+  @Override
+  ReferenceTable copy() {
+    while (true) {
+      long version = getVersion();
+      ReferenceTable copy = new ReferenceTable(size(), getTableId());
+      for (int slot = 0; slot < slots; slot++) {
+        if (isOccupied(slot)) {
+          copy.put(getBoard(slot), getMoves(slot));
+        }
+      }
+      if (getVersion() == version) {
+        copy.setVersion(version);
+        copy.setUsage(getUsage());
+        return copy;
+      }
+    }
+  }
+
+  /**
+   * Replace the shared table with a heap copy for serialization.
+   *
+   * @return ReferenceTable heap copy of the shared table
+   * @throws ObjectStreamException never thrown
+   */
+  private Object writeReplace() throws ObjectStreamException {
+    return copy();
+  }
+}